@@ -19,6 +19,8 @@ import org.eclipse.core.runtime.Status;
 
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.SharedTypeEnvironments;
+
 /**
  * The main plug-in class to be used in the workbench.
  */
@@ -41,6 +43,7 @@ public class JavaManipulationPlugin extends Plugin {
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		SharedTypeEnvironments.dispose();
 		super.stop(context);
 		fgDefault = null;
 	}
@@ -10,8 +10,6 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
-import java.util.Map;
-
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jdt.core.IType;
@@ -59,14 +57,13 @@ public abstract class HierarchyType extends TType {
 
 	public boolean isSubType(HierarchyType other) {
 		if (getEnvironment() == other.getEnvironment()) {
-			Map<TypeTuple, Boolean> cache= getEnvironment().getSubTypeCache();
+			SubTypeCache cache= getEnvironment().getSubTypeCache();
 			TypeTuple key= new TypeTuple(this, other);
 			Boolean value= cache.get(key);
 			if (value != null)
 				return value.booleanValue();
 			boolean isSub= doIsSubType(other);
-			value= Boolean.valueOf(isSub);
-			cache.put(key, value);
+			cache.put(key, isSub);
 			return isSub;
 		}
 		return doIsSubType(other);
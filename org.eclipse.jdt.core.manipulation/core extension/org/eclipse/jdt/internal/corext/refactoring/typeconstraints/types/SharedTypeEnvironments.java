@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Project-scoped {@link TypeEnvironment}s that are shared between refactorings.
+ * <p>
+ * Refactorings that create many {@link TType}s for the same projects (e.g. Use Supertype)
+ * can reuse the interned types and the subtype relations answered by previous invocations.
+ * An environment is dropped as soon as a Java element delta changes the structure of a type
+ * or the classpath of its project or of a project on its classpath. Clients that already hold
+ * a dropped environment may continue to use it.
+ * </p>
+ *
+ * @since 1.9
+ */
+public final class SharedTypeEnvironments {
+
+	private static final Map<IJavaProject, TypeEnvironment> fgEnvironments= new ConcurrentHashMap<>();
+
+	private static IElementChangedListener fgListener;
+
+	private static final int CLASSPATH_CHANGED= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	private static final int TYPE_CHANGED= IJavaElementDelta.F_SUPER_TYPES | IJavaElementDelta.F_MODIFIERS;
+
+	private static class TypeStructureListener implements IElementChangedListener {
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (!fgEnvironments.isEmpty())
+				processDelta(event.getDelta());
+		}
+
+		private void processDelta(IJavaElementDelta delta) {
+			if (!affectsTypes(delta)) {
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					processDelta(children[i]);
+				}
+				return;
+			}
+			IJavaElement element= delta.getElement();
+			if (element.getElementType() == IJavaElement.JAVA_MODEL) {
+				fgEnvironments.clear();
+				return;
+			}
+			IJavaProject project= element.getJavaProject();
+			for (Iterator<IJavaProject> iter= fgEnvironments.keySet().iterator(); iter.hasNext();) {
+				IJavaProject curr= iter.next();
+				if (curr.equals(project) || !curr.exists() || curr.isOnClasspath(element)) {
+					iter.remove();
+				}
+			}
+		}
+
+		/*
+		 * Returns whether the delta itself may invalidate TTypes. Members of types
+		 * (methods, fields, imports, ...) do not contribute to TTypes.
+		 */
+		private boolean affectsTypes(IJavaElementDelta delta) {
+			int elementType= delta.getElement().getElementType();
+			switch (elementType) {
+				case IJavaElement.JAVA_MODEL:
+					return false;
+				case IJavaElement.TYPE:
+					return delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & TYPE_CHANGED) != 0;
+				case IJavaElement.TYPE_PARAMETER:
+					return true;
+				case IJavaElement.COMPILATION_UNIT:
+				case IJavaElement.CLASS_FILE:
+					if (delta.getKind() != IJavaElementDelta.CHANGED)
+						return true;
+					// coarse content changes do not tell which types changed
+					return (delta.getFlags() & IJavaElementDelta.F_CONTENT) != 0 && (delta.getFlags() & IJavaElementDelta.F_FINE_GRAINED) == 0;
+				case IJavaElement.JAVA_PROJECT:
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				case IJavaElement.PACKAGE_FRAGMENT:
+					return delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGED) != 0;
+				default:
+					return false;
+			}
+		}
+	}
+
+	private SharedTypeEnvironments() {
+	}
+
+	/**
+	 * Returns the shared type environment for the given project. The environment
+	 * neither remembers subtypes nor removes capture types.
+	 *
+	 * @param project the project whose types are created in the environment
+	 * @return the shared type environment
+	 */
+	public static TypeEnvironment getTypeEnvironment(IJavaProject project) {
+		TypeEnvironment environment= fgEnvironments.get(project);
+		if (environment == null) {
+			installListener();
+			environment= new TypeEnvironment();
+			TypeEnvironment existing= fgEnvironments.putIfAbsent(project, environment);
+			if (existing != null)
+				environment= existing;
+		}
+		return environment;
+	}
+
+	/**
+	 * Drops all shared environments.
+	 */
+	public static void flush() {
+		fgEnvironments.clear();
+	}
+
+	/**
+	 * Drops all shared environments and stops listening to Java element changes.
+	 */
+	public static synchronized void dispose() {
+		if (fgListener != null) {
+			JavaCore.removeElementChangedListener(fgListener);
+			fgListener= null;
+		}
+		fgEnvironments.clear();
+	}
+
+	private static synchronized void installListener() {
+		if (fgListener == null) {
+			fgListener= new TypeStructureListener();
+			JavaCore.addElementChangedListener(fgListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe cache of subtype relations between {@link HierarchyType}s.
+ * <p>
+ * The cache is split into stripes with an LRU map and a lock each, so that concurrent
+ * users of a shared {@link TypeEnvironment} rarely contend for the same lock.
+ * </p>
+ *
+ * @since 1.9
+ */
+class SubTypeCache {
+
+	private static final int STRIPES= 16;
+
+	private static final int MAX_ENTRIES_PER_STRIPE= 2048;
+
+	private static class Stripe extends LinkedHashMap<TypeTuple, Boolean> {
+		private static final long serialVersionUID= 1L;
+
+		Stripe() {
+			super(64, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TypeTuple, Boolean> eldest) {
+			return size() > MAX_ENTRIES_PER_STRIPE;
+		}
+	}
+
+	private final Stripe[] fStripes= new Stripe[STRIPES];
+
+	public SubTypeCache() {
+		for (int i= 0; i < STRIPES; i++) {
+			fStripes[i]= new Stripe();
+		}
+	}
+
+	private Stripe getStripe(TypeTuple key) {
+		int hash= key.hashCode();
+		hash^= hash >>> 16;
+		return fStripes[hash & (STRIPES - 1)];
+	}
+
+	/**
+	 * Returns the cached subtype relation.
+	 *
+	 * @param key the pair of subtype and supertype
+	 * @return the cached relation, or <code>null</code> if unknown
+	 */
+	public Boolean get(TypeTuple key) {
+		Stripe stripe= getStripe(key);
+		synchronized (stripe) {
+			return stripe.get(key);
+		}
+	}
+
+	/**
+	 * Caches a subtype relation.
+	 *
+	 * @param key the pair of subtype and supertype
+	 * @param isSubType whether the first type of the pair is a subtype of the second one
+	 */
+	public void put(TypeTuple key, boolean isSubType) {
+		Stripe stripe= getStripe(key);
+		synchronized (stripe) {
+			stripe.put(key, Boolean.valueOf(isSubType));
+		}
+	}
+}
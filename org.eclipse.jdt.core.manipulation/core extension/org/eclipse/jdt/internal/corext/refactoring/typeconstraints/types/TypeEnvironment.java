@@ -13,7 +13,6 @@ package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +36,10 @@ import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
  * A type environment comprises a set of {@link TType}s that stand for Java {@link ITypeBinding}s.
  * In contrast to type bindings, TTypes of the same type environment also work across project boundaries and
  * across compiler environments, i.e. a type environment can handle bindings from multiple {@link ASTParser} sessions.
+ * <p>
+ * Types are created under the environment's lock and the subtype cache is thread-safe, so an environment
+ * can be shared between refactorings (see {@link SharedTypeEnvironments}).
+ * </p>
  * 
  * @see TType
  */
@@ -101,7 +104,7 @@ public class TypeEnvironment {
 		"java.lang.Double",  //$NON-NLS-1$
 		"java.lang.Byte"};  //$NON-NLS-1$
 
-	private TType OBJECT_TYPE= null;
+	private volatile TType OBJECT_TYPE= null;
 
 	private List<Map<TType, ArrayType>>      fArrayTypes= new ArrayList<>();
 	private Map<IJavaElement, StandardType>  fStandardTypes= new HashMap<>();
@@ -114,14 +117,7 @@ public class TypeEnvironment {
 	private Map<TType, SuperWildcardType>    fSuperWildcardTypes= new HashMap<>();
 	private UnboundWildcardType fUnboundWildcardType= null;
 
-	private static final int MAX_ENTRIES= 1024;
-	private Map<TypeTuple, Boolean> fSubTypeCache= new LinkedHashMap<TypeTuple, Boolean>(50, 0.75f, true) {
-		private static final long serialVersionUID= 1L;
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<TypeTuple, Boolean> eldest) {
-			return size() > MAX_ENTRIES;
-		}
-	};
+	private final SubTypeCache fSubTypeCache= new SubTypeCache();
 
 	/**
 	 * Map from TType to its known subtypes, or <code>null</code> iff subtype
@@ -180,11 +176,11 @@ public class TypeEnvironment {
 		fRemoveCapures= removeCapures;
 	}
 
-	Map<TypeTuple, Boolean> getSubTypeCache() {
+	SubTypeCache getSubTypeCache() {
 		return fSubTypeCache;
 	}
 
-	public TType create(ITypeBinding binding) {
+	public synchronized TType create(ITypeBinding binding) {
 		if (binding.isPrimitive()) {
 			return createPrimitiveType(binding);
 		} else if (binding.isArray()) {
@@ -239,7 +235,7 @@ public class TypeEnvironment {
 		return OBJECT_TYPE;
 	}
 
-	public void initializeJavaLangObject(IJavaProject project) {
+	public synchronized void initializeJavaLangObject(IJavaProject project) {
 		if (OBJECT_TYPE != null)
 			return;
 		
@@ -247,7 +243,7 @@ public class TypeEnvironment {
 		Assert.isTrue(objectType.isJavaLangObject());
 	}
 	
-	void initializeJavaLangObject(ITypeBinding object) {
+	synchronized void initializeJavaLangObject(ITypeBinding object) {
 		if (OBJECT_TYPE != null)
 			return;
 
@@ -264,7 +260,7 @@ public class TypeEnvironment {
 		return null;
 	}
 
-	StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
+	synchronized StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
 		String fullyQualifiedName= BOXED_PRIMITIVE_NAMES[type.getId()];
 		return createStandardType(fullyQualifiedName, focus);
 	}
@@ -336,7 +332,7 @@ public class TypeEnvironment {
 		return result;
 	}
 
-	public ArrayType createArrayType(TType elementType, int dimensions) {
+	public synchronized ArrayType createArrayType(TType elementType, int dimensions) {
 		Assert.isTrue(! elementType.isArrayType());
 		Assert.isTrue(! elementType.isAnonymous());
 		Assert.isTrue(dimensions > 0);
@@ -32,6 +32,6 @@ public class TypeTuple {
 
 	@Override
 	public int hashCode() {
-		return fFirst.hashCode() << 16 + fSecond.hashCode();
+		return 31 * fFirst.hashCode() + fSecond.hashCode();
 	}
 }
@@ -10,9 +10,12 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -23,43 +26,147 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Every type contained in a cached hierarchy is indexed, so that lookups do not need to scan
+ * the cached hierarchies. The cache is bounded by the total number of types in the cached
+ * hierarchies rather than by the number of hierarchies. An entry is dropped as soon as its
+ * hierarchy reports a change.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
+	/**
+	 * A snapshot of the cache statistics.
+	 *
+	 * @since 1.9
+	 */
+	public static final class Statistics {
+
+		private final int fHits;
+		private final int fMisses;
+		private final int fEvictions;
+		private final int fInvalidations;
+		private final int fHierarchyCount;
+		private final int fTypeCount;
+
+		private Statistics(int hits, int misses, int evictions, int invalidations, int hierarchyCount, int typeCount) {
+			fHits= hits;
+			fMisses= misses;
+			fEvictions= evictions;
+			fInvalidations= invalidations;
+			fHierarchyCount= hierarchyCount;
+			fTypeCount= typeCount;
+		}
+
+		/**
+		 * @return the number of lookups answered from the cache
+		 */
+		public int getHits() {
+			return fHits;
+		}
+
+		/**
+		 * @return the number of lookups that had to build a new hierarchy
+		 */
+		public int getMisses() {
+			return fMisses;
+		}
+
+		/**
+		 * @return the number of hierarchies removed to stay within the size bound
+		 */
+		public int getEvictions() {
+			return fEvictions;
+		}
+
+		/**
+		 * @return the number of hierarchies removed because they changed or no longer exist
+		 */
+		public int getInvalidations() {
+			return fInvalidations;
+		}
+
+		/**
+		 * @return the number of currently cached hierarchies
+		 */
+		public int getHierarchyCount() {
+			return fHierarchyCount;
+		}
+
+		/**
+		 * @return the estimated size of the cache, i.e. the number of types in all cached hierarchies
+		 */
+		public int getTypeCount() {
+			return fTypeCount;
+		}
+
+		@Override
+		public String toString() {
+			return "SuperTypeHierarchyCache: " + fHierarchyCount + " hierarchies, " + fTypeCount + " types, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ fHits + " hits, " + fMisses + " misses, " + fEvictions + " evictions, " + fInvalidations + " invalidations"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private final ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private final Map<IType, MethodOverrideTester> fMethodOverrideTesters= new ConcurrentHashMap<>(4);
+		private volatile long fLastAccess;
+		private volatile boolean fDisposed;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fTypes= hierarchy.getAllTypes();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
 
 		@Override
 		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
-			removeHierarchyEntryFromCache(this);
+			if (removeHierarchyEntryFromCache(this))
+				fgInvalidations.incrementAndGet();
 		}
 
 		public ITypeHierarchy getTypeHierarchy() {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public MethodOverrideTester getMethodOverrideTester(IType type) {
+			MethodOverrideTester tester= fMethodOverrideTesters.get(type);
+			if (tester == null) {
+				tester= new MethodOverrideTester(type, fTypeHierarchy);
+				MethodOverrideTester existing= fMethodOverrideTesters.putIfAbsent(type, tester);
+				if (existing != null)
+					tester= existing;
+			}
+			return tester;
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessCounter.incrementAndGet();
 		}
 
 		public long getLastAccess() {
 			return fLastAccess;
 		}
 
-		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
-				fTypeHierarchy= null;
-			}
+		public boolean isDisposed() {
+			return fDisposed;
+		}
+
+		public synchronized boolean dispose() {
+			if (fDisposed)
+				return false;
+			fDisposed= true;
+			fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			fMethodOverrideTesters.clear();
+			return true;
 		}
 
 		@Override
@@ -70,13 +177,20 @@ public class SuperTypeHierarchyCache {
 	}
 
 
-	private static final int CACHE_SIZE= 8;
+	/**
+	 * The maximum total number of types in all cached hierarchies.
+	 */
+	private static final int MAX_CACHED_TYPES= 2000;
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+	private static final Set<HierarchyCacheEntry> fgHierarchyCache= ConcurrentHashMap.newKeySet();
+	private static final Map<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<>();
+	private static final AtomicInteger fgCachedTypes= new AtomicInteger();
+	private static final AtomicLong fgAccessCounter= new AtomicLong();
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgEvictions= new AtomicInteger();
+	private static final AtomicInteger fgInvalidations= new AtomicInteger();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -94,32 +208,7 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
-		}
-		return test;
-	}
-
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
-		}
+		return getHierarchyEntry(type, null).getMethodOverrideTester(type);
 	}
 
 	/**
@@ -135,45 +224,50 @@ public class SuperTypeHierarchyCache {
 	 * @throws JavaModelException if a problem occurs
 	 */
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
-		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
-		if (hierarchy == null) {
-			fgCacheMisses++;
-			hierarchy= type.newSupertypeHierarchy(progressMonitor);
-			addTypeHierarchyToCache(hierarchy);
+		return getHierarchyEntry(type, progressMonitor).getTypeHierarchy();
+	}
+
+	private static HierarchyCacheEntry getHierarchyEntry(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
+		HierarchyCacheEntry entry= findHierarchyEntryInCache(type);
+		if (entry == null) {
+			fgCacheMisses.incrementAndGet();
+			entry= addTypeHierarchyToCache(type.newSupertypeHierarchy(progressMonitor));
 		} else {
-			fgCacheHits++;
+			fgCacheHits.incrementAndGet();
 		}
-		return hierarchy;
+		return entry;
 	}
 
-	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
-		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
-				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
-					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
+	private static HierarchyCacheEntry addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+		IType[] types= newEntry.getTypes();
+
+		fgHierarchyCache.add(newEntry);
+		fgCachedTypes.addAndGet(types.length);
+		for (int i= 0; i < types.length; i++) {
+			HierarchyCacheEntry previous= fgTypeIndex.put(types[i], newEntry);
+			// a hierarchy on a super type is obsolete, the new hierarchy contains all its types
+			if (previous != null && previous != newEntry && !previous.isDisposed() && types[i].equals(previous.getTypeHierarchy().getType())) {
+				removeHierarchyEntryFromCache(previous);
+			}
+		}
+		evictLeastRecentlyAccessed(newEntry);
+		return newEntry;
+	}
+
+	private static void evictLeastRecentlyAccessed(HierarchyCacheEntry keep) {
+		while (fgCachedTypes.get() > MAX_CACHED_TYPES) {
+			HierarchyCacheEntry oldest= null;
+			for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.iterator(); iter.hasNext();) {
+				HierarchyCacheEntry entry= iter.next();
+				if (entry != keep && (oldest == null || entry.getLastAccess() < oldest.getLastAccess())) {
+					oldest= entry;
 				}
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
-			fgHierarchyCache.add(newEntry);
+			if (oldest == null)
+				return;
+			if (removeHierarchyEntryFromCache(oldest))
+				fgEvictions.incrementAndGet();
 		}
 	}
 
@@ -184,34 +278,34 @@ public class SuperTypeHierarchyCache {
 	 * @return <code>true</code> if a hierarchy for the given type is cached
 	 */
 	public static boolean hasInCache(IType type) {
-		return findTypeHierarchyInCache(type) != null;
+		return findHierarchyEntryInCache(type) != null;
 	}
 
 
-	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+	private static HierarchyCacheEntry findHierarchyEntryInCache(IType type) {
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null || entry.isDisposed()) {
+			return null;
 		}
-		return null;
+		if (!entry.getTypeHierarchy().exists()) {
+			if (removeHierarchyEntryFromCache(entry))
+				fgInvalidations.incrementAndGet();
+			return null;
+		}
+		entry.markAsAccessed();
+		return entry;
 	}
 
-	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
-		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
-			entry.dispose();
-			fgHierarchyCache.remove(entry);
+	private static boolean removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
+		if (!entry.dispose())
+			return false;
+		fgHierarchyCache.remove(entry);
+		IType[] types= entry.getTypes();
+		for (int i= 0; i < types.length; i++) {
+			fgTypeIndex.remove(types[i], entry);
 		}
+		fgCachedTypes.addAndGet(-types.length);
+		return true;
 	}
 
 
@@ -220,7 +314,7 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -228,6 +322,28 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Returns a snapshot of the cache statistics.
+	 *
+	 * @return the current statistics
+	 * @since 1.9
+	 */
+	public static Statistics getStatistics() {
+		return new Statistics(fgCacheHits.get(), fgCacheMisses.get(), fgEvictions.get(), fgInvalidations.get(), fgHierarchyCache.size(), fgCachedTypes.get());
+	}
+
+	/**
+	 * Resets the hit, miss, eviction and invalidation counters. Used for testing.
+	 *
+	 * @since 1.9
+	 */
+	public static void resetStatistics() {
+		fgCacheHits.set(0);
+		fgCacheMisses.set(0);
+		fgEvictions.set(0);
+		fgInvalidations.set(0);
 	}
 }
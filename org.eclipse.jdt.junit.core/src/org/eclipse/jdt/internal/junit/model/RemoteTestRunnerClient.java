@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -22,6 +25,10 @@ import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
@@ -69,6 +76,10 @@ public class RemoteTestRunnerClient {
 	            return fRerunState;
 	        }
 	        String arg= message.substring(MessageIds.MSG_HEADER_LENGTH);
+	        if (message.startsWith(MessageIds.PROTOCOL_OFFER)) {
+	            acceptProtocol(arg);
+	            return this;
+	        }
 	        if (message.startsWith(MessageIds.TEST_RUN_START)) {
 	            // version < 2 format: count
 	            // version >= 2 format: count+" "+version
@@ -226,6 +237,10 @@ public class RemoteTestRunnerClient {
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
 	private String fLastLineDelimiter;
+	/**
+	 * Whether the RemoteTestRunner switched to the binary protocol
+	 */
+	private boolean fBinaryProtocol;
 	/**
 	 * The protocol version
 	 */
@@ -274,8 +289,16 @@ public class RemoteTestRunnerClient {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
 				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null) {
 					receiveMessage(message);
+					if (fBinaryProtocol) {
+						// the runner waits for our answer, so no frame has been read as text yet
+						Socket socket= fSocket;
+						if (socket != null)
+							readFrames(socket.getInputStream());
+						break;
+					}
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -377,6 +400,74 @@ public class RemoteTestRunnerClient {
 		return buf.toString();
 	}
 
+	/**
+	 * Reads the frames of the binary protocol until the stream ends.
+	 *
+	 * @param stream the stream to read from
+	 * @throws IOException if reading fails or a frame is corrupt
+	 * @see MessageIds#BINARY_PROTOCOL
+	 */
+	private void readFrames(InputStream stream) throws IOException {
+		DataInputStream in= new DataInputStream(new BufferedInputStream(stream));
+		Inflater inflater= new Inflater();
+		fLastLineDelimiter= "\n"; //$NON-NLS-1$
+		try {
+			int flags;
+			while ((flags= in.read()) != -1) {
+				byte[] frame= new byte[in.readInt()];
+				if ((flags & MessageIds.FRAME_DEFLATED) != 0) {
+					byte[] inflated= new byte[in.readInt()];
+					in.readFully(frame);
+					inflate(inflater, frame, inflated);
+					frame= inflated;
+				} else {
+					in.readFully(frame);
+				}
+				int offset= 0;
+				while (offset < frame.length) {
+					int length= ((frame[offset] & 0xff) << 24) | ((frame[offset + 1] & 0xff) << 16) | ((frame[offset + 2] & 0xff) << 8) | (frame[offset + 3] & 0xff);
+					offset+= 4;
+					receiveMessage(new String(frame, offset, length, StandardCharsets.UTF_8));
+					offset+= length;
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt message frame", e); //$NON-NLS-1$
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static void inflate(Inflater inflater, byte[] frame, byte[] inflated) throws IOException {
+		inflater.reset();
+		inflater.setInput(frame);
+		try {
+			int length= 0;
+			while (length < inflated.length) {
+				int count= inflater.inflate(inflated, length, inflated.length - length);
+				if (count == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new IOException("Corrupt message frame"); //$NON-NLS-1$
+				length+= count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt message frame", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Answers a protocol offer of the RemoteTestRunner.
+	 *
+	 * @param protocols the comma separated offered protocols
+	 */
+	private synchronized void acceptProtocol(String protocols) {
+		if (fWriter == null)
+			return;
+		fBinaryProtocol= Arrays.asList(protocols.split(",")).contains(MessageIds.BINARY_PROTOCOL); //$NON-NLS-1$
+		fWriter.println(MessageIds.PROTOCOL_ACCEPT + (fBinaryProtocol ? MessageIds.BINARY_PROTOCOL : MessageIds.TEXT_PROTOCOL));
+		if (fDebug)
+			System.out.println("accepted protocol " + (fBinaryProtocol ? MessageIds.BINARY_PROTOCOL : MessageIds.TEXT_PROTOCOL)); //$NON-NLS-1$
+	}
+
 	private void receiveMessage(String message) {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
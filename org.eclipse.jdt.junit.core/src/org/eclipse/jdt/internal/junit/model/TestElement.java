@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -176,6 +176,12 @@ public abstract class TestElement implements ITestElement {
 
 	private boolean fAssumptionFailed;
 
+	/**
+	 * Offset of the failure details in the swap file of the session,
+	 * or -1 if the details are in memory.
+	 */
+	private long fFailureDetailsOffset= -1;
+
 	/**
 	 * Running time in seconds. Contents depend on the current {@link #getProgressState()}:
 	 * <ul>
@@ -233,8 +239,8 @@ public abstract class TestElement implements ITestElement {
 	public FailureTrace getFailureTrace() {
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
-				|| (testResult == Result.IGNORED && fTrace != null)) {
-			return new FailureTrace(fTrace, fExpected, fActual);
+				|| (testResult == Result.IGNORED && getTrace() != null)) {
+			return new FailureTrace(getTrace(), getExpected(), getActual());
 		}
 		return null;
 	}
@@ -275,6 +281,7 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public void setStatus(Status status, String trace, String expected, String actual) {
+		loadFailureDetails();
 		if (trace != null && fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
 			fTrace= fTrace + trace;
@@ -291,19 +298,49 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public String getTrace() {
+		loadFailureDetails();
 		return fTrace;
 	}
 
 	public String getExpected() {
+		loadFailureDetails();
 		return fExpected;
 	}
 
 	public String getActual() {
+		loadFailureDetails();
 		return fActual;
 	}
 
 	public boolean isComparisonFailure() {
-		return fExpected != null && fActual != null;
+		return getExpected() != null && getActual() != null;
+	}
+
+	/**
+	 * Sets the offset of the failure details in the swap file of the session.
+	 * The details are read when they are first accessed.
+	 *
+	 * @param offset the offset, or -1 if there are no failure details
+	 * @see TestRunSessionStore
+	 */
+	void setFailureDetailsOffset(long offset) {
+		fFailureDetailsOffset= offset;
+	}
+
+	private synchronized void loadFailureDetails() {
+		if (fFailureDetailsOffset == -1)
+			return;
+		long offset= fFailureDetailsOffset;
+		fFailureDetailsOffset= -1;
+		ITestRunSession session= getTestRunSession();
+		if (session instanceof TestRunSession) {
+			String[] details= ((TestRunSession) session).readFailureDetails(offset);
+			if (details != null) {
+				fTrace= details[0];
+				fExpected= details[1];
+				fActual= details[2];
+			}
+		}
 	}
 
 	/**
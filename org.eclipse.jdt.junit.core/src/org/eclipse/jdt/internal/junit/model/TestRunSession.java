@@ -13,6 +13,7 @@
 package org.eclipse.jdt.internal.junit.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -353,7 +354,7 @@ public class TestRunSession implements ITestRunSession {
 		try {
 			File swapFile= getSwapFile();
 
-			JUnitModel.exportTestRunSession(this, swapFile);
+			TestRunSessionStore.write(fTestRoot, swapFile);
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
@@ -363,7 +364,7 @@ public class TestRunSession implements ITestRunSession {
 
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 		}
 	}
@@ -382,7 +383,7 @@ public class TestRunSession implements ITestRunSession {
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -391,17 +392,38 @@ public class TestRunSession implements ITestRunSession {
 		if (fTestRoot != null)
 			return;
 
+		TestRoot testRoot= new TestRoot(this);
+		fIdToTest= new HashMap<>();
+		try {
+			TestRunSessionStore.read(getSwapFile(), this, testRoot);
+		} catch (IllegalStateException e) {
+			JUnitCorePlugin.log(e);
+			testRoot= new TestRoot(this);
+		} catch (IOException e) {
+			JUnitCorePlugin.log(e);
+			testRoot= new TestRoot(this);
+		}
+		fTestRoot= testRoot;
+		fTestResult= null;
+	}
+
+	/**
+	 * Reads failure details that have been left in the swap file by {@link #swapIn()}.
+	 *
+	 * @param offset the offset of the details in the swap file
+	 * @return the trace, expected and actual value, or <code>null</code> if the details are not available
+	 */
+	String[] readFailureDetails(long offset) {
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			File swapFile= getSwapFile();
+			if (swapFile.exists())
+				return TestRunSessionStore.readFailureDetails(swapFile, offset);
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-			fTestRoot= new TestRoot(this);
-			fTestResult= null;
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
-			fTestRoot= new TestRoot(this);
-			fTestResult= null;
 		}
+		return null;
 	}
 
 	public void stopTestRun() {
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Compact binary store for the test tree of a {@link TestRunSession} that is swapped to disk.
+ * <p>
+ * The failure details (traces, expected and actual values) make up most of a session, but
+ * are only needed for the few tests the user looks at. The store therefore keeps them apart
+ * from the test tree, and a swapped in session only reads the tree. Each test element remembers
+ * the offset of its failure details and reads them on demand, see
+ * {@link #readFailureDetails(File, long)}.
+ * </p>
+ * <p>
+ * Layout of the file (all numbers are big-endian, strings are an int byte count followed by
+ * the UTF-8 bytes, or -1 for <code>null</code>):
+ * </p>
+ * <pre>
+ * int   magic
+ * int   version
+ * failure details:  { string trace, string expected, string actual }
+ * test tree, in pre-order:
+ *       byte kind, string id, string name, byte status, byte flags, double time,
+ *       long failure details offset or -1, [int child count if kind is suite]
+ * long  offset of the test tree
+ * </pre>
+ */
+public final class TestRunSessionStore {
+
+	/** The magic number of a store: "JUTR" */
+	private static final int MAGIC= 0x4A555452;
+
+	/** The version of the layout */
+	private static final int VERSION= 1;
+
+	private static final byte KIND_SUITE= 0;
+	private static final byte KIND_CASE= 1;
+
+	private static final byte FLAG_ASSUMPTION_FAILED= 0x01;
+	private static final byte FLAG_IGNORED= 0x02;
+
+	/** The statuses, indexed by their old code */
+	private static final Status[] STATUSES= { Status.OK, Status.ERROR, Status.FAILURE, Status.RUNNING, Status.NOT_RUN, Status.RUNNING_ERROR, Status.RUNNING_FAILURE };
+
+	private TestRunSessionStore() {
+	}
+
+	/**
+	 * Writes the test tree of a session to the given file. The tree is first written to a
+	 * temporary file which then replaces the target, so that failure details that have not been
+	 * read yet can still be read from the target while writing.
+	 *
+	 * @param root the root of the test tree
+	 * @param file the file to write
+	 * @throws IOException if writing fails
+	 */
+	public static void write(TestRoot root, File file) throws IOException {
+		File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 64 * 1024));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			List<Long> detailsOffsets= new ArrayList<>();
+			writeFailureDetails(output, root, detailsOffsets);
+			long treeOffset= output.size();
+			writeTree(output, root, detailsOffsets.iterator());
+			output.writeLong(treeOffset);
+		} finally {
+			output.close();
+		}
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Could not replace " + file); //$NON-NLS-1$
+		}
+	}
+
+	private static void writeFailureDetails(DataOutputStream output, TestElement element, List<Long> detailsOffsets) throws IOException {
+		String trace= element.getTrace();
+		if (trace != null) {
+			detailsOffsets.add(Long.valueOf(output.size()));
+			writeString(output, trace);
+			writeString(output, element.getExpected());
+			writeString(output, element.getActual());
+		} else {
+			detailsOffsets.add(Long.valueOf(-1));
+		}
+		if (element instanceof TestSuiteElement) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				writeFailureDetails(output, (TestElement) children[i], detailsOffsets);
+			}
+		}
+	}
+
+	private static void writeTree(DataOutputStream output, TestElement element, Iterator<Long> detailsOffsets) throws IOException {
+		boolean isSuite= element instanceof TestSuiteElement;
+		Status status= isSuite ? ((TestSuiteElement) element).getSuiteStatus() : element.getStatus();
+		byte flags= 0;
+		if (element.isAssumptionFailure())
+			flags|= FLAG_ASSUMPTION_FAILED;
+		if (element instanceof TestCaseElement && ((TestCaseElement) element).isIgnored())
+			flags|= FLAG_IGNORED;
+
+		output.writeByte(isSuite ? KIND_SUITE : KIND_CASE);
+		writeString(output, element.getId());
+		writeString(output, element.getTestName());
+		output.writeByte(status.getOldCode());
+		output.writeByte(flags);
+		output.writeDouble(element.fTime);
+		output.writeLong(detailsOffsets.next().longValue());
+		if (isSuite) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			output.writeInt(children.length);
+			for (int i= 0; i < children.length; i++) {
+				writeTree(output, (TestElement) children[i], detailsOffsets);
+			}
+		}
+	}
+
+	/**
+	 * Reads the test tree from the given file into a session. Failure details are not read.
+	 *
+	 * @param file the file to read
+	 * @param session the session to create the test elements in
+	 * @param root the root to add the test elements to
+	 * @throws IOException if the file cannot be read or is not a valid store
+	 */
+	public static void read(File file, TestRunSession session, TestRoot root) throws IOException {
+		long treeOffset;
+		RandomAccessFile randomAccessFile= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			if (randomAccessFile.length() < 16 || randomAccessFile.readInt() != MAGIC || randomAccessFile.readInt() != VERSION)
+				throw new IOException("Not a test run session store: " + file); //$NON-NLS-1$
+			randomAccessFile.seek(randomAccessFile.length() - 8);
+			treeOffset= randomAccessFile.readLong();
+		} finally {
+			randomAccessFile.close();
+		}
+
+		InputStream stream= new FileInputStream(file);
+		try {
+			skipFully(stream, treeOffset);
+			DataInputStream input= new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+			if (input.readByte() != KIND_SUITE)
+				throw new IOException("Corrupt test run session store: " + file); //$NON-NLS-1$
+			// the root is created by the session
+			readString(input);
+			readString(input);
+			readElementBody(input, session, root);
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void readElement(DataInputStream input, TestRunSession session, TestSuiteElement parent) throws IOException {
+		boolean isSuite= input.readByte() == KIND_SUITE;
+		String id= readString(input);
+		String name= readString(input);
+		TestElement element= session.createTestElement(parent, id, name, isSuite, 0);
+		readElementBody(input, session, element);
+	}
+
+	private static void readElementBody(DataInputStream input, TestRunSession session, TestElement element) throws IOException {
+		int statusCode= input.readByte();
+		if (statusCode < 0 || statusCode >= STATUSES.length)
+			throw new IOException("Corrupt test run session store"); //$NON-NLS-1$
+		byte flags= input.readByte();
+		double time= input.readDouble();
+		long detailsOffset= input.readLong();
+
+		element.setAssumptionFailed((flags & FLAG_ASSUMPTION_FAILED) != 0);
+		if (element instanceof TestCaseElement)
+			((TestCaseElement) element).setIgnored((flags & FLAG_IGNORED) != 0);
+		if (STATUSES[statusCode] != Status.NOT_RUN)
+			element.setStatus(STATUSES[statusCode]);
+		element.setFailureDetailsOffset(detailsOffset);
+
+		if (element instanceof TestSuiteElement) {
+			int childCount= input.readInt();
+			for (int i= 0; i < childCount; i++) {
+				readElement(input, session, (TestSuiteElement) element);
+			}
+		}
+		// set after the children, since their status changes update the time of running suites
+		element.fTime= time;
+	}
+
+	/**
+	 * Reads the failure details of a test element.
+	 *
+	 * @param file the file to read
+	 * @param offset the offset of the failure details
+	 * @return the trace, expected and actual value of the failure
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String[] readFailureDetails(File file, long offset) throws IOException {
+		InputStream stream= new FileInputStream(file);
+		try {
+			skipFully(stream, offset);
+			DataInputStream input= new DataInputStream(new BufferedInputStream(stream));
+			return new String[] { readString(input), readString(input), readString(input) };
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void skipFully(InputStream stream, long count) throws IOException {
+		while (count > 0) {
+			long skipped= stream.skip(count);
+			if (skipped <= 0)
+				throw new IOException("Unexpected end of test run session store"); //$NON-NLS-1$
+			count-= skipped;
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		int length= input.readInt();
+		if (length == -1)
+			return null;
+		if (length < 0)
+			throw new IOException("Corrupt test run session store"); //$NON-NLS-1$
+		byte[] bytes= new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -54,6 +54,7 @@ import org.eclipse.jdt.core.JavaCore;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
 import org.eclipse.jdt.internal.junit.JUnitMessages;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
 import org.eclipse.jdt.internal.junit.Messages;
 import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
@@ -297,9 +298,19 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 		programArguments.add("-port"); //$NON-NLS-1$
 		programArguments.add(String.valueOf(fPort));
 
+		// older runtimes ignore the argument and keep using the text protocol
+		if (JUnitPreferencesConstants.getBinaryProtocol())
+			programArguments.add("-binaryprotocol"); //$NON-NLS-1$
+
 		if (fKeepAlive)
 			programArguments.add(0, "-keepalive"); //$NON-NLS-1$
 
+		int parallelThreads= configuration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_PARALLEL_THREADS, 1);
+		if (parallelThreads > 1) {
+			programArguments.add("-parallel"); //$NON-NLS-1$
+			programArguments.add(String.valueOf(parallelThreads));
+		}
+
 		ITestKind testRunnerKind= getTestRunnerKind(configuration);
 
 		programArguments.add("-testLoaderClass"); //$NON-NLS-1$
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes messages of the {@link MessageIds#BINARY_PROTOCOL binary protocol}.
+ * <p>
+ * Messages are collected in a batch that is sent as one frame. A flush sends the
+ * batch right away unless the previous frame has been sent less than
+ * {@link #BATCH_DELAY} ms ago. In that case a flusher thread sends the batch
+ * once the delay has elapsed, so that fast test runs do not pay for a socket
+ * write per test. Large frames are deflated.
+ * </p>
+ * <p>
+ * Like a {@link java.io.PrintWriter}, the writer never throws an <code>IOException</code>.
+ * </p>
+ */
+public class BinaryMessageWriter {
+
+	/**
+	 * Minimal time in ms between two frames that are sent because of a flush.
+	 */
+	private static final long BATCH_DELAY= 50;
+	/**
+	 * Size of a batch in bytes after which it is sent without waiting for a flush.
+	 */
+	private static final int MAX_BATCH_SIZE= 32 * 1024;
+	/**
+	 * Size of a batch in bytes from which on the frame is deflated.
+	 */
+	private static final int DEFLATE_THRESHOLD= 1024;
+
+	private final DataOutputStream fOutput;
+	private final ByteArrayOutputStream fBatch= new ByteArrayOutputStream(MAX_BATCH_SIZE + 1024);
+	private final DataOutputStream fBatchOutput= new DataOutputStream(fBatch);
+	private final Deflater fDeflater= new Deflater(Deflater.BEST_SPEED);
+	private byte[] fDeflated= new byte[MAX_BATCH_SIZE];
+
+	private long fLastFrame;
+	private boolean fFlushRequested;
+	private boolean fClosed;
+
+	/**
+	 * Thread that sends batches whose flush has been delayed.
+	 */
+	private class FlusherThread extends Thread {
+		public FlusherThread() {
+			super("BinaryMessageWriter"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		public void run() {
+			synchronized (BinaryMessageWriter.this) {
+				try {
+					while (!fClosed) {
+						if (!fFlushRequested) {
+							BinaryMessageWriter.this.wait();
+							continue;
+						}
+						long delay= fLastFrame + BATCH_DELAY - System.currentTimeMillis();
+						if (delay > 0)
+							BinaryMessageWriter.this.wait(delay);
+						else
+							writeFrame();
+					}
+				} catch (InterruptedException e) {
+					// stop flushing, close() sends the rest
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a writer that sends frames to the given stream.
+	 *
+	 * @param stream the stream to write to
+	 */
+	public BinaryMessageWriter(OutputStream stream) {
+		fOutput= new DataOutputStream(new BufferedOutputStream(stream, MAX_BATCH_SIZE + 1024));
+		new FlusherThread().start();
+	}
+
+	/**
+	 * Adds a message to the current batch.
+	 *
+	 * @param message the message
+	 */
+	public synchronized void write(String message) {
+		if (fClosed)
+			return;
+		try {
+			byte[] bytes= message.getBytes("UTF-8"); //$NON-NLS-1$
+			fBatchOutput.writeInt(bytes.length);
+			fBatchOutput.write(bytes);
+		} catch (IOException e) {
+			// cannot happen for a ByteArrayOutputStream
+		}
+		if (fBatch.size() >= MAX_BATCH_SIZE)
+			writeFrame();
+	}
+
+	/**
+	 * Requests to send the current batch. The batch is sent right away if the last
+	 * frame has been sent at least {@link #BATCH_DELAY} ms ago, and later otherwise.
+	 */
+	public synchronized void flush() {
+		if (fClosed || fBatch.size() == 0)
+			return;
+		if (System.currentTimeMillis() - fLastFrame >= BATCH_DELAY) {
+			writeFrame();
+		} else if (!fFlushRequested) {
+			fFlushRequested= true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Sends the current batch and stops the flusher thread. The underlying stream is not closed.
+	 */
+	public synchronized void close() {
+		if (fClosed)
+			return;
+		writeFrame();
+		fClosed= true;
+		fDeflater.end();
+		notifyAll();
+	}
+
+	private void writeFrame() {
+		fFlushRequested= false;
+		fLastFrame= System.currentTimeMillis();
+		int size= fBatch.size();
+		if (size == 0)
+			return;
+		byte[] batch= fBatch.toByteArray();
+		fBatch.reset();
+		try {
+			int deflatedSize= size >= DEFLATE_THRESHOLD ? deflate(batch) : -1;
+			if (deflatedSize != -1) {
+				fOutput.writeByte(MessageIds.FRAME_DEFLATED);
+				fOutput.writeInt(deflatedSize);
+				fOutput.writeInt(size);
+				fOutput.write(fDeflated, 0, deflatedSize);
+			} else {
+				fOutput.writeByte(0);
+				fOutput.writeInt(size);
+				fOutput.write(batch);
+			}
+			fOutput.flush();
+		} catch (IOException e) {
+			// the client is gone, ignore like PrintWriter does
+		}
+	}
+
+	/**
+	 * Deflates the given batch into {@link #fDeflated}.
+	 *
+	 * @param batch the batch
+	 * @return the size of the deflated data, or -1 if deflating does not make the batch smaller
+	 */
+	private int deflate(byte[] batch) {
+		if (fDeflated.length < batch.length)
+			fDeflated= new byte[batch.length];
+		fDeflater.reset();
+		fDeflater.setInput(batch);
+		fDeflater.finish();
+		int deflatedSize= 0;
+		while (!fDeflater.finished() && deflatedSize < batch.length) {
+			deflatedSize+= fDeflater.deflate(fDeflated, deflatedSize, batch.length - deflatedSize);
+		}
+		return fDeflater.finished() && deflatedSize < batch.length ? deflatedSize : -1;
+	}
+}
@@ -25,22 +25,27 @@ public class FirstRunExecutionListener implements IListensToTestExecutions {
 		fIds = ids;
 	}
 
-	public void notifyTestEnded(ITestIdentifier test) {
+	/*
+	 * The notifications are synchronized, since the tests of a TestExecution may run in parallel.
+	 * A failure is sent as several messages that must not be interleaved with other messages.
+	 */
+
+	public synchronized void notifyTestEnded(ITestIdentifier test) {
 		sendMessage(test, MessageIds.TEST_END);
 	}
 
-	public void notifyTestFailed(TestReferenceFailure failure) {
+	public synchronized void notifyTestFailed(TestReferenceFailure failure) {
 		sendMessage(failure.getTest(), failure.getStatus());
 		sendFailure(failure, MessageIds.TRACE_START, MessageIds.TRACE_END);
 	}
 
-	public void notifyTestStarted(ITestIdentifier test) {
+	public synchronized void notifyTestStarted(ITestIdentifier test) {
 		sendMessage(test, MessageIds.TEST_START);
 		fSender.flush();
 	}
 
-	private String getTestId(ITestIdentifier test) {
-		return fIds.getTestId(test);
+	private int getTestId(ITestIdentifier test) {
+		return fIds.getId(test);
 	}
 
 	protected void sendFailure(TestReferenceFailure failure, String startTrace,
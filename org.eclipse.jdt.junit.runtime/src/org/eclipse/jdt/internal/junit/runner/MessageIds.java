@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -119,6 +119,33 @@ public class MessageIds {
 	 * TEST_RERUN + testId + " " + testClass + " "+testName
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
+	/**
+	 * Offer of the protocols the RemoteTestRunner can switch to.
+	 * PROTOCOL_OFFER + protocol { "," + protocol }.
+	 * The RemoteTestRunner does not send any other message before it
+	 * has received the PROTOCOL_ACCEPT answer.
+	 */
+	public static final String PROTOCOL_OFFER= "%PROTOCL"; //$NON-NLS-1$
+	/**
+	 * Answer to a PROTOCOL_OFFER.
+	 * PROTOCOL_ACCEPT + protocol.
+	 * All further messages of the RemoteTestRunner are sent with the accepted protocol.
+	 */
+	public static final String PROTOCOL_ACCEPT= ">PROTOCL"; //$NON-NLS-1$
+	/**
+	 * The line based text protocol, one message per line.
+	 */
+	public static final String TEXT_PROTOCOL= "text"; //$NON-NLS-1$
+	/**
+	 * The binary protocol. Messages are sent in frames:
+	 * byte flags, int length, [int inflated length if FRAME_DEFLATED], byte[length] data.
+	 * The (inflated) data is a sequence of int length, byte[length] UTF-8 encoded message.
+	 */
+	public static final String BINARY_PROTOCOL= "binary1"; //$NON-NLS-1$
+	/**
+	 * Flag of a binary frame whose data is compressed with a {@link java.util.zip.Deflater}.
+	 */
+	public static final int FRAME_DEFLATED= 0x01;
 
 	/**
 	 * MessageFormat to encode test method identifiers:
@@ -22,6 +22,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.Vector;
 
 import org.eclipse.jdt.internal.junit.runner.junit3.JUnit3TestLoader;
@@ -120,6 +121,26 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 	private boolean fConsoleMode = false;
 
+	/**
+	 * Whether to offer the binary protocol to the client.
+	 */
+	private boolean fBinaryProtocol= false;
+	/**
+	 * The writer for the binary protocol, or <code>null</code>
+	 * if the client did not accept the binary protocol.
+	 */
+	private BinaryMessageWriter fBinaryWriter;
+
+	/**
+	 * The number of threads that run the top-level test classes.
+	 */
+	private int fParallelism= 1;
+
+	/**
+	 * Time in ms to wait for the client to answer the protocol offer.
+	 */
+	private static final int PROTOCOL_OFFER_TIMEOUT= 10000;
+
 	/**
 	 * Reader thread that processes messages from the client.
 	 */
@@ -183,6 +204,8 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * -host: the host to connect to default local host
 	 * -port: the port to connect to, mandatory argument
 	 * -keepalive: keep the process alive after a test run
+	 * -binaryprotocol: offer the binary protocol to the client
+	 * -parallel: the number of threads that run the test classes, default 1
      * </pre>
      */
 	public static void main(String[] args) {
@@ -273,6 +296,13 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			else if(args[i].toLowerCase().equals("-keepalive")) { //$NON-NLS-1$
 				fKeepAlive= true;
 			}
+			else if(args[i].toLowerCase().equals("-binaryprotocol")) { //$NON-NLS-1$
+				fBinaryProtocol= true;
+			}
+			else if(args[i].toLowerCase().equals("-parallel")) { //$NON-NLS-1$
+				fParallelism= Integer.parseInt(args[i+1]);
+				i++;
+			}
 			else if(args[i].toLowerCase().equals("-debugging") || args[i].toLowerCase().equals("-debug")){ //$NON-NLS-1$ //$NON-NLS-2$
 			    fDebugMode= true;
 
@@ -379,6 +409,7 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 		FirstRunExecutionListener listener= firstRunExecutionListener();
 		fExecution= new TestExecution(listener, getClassifier());
+		fExecution.setParallelism(fParallelism);
 		runTests(fExecution);
 		if (fKeepAlive)
 			waitForReruns();
@@ -507,7 +538,7 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void visitTreeEntry(ITestIdentifier id, boolean b, int i) {
-		notifyTestTreeEntry(getTestId(id) + ',' + escapeTestName(id.getName()) + ',' + b + ',' + i);
+		notifyTestTreeEntry(Integer.toString(getTestId(id)) + ',' + escapeTestName(id.getName()) + ',' + b + ',' + i);
 	}
 
 	public static String escapeTestName(String s) {
@@ -535,8 +566,8 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	// WANT: work in bug fixes since RC2?
-	private String getTestId(ITestIdentifier id) {
-		return fIds.getTestId(id);
+	private int getTestId(ITestIdentifier id) {
+		return fIds.getId(id);
 	}
 
 	/**
@@ -578,6 +609,8 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
                 } catch (UnsupportedEncodingException e1) {
                     fReader= new BufferedReader(new InputStreamReader(fClientSocket.getInputStream()));
                 }
+				if (fBinaryProtocol)
+					negotiateProtocol();
 				fReaderThread= new ReaderThread();
 				fReaderThread.start();
 				return true;
@@ -593,10 +626,39 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		return false;
 	}
 
+	/**
+	 * Offers the binary protocol to the client and switches to it if the client accepts.
+	 * Clients that do not answer in time are served with the text protocol.
+	 *
+	 * @throws IOException if the connection fails
+	 */
+	private void negotiateProtocol() throws IOException {
+		fWriter.println(MessageIds.PROTOCOL_OFFER + MessageIds.BINARY_PROTOCOL);
+		fWriter.flush();
+		String answer= null;
+		fClientSocket.setSoTimeout(PROTOCOL_OFFER_TIMEOUT);
+		try {
+			answer= fReader.readLine();
+		} catch (SocketTimeoutException e) {
+			if (fDebugMode)
+				System.out.println("RemoteTestRunner: no answer to protocol offer"); //$NON-NLS-1$
+		} finally {
+			fClientSocket.setSoTimeout(0);
+		}
+		if ((MessageIds.PROTOCOL_ACCEPT + MessageIds.BINARY_PROTOCOL).equals(answer))
+			fBinaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+		if (fDebugMode)
+			System.out.println("RemoteTestRunner: protocol " + (fBinaryWriter != null ? MessageIds.BINARY_PROTOCOL : MessageIds.TEXT_PROTOCOL)); //$NON-NLS-1$
+	}
+
 	/**
 	 * Shutsdown the connection to the remote test listener.
 	 */
 	private void shutDown() {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.close();
+			fBinaryWriter= null;
+		}
 		if (fWriter != null) {
 			fWriter.close();
 			fWriter= null;
@@ -632,6 +694,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.write(msg);
+			return;
+		}
 		if(fWriter == null)
 			return;
 		fWriter.println(msg);
@@ -671,6 +737,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.flush();
+			return;
+		}
 	    fWriter.flush();
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,7 +17,9 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 public class TestExecution {
-	private boolean fShouldStop = false;
+	private volatile boolean fShouldStop = false;
+
+	private int fParallelism = 1;
 
 	private IListensToTestExecutions fExecutionListener;
 
@@ -31,7 +33,21 @@ public class TestExecution {
 		fExecutionListener = listener;
 	}
 
+	/**
+	 * Sets the number of threads that run the top-level test references.
+	 *
+	 * @param parallelism the number of threads, 1 to run the references
+	 *            one after the other on the calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		fParallelism = Math.max(1, parallelism);
+	}
+
 	public void run(ITestReference[] suites) {
+		if (fParallelism > 1 && suites.length > 1) {
+			runInParallel(suites);
+			return;
+		}
 		for (int i = 0; i < suites.length; i++) {
 			if (fShouldStop)
 				return;
@@ -39,13 +55,70 @@ public class TestExecution {
 		}
 	}
 
+	/*
+	 * Runs the given references on fParallelism threads and waits until all of them are done.
+	 * The references are taken in their order, so that the run starts with the same tests
+	 * as a sequential run.
+	 */
+	private void runInParallel(final ITestReference[] suites) {
+		final int[] next = new int[1];
+		final Throwable[] problem = new Throwable[1];
+		Thread[] workers = new Thread[Math.min(fParallelism, suites.length)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread("TestExecution-" + i) { //$NON-NLS-1$
+				public void run() {
+					while (true) {
+						ITestReference suite;
+						synchronized (next) {
+							if (fShouldStop || problem[0] != null || next[0] >= suites.length)
+								return;
+							suite = suites[next[0]++];
+						}
+						try {
+							suite.run(TestExecution.this);
+						} catch (RuntimeException e) {
+							setProblem(e);
+						} catch (Error e) {
+							setProblem(e);
+						}
+					}
+				}
+
+				private void setProblem(Throwable e) {
+					synchronized (next) {
+						if (problem[0] == null)
+							problem[0] = e;
+					}
+				}
+			};
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		for (int i = 0; i < workers.length; i++) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+				stop();
+				i--;
+			}
+		}
+		if (problem[0] instanceof RuntimeException)
+			throw (RuntimeException) problem[0];
+		if (problem[0] instanceof Error)
+			throw (Error) problem[0];
+	}
+
 	public boolean shouldStop() {
 		return fShouldStop;
 	}
 
 	public void stop() {
 		fShouldStop = true;
-		for (Iterator iter = fStopListeners.iterator(); iter.hasNext();) {
+		ArrayList stopListeners;
+		synchronized (fStopListeners) {
+			stopListeners = new ArrayList(fStopListeners);
+		}
+		for (Iterator iter = stopListeners.iterator(); iter.hasNext();) {
 			IStopListener listener = (IStopListener) iter.next();
 			listener.stop();
 		}
@@ -60,6 +133,8 @@ public class TestExecution {
 	}
 
 	public void addStopListener(IStopListener listener) {
-		fStopListeners.add(listener);
+		synchronized (fStopListeners) {
+			fStopListeners.add(listener);
+		}
 	}
 }
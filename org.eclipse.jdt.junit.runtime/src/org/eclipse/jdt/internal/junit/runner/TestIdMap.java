@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,23 +13,87 @@
 
 package org.eclipse.jdt.internal.junit.runner;
 
-import java.util.HashMap;
-
+/**
+ * Assigns ids to test identifiers.
+ * <p>
+ * The map is an open addressing table with linear probing. The hash codes of the
+ * identifiers and the ids are kept in <code>int</code> arrays, so that registering
+ * and looking up a test neither boxes ids nor allocates entries.
+ * </p>
+ * <p>
+ * The map is thread-safe.
+ * </p>
+ */
 public class TestIdMap {
-	private HashMap fIdMap= new HashMap();
+	private static final int INITIAL_CAPACITY= 256;
+
+	private ITestIdentifier[] fIdentifiers= new ITestIdentifier[INITIAL_CAPACITY];
+	private int[] fHashes= new int[INITIAL_CAPACITY];
+	private int[] fIds= new int[INITIAL_CAPACITY];
+	private int fSize= 0;
 
 	private int fNextId= 1;
 
+	/**
+	 * Returns the id of the given test identifier. A new id is assigned
+	 * to identifiers that have not been seen before.
+	 *
+	 * @param identifier the test identifier
+	 * @return the id, a positive number
+	 */
+	public synchronized int getId(ITestIdentifier identifier) {
+		int hash= identifier.hashCode();
+		int mask= fIdentifiers.length - 1;
+		int index= mix(hash) & mask;
+		ITestIdentifier current;
+		while ((current= fIdentifiers[index]) != null) {
+			if (fHashes[index] == hash && current.equals(identifier))
+				return fIds[index];
+			index= (index + 1) & mask;
+		}
+		int id= fNextId++;
+		fIdentifiers[index]= identifier;
+		fHashes[index]= hash;
+		fIds[index]= id;
+		if (++fSize > fIdentifiers.length >> 1)
+			grow();
+		return id;
+	}
+
 	public String getTestId(ITestIdentifier identifier) {
-		Object id= fIdMap.get(identifier);
-		if (id != null)
-			return (String) id;
-		String newId= Integer.toString(fNextId++);
-		fIdMap.put(identifier, newId);
-		return newId;
+		return Integer.toString(getId(identifier));
 	}
 
 	public String getTestId(ITestReference ref) {
 		return getTestId(ref.getIdentifier());
 	}
+
+	private void grow() {
+		ITestIdentifier[] identifiers= fIdentifiers;
+		int[] hashes= fHashes;
+		int[] ids= fIds;
+		int capacity= identifiers.length << 1;
+		int mask= capacity - 1;
+		fIdentifiers= new ITestIdentifier[capacity];
+		fHashes= new int[capacity];
+		fIds= new int[capacity];
+		for (int i= 0; i < identifiers.length; i++) {
+			if (identifiers[i] == null)
+				continue;
+			int index= mix(hashes[i]) & mask;
+			while (fIdentifiers[index] != null)
+				index= (index + 1) & mask;
+			fIdentifiers[index]= identifiers[i];
+			fHashes[index]= hashes[i];
+			fIds[index]= ids[i];
+		}
+	}
+
+	/*
+	 * Spreads the bits of hash codes that only differ in their upper bits.
+	 */
+	private static int mix(int hash) {
+		hash*= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -140,6 +140,27 @@ public class AbstractSemanticHighlightingTest extends TestCase {
 		return document.getPositions(positionCategory);
 	}
 
+	protected void replace(Position position, String text) throws BadLocationException {
+		replace(position, text, true);
+	}
+
+	/**
+	 * Replaces the given range and waits for the reconciler.
+	 *
+	 * @param position the range to replace
+	 * @param text the replacement
+	 * @param forced <code>true</code> to force the reconcile, <code>false</code> to wait for the
+	 *            reconcile that is triggered by the document change
+	 * @throws BadLocationException if the range is not in the document
+	 */
+	protected void replace(Position position, String text, boolean forced) throws BadLocationException {
+		fSourceViewer.getDocument().replace(position.getOffset(), position.getLength(), text);
+		if (forced)
+			EditorTestHelper.forceReconcile(fSourceViewer);
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+	}
+
 	protected void setUpSemanticHighlighting(String semanticHighlighting) {
 		enableSemanticHighlighting(semanticHighlighting);
 		EditorTestHelper.forceReconcile(fSourceViewer);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -120,6 +120,33 @@ public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
 		assertEqualPositions(expected, actual);
 	}
 
+	public void testNumberHighlightingAfterMethodBodyChange() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.NUMBER);
+		// the position outside of the method body is only corrected by a reconcile of the whole unit
+		Position outside= getSemanticHighlightingPositions()[0];
+		assertEquals(createPosition(5, 23, 1).getOffset(), outside.getOffset());
+		outside.setLength(2);
+		Position localIncrement= createPosition(9, 2, 8);
+		replace(localIncrement, "local+= 2;", false);
+		try {
+			Position[] expected= new Position[] {
+					createPosition(5, 23, 2),
+					createPosition(6, 36, 1),
+					createPosition(8, 21, 1),
+					createPosition(9, 10, 1),
+					createPosition(13, 19, 1),
+					createPosition(13, 31, 2),
+				};
+
+			Position[] actual= getSemanticHighlightingPositions();
+//			System.out.println(toString(actual));
+			assertEqualPositions(expected, actual);
+		} finally {
+			// the forced reconcile also corrects the position outside of the body
+			replace(new Position(localIncrement.getOffset(), 10), "local++;");
+		}
+	}
+
 	public void testMethodDeclarationHighlighting() throws Exception {
 		setUpSemanticHighlighting(SemanticHighlightings.METHOD_DECLARATION);
 		Position[] expected= new Position[] {
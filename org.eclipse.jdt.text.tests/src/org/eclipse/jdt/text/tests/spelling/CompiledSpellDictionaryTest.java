@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompiledSpellDictionary;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+public class CompiledSpellDictionaryTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(CompiledSpellDictionaryTest.class);
+	}
+
+	private File fImage;
+
+	public CompiledSpellDictionaryTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fImage= File.createTempFile("dictionary", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fImage.delete();
+		super.tearDown();
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private CompiledSpellDictionary compile(String[][] entries, long stamp) throws IOException {
+		CompiledSpellDictionary.Builder builder= new CompiledSpellDictionary.Builder();
+		for (int i= 0; i < entries.length; i++)
+			builder.add(bytes(entries[i][0]), bytes(entries[i][1]));
+		builder.write(fImage, stamp);
+		return CompiledSpellDictionary.open(fImage);
+	}
+
+	public void testLookup() throws Exception {
+		CompiledSpellDictionary dictionary= compile(new String[][] {
+				{ "TRK", "truck" }, //$NON-NLS-1$ //$NON-NLS-2$
+				{ "LR", "lorry" }, //$NON-NLS-1$ //$NON-NLS-2$
+				{ "TRK", "trick" }, //$NON-NLS-1$ //$NON-NLS-2$
+				{ "\u00DCB", "\u00FCber" }, //$NON-NLS-1$ //$NON-NLS-2$
+		}, 42);
+
+		assertEquals(42, dictionary.getStamp());
+		assertEquals(4, dictionary.size());
+
+		byte[][] words= dictionary.getCandidates(bytes("TRK")); //$NON-NLS-1$
+		assertEquals(2, words.length);
+		assertEquals("truck", new String(words[0], StandardCharsets.UTF_8)); //$NON-NLS-1$
+		assertEquals("trick", new String(words[1], StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+		words= dictionary.getCandidates(bytes("LR")); //$NON-NLS-1$
+		assertEquals(1, words.length);
+		assertEquals("lorry", new String(words[0], StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+		words= dictionary.getCandidates(bytes("\u00DCB")); //$NON-NLS-1$
+		assertEquals("\u00FCber", new String(words[0], StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+		assertNull(dictionary.getCandidates(bytes("TR"))); //$NON-NLS-1$
+		assertNull(dictionary.getCandidates(bytes("TRKS"))); //$NON-NLS-1$
+		assertNull(dictionary.getCandidates(bytes("A"))); //$NON-NLS-1$
+	}
+
+	public void testEmpty() throws Exception {
+		CompiledSpellDictionary dictionary= compile(new String[0][], 0);
+		assertEquals(0, dictionary.size());
+		assertNull(dictionary.getCandidates(bytes("TRK"))); //$NON-NLS-1$
+	}
+
+	public void testCorruptImage() throws Exception {
+		FileOutputStream stream= new FileOutputStream(fImage);
+		try {
+			stream.write(bytes("truck\nlorry\n")); //$NON-NLS-1$
+		} finally {
+			stream.close();
+		}
+		try {
+			CompiledSpellDictionary.open(fImage);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -26,6 +26,7 @@ public class SpellingTestSuite {
 		TestSuite suite = new TestSuite(SpellingTestSuite.class.getName());
 		//$JUnit-BEGIN$
 		suite.addTest(SpellCheckEngineTestCase.suite());
+		suite.addTest(CompiledSpellDictionaryTest.suite());
 		//$JUnit-END$
 		return suite;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ public class AllTests {
 		suite.addTest(UndoManagerTests.suite());
 		suite.addTest(PathTransformationTests.suite());
 		suite.addTest(RefactoringScannerTests.suite());
+		suite.addTest(TextTokenIndexTests.suite());
 		suite.addTest(SurroundWithTests.suite());
 		suite.addTest(SurroundWithTests17.suite());
 		suite.addTest(SurroundWithTests18.suite());
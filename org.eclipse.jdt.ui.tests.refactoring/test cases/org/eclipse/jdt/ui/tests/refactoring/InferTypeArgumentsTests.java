@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@ package org.eclipse.jdt.ui.tests.refactoring;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.zip.ZipInputStream;
 
 import junit.framework.Test;
@@ -258,6 +260,128 @@ public class InferTypeArgumentsTests extends RefactoringTest {
 
 	}
 
+	public void testStableResultForSeveralProjects() throws Exception {
+		fAssumeCloneReturnsSameType= false;
+		fLeaveUnconstrainedRaw= true;
+
+		// the projects are processed in parallel batches, the result must not depend on their timing
+		Map<String, String> expected= null;
+		for (int run= 0; run < 3; run++) {
+			IJavaProject junitProject= JavaProjectHelper.createJavaProject("InferTypeArguments", "bin");
+			IJavaProject otherProject= JavaProjectHelper.createJavaProject("InferTypeArguments2", "bin");
+			try {
+				Assert.assertNotNull(JavaProjectHelper.addRTJar(junitProject));
+				File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+				Assert.assertTrue(junitSrcArchive != null && junitSrcArchive.exists());
+				IPackageFragmentRoot junitSrc= JavaProjectHelper.addSourceContainerWithImport(junitProject, "src", junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+
+				Assert.assertNotNull(JavaProjectHelper.addRTJar(otherProject));
+				IPackageFragmentRoot otherSrc= JavaProjectHelper.addSourceContainer(otherProject, "src");
+				IPackageFragment pack= otherSrc.createPackageFragment("p", true, null);
+				for (int i= 0; i < 30; i++) {
+					String name= "U" + i;
+					StringBuffer buf= new StringBuffer();
+					buf.append("package p;\n");
+					buf.append("import java.util.*;\n");
+					buf.append("public class " + name + " {\n");
+					buf.append("    List fList= new ArrayList();\n");
+					buf.append("    void add(Vector v) {\n");
+					buf.append("        fList.add(" + (i % 2 == 0 ? "\"a\"" : "new StringBuffer()") + ");\n");
+					buf.append("        Map map= new HashMap();\n");
+					buf.append("        map.put(Integer.valueOf(" + i + "), fList);\n");
+					buf.append("        v.add(map);\n");
+					buf.append("    }\n");
+					buf.append("}\n");
+					pack.createCompilationUnit(name + ".java", buf.toString(), false, null);
+				}
+
+				boolean performed= perform(new IJavaElement[] { junitProject, otherProject }, RefactoringStatus.OK, RefactoringStatus.OK);
+				assertTrue(performed);
+
+				Map<String, String> actual= new LinkedHashMap<>();
+				collectSources(junitSrc, actual);
+				collectSources(otherSrc, actual);
+				if (expected == null) {
+					expected= actual;
+				} else {
+					assertEquals(expected.keySet(), actual.keySet());
+					for (Map.Entry<String, String> entry : expected.entrySet()) {
+						assertEqualLines(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+					}
+				}
+			} finally {
+				if (junitProject.exists())
+					JavaProjectHelper.delete(junitProject);
+				if (otherProject.exists())
+					JavaProjectHelper.delete(otherProject);
+			}
+		}
+	}
+
+	public void testBatchesMatchSingleUnit() throws Exception {
+		fAssumeCloneReturnsSameType= false;
+		fLeaveUnconstrainedRaw= true;
+
+		// the constraints use bindings of binary super types and parameterized types, which are
+		// only valid while the units of a batch are accepted, not after the batch is done
+		int count= 60;
+		IJavaProject batchedProject= JavaProjectHelper.createJavaProject("InferTypeArguments", "bin");
+		IJavaProject singleProject= JavaProjectHelper.createJavaProject("InferTypeArguments2", "bin");
+		try {
+			Assert.assertNotNull(JavaProjectHelper.addRTJar(batchedProject));
+			IPackageFragment batchedPack= JavaProjectHelper.addSourceContainer(batchedProject, "src").createPackageFragment("p", true, null);
+			for (int i= 0; i < count; i++) {
+				batchedPack.createCompilationUnit("U" + i + ".java", getBatchUnitSource("U" + i), false, null);
+			}
+			Assert.assertNotNull(JavaProjectHelper.addRTJar(singleProject));
+			IPackageFragment singlePack= JavaProjectHelper.addSourceContainer(singleProject, "src").createPackageFragment("p", true, null);
+			ICompilationUnit single= singlePack.createCompilationUnit("U.java", getBatchUnitSource("U"), false, null);
+
+			assertTrue(perform(new IJavaElement[] { singleProject }, RefactoringStatus.OK, RefactoringStatus.OK));
+			String expected= single.getSource();
+			assertFalse(expected.equals(getBatchUnitSource("U")));
+
+			assertTrue(perform(new IJavaElement[] { batchedProject }, RefactoringStatus.OK, RefactoringStatus.OK));
+			for (int i= 0; i < count; i++) {
+				String name= "U" + i;
+				String actual= batchedPack.getCompilationUnit(name + ".java").getSource();
+				assertEqualLines(name, expected.replaceAll("\\bU\\b", name), actual);
+			}
+		} finally {
+			if (batchedProject.exists())
+				JavaProjectHelper.delete(batchedProject);
+			if (singleProject.exists())
+				JavaProjectHelper.delete(singleProject);
+		}
+	}
+
+	private static String getBatchUnitSource(String name) {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("import java.util.*;\n");
+		buf.append("public class " + name + " extends ArrayList {\n");
+		buf.append("    void fill(Vector v) {\n");
+		buf.append("        add(\"a\");\n");
+		buf.append("        List list= new LinkedList();\n");
+		buf.append("        list.add(Integer.valueOf(1));\n");
+		buf.append("        Map map= new HashMap();\n");
+		buf.append("        map.put(\"key\", list);\n");
+		buf.append("        v.add(map);\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	private static void collectSources(IPackageFragmentRoot root, Map<String, String> sources) throws CoreException {
+		IJavaElement[] packages= root.getChildren();
+		for (int i= 0; i < packages.length; i++) {
+			ICompilationUnit[] cus= ((IPackageFragment) packages[i]).getCompilationUnits();
+			for (int j= 0; j < cus.length; j++) {
+				sources.put(cus[j].getPath().toString(), cus[j].getSource());
+			}
+		}
+	}
+
 	public void testJUnitWithCloneNotRaw() throws Exception {
 		fAssumeCloneReturnsSameType= true;
 		fLeaveUnconstrainedRaw= false;
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.refactoring.IJavaRefactorings;
+import org.eclipse.jdt.core.refactoring.descriptors.RenameJavaElementDescriptor;
+
+import org.eclipse.jdt.internal.core.refactoring.descriptors.RefactoringSignatureDescriptorFactory;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextTokenIndex;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class TextTokenIndexTests extends RefactoringTest {
+
+	private static final Class<TextTokenIndexTests> clazz= TextTokenIndexTests.class;
+
+	public TextTokenIndexTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		TextTokenIndex.getDefault().clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		TextTokenIndex.getDefault().clear();
+		super.tearDown();
+	}
+
+	private IProject getProject() {
+		return getRoot().getJavaProject().getProject();
+	}
+
+	private static IFile createFile(IContainer container, String name, String contents) throws Exception {
+		IFile file= container.getFile(new Path(name));
+		file.create(getStream(contents), true, null);
+		return file;
+	}
+
+	private RenameJavaElementDescriptor createRenameDescriptor(IType type, String newName) {
+		RenameJavaElementDescriptor descriptor= RefactoringSignatureDescriptorFactory.createRenameJavaElementDescriptor(IJavaRefactorings.RENAME_TYPE);
+		descriptor.setJavaElement(type);
+		descriptor.setNewName(newName);
+		descriptor.setUpdateReferences(true);
+		return descriptor;
+	}
+
+	public void testSkipsFilesWithoutName() throws Exception {
+		IFile withName= createFile(getProject(), "with.xml", "<class name=\"p.A\"/>");
+		IFile withoutName= createFile(getProject(), "without.xml", "<class name=\"p.Other\"/>");
+
+		TextTokenIndex index= TextTokenIndex.getDefault();
+		assertTrue(index.mayContainInText(withName, "p.A"));
+		assertFalse(index.mayContainInText(withoutName, "p.A"));
+		assertTrue(index.mayContainInText(withoutName, "p.Other"));
+		assertTrue(index.isIndexed(withName));
+		assertTrue(index.isIndexed(withoutName));
+	}
+
+	public void testOnlyCommentsAndStringsOfJavaFiles() throws Exception {
+		ICompilationUnit inCode= createCU(getPackageP(), "B.java", "package p;\n/** Other. */\nclass B {\n\tA a;\n}\n");
+		ICompilationUnit inComment= createCU(getPackageP(), "C.java", "package p;\n/** Uses A. */\nclass C {\n}\n");
+		ICompilationUnit inString= createCU(getPackageP(), "D.java", "package p;\nclass D {\n\tString s= \"A\";\n}\n");
+
+		TextTokenIndex index= TextTokenIndex.getDefault();
+		assertFalse(index.mayContainInJavaCommentsOrStrings((IFile) inCode.getResource(), "A"));
+		assertTrue(index.mayContainInJavaCommentsOrStrings((IFile) inComment.getResource(), "A"));
+		assertTrue(index.mayContainInJavaCommentsOrStrings((IFile) inString.getResource(), "A"));
+	}
+
+	public void testChangedFilesAreIndexedAgain() throws Exception {
+		IFile file= createFile(getProject(), "file.xml", "<class name=\"p.Other\"/>");
+		TextTokenIndex index= TextTokenIndex.getDefault();
+		assertFalse(index.mayContainInText(file, "p.A"));
+
+		file.setContents(getStream("<class name=\"p.A\"/>"), true, false, null);
+		assertFalse(index.isIndexed(file));
+		assertTrue(index.mayContainInText(file, "p.A"));
+	}
+
+	public void testRemovedFilesAreDropped() throws Exception {
+		IFile file= createFile(getProject(), "file.xml", "<class name=\"p.A\"/>");
+		IFolder folder= getProject().getFolder("docs");
+		folder.create(true, true, null);
+		IFile nested= createFile(folder, "nested.xml", "<class name=\"p.A\"/>");
+		IPath nestedPath= nested.getFullPath();
+
+		TextTokenIndex index= TextTokenIndex.getDefault();
+		index.mayContainInText(file, "p.A");
+		index.mayContainInText(nested, "p.A");
+		assertTrue(index.isIndexed(file));
+		assertTrue(index.isIndexed(nested));
+
+		file.delete(true, null);
+		assertFalse(index.isIndexed(file));
+		assertTrue(index.isIndexed(nested));
+
+		folder.delete(true, null);
+		assertFalse(index.isIndexed(getProject().getWorkspace().getRoot().getFile(nestedPath)));
+	}
+
+	public void testTextMatchesInCommentsAndStrings() throws Exception {
+		ICompilationUnit cuA= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n");
+		createCU(getPackageP(), "B.java", "package p;\n/** Uses A. */\nclass B {\n\tString s= \"A\";\n}\n");
+		ICompilationUnit cuC= createCU(getPackageP(), "C.java", "package p;\n/** Other. */\nclass C {\n}\n");
+		assertFalse(TextTokenIndex.getDefault().mayContainInJavaCommentsOrStrings((IFile) cuC.getResource(), "A"));
+
+		RenameJavaElementDescriptor descriptor= createRenameDescriptor(getType(cuA, "A"), "X");
+		descriptor.setUpdateTextualOccurrences(true);
+		assertEquals("was supposed to pass", null, performRefactoring(descriptor));
+
+		assertEqualLines("package p;\n/** Uses X. */\nclass B {\n\tString s= \"X\";\n}\n", getPackageP().getCompilationUnit("B.java").getSource());
+		assertEqualLines("package p;\n/** Other. */\nclass C {\n}\n", cuC.getSource());
+	}
+
+	public void testQualifiedNamesInNonJavaFiles() throws Exception {
+		ICompilationUnit cuA= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n");
+		IFile withName= createFile(getProject(), "with.xml", "<class name=\"p.A\"/>");
+		IFile withoutName= createFile(getProject(), "without.xml", "<class name=\"p.Other\"/>");
+		IFile dirty= createFile(getProject(), "dirty.xml", "<class name=\"p.Other\"/>");
+
+		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
+		manager.connect(dirty.getFullPath(), LocationKind.IFILE, null);
+		try {
+			ITextFileBuffer buffer= manager.getTextFileBuffer(dirty.getFullPath(), LocationKind.IFILE);
+			buffer.getDocument().set("<class name=\"p.A\"/>");
+			assertTrue(buffer.isDirty());
+			// only the buffer contains the name
+			assertFalse(TextTokenIndex.getDefault().mayContainInText(dirty, "p.A"));
+
+			RenameJavaElementDescriptor descriptor= createRenameDescriptor(getType(cuA, "A"), "X");
+			descriptor.setUpdateQualifiedNames(true);
+			descriptor.setFileNamePatterns("*.xml");
+			assertEquals("was supposed to pass", null, performRefactoring(descriptor));
+
+			assertEqualLines("<class name=\"p.X\"/>", getContents(withName));
+			assertEqualLines("<class name=\"p.Other\"/>", getContents(withoutName));
+			assertEqualLines("<class name=\"p.X\"/>", buffer.getDocument().get());
+		} finally {
+			manager.disconnect(dirty.getFullPath(), LocationKind.IFILE, null);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenameVirtualMethodProcessor;
+
+import org.eclipse.jdt.ui.tests.refactoring.infra.RefactoringPerformanceTestSetup;
+
+/**
+ * Renames a method of an interface with many implementors. Every tenth implementor
+ * also implements a second interface that declares the same method, so that the
+ * ripple method finder has to join the two partitions.
+ */
+public class RenameMethodInWideHierarchyPerfTests extends RepeatingRefactoringPerformanceTestCase {
+
+	public static Test suite() {
+		// we must make sure that cold is executed before warm
+		OrderedTestSuite suite= new OrderedTestSuite(RenameMethodInWideHierarchyPerfTests.class, new String[] {
+			"testCold_10_1",
+			"test_10_1",
+			"test_100_1",
+			"test_1000_1",
+		});
+		return new RefactoringPerformanceTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringPerformanceTestSetup(someTest);
+	}
+
+	public RenameMethodInWideHierarchyPerfTests(String name) {
+		super(name);
+	}
+
+	public void testCold_10_1() throws Exception {
+		executeRefactoring(10, 1, false, 10);
+	}
+
+	public void test_10_1() throws Exception {
+		executeRefactoring(10, 1, true, 10);
+	}
+
+	public void test_100_1() throws Exception {
+		executeRefactoring(100, 1, true, 10);
+	}
+
+	public void test_1000_1() throws Exception {
+		tagAsSummary("Rename method in wide hierarchy", Dimension.ELAPSED_PROCESS);
+		executeRefactoring(1000, 1, true, 10);
+	}
+
+	@Override
+	protected void doExecuteRefactoring(int numberOfCus, int numberOfRefs, boolean measure) throws Exception {
+		ICompilationUnit cunit= generateSources(numberOfCus, numberOfRefs);
+		IMethod method= cunit.findPrimaryType().getMethod("handle", new String[0]);
+		RenameVirtualMethodProcessor processor= new RenameVirtualMethodProcessor(method);
+		processor.setNewElementName("handle2");
+		executeRefactoring(new RenameRefactoring(processor), measure);
+	}
+
+	private ICompilationUnit generateSources(int numberOfCus, int numberOfRefs) throws Exception {
+		IPackageFragment definition= getTestProject().getSourceFolder().createPackageFragment("def", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package def;\n");
+		buf.append("public interface IListener {\n");
+		buf.append("    void handle();\n");
+		buf.append("}\n");
+		ICompilationUnit result= definition.createCompilationUnit("IListener.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package def;\n");
+		buf.append("public interface IHandler {\n");
+		buf.append("    void handle();\n");
+		buf.append("}\n");
+		definition.createCompilationUnit("IHandler.java", buf.toString(), false, null);
+
+		IPackageFragment implementors= getTestProject().getSourceFolder().createPackageFragment("impl", false, null);
+		for (int i= 0; i < numberOfCus; i++) {
+			createImplementorCu(implementors, i, numberOfRefs);
+		}
+		return result;
+	}
+
+	private void createImplementorCu(IPackageFragment pack, int index, int numberOfRefs) throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package " + pack.getElementName() + ";\n");
+		buf.append("import def.IHandler;\n");
+		buf.append("import def.IListener;\n");
+		buf.append("public class Listener" + index + " implements IListener" + (index % 10 == 0 ? ", IHandler" : "") + " {\n");
+		buf.append("    public void handle() {\n");
+		buf.append("    }\n");
+		buf.append("    public void ref(IListener l) {\n");
+		for (int i= 0; i < numberOfRefs; i++) {
+			buf.append("        l.handle();\n");
+		}
+		buf.append("    }\n");
+		buf.append("}\n");
+		pack.createCompilationUnit("Listener" + index + ".java", buf.toString(), false, null);
+	}
+
+	@Override
+	protected void assertMeasurements() {
+		assertPerformanceInRelativeBand(Dimension.CPU_TIME, -100, +10);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ public class AllTests {
 		TestSuite suite= new TestSuite(AllTests.class.getName());
 		suite.addTest(TypeConstraintTests.suite());
 		suite.addTest(TypeEnvironmentTests.suite());
+		suite.addTest(EnumeratedTypeSetTests.suite());
 	    return suite;
 	}
 }
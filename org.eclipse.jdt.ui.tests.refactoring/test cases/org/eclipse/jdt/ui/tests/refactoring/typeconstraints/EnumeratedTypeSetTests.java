@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.typeconstraints;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.EnumeratedTypeSet;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.TypeSet;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.TypeSetEnvironment;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class EnumeratedTypeSetTests extends TestCase {
+
+	private TypeEnvironment fTypeEnvironment;
+	private TypeSetEnvironment fEnvironment;
+
+	private TType fInt;
+	private TType fChar;
+	private TType fBoolean;
+	private TType fShort;
+	private TType fLong;
+
+	public EnumeratedTypeSetTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(EnumeratedTypeSetTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fTypeEnvironment= new TypeEnvironment();
+		fEnvironment= new TypeSetEnvironment(fTypeEnvironment);
+		fInt= fTypeEnvironment.INT;
+		fChar= fTypeEnvironment.CHAR;
+		fBoolean= fTypeEnvironment.BOOLEAN;
+		fShort= fTypeEnvironment.SHORT;
+		fLong= fTypeEnvironment.LONG;
+		// members are iterated in the order in which the environment has first seen them
+		createSet(fEnvironment, fInt, fChar, fBoolean, fShort, fLong);
+	}
+
+	private static EnumeratedTypeSet createSet(TypeSetEnvironment environment, TType... types) {
+		return new EnumeratedTypeSet(Arrays.asList(types).iterator(), environment);
+	}
+
+	private EnumeratedTypeSet createSet(TType... types) {
+		return createSet(fEnvironment, types);
+	}
+
+	private static void assertMembers(TType[] expected, TypeSet set) {
+		assertTrue(set.getClass().getName(), set instanceof EnumeratedTypeSet);
+		EnumeratedTypeSet enumerated= (EnumeratedTypeSet) set;
+		assertEquals(Arrays.asList(expected), Arrays.asList(enumerated.toArray()));
+		assertEquals(expected.length, enumerated.size());
+		assertEquals(expected.length == 0, enumerated.isEmpty());
+		int i= 0;
+		for (Iterator<TType> iter= enumerated.iterator(); iter.hasNext(); i++) {
+			assertSame(expected[i], iter.next());
+		}
+		assertEquals(expected.length, i);
+	}
+
+	public void testUnion() throws Exception {
+		EnumeratedTypeSet a= createSet(fChar, fInt);
+		EnumeratedTypeSet b= createSet(fBoolean, fChar);
+
+		assertMembers(new TType[] { fInt, fChar, fBoolean }, a.addedTo(b));
+		assertMembers(new TType[] { fInt, fChar }, a);
+		assertMembers(new TType[] { fChar, fBoolean }, b);
+
+		assertTrue(a.addAll(b));
+		assertMembers(new TType[] { fInt, fChar, fBoolean }, a);
+		assertFalse(a.addAll(b));
+		assertFalse(a.addAll(createSet(fInt)));
+		assertMembers(new TType[] { fInt, fChar, fBoolean }, a);
+	}
+
+	public void testIntersect() throws Exception {
+		EnumeratedTypeSet a= createSet(fInt, fChar, fBoolean);
+		EnumeratedTypeSet b= createSet(fChar, fBoolean, fShort);
+
+		assertMembers(new TType[] { fChar, fBoolean }, a.intersectedWith(b));
+		assertMembers(new TType[] { fInt, fChar, fBoolean }, a);
+		assertMembers(new TType[] { fChar, fBoolean, fShort }, b);
+		assertSame(fEnvironment.getEmptyTypeSet(), a.intersectedWith(createSet(fShort, fLong)));
+
+		assertTrue(a.retainAll(b));
+		assertMembers(new TType[] { fChar, fBoolean }, a);
+		assertFalse(a.retainAll(b));
+		assertFalse(a.retainAll(fEnvironment.getUniverseTypeSet()));
+
+		a.intersectWith(createSet(fBoolean, fLong));
+		assertMembers(new TType[] { fBoolean }, a);
+	}
+
+	public void testSubset() throws Exception {
+		EnumeratedTypeSet a= createSet(fInt, fChar, fBoolean);
+
+		assertTrue(a.containsAll(createSet(fChar, fInt)));
+		assertTrue(a.containsAll(a));
+		assertTrue(a.containsAll(new EnumeratedTypeSet(fEnvironment)));
+		assertFalse(a.containsAll(createSet(fChar, fShort)));
+		assertFalse(a.containsAll(createSet(fLong)));
+		assertFalse(a.containsAll(fEnvironment.getUniverseTypeSet()));
+		assertFalse(new EnumeratedTypeSet(fEnvironment).containsAll(a));
+
+		assertTrue(a.contains(fChar));
+		assertFalse(a.contains(fShort));
+		// a type the environment has never seen
+		assertFalse(a.contains(fTypeEnvironment.DOUBLE));
+	}
+
+	public void testRemove() throws Exception {
+		EnumeratedTypeSet a= createSet(fInt, fChar, fBoolean);
+
+		assertTrue(a.remove(fChar));
+		assertFalse(a.remove(fChar));
+		assertFalse(a.remove(fTypeEnvironment.DOUBLE));
+		assertMembers(new TType[] { fInt, fBoolean }, a);
+
+		assertTrue(a.removeAll(createSet(fInt, fShort)));
+		assertMembers(new TType[] { fBoolean }, a);
+		assertFalse(a.removeAll(createSet(fShort)));
+		assertMembers(new TType[] { fBoolean }, a);
+	}
+
+	public void testIteratorRemove() throws Exception {
+		EnumeratedTypeSet a= createSet(fInt, fChar, fBoolean);
+
+		Iterator<TType> iter= a.iterator();
+		try {
+			iter.remove();
+			fail("remove before next");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertSame(fInt, iter.next());
+		assertSame(fChar, iter.next());
+		iter.remove();
+		try {
+			iter.remove();
+			fail("removed twice");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertSame(fBoolean, iter.next());
+		assertFalse(iter.hasNext());
+		try {
+			iter.next();
+			fail("next after the last member");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+		assertMembers(new TType[] { fInt, fBoolean }, a);
+	}
+
+	public void testCachedSize() throws Exception {
+		EnumeratedTypeSet a= new EnumeratedTypeSet(fInt, fEnvironment);
+		assertMembers(new TType[] { fInt }, a);
+
+		assertTrue(a.add(fChar));
+		assertFalse(a.add(fChar));
+		assertMembers(new TType[] { fInt, fChar }, a);
+
+		assertTrue(a.remove(fInt));
+		assertMembers(new TType[] { fChar }, a);
+
+		assertTrue(a.addAll(createSet(fBoolean, fShort)));
+		assertMembers(new TType[] { fChar, fBoolean, fShort }, a);
+
+		Iterator<TType> iter= a.iterator();
+		iter.next();
+		iter.remove();
+		assertMembers(new TType[] { fBoolean, fShort }, a);
+
+		assertMembers(new TType[] { fBoolean, fShort }, a.makeClone());
+
+		assertTrue(a.retainAll(createSet(fShort, fLong)));
+		assertMembers(new TType[] { fShort }, a);
+		assertTrue(a.isSingleton());
+		assertSame(fShort, a.anyMember());
+
+		a.clear();
+		assertMembers(new TType[0], a);
+	}
+
+	public void testOtherEnvironment() throws Exception {
+		TypeSetEnvironment other= new TypeSetEnvironment(fTypeEnvironment);
+		EnumeratedTypeSet b= createSet(other, fShort, fInt);
+		EnumeratedTypeSet a= createSet(fChar);
+
+		assertTrue(a.addAll(b));
+		assertMembers(new TType[] { fInt, fChar, fShort }, a);
+		assertTrue(a.containsAll(b));
+		assertTrue(a.removeAll(b));
+		assertMembers(new TType[] { fChar }, a);
+		assertEquals(createSet(fShort, fInt), b);
+	}
+
+	public void testEquals() throws Exception {
+		EnumeratedTypeSet a= createSet(fInt, fChar);
+		EnumeratedTypeSet b= createSet(fChar, fInt);
+
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertFalse(a.equals(createSet(fInt)));
+		assertFalse(a.equals(createSet(fInt, fChar, fBoolean)));
+
+		b.remove(fChar);
+		b.add(fChar);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+	}
+}
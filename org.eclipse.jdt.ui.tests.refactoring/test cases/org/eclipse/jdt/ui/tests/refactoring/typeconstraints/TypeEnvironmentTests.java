@@ -32,6 +32,7 @@ import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 
 import org.eclipse.jdt.internal.corext.dom.HierarchicalASTVisitor;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.SharedTypeEnvironments;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
 
@@ -339,6 +340,23 @@ public class TypeEnvironmentTests extends AbstractCUTestCase {
 		testBindings(collector.getResult());
 	}
 
+	public void testSharedEnvironment() throws Exception {
+		IJavaProject project= RefactoringTestSetup.getProject();
+		TypeEnvironment environment= SharedTypeEnvironments.getTypeEnvironment(project);
+		assertSame(environment, SharedTypeEnvironments.getTypeEnvironment(project));
+
+		environment.initializeJavaLangObject(project);
+		assertNotNull(environment.getJavaLangObject());
+
+		// adding a type drops the environment
+		ICompilationUnit cu= MyTestSetup.getSignaturePackage().createCompilationUnit("Shared.java", "package signature;\npublic class Shared {}\n", true, null);
+		try {
+			assertNotSame(environment, SharedTypeEnvironments.getTypeEnvironment(project));
+		} finally {
+			cu.delete(true, null);
+		}
+	}
+
 	public void _testAssignment() throws Exception {
 		ASTNode node= createAST(MyTestSetup.getGenericPackage());
 		TypeBindingCollector collector= new TypeBindingCollector();
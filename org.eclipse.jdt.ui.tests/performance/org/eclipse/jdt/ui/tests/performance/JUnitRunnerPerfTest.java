@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.jdt.internal.junit.runner.FirstRunExecutionListener;
+import org.eclipse.jdt.internal.junit.runner.ITestIdentifier;
+import org.eclipse.jdt.internal.junit.runner.MessageSender;
+import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
+import org.eclipse.jdt.internal.junit.runner.TestIdMap;
+
+/**
+ * Measures the overhead the remote test runner adds to every executed test.
+ */
+public class JUnitRunnerPerfTest extends JdtPerformanceTestCase {
+
+	private static final int TEST_COUNT= 200000;
+
+	private static final int RUNS= 10;
+
+	private static class Identifier implements ITestIdentifier {
+		private final String fName;
+
+		public Identifier(String name) {
+			fName= name;
+		}
+
+		@Override
+		public String getName() {
+			return fName;
+		}
+
+		@Override
+		public int hashCode() {
+			return fName.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Identifier && fName.equals(((Identifier) obj).fName);
+		}
+	}
+
+	private static class NullMessageSender implements MessageSender {
+		int fMessageCount;
+
+		@Override
+		public void sendMessage(String msg) {
+			fMessageCount++;
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(JUnitRunnerPerfTest.class);
+	}
+
+	public JUnitRunnerPerfTest(String name) {
+		super(name);
+	}
+
+	private static Identifier[] createIdentifiers() {
+		Identifier[] identifiers= new Identifier[TEST_COUNT];
+		for (int i= 0; i < identifiers.length; i++) {
+			identifiers[i]= new Identifier("test" + i + "(pack.ATestCase" + i / 100 + ")");
+		}
+		return identifiers;
+	}
+
+	public void testTestIdMap() throws Exception {
+		Identifier[] identifiers= createIdentifiers();
+		for (int run= 0; run < RUNS; run++) {
+			TestIdMap ids= new TestIdMap();
+			startMeasuring();
+			for (int i= 0; i < identifiers.length; i++) {
+				ids.getId(identifiers[i]);
+			}
+			for (int i= 0; i < identifiers.length; i++) {
+				ids.getId(identifiers[i]);
+			}
+			stopMeasuring();
+			assertEquals(TEST_COUNT, ids.getId(identifiers[TEST_COUNT - 1]));
+			assertEquals(TEST_COUNT + 1, ids.getId(new Identifier("another")));
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testTestEvents() throws Exception {
+		tagAsSummary("JUnit runner - start and end events", Dimension.ELAPSED_PROCESS);
+		Identifier[] identifiers= createIdentifiers();
+		for (int run= 0; run < RUNS; run++) {
+			NullMessageSender sender= new NullMessageSender();
+			RemoteTestRunner runner= new RemoteTestRunner();
+			runner.setMessageSender(sender);
+			FirstRunExecutionListener listener= runner.firstRunExecutionListener();
+			startMeasuring();
+			for (int i= 0; i < identifiers.length; i++) {
+				listener.notifyTestStarted(identifiers[i]);
+				listener.notifyTestEnded(identifiers[i]);
+			}
+			stopMeasuring();
+			assertEquals(2 * TEST_COUNT, sender.fMessageCount);
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
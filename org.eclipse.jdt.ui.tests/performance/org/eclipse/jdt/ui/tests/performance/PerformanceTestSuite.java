@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ public class PerformanceTestSuite {
 	public static Test suite() {
 		TestSuite suite= new TestSuite(PerformanceTestSuite.class.getName());
 		suite.addTest(TypeHierarchyPerfTest.suite());
+		suite.addTest(JUnitRunnerPerfTest.suite());
 		return suite;
 	}
 }
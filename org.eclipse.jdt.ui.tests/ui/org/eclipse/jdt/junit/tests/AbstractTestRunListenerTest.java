@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -165,6 +165,7 @@ public class AbstractTestRunListenerTest extends TestCase {
 		if (testKindID != null) {
 			configuration.setAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_RUNNER_KIND, testKindID);
 		}
+		configureLaunch(configuration);
 		try {
 			configuration.launch(ILaunchManager.RUN_MODE, null);
 			new DisplayHelper() {
@@ -182,6 +183,16 @@ public class AbstractTestRunListenerTest extends TestCase {
 			fail("Launch has not terminated");
 	}
 
+	/**
+	 * Hook to set additional attributes of the launch configuration. The default does nothing.
+	 *
+	 * @param configuration the configuration to launch
+	 * @throws CoreException if an attribute cannot be set
+	 */
+	protected void configureLaunch(ILaunchConfigurationWorkingCopy configuration) throws CoreException {
+		// no additional attributes
+	}
+
 	protected String[] launchJUnit(IJavaElement aTest, final TestRunLog log) throws CoreException {
 		return launchJUnit(aTest, null, log);
 	}
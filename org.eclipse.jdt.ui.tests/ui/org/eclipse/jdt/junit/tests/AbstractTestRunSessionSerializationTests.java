@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -107,6 +107,11 @@ public class AbstractTestRunSessionSerializationTests extends TestCase {
 			// due to lingering TestRunnerViewPart$TestSessionListeners
 			serializationResult.fTestRunSession.swapOut();
 			assertEqualSessions(serializationResult.fTestRunSession, imported);
+
+			// the swapped in session reads its failure details from the swap file
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(serializationResult.fTestRunSession, out);
+			assertEqualXML(serializationResult.fSerialized, out.toString("UTF-8"));
 		} finally {
 			if (resultFile.exists())
 				try {
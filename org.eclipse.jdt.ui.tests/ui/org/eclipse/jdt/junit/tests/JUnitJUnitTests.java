@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,7 +31,9 @@ public class JUnitJUnitTests {
 		addDeprecatedTests(suite);
 
 		suite.addTestSuite(TestRunListenerTest3.class);
+		suite.addTestSuite(TestRunListenerTest3Binary.class);
 		suite.addTestSuite(TestRunListenerTest4.class);
+		suite.addTestSuite(TestRunParallelTest4.class);
 		
 		suite.addTestSuite(TestRunFilteredStandardRunnerTest4.class);
 		suite.addTestSuite(TestRunFilteredParameterizedRunnerTest4.class);
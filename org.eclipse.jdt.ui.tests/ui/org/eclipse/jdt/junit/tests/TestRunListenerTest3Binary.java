@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.junit.tests;
+
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+
+/**
+ * Runs the tests of {@link TestRunListenerTest3} with the binary protocol.
+ */
+public class TestRunListenerTest3Binary extends TestRunListenerTest3 {
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).putBoolean(JUnitPreferencesConstants.BINARY_PROTOCOL, true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID).remove(JUnitPreferencesConstants.BINARY_PROTOCOL);
+		super.tearDown();
+	}
+}
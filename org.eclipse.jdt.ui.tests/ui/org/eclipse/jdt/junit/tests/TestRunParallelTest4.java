@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.junit.tests;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.junit.JUnitCore;
+import org.eclipse.jdt.junit.TestRunListener;
+import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestElement.FailureTrace;
+import org.eclipse.jdt.junit.model.ITestElement.ProgressState;
+import org.eclipse.jdt.junit.model.ITestElement.Result;
+import org.eclipse.jdt.junit.model.ITestElementContainer;
+import org.eclipse.jdt.junit.model.ITestRunSession;
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
+import org.eclipse.jdt.internal.junit.launcher.TestKindRegistry;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+
+/**
+ * Runs several JUnit 3 and JUnit 4 classes with <code>-parallel</code>.
+ */
+public class TestRunParallelTest4 extends AbstractTestRunListenerTest {
+
+	/**
+	 * Logs the tree of the finished session. The children are sorted, since the order in which
+	 * the classes of a package are found and the order of JUnit 3 test methods are not defined.
+	 */
+	private static class SortedTreeTest extends TestRunListener {
+		private final TestRunLog fLog;
+		private ITestRunSession fSession;
+
+		public SortedTreeTest(TestRunLog log) {
+			fLog= log;
+		}
+
+		private void logElement(ITestElement elem, int indent) {
+			fLog.add(TestRunListeners.asString(elem, indent));
+			if (elem instanceof ITestElementContainer) {
+				ITestElement[] children= ((ITestElementContainer) elem).getChildren();
+				final int childIndent= indent + 1;
+				Arrays.sort(children, new Comparator<ITestElement>() {
+					@Override
+					public int compare(ITestElement e1, ITestElement e2) {
+						return TestRunListeners.asString(e1, childIndent).compareTo(TestRunListeners.asString(e2, childIndent));
+					}
+				});
+				for (int i= 0; i < children.length; i++) {
+					logElement(children[i], childIndent);
+				}
+			}
+		}
+
+		@Override
+		public void sessionFinished(ITestRunSession session) {
+			fSession= session;
+			logElement(session, 0);
+			fLog.setDone();
+		}
+
+		public ITestRunSession getSession() {
+			return fSession;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= JavaProjectHelper.createJavaProject("TestRunListenerTest", "bin");
+		JavaProjectHelper.addToClasspath(fProject, JavaCore.newContainerEntry(JUnitCore.JUNIT4_CONTAINER_PATH));
+		JavaProjectHelper.addRTJar15(fProject);
+	}
+
+	@Override
+	protected void configureLaunch(ILaunchConfigurationWorkingCopy configuration) throws CoreException {
+		configuration.setAttribute(JUnitLaunchConfigurationConstants.ATTR_PARALLEL_THREADS, 3);
+	}
+
+	private static void collectIds(ITestElement elem, Set<String> ids) {
+		if (elem instanceof TestElement)
+			assertTrue("duplicate id", ids.add(((TestElement) elem).getId()));
+		if (elem instanceof ITestElementContainer) {
+			ITestElement[] children= ((ITestElementContainer) elem).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				collectIds(children[i], ids);
+			}
+		}
+	}
+
+	public void testParallelJUnit3AndJUnit4() throws Exception {
+		String source3A=
+				"package pack;\n" +
+				"import junit.framework.TestCase;\n" +
+				"public class ATestCase extends TestCase {\n" +
+				"    public void testSucceed() throws Exception { Thread.sleep(100); }\n" +
+				"    public void testFail() { fail(); }\n" +
+				"    public void testEquals() { assertEquals(\"12\", \"13\"); }\n" +
+				"}";
+		String source4B=
+				"package pack;\n" +
+				"import org.junit.Test;\n" +
+				"import static org.junit.Assert.*;\n" +
+				"public class BTestCase {\n" +
+				"    @Test public void testSucceed() throws Exception { Thread.sleep(100); }\n" +
+				"    @Test public void testFail() { fail(); }\n" +
+				"}";
+		String source3C=
+				"package pack;\n" +
+				"import junit.framework.TestCase;\n" +
+				"public class CTestCase extends TestCase {\n" +
+				"    public void testSucceed() throws Exception { Thread.sleep(100); }\n" +
+				"    public void testError() { throw new IllegalStateException(); }\n" +
+				"}";
+		String source4D=
+				"package pack;\n" +
+				"import org.junit.Test;\n" +
+				"public class DTestCase {\n" +
+				"    @Test public void testSucceed() throws Exception { Thread.sleep(100); }\n" +
+				"    @Test public void testError() { throw new IllegalStateException(); }\n" +
+				"}";
+		IType aTestCase= createType(source3A, "pack", "ATestCase.java");
+		createType(source4B, "pack", "BTestCase.java");
+		createType(source3C, "pack", "CTestCase.java");
+		createType(source4D, "pack", "DTestCase.java");
+		IPackageFragment pack= aTestCase.getPackageFragment();
+
+		String[] expectedTree= new String[] {
+				TestRunListeners.sessionAsString("pack", ProgressState.COMPLETED, Result.ERROR, 0),
+				TestRunListeners.suiteAsString("pack.ATestCase", ProgressState.COMPLETED, Result.FAILURE, null, 1),
+				TestRunListeners.testCaseAsString("testEquals", "pack.ATestCase", ProgressState.COMPLETED, Result.FAILURE, new FailureTrace("junit.framework.ComparisonFailure", "12", "13"), 2),
+				TestRunListeners.testCaseAsString("testFail", "pack.ATestCase", ProgressState.COMPLETED, Result.FAILURE, new FailureTrace("junit.framework.AssertionFailedError", null, null), 2),
+				TestRunListeners.testCaseAsString("testSucceed", "pack.ATestCase", ProgressState.COMPLETED, Result.OK, null, 2),
+				TestRunListeners.suiteAsString("pack.BTestCase", ProgressState.COMPLETED, Result.FAILURE, null, 1),
+				TestRunListeners.testCaseAsString("testFail", "pack.BTestCase", ProgressState.COMPLETED, Result.FAILURE, new FailureTrace("java.lang.AssertionError", null, null), 2),
+				TestRunListeners.testCaseAsString("testSucceed", "pack.BTestCase", ProgressState.COMPLETED, Result.OK, null, 2),
+				TestRunListeners.suiteAsString("pack.CTestCase", ProgressState.COMPLETED, Result.ERROR, null, 1),
+				TestRunListeners.testCaseAsString("testError", "pack.CTestCase", ProgressState.COMPLETED, Result.ERROR, new FailureTrace("java.lang.IllegalStateException", null, null), 2),
+				TestRunListeners.testCaseAsString("testSucceed", "pack.CTestCase", ProgressState.COMPLETED, Result.OK, null, 2),
+				TestRunListeners.suiteAsString("pack.DTestCase", ProgressState.COMPLETED, Result.ERROR, null, 1),
+				TestRunListeners.testCaseAsString("testError", "pack.DTestCase", ProgressState.COMPLETED, Result.ERROR, new FailureTrace("java.lang.IllegalStateException", null, null), 2),
+				TestRunListeners.testCaseAsString("testSucceed", "pack.DTestCase", ProgressState.COMPLETED, Result.OK, null, 2),
+		};
+
+		TestRunLog log= new TestRunLog();
+		SortedTreeTest testRunListener= new SortedTreeTest(log);
+		JUnitCore.addTestRunListener(testRunListener);
+		try {
+			String[] actual= launchJUnit(pack, TestKindRegistry.JUNIT4_TEST_KIND_ID, log);
+			assertEqualLog(expectedTree, actual);
+		} finally {
+			JUnitCore.removeTestRunListener(testRunListener);
+		}
+
+		// every test got its own id before the run started
+		Set<String> ids= new HashSet<>();
+		collectIds(testRunListener.getSession(), ids);
+		assertEquals(expectedTree.length - 1, ids.size());
+	}
+}
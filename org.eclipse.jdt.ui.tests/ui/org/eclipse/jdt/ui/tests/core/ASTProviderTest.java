@@ -38,6 +38,8 @@ import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 
 /**
  * Tests the AST provider.
@@ -144,6 +146,29 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	public void testInactiveASTCache() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", "package test1;\npublic class E1 {\n}\n", false, null);
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", "package test1;\npublic class E2 {\n}\n", false, null);
+
+		JavaUI.openInEditor(cu1);
+		try {
+			CompilationUnit ast= SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_YES, null);
+			assertNotNull(ast);
+			assertSame(ast, SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_YES, null));
+			assertSame(ast, SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_NO, null));
+
+			cu2.getBuffer().setContents("package test1;\npublic class E2 {\n  int a;\n}\n");
+			cu2.getBuffer().save(null, true);
+
+			CompilationUnit newAst= SharedASTProvider.getAST(cu2, SharedASTProvider.WAIT_YES, null);
+			assertNotSame(ast, newAst);
+			assertEquals(cu2.getBuffer().getContents(), newAst.toString());
+		} finally {
+			JavaPlugin.getActivePage().closeAllEditors(false);
+		}
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
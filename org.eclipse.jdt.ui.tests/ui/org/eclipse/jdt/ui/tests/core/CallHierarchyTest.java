@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,9 @@
 package org.eclipse.jdt.ui.tests.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -20,11 +22,13 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IInitializer;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallGraphCache;
 import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 
@@ -92,6 +96,64 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedSecondLevelMethods, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testCallersStreamed() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod1();
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+
+        final List<MethodWrapper> streamedCalls= new ArrayList<>();
+        MethodWrapper.ICallCollector collector= new MethodWrapper.ICallCollector() {
+			@Override
+			public void add(MethodWrapper[] calls) {
+				streamedCalls.addAll(Arrays.asList(calls));
+			}
+		};
+
+        MethodWrapper wrapper= getSingleCallerRoot(method);
+        MethodWrapper[] uncachedCalls= wrapper.getCalls(new NullProgressMonitor(), collector);
+        helper.assertCalls(expectedMethods, uncachedCalls);
+        helper.assertCalls(expectedMethods, streamedCalls);
+        assertEquals(uncachedCalls.length, streamedCalls.size());
+        for (int i= 0; i < uncachedCalls.length; i++) {
+			assertTrue(streamedCalls.contains(uncachedCalls[i]));
+		}
+
+        streamedCalls.clear();
+        MethodWrapper[] cachedCalls= wrapper.getCalls(new NullProgressMonitor(), collector);
+        helper.assertCalls(expectedMethods, cachedCalls);
+        helper.assertCalls(expectedMethods, streamedCalls);
+    }
+
+    public void testCallersCallGraphCache() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod1();
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+
+        MethodWrapper wrapper= getSingleCallerRoot(method);
+        helper.assertCalls(expectedMethods, wrapper.getCalls(new NullProgressMonitor()));
+
+        // a new tree reuses the callers
+        MethodWrapper otherWrapper= getSingleCallerRoot(method);
+        assertTrue(CallGraphCache.getDefault().contains(otherWrapper));
+        helper.assertCalls(expectedMethods, otherWrapper.getCalls(new NullProgressMonitor()));
+
+        // a new unit that mentions the method may contain a new caller
+        ICompilationUnit cu= helper.getPackage2().createCompilationUnit("C.java",
+                "package pack2;\npublic class C {\n public void method5(pack1.A a) { a.method1(); }\n}\n", true, null);
+        assertFalse(CallGraphCache.getDefault().contains(otherWrapper));
+
+        expectedMethods.add(cu.getType("C").getMethod("method5", new String[] { "Qpack1.A;" }));
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+    }
+
     public void testCallersNoResults() throws Exception {
         helper.createSimpleClasses();
 
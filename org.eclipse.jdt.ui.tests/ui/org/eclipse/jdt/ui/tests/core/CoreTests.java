@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,6 +45,7 @@ public class CoreTests extends TestCase {
 		suite.addTest(HierarchicalASTVisitorTest.suite());
 		suite.addTest(ImportOrganizeTest.suite());
 		suite.addTest(ImportOrganizeTest18.suite());
+		suite.addTest(JavadocHTMLCacheTest.suite());
 		suite.addTest(JavaElementLabelsTest.suite());
 		suite.addTest(JavaElementLabelsTest18.suite());
 		suite.addTest(BindingLabelsTest.suite());
@@ -54,8 +55,10 @@ public class CoreTests extends TestCase {
 		suite.addTest(MethodOverrideTest.suite());
 		suite.addTest(MethodOverrideTest18.suite());
 		suite.addTest(NameProposerTest.suite());
+		suite.addTest(OpenTypeHistoryTest.suite());
 		suite.addTest(OverrideTest.suite());
 		suite.addTest(PartialASTTest.suite());
+		suite.addTest(ProblemMarkerManagerTest.suite());
 		suite.addTest(ScopeAnalyzerTest.suite());
 		suite.addTest(TemplateStoreTest.suite());
 		suite.addTest(TypeHierarchyTest.suite());
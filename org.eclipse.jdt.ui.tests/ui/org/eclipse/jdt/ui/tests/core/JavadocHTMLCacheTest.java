@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.File;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocHTMLCache;
+
+public class JavadocHTMLCacheTest extends TestCase {
+
+	private static final Class<JavadocHTMLCacheTest> THIS= JavadocHTMLCacheTest.class;
+
+	private IJavaProject fJProject1;
+
+	public JavadocHTMLCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		JavadocHTMLCache.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+		JavadocHTMLCache.clear();
+	}
+
+	private IMethod getBinaryMethod() throws Exception {
+		File clsJarPath= JavaTestPlugin.getDefault().getFileInPlugin(new Path("/testresources/PackageJavadocTests/testData.zip"));
+		File srcJarPath= JavaTestPlugin.getDefault().getFileInPlugin(new Path("/testresources/PackageJavadocTests/testData_src.zip"));
+		IPackageFragmentRoot jarRoot= JavaProjectHelper.addLibraryWithImport(fJProject1, new Path(clsJarPath.getAbsolutePath()), new Path(srcJarPath.getAbsolutePath()), new Path("src"));
+		IType type= jarRoot.getPackageFragment("org.eclipse.jdt.ui.tests.noJavadoc").getClassFile("TestClassNoJavaDoc.class").getType();
+		IMethod method= type.getMethod("m1", new String[0]);
+		assertTrue(method.exists());
+		assertNotNull(method.getOpenable().getBuffer());
+		return method;
+	}
+
+	private static String getSource(String comment) {
+		return "package pack;\npublic class A {\n\t/** " + comment + " */\n\tpublic void foo() {\n\t}\n}\n";
+	}
+
+	public void testSourceChangeKeepsBinaryEntries() throws Exception {
+		IMethod binaryMethod= getBinaryMethod();
+		IPackageFragment pack= JavaProjectHelper.addSourceContainer(fJProject1, "src").createPackageFragment("pack", true, null);
+		ICompilationUnit cu= pack.createCompilationUnit("A.java", getSource("Does foo."), false, null);
+		IMethod sourceMethod= cu.getType("A").getMethod("foo", new String[0]);
+
+		assertNull(JavadocHTMLCache.getHTMLContent(binaryMethod));
+		String content= JavadocHTMLCache.getHTMLContent(sourceMethod);
+		assertTrue(content, content.contains("Does foo."));
+		assertTrue(JavadocHTMLCache.hasInCache(binaryMethod));
+		assertTrue(JavadocHTMLCache.hasInCache(sourceMethod));
+		assertSame(content, JavadocHTMLCache.getHTMLContent(sourceMethod));
+
+		// an edit only discards the members of source roots
+		cu.getBuffer().setContents(getSource("Does bar."));
+		cu.save(null, true);
+		assertTrue(JavadocHTMLCache.hasInCache(binaryMethod));
+		assertFalse(JavadocHTMLCache.hasInCache(sourceMethod));
+
+		content= JavadocHTMLCache.getHTMLContent(sourceMethod);
+		assertTrue(content, content.contains("Does bar."));
+		assertTrue(JavadocHTMLCache.hasInCache(sourceMethod));
+	}
+
+	public void testReconcileOfWorkingCopy() throws Exception {
+		IMethod binaryMethod= getBinaryMethod();
+		IPackageFragment pack= JavaProjectHelper.addSourceContainer(fJProject1, "src").createPackageFragment("pack", true, null);
+		ICompilationUnit cu= pack.createCompilationUnit("A.java", getSource("Does foo."), false, null);
+		IMethod sourceMethod= cu.getType("A").getMethod("foo", new String[0]);
+
+		cu.becomeWorkingCopy(null);
+		try {
+			JavadocHTMLCache.getHTMLContent(binaryMethod);
+			JavadocHTMLCache.getHTMLContent(sourceMethod);
+			assertTrue(JavadocHTMLCache.hasInCache(sourceMethod));
+
+			cu.getBuffer().setContents(getSource("Does bar."));
+			cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertTrue(JavadocHTMLCache.hasInCache(binaryMethod));
+			assertFalse(JavadocHTMLCache.hasInCache(sourceMethod));
+
+			String content= JavadocHTMLCache.getHTMLContent(sourceMethod);
+			assertTrue(content, content.contains("Does bar."));
+		} finally {
+			cu.discardWorkingCopy();
+		}
+	}
+
+	public void testClasspathChangeDiscardsBinaryEntries() throws Exception {
+		IMethod binaryMethod= getBinaryMethod();
+		JavadocHTMLCache.getHTMLContent(binaryMethod);
+		assertTrue(JavadocHTMLCache.hasInCache(binaryMethod));
+
+		JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		assertFalse(JavadocHTMLCache.hasInCache(binaryMethod));
+	}
+
+	public void testMissingAttachedJavadocIsNotCached() throws Exception {
+		// the class library has neither source nor Javadoc attached
+		IType object= fJProject1.findType("java.lang.Object");
+		IMethod method= object.getMethod("hashCode", new String[0]);
+		assertNull(method.getOpenable().getBuffer());
+
+		assertNull(JavadocHTMLCache.getHTMLContent(method));
+		assertFalse(JavadocHTMLCache.hasInCache(method));
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+import org.eclipse.jdt.internal.corext.util.OpenTypeHistory;
+
+public class OpenTypeHistoryTest extends TestCase {
+
+	private static final Class<OpenTypeHistoryTest> THIS= OpenTypeHistoryTest.class;
+
+	/**
+	 * Cancels after the given amount of work.
+	 */
+	private static class CancelingMonitor extends NullProgressMonitor {
+		private int fRemaining;
+
+		public CancelingMonitor(int work) {
+			fRemaining= work;
+			setCanceled(work == 0);
+		}
+
+		@Override
+		public void worked(int work) {
+			fRemaining-= work;
+			if (fRemaining <= 0)
+				setCanceled(true);
+		}
+	}
+
+	private IJavaProject fJProject1;
+	private OpenTypeHistory fHistory;
+
+	private IType fTypeA;
+	private IType fTypeB;
+	private IType fTypeC;
+	private IType fTypeD;
+
+	public OpenTypeHistoryTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		fHistory= OpenTypeHistory.getInstance();
+
+		// the update job must not run the checks of the test
+		Job.getJobManager().suspend();
+		try {
+			fHistory.checkConsistency(new NullProgressMonitor());
+			addTypes();
+		} catch (Exception e) {
+			Job.getJobManager().resume();
+			throw e;
+		}
+	}
+
+	private void addTypes() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		IPackageFragment pack2= root.createPackageFragment("pack2", true, null);
+		fTypeA= pack1.createCompilationUnit("A.java", "package pack1;\npublic class A {\n}\n", false, null).getType("A");
+		fTypeB= pack1.createCompilationUnit("B.java", "package pack1;\npublic class B {\n}\n", false, null).getType("B");
+		fTypeC= pack2.createCompilationUnit("C.java", "package pack2;\npublic class C {\n}\n", false, null).getType("C");
+		fTypeD= pack2.getCompilationUnit("D.java").getType("D");
+
+		fHistory.accessed(SearchEngine.createTypeNameMatch(fTypeA, fTypeA.getFlags()));
+		fHistory.accessed(SearchEngine.createTypeNameMatch(fTypeB, fTypeB.getFlags()));
+		// outdated modifiers, only fixed when C is validated
+		fHistory.accessed(SearchEngine.createTypeNameMatch(fTypeC, Flags.AccPublic | Flags.AccFinal));
+		// does not exist, only removed when D is validated
+		fHistory.accessed(SearchEngine.createTypeNameMatch(fTypeD, Flags.AccPublic));
+		assertFalse(fHistory.needConsistencyCheck());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try {
+			TypeNameMatch[] infos= fHistory.getTypeInfos();
+			for (int i= 0; i < infos.length; i++) {
+				if (fJProject1.equals(infos[i].getType().getJavaProject()))
+					fHistory.remove(infos[i]);
+			}
+		} finally {
+			Job.getJobManager().resume();
+		}
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private TypeNameMatch find(IType type) {
+		TypeNameMatch[] infos= fHistory.getTypeInfos();
+		for (int i= 0; i < infos.length; i++) {
+			if (type.equals(infos[i].getType()))
+				return infos[i];
+		}
+		return null;
+	}
+
+	public void testChangedContainers() throws Exception {
+		fTypeA.getCompilationUnit().delete(true, null);
+		ICompilationUnit cuB= fTypeB.getCompilationUnit();
+		cuB.getBuffer().setContents("package pack1;\npublic class B2 {\n}\n");
+		cuB.save(null, true);
+		assertTrue(fHistory.needConsistencyCheck());
+
+		fHistory.checkConsistency(new NullProgressMonitor());
+		assertFalse(fHistory.needConsistencyCheck());
+		assertNull(find(fTypeA));
+		assertNull(find(fTypeB));
+		// outside of the changed containers, so not validated
+		assertEquals(Flags.AccPublic | Flags.AccFinal, find(fTypeC).getModifiers());
+		assertNotNull(find(fTypeD));
+	}
+
+	public void testCanceledCheckKeepsPendingTypes() throws Exception {
+		fTypeA.getCompilationUnit().delete(true, null);
+		fHistory.markAsInconsistent();
+
+		try {
+			fHistory.checkConsistency(new CancelingMonitor(0));
+			fail("not canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertTrue(fHistory.needConsistencyCheck());
+		assertNotNull(find(fTypeA));
+		assertNotNull(find(fTypeD));
+
+		// the pending check validates the changed container and all other types
+		fHistory.checkConsistency(new NullProgressMonitor());
+		assertFalse(fHistory.needConsistencyCheck());
+		assertNull(find(fTypeA));
+		assertNotNull(find(fTypeB));
+		assertNotNull(find(fTypeC));
+		assertNull(find(fTypeD));
+	}
+
+	public void testPartiallyCanceledCheck() throws Exception {
+		fTypeA.getPackageFragment().delete(true, null);
+
+		try {
+			fHistory.checkConsistency(new CancelingMonitor(1));
+			fail("not canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		// one of the types of the removed package is checked, the other one is still pending
+		assertTrue(fHistory.needConsistencyCheck());
+		assertTrue(find(fTypeA) == null ^ find(fTypeB) == null);
+
+		fHistory.checkConsistency(new NullProgressMonitor());
+		assertFalse(fHistory.needConsistencyCheck());
+		assertNull(find(fTypeA));
+		assertNull(find(fTypeB));
+		assertEquals(Flags.AccPublic | Flags.AccFinal, find(fTypeC).getModifiers());
+		assertNotNull(find(fTypeD));
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.util.DisplayHelper;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerManager;
+
+public class ProblemMarkerManagerTest extends TestCase {
+
+	private static final Class<ProblemMarkerManagerTest> THIS= ProblemMarkerManagerTest.class;
+
+	private static class RecordingListener implements IProblemChangedListener {
+		private final List<IResource[]> fMarkerChanges= new ArrayList<>();
+
+		@Override
+		public void problemsChanged(IResource[] changedResources, boolean isMarkerChange) {
+			if (isMarkerChange)
+				fMarkerChanges.add(changedResources);
+		}
+
+		public int getMarkerChangeCount() {
+			return fMarkerChanges.size();
+		}
+
+		public Set<IResource> getChangedResources() {
+			Set<IResource> result= new HashSet<>();
+			for (IResource[] resources : fMarkerChanges) {
+				result.addAll(Arrays.asList(resources));
+			}
+			return result;
+		}
+	}
+
+	private ProblemMarkerManager fManager;
+	private RecordingListener fListener;
+
+	private IProject fProject;
+	private IFolder fFolder;
+	private IFile fFile1;
+	private IFile fFile2;
+	private IFile fFile3;
+
+	public ProblemMarkerManagerTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject("ProblemMarkerManagerTest");
+		fProject.create(null);
+		fProject.open(null);
+		fFolder= fProject.getFolder("folder");
+		fFolder.create(true, true, null);
+		fFile1= createFile(fFolder, "file1.txt");
+		fFile2= createFile(fFolder, "file2.txt");
+		fFile3= createFile(fProject, "file3.txt");
+
+		fManager= new ProblemMarkerManager();
+		fListener= new RecordingListener();
+		fManager.addListener(fListener);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fManager.removeListener(fListener);
+		JavaProjectHelper.delete(fProject);
+	}
+
+	private static IFile createFile(IContainer container, String name) throws CoreException {
+		IFile file= container.getFile(new Path(name));
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		return file;
+	}
+
+	private static IMarker createProblem(IResource resource, int severity) throws CoreException {
+		IMarker marker= resource.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	private void assertSeverities(int projectSeverity) throws CoreException {
+		assertEquals(projectSeverity, fManager.findMaxProblemSeverity(fProject));
+		IResource[] resources= { fProject, fFolder, fFile1, fFile2, fFile3 };
+		for (int i= 0; i < resources.length; i++) {
+			int expected= resources[i].findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+			assertEquals(resources[i].getFullPath().toString(), expected, fManager.findMaxProblemSeverity(resources[i]));
+			// a second time from the summary
+			assertEquals(resources[i].getFullPath().toString(), expected, fManager.findMaxProblemSeverity(resources[i]));
+		}
+	}
+
+	public void testSeveritiesAfterMarkerChanges() throws Exception {
+		assertSeverities(-1);
+
+		IMarker warning= createProblem(fFile1, IMarker.SEVERITY_WARNING);
+		assertSeverities(IMarker.SEVERITY_WARNING);
+
+		IMarker error= createProblem(fFile2, IMarker.SEVERITY_ERROR);
+		createProblem(fFile3, IMarker.SEVERITY_INFO);
+		assertSeverities(IMarker.SEVERITY_ERROR);
+
+		error.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+		assertSeverities(IMarker.SEVERITY_WARNING);
+
+		warning.delete();
+		assertSeverities(IMarker.SEVERITY_INFO);
+
+		fFolder.delete(true, null);
+		assertEquals(IMarker.SEVERITY_INFO, fManager.findMaxProblemSeverity(fProject));
+		assertEquals(-1, fManager.findMaxProblemSeverity(fFolder));
+		assertEquals(IMarker.SEVERITY_INFO, fManager.findMaxProblemSeverity(fFile3));
+	}
+
+	public void testSeveritiesAfterReopen() throws Exception {
+		createProblem(fFile1, IMarker.SEVERITY_WARNING);
+		createProblem(fFile3, IMarker.SEVERITY_ERROR);
+		assertSeverities(IMarker.SEVERITY_ERROR);
+
+		// the markers of the reopened project are restored without marker deltas
+		fProject.close(null);
+		fProject.open(null);
+		assertSeverities(IMarker.SEVERITY_ERROR);
+
+		fFile3.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		assertSeverities(IMarker.SEVERITY_WARNING);
+	}
+
+	public void testChangesWithinDelayAreNotifiedOnce() throws Exception {
+		Display display= Display.getCurrent();
+		// notifications are posted to the display thread, so none can run before the event loop runs
+		createProblem(fFile1, IMarker.SEVERITY_WARNING);
+		createProblem(fFile2, IMarker.SEVERITY_ERROR);
+		createProblem(fFile3, IMarker.SEVERITY_INFO);
+		assertEquals(0, fListener.getMarkerChangeCount());
+
+		boolean notified= new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return fListener.getMarkerChangeCount() > 0;
+			}
+		}.waitForCondition(display, 5000);
+		assertTrue("no notification", notified);
+		// give a second notification the chance to arrive
+		DisplayHelper.sleep(display, 1000);
+
+		assertEquals(1, fListener.getMarkerChangeCount());
+		Set<IResource> changed= fListener.getChangedResources();
+		assertTrue(changed.contains(fFile1));
+		assertTrue(changed.contains(fFile2));
+		assertTrue(changed.contains(fFile3));
+		assertTrue(changed.contains(fFolder));
+		assertTrue(changed.contains(fProject));
+	}
+}
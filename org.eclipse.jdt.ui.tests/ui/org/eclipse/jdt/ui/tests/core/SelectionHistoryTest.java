@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -18,6 +21,8 @@ import org.w3c.dom.Element;
 
 import org.eclipse.jdt.internal.corext.util.History;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -131,6 +136,26 @@ public class SelectionHistoryTest extends TestCase {
 
 	}
 
+	private static final class StoredTestHistory extends History<String, String> {
+
+		public StoredTestHistory() {
+			super("SelectionHistoryTest.xml", "testHistory", "entry");
+		}
+		@Override
+		protected void setAttributes(Object object, Element element) {
+			element.setAttribute("name", (String) object);
+		}
+		@Override
+		protected String createFromElement(Element element) {return element.getAttribute("name");}
+		@Override
+		protected String getKey(String object) {return object;}
+
+	}
+
+	private static File getStateFile(String name) {
+		return JavaPlugin.getDefault().getStateLocation().append(name).toFile();
+	}
+
 	public void testOrganizeImportHistory01() throws Exception {
 		History<String, String> history= new TestHistory();
 		Comparator<String> comparator= new TestHistoryComparator(history);
@@ -193,4 +218,60 @@ public class SelectionHistoryTest extends TestCase {
 		assertEquals(strings, expected);
 	}
 
+	public void testStoreAndLoad() throws Exception {
+		File store= getStateFile("SelectionHistoryTest.bin");
+		try {
+			History<String, String> history= new StoredTestHistory();
+			history.accessed("a");
+			history.accessed("b");
+			history.accessed("c");
+			history.accessed("a");
+			history.save();
+			assertTrue(store.exists());
+
+			History<String, String> loaded= new StoredTestHistory();
+			loaded.load();
+			assertEquals(3, loaded.getPosition("a"));
+			assertEquals(2, loaded.getPosition("c"));
+			assertEquals(1, loaded.getPosition("b"));
+		} finally {
+			store.delete();
+		}
+	}
+
+	public void testMigrateXml() throws Exception {
+		File xml= getStateFile("SelectionHistoryTest.xml");
+		File store= getStateFile("SelectionHistoryTest.bin");
+		try {
+			String content= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<testHistory>\n"
+					+ "<entry name=\"x\"/>\n"
+					+ "<entry name=\"y\"/>\n"
+					+ "</testHistory>\n";
+			OutputStream out= new FileOutputStream(xml);
+			try {
+				out.write(content.getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+
+			History<String, String> history= new StoredTestHistory();
+			history.load();
+			assertEquals(0, history.getPosition("x"));
+			assertEquals(1, history.getPosition("y"));
+
+			history.save();
+			assertTrue(store.exists());
+			assertFalse(xml.exists());
+
+			History<String, String> loaded= new StoredTestHistory();
+			loaded.load();
+			assertEquals(0, loaded.getPosition("x"));
+			assertEquals(1, loaded.getPosition("y"));
+		} finally {
+			xml.delete();
+			store.delete();
+		}
+	}
+
 }
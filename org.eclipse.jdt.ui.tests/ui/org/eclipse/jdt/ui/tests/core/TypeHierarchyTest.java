@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -29,11 +33,15 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.typehierarchy.ITypeHierarchyLifeCycleListener;
+import org.eclipse.jdt.internal.ui.typehierarchy.TypeHierarchyLifeCycle;
+import org.eclipse.jdt.internal.ui.util.BusyIndicatorRunnableContext;
 
 
 public class TypeHierarchyTest extends TestCase {
@@ -43,6 +51,20 @@ public class TypeHierarchyTest extends TestCase {
 	private IJavaProject fJavaProject1;
 	private IJavaProject fJavaProject2;
 
+	private static class LifeCycleListener implements ITypeHierarchyLifeCycleListener {
+		int fRefreshes;
+		List<IType> fChangedTypes= new ArrayList<>();
+
+		@Override
+		public void typeHierarchyChanged(TypeHierarchyLifeCycle typeHierarchyProvider, IType[] changedTypes) {
+			if (changedTypes == null) {
+				fRefreshes++;
+			} else {
+				fChangedTypes.addAll(Arrays.asList(changedTypes));
+			}
+		}
+	}
+
 	public TypeHierarchyTest(String name) {
 		super(name);
 	}
@@ -291,7 +313,250 @@ public class TypeHierarchyTest extends TestCase {
 
 	}
 
+	public void testSuperTypeHierarchyCache() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+
+		ICompilationUnit cu1= pack1.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+
+		ICompilationUnit cu2= pack1.getCompilationUnit("B.java");
+		IType type2= cu2.createType("public class B extends A {\n}\n", null, true, null);
+
+		SuperTypeHierarchyCache.resetStatistics();
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertEquals(0, SuperTypeHierarchyCache.getStatistics().getHits());
+		assertEquals(1, SuperTypeHierarchyCache.getStatistics().getMisses());
+
+		// the hierarchy of B contains A
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type1));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(type1));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(type2));
+		assertEquals(2, SuperTypeHierarchyCache.getStatistics().getHits());
+		assertEquals(1, SuperTypeHierarchyCache.getStatistics().getMisses());
+
+		// changing the hierarchy invalidates the entry
+		cu2.getBuffer().setContents("package pack1;\npublic class B {\n}\n");
+		cu2.save(null, true);
+
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type2));
+		assertEquals(1, SuperTypeHierarchyCache.getStatistics().getInvalidations());
+
+		hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertFalse(hierarchy.contains(type1));
+		assertEquals(2, SuperTypeHierarchyCache.getStatistics().getMisses());
+	}
+
+	public void testLifeCycleKeepsHierarchyOnBodyChange() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+
+		ICompilationUnit cu1= pack1.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+
+		ICompilationUnit cu2= pack1.getCompilationUnit("B.java");
+		IType type2= cu2.createType("public class B extends A {\n}\n", null, true, null);
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			ITypeHierarchy hierarchy= lifeCycle.getHierarchy();
+			assertTrue(hierarchy.contains(type2));
+
+			// the hierarchy reports the change, the life cycle keeps the hierarchy
+			setContents(cu2, "package pack1;\npublic class B extends A {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+			assertTrue(listener.fChangedTypes.contains(type2));
+
+			// later changes are only reported by the delta
+			listener.fChangedTypes.clear();
+			setContents(cu2, "package pack1;\npublic class B extends A {\n\tvoid foo() {\n\t\tfoo();\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+			assertTrue(listener.fChangedTypes.contains(type2));
+			assertSame(hierarchy, lifeCycle.getHierarchy());
+		} finally {
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	public void testLifeCycleRefreshesOnImportChange() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+		IPackageFragment pack2= root1.createPackageFragment("pack2", true, null);
+		IPackageFragment pack3= root1.createPackageFragment("pack3", true, null);
+
+		IType type1= pack1.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+		pack2.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+
+		ICompilationUnit cu3= pack3.getCompilationUnit("C.java");
+		cu3.getBuffer().setContents("package pack3;\nimport pack1.Base;\npublic class C extends Base {\n}\n");
+		cu3.save(null, true);
+		IType type3= cu3.getType("C");
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertTrue(lifeCycle.getHierarchy().contains(type3));
+
+			// the simple name of the super type does not change
+			setContents(cu3, "package pack3;\nimport pack2.Base;\npublic class C extends Base {\n}\n");
+			assertEquals(1, listener.fRefreshes);
+
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertFalse(lifeCycle.getHierarchy().contains(type3));
+		} finally {
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	public void testLifeCycleRefreshesOnSuperTypeChange() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+		IPackageFragment pack2= root1.createPackageFragment("pack2", true, null);
+		IPackageFragment pack3= root1.createPackageFragment("pack3", true, null);
+
+		IType type1= pack1.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+		pack2.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+
+		ICompilationUnit cu3= pack3.getCompilationUnit("C.java");
+		IType type3= cu3.createType("public class C extends pack1.Base {\n}\n", null, true, null);
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertTrue(lifeCycle.getHierarchy().contains(type3));
+
+			setContents(cu3, "package pack3;\npublic class C extends pack1.Base {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+
+			// detected from the delta, the hierarchy does not report changes anymore
+			setContents(cu3, "package pack3;\npublic class C extends pack2.Base {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(1, listener.fRefreshes);
+
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertFalse(lifeCycle.getHierarchy().contains(type3));
+		} finally {
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	public void testLifeCycleRefreshesOnNewSubtype() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+		IPackageFragment pack2= root1.createPackageFragment("pack2", true, null);
+
+		IType type1= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		ICompilationUnit cu2= pack1.getCompilationUnit("B.java");
+		cu2.createType("public class B extends A {\n}\n", null, true, null);
+		ICompilationUnit cu3= pack2.getCompilationUnit("C.java");
+		cu3.createType("public class C {\n}\n", null, true, null);
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+
+			setContents(cu2, "package pack1;\npublic class B extends A {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+
+			// a type outside of the hierarchy that does not extend one of its types
+			setContents(cu3, "package pack2;\npublic class C {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
 
+			// a new subtype in another compilation unit
+			IType type4= pack2.getCompilationUnit("D.java").createType("public class D extends pack1.A {\n}\n", null, true, null);
+			assertEquals(1, listener.fRefreshes);
 
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertTrue(lifeCycle.getHierarchy().contains(type4));
+		} finally {
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	public void testLifeCycleRefreshesRegionOnNewSuperType() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
 
+		ICompilationUnit cu1= pack1.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+		IType type2= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(pack1, new BusyIndicatorRunnableContext());
+			ITypeHierarchy hierarchy= lifeCycle.getHierarchy();
+			assertNull(hierarchy.getType());
+			assertTrue(hierarchy.contains(type1));
+			assertTrue(hierarchy.contains(type2));
+
+			setContents(cu1, "package pack1;\npublic class A {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+
+			// the new super type is not part of the hierarchy yet
+			setContents(cu1, "package pack1;\nimport java.io.Serializable;\npublic class A implements Serializable {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(1, listener.fRefreshes);
+
+			lifeCycle.ensureRefreshedTypeHierarchy(pack1, new BusyIndicatorRunnableContext());
+			IType serializable= fJavaProject1.findType("java.io.Serializable");
+			assertNotNull(serializable);
+			assertTrue(lifeCycle.getHierarchy().contains(serializable));
+		} finally {
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	public void testLifeCycleRefreshesOnWorkingCopyReconcile() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+		IPackageFragment pack2= root1.createPackageFragment("pack2", true, null);
+		IPackageFragment pack3= root1.createPackageFragment("pack3", true, null);
+
+		IType type1= pack1.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+		pack2.getCompilationUnit("Base.java").createType("public class Base {\n}\n", null, true, null);
+
+		ICompilationUnit cu3= pack3.getCompilationUnit("C.java");
+		IType type3= cu3.createType("public class C extends pack1.Base {\n}\n", null, true, null);
+
+		TypeHierarchyLifeCycle lifeCycle= new TypeHierarchyLifeCycle(false);
+		LifeCycleListener listener= new LifeCycleListener();
+		lifeCycle.addChangedListener(listener);
+		cu3.becomeWorkingCopy(null);
+		try {
+			lifeCycle.ensureRefreshedTypeHierarchy(type1, new BusyIndicatorRunnableContext());
+			assertTrue(lifeCycle.getHierarchy().contains(type3));
+
+			// the hierarchy reports the change while the working copy is reconciled
+			reconcile(cu3, "package pack3;\npublic class C extends pack1.Base {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(0, listener.fRefreshes);
+			assertTrue(listener.fChangedTypes.contains(type3));
+
+			// detected from the reconcile delta, without saving the working copy
+			reconcile(cu3, "package pack3;\npublic class C extends pack2.Base {\n\tvoid foo() {\n\t}\n}\n");
+			assertEquals(1, listener.fRefreshes);
+		} finally {
+			cu3.discardWorkingCopy();
+			lifeCycle.freeHierarchy();
+		}
+	}
+
+	private static void setContents(ICompilationUnit cu, String contents) throws Exception {
+		cu.getBuffer().setContents(contents);
+		cu.save(null, true);
+	}
+
+	private static void reconcile(ICompilationUnit cu, String contents) throws Exception {
+		cu.getBuffer().setContents(contents);
+		cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+	}
 }
@@ -24,6 +24,8 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
 import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
 
@@ -37,8 +39,10 @@ import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
@@ -276,6 +280,40 @@ public class CleanUpTest extends CleanUpTestCase {
 		assertRefactoringResultAsExpected(new ICompilationUnit[] {cu1, cu2, cu3}, new String[] {expected1, expected2, expected3});
 	}
 
+	public void testUnusedCodeManyUnits() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit[] cus= new ICompilationUnit[500];
+		String[] expected= new String[cus.length];
+		for (int i= 0; i < cus.length; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("import java.util.List;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("}\n");
+			cus[i]= pack1.createCompilationUnit("E" + i + ".java", buf.toString(), false, null);
+
+			buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("}\n");
+			expected[i]= buf.toString();
+		}
+
+		enable(CleanUpConstants.REMOVE_UNUSED_CODE_IMPORTS);
+
+		CleanUpRefactoring ref= new CleanUpRefactoring();
+		ref.setUseOptionsFromProfile(true);
+		performRefactoring(ref, cus, JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps());
+
+		// the changes are ordered like the compilation units, even if they have been calculated in parallel
+		Change[] changes= ((CompositeChange) ref.createChange(null)).getChildren();
+		assertEquals(cus.length, changes.length);
+		for (int i= 0; i < cus.length; i++) {
+			assertEquals(cus[i], ((CompilationUnitChange) changes[i]).getCompilationUnit());
+			assertEqualString(cus[i].getBuffer().getContents(), expected[i]);
+		}
+	}
+
 	public void testUnusedCode02() throws Exception {
 		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
 		StringBuffer buf= new StringBuffer();
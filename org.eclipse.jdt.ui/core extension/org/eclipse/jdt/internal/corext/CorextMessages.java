@@ -34,6 +34,8 @@ public final class CorextMessages extends NLS {
 	
 	public static String History_error_serialize;
 	public static String History_error_read;
+	public static String History_error_write;
+	public static String History_job_save;
 	public static String TypeInfoHistory_consistency_check;
 
 	static {
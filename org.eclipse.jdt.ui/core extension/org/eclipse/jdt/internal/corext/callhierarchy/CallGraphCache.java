@@ -0,0 +1,586 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IInitializer;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.SearchEngine;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Workspace-wide cache of the callers and callees found by {@link MethodWrapper}s.
+ * <p>
+ * The children of a method wrapper are cached by the handle identifier of its member, so that
+ * they survive the input of the Call Hierarchy view. An entry remembers the compilation units and
+ * class files its children have been found in. It is dropped when one of them changes, or, for
+ * callers, when a changed compilation unit mentions the name of the member, since the unit may
+ * contain a new caller. Classpath changes drop all entries.
+ * </p>
+ * <p>
+ * Callers are only cached for the workspace scope, and callees only if implementors are not
+ * searched, since the entries could not be invalidated otherwise.
+ * </p>
+ * <p>
+ * If {@link CallHierarchy#isCallGraphCachePersistent() enabled}, the cache is stored when the
+ * workspace is saved and restored in the next session. The resource changes between the two
+ * sessions are processed like Java element changes.
+ * </p>
+ *
+ * @since 3.13
+ */
+public final class CallGraphCache {
+
+	/**
+	 * The cached children of a method wrapper.
+	 */
+	private static final class Entry {
+
+		/** The children, must not be modified */
+		private final Map<String, MethodCall> fCalls;
+
+		/** The handle identifiers of the type roots the entry depends on */
+		private final Set<String> fDependencies;
+
+		/**
+		 * The name whose occurrence in a changed compilation unit drops the entry, an empty
+		 * string if any change drops the entry, or <code>null</code> if only changes of the
+		 * dependencies drop the entry
+		 */
+		private final String fReferenceName;
+
+		Entry(Map<String, MethodCall> calls, Set<String> dependencies, String referenceName) {
+			fCalls= calls;
+			fDependencies= dependencies;
+			fReferenceName= referenceName;
+		}
+
+		boolean isAffectedBy(String typeRoot, Set<String> identifiers) {
+			if (fDependencies.contains(typeRoot))
+				return true;
+			if (fReferenceName == null)
+				return false;
+			return identifiers == null || fReferenceName.length() == 0 || identifiers.contains(fReferenceName);
+		}
+	}
+
+	private class JavaElementListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			processDelta(event.getDelta());
+		}
+	}
+
+	private class SavedStateListener implements IResourceChangeListener, IResourceDeltaVisitor {
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta= event.getDelta();
+			if (delta == null)
+				return;
+			try {
+				delta.accept(this);
+			} catch (CoreException e) {
+				flush();
+			}
+		}
+
+		@Override
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			IResource resource= delta.getResource();
+			switch (resource.getType()) {
+				case IResource.PROJECT:
+					if (delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0) {
+						flush();
+						return false;
+					}
+					return true;
+				case IResource.FILE:
+					String extension= resource.getFileExtension();
+					if ("java".equals(extension)) { //$NON-NLS-1$
+						IJavaElement element= JavaCore.create((IFile) resource);
+						if (element instanceof ICompilationUnit)
+							unitChanged((ICompilationUnit) element);
+					} else if ("class".equals(extension) || "jar".equals(extension) || "zip".equals(extension) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							|| ".classpath".equals(resource.getName())) { //$NON-NLS-1$
+						flush();
+					}
+					return false;
+				default:
+					return true;
+			}
+		}
+	}
+
+	private static class SaveParticipant implements ISaveParticipant {
+		@Override
+		public void saving(ISaveContext context) throws CoreException {
+			if (context.getKind() != ISaveContext.FULL_SAVE)
+				return;
+			CallGraphCache cache= getDefault();
+			if (CallHierarchy.getDefault().isCallGraphCachePersistent()) {
+				try {
+					cache.store(getStoreFile());
+					// the changes until the next session are needed to validate the stored entries
+					context.needDelta();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+				}
+			} else {
+				getStoreFile().delete();
+			}
+		}
+
+		@Override
+		public void doneSaving(ISaveContext context) {
+			// nothing to do
+		}
+
+		@Override
+		public void prepareToSave(ISaveContext context) throws CoreException {
+			// nothing to do
+		}
+
+		@Override
+		public void rollback(ISaveContext context) {
+			// nothing to do
+		}
+	}
+
+	/** The maximal number of cached entries */
+	private static final int MAX_ENTRIES= 5000;
+
+	/** The name of the file in the plug-in state location the cache is stored in */
+	private static final String STORE_FILE= "callGraphCache.bin"; //$NON-NLS-1$
+
+	/** The magic number of the store: "JCGC" */
+	private static final int MAGIC= 0x4A434743;
+
+	/** The version of the store layout */
+	private static final int VERSION= 1;
+
+	private static final int CLASSPATH_CHANGED= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	private static CallGraphCache fgInstance;
+
+	/** The entries in access order, guarded by <code>this</code> */
+	private final Map<String, Entry> fEntries= new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** Incremented whenever entries are dropped, guarded by <code>this</code> */
+	private int fGeneration= 0;
+
+	private IElementChangedListener fListener;
+
+	private CallGraphCache() {
+	}
+
+	/**
+	 * Returns the call graph cache. The first invocation restores the stored cache if
+	 * persistence is enabled.
+	 *
+	 * @return the call graph cache
+	 */
+	public static synchronized CallGraphCache getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new CallGraphCache();
+			fgInstance.install();
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Stops listening to Java element changes. The cache is stored by the workspace save
+	 * that precedes the shutdown.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null && fgInstance.fListener != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fListener);
+			fgInstance.fListener= null;
+		}
+	}
+
+	private void install() {
+		fListener= new JavaElementListener();
+		JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+
+		File file= getStoreFile();
+		try {
+			ISavedState savedState= ResourcesPlugin.getWorkspace().addSaveParticipant(JavaPlugin.getPluginId(), new SaveParticipant());
+			if (savedState != null && file.isFile() && CallHierarchy.getDefault().isCallGraphCachePersistent()) {
+				load(file);
+				savedState.processResourceChangeEvents(new SavedStateListener());
+			}
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
+			flush();
+		} catch (IOException e) {
+			// an outdated or damaged store is discarded
+			flush();
+		}
+	}
+
+	private static File getStoreFile() {
+		return JavaPlugin.getDefault().getStateLocation().append(STORE_FILE).toFile();
+	}
+
+	/**
+	 * Returns the generation of the cache. The generation changes whenever entries are dropped.
+	 *
+	 * @return the generation
+	 * @see #put(MethodWrapper, Map, int)
+	 */
+	synchronized int getGeneration() {
+		return fGeneration;
+	}
+
+	/**
+	 * Returns the cached children of the given method wrapper.
+	 *
+	 * @param wrapper the method wrapper
+	 * @return the children, which must not be modified, or <code>null</code> if they are not cached
+	 */
+	Map<String, MethodCall> get(MethodWrapper wrapper) {
+		String key= getKey(wrapper);
+		if (key == null)
+			return null;
+		synchronized (this) {
+			Entry entry= fEntries.get(key);
+			return entry != null ? entry.fCalls : null;
+		}
+	}
+
+	/**
+	 * Returns whether the children of the given method wrapper are cached.
+	 *
+	 * @param wrapper the method wrapper
+	 * @return <code>true</code> if the children are cached
+	 */
+	public boolean contains(MethodWrapper wrapper) {
+		return get(wrapper) != null;
+	}
+
+	/**
+	 * Caches the children of the given method wrapper. The children are not cached if entries have
+	 * been dropped since the given generation, since they may have been found in a unit that
+	 * has changed in the meantime.
+	 *
+	 * @param wrapper the method wrapper
+	 * @param calls the children of the method wrapper
+	 * @param generation the generation of the cache when the search for the children started
+	 */
+	void put(MethodWrapper wrapper, Map<String, MethodCall> calls, int generation) {
+		String key= getKey(wrapper);
+		if (key == null)
+			return;
+
+		Set<String> dependencies= new HashSet<>();
+		addDependency(dependencies, wrapper.getMember());
+		for (Iterator<MethodCall> iter= calls.values().iterator(); iter.hasNext();) {
+			MethodCall call= iter.next();
+			addDependency(dependencies, call.getMember());
+			Collection<CallLocation> locations= call.getCallLocations();
+			if (locations != null) {
+				for (Iterator<CallLocation> locationIter= locations.iterator(); locationIter.hasNext();) {
+					addDependency(dependencies, locationIter.next().getMember());
+				}
+			}
+		}
+		String referenceName= wrapper instanceof CallerMethodWrapper ? getReferenceName(wrapper.getMember()) : null;
+		Entry entry= new Entry(Collections.unmodifiableMap(new HashMap<>(calls)), dependencies, referenceName);
+
+		synchronized (this) {
+			if (generation == fGeneration)
+				fEntries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Drops the cached children of the given method wrapper.
+	 *
+	 * @param wrapper the method wrapper
+	 */
+	void remove(MethodWrapper wrapper) {
+		String key= getKey(wrapper);
+		if (key == null)
+			return;
+		synchronized (this) {
+			if (fEntries.remove(key) != null)
+				fGeneration++;
+		}
+	}
+
+	/**
+	 * Drops all entries.
+	 */
+	public synchronized void flush() {
+		fEntries.clear();
+		fGeneration++;
+	}
+
+	private static String getKey(MethodWrapper wrapper) {
+		CallHierarchy callHierarchy= CallHierarchy.getDefault();
+		if (wrapper instanceof CallerMethodWrapper) {
+			if (!SearchEngine.createWorkspaceScope().equals(callHierarchy.getSearchScope()))
+				return null;
+			return "R" + wrapper.getFieldSearchMode() + wrapper.getMethodCall().getKey(); //$NON-NLS-1$
+		} else {
+			if (callHierarchy.isSearchUsingImplementorsEnabled())
+				return null;
+			return "E" + wrapper.getMethodCall().getKey(); //$NON-NLS-1$
+		}
+	}
+
+	private static void addDependency(Set<String> dependencies, IMember member) {
+		ITypeRoot typeRoot= member.getTypeRoot();
+		if (typeRoot instanceof ICompilationUnit)
+			typeRoot= ((ICompilationUnit) typeRoot).getPrimary();
+		if (typeRoot != null)
+			dependencies.add(typeRoot.getHandleIdentifier());
+	}
+
+	/**
+	 * Returns the name that a new reference to the given member must contain.
+	 *
+	 * @param member the member whose callers are cached
+	 * @return the name, or an empty string if it is not known
+	 */
+	private static String getReferenceName(IMember member) {
+		try {
+			if (member instanceof IMethod && ((IMethod) member).isConstructor() || member instanceof IInitializer)
+				return member.getDeclaringType().getElementName();
+		} catch (JavaModelException e) {
+			return ""; //$NON-NLS-1$
+		}
+		// an anonymous type has an empty name
+		return member.getElementName();
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGED) != 0) {
+					flush();
+					return;
+				}
+				//$FALL-THROUGH$
+			case IJavaElement.JAVA_MODEL:
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					processDelta(children[i]);
+				}
+				return;
+			case IJavaElement.COMPILATION_UNIT:
+				// becoming a working copy does not change the unit
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~IJavaElementDelta.F_PRIMARY_WORKING_COPY) != 0)
+					unitChanged((ICompilationUnit) element);
+				return;
+			case IJavaElement.CLASS_FILE:
+				flush();
+				return;
+			default:
+				return;
+		}
+	}
+
+	private void unitChanged(ICompilationUnit unit) {
+		synchronized (this) {
+			if (fEntries.isEmpty())
+				return;
+		}
+		String typeRoot= unit.getPrimary().getHandleIdentifier();
+		Set<String> identifiers= getIdentifiers(unit);
+		synchronized (this) {
+			for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+				if (iter.next().isAffectedBy(typeRoot, identifiers))
+					iter.remove();
+			}
+			fGeneration++;
+		}
+	}
+
+	/**
+	 * Returns the identifiers in the source of the given unit, including those in comments and
+	 * string literals.
+	 *
+	 * @param unit the compilation unit
+	 * @return the identifiers, or <code>null</code> if the source is not available
+	 */
+	private static Set<String> getIdentifiers(ICompilationUnit unit) {
+		if (!unit.exists())
+			return Collections.emptySet(); // a removed unit does not contain new callers
+		String source;
+		try {
+			source= unit.getSource();
+		} catch (JavaModelException e) {
+			return null;
+		}
+		if (source == null)
+			return null;
+
+		Set<String> identifiers= new HashSet<>();
+		int length= source.length();
+		int i= 0;
+		while (i < length) {
+			if (Character.isJavaIdentifierStart(source.charAt(i))) {
+				int start= i++;
+				while (i < length && Character.isJavaIdentifierPart(source.charAt(i)))
+					i++;
+				identifiers.add(source.substring(start, i));
+			} else {
+				i++;
+			}
+		}
+		return identifiers;
+	}
+
+	private synchronized void store(File file) throws IOException {
+		File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(fEntries.size());
+			for (Iterator<Map.Entry<String, Entry>> iter= fEntries.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, Entry> mapEntry= iter.next();
+				Entry entry= mapEntry.getValue();
+				output.writeUTF(mapEntry.getKey());
+				output.writeBoolean(entry.fReferenceName != null);
+				if (entry.fReferenceName != null)
+					output.writeUTF(entry.fReferenceName);
+				output.writeInt(entry.fDependencies.size());
+				for (Iterator<String> dependencyIter= entry.fDependencies.iterator(); dependencyIter.hasNext();)
+					output.writeUTF(dependencyIter.next());
+				output.writeInt(entry.fCalls.size());
+				for (Iterator<MethodCall> callIter= entry.fCalls.values().iterator(); callIter.hasNext();) {
+					MethodCall call= callIter.next();
+					output.writeUTF(call.getMember().getHandleIdentifier());
+					Collection<CallLocation> locations= call.getCallLocations();
+					output.writeInt(locations != null ? locations.size() : 0);
+					if (locations != null) {
+						for (Iterator<CallLocation> locationIter= locations.iterator(); locationIter.hasNext();) {
+							CallLocation location= locationIter.next();
+							output.writeUTF(location.getMember().getHandleIdentifier());
+							output.writeUTF(location.getCalledMember().getHandleIdentifier());
+							output.writeInt(location.getStart());
+							output.writeInt(location.getEnd());
+						}
+					}
+				}
+			}
+		} finally {
+			output.close();
+		}
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Could not replace " + file); //$NON-NLS-1$
+		}
+	}
+
+	private synchronized void load(File file) throws IOException {
+		DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new IOException("Not a call graph cache: " + file); //$NON-NLS-1$
+			int entryCount= input.readInt();
+			for (int i= 0; i < entryCount; i++) {
+				String key= input.readUTF();
+				String referenceName= input.readBoolean() ? input.readUTF() : null;
+				int dependencyCount= input.readInt();
+				Set<String> dependencies= new HashSet<>();
+				for (int j= 0; j < dependencyCount; j++)
+					dependencies.add(input.readUTF());
+
+				// entries with members that cannot be restored are skipped
+				boolean valid= true;
+				int callCount= input.readInt();
+				Map<String, MethodCall> calls= new HashMap<>();
+				for (int j= 0; j < callCount; j++) {
+					IMember member= createMember(input.readUTF());
+					MethodCall call= member != null ? new MethodCall(member) : null;
+					int locationCount= input.readInt();
+					for (int k= 0; k < locationCount; k++) {
+						IMember locationMember= createMember(input.readUTF());
+						IMember calledMember= createMember(input.readUTF());
+						int start= input.readInt();
+						int end= input.readInt();
+						if (call != null && locationMember != null && calledMember != null)
+							call.addCallLocation(new CallLocation(locationMember, calledMember, start, end, CallLocation.UNKNOWN_LINE_NUMBER));
+						else
+							valid= false;
+					}
+					if (call != null)
+						calls.put(call.getKey(), call);
+					else
+						valid= false;
+				}
+				if (valid)
+					fEntries.put(key, new Entry(Collections.unmodifiableMap(calls), dependencies, referenceName));
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	private static IMember createMember(String handleIdentifier) {
+		IJavaElement element= JavaCore.create(handleIdentifier);
+		return element instanceof IMember ? (IMember) element : null;
+	}
+}
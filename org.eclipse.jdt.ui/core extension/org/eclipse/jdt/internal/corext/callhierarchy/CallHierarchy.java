@@ -45,6 +45,7 @@ public class CallHierarchy {
     private static final String PREF_USE_IMPLEMENTORS= "PREF_USE_IMPLEMENTORS"; //$NON-NLS-1$
     private static final String PREF_USE_FILTERS = "PREF_USE_FILTERS"; //$NON-NLS-1$
     private static final String PREF_FILTERS_LIST = "PREF_FILTERS_LIST"; //$NON-NLS-1$
+    private static final String PREF_PERSIST_CALL_GRAPH_CACHE = "PREF_PERSIST_CALL_GRAPH_CACHE"; //$NON-NLS-1$
 
     private static final String DEFAULT_IGNORE_FILTERS = "java.*,javax.*"; //$NON-NLS-1$
     private static CallHierarchy fgInstance;
@@ -69,6 +70,7 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_USE_IMPLEMENTORS, enabled);
+        CallGraphCache.getDefault().flush();
     }
 
     public Collection<IJavaElement> getImplementingMethods(IMethod method) {
@@ -206,6 +208,29 @@ public class CallHierarchy {
     public void setFilterEnabled(boolean filterEnabled) {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
+        CallGraphCache.getDefault().flush();
+    }
+
+	/**
+	 * Returns whether the {@link CallGraphCache} is stored across sessions.
+	 *
+	 * @return <code>true</code> if the call graph cache is persistent
+	 * @since 3.13
+	 */
+    public boolean isCallGraphCachePersistent() {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        return settings.getBoolean(PREF_PERSIST_CALL_GRAPH_CACHE);
+    }
+
+	/**
+	 * Sets whether the {@link CallGraphCache} is stored across sessions.
+	 *
+	 * @param persistent <code>true</code> to store the call graph cache when the workspace is saved
+	 * @since 3.13
+	 */
+    public void setCallGraphCachePersistent(boolean persistent) {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        settings.setValue(PREF_PERSIST_CALL_GRAPH_CACHE, persistent);
     }
 
     /**
@@ -223,6 +248,7 @@ public class CallHierarchy {
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
+        CallGraphCache.getDefault().flush();
     }
 
     /**
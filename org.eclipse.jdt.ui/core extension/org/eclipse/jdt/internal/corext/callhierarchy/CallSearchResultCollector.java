@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,9 +23,23 @@ class CallSearchResultCollector {
      * A map from handle identifier ({@link String}) to {@link MethodCall}.
      */
     private Map<String, MethodCall> fCalledMembers;
+    /**
+     * The wrapper to report new method calls to, or <code>null</code>.
+     */
+    private final MethodWrapper fStreamTarget;
 
     public CallSearchResultCollector() {
+        this(null);
+    }
+
+    /**
+     * @param streamTarget the wrapper whose search collects the results, or <code>null</code>.
+     *            New method calls are reported to the wrapper as soon as they are found.
+     * @since 3.13
+     */
+    public CallSearchResultCollector(MethodWrapper streamTarget) {
         this.fCalledMembers = createCalledMethodsData();
+        this.fStreamTarget = streamTarget;
     }
 
     /**
@@ -43,14 +57,19 @@ class CallSearchResultCollector {
         if ((member != null) && (calledMember != null)) {
             if (!isIgnored(calledMember)) {
                 MethodCall methodCall = fCalledMembers.get(calledMember.getHandleIdentifier());
+                boolean isNew = methodCall == null;
 
-                if (methodCall == null) {
+                if (isNew) {
                     methodCall = new MethodCall(calledMember);
                     fCalledMembers.put(calledMember.getHandleIdentifier(), methodCall);
                 }
 
                 methodCall.addCallLocation(new CallLocation(member, calledMember, start,
                         end, lineNumber));
+
+                if (isNew && fStreamTarget != null) {
+                    fStreamTarget.callFound(methodCall);
+                }
             }
         }
     }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,8 +22,11 @@ class MethodReferencesSearchRequestor extends SearchRequestor {
     private CallSearchResultCollector fSearchResults;
     private boolean fRequireExactMatch = true;
 
-    MethodReferencesSearchRequestor() {
-        fSearchResults = new CallSearchResultCollector();
+    /**
+     * @param streamTarget the wrapper to report callers to as soon as they are found, or <code>null</code>
+     */
+    MethodReferencesSearchRequestor(MethodWrapper streamTarget) {
+        fSearchResults = new CallSearchResultCollector(streamTarget);
     }
 
     public Map<String, MethodCall> getCallers() {
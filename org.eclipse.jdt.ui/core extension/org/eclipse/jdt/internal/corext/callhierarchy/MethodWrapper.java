@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,12 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -36,12 +39,74 @@ import org.eclipse.jdt.internal.ui.callhierarchy.MethodWrapperWorkbenchAdapter;
  *
  */
 public abstract class MethodWrapper extends PlatformObject {
+
+	/**
+	 * Receives the children of a method wrapper while they are being searched.
+	 *
+	 * @see MethodWrapper#getCalls(IProgressMonitor, ICallCollector)
+	 * @since 3.13
+	 */
+	public interface ICallCollector {
+
+		/**
+		 * Adds children of the method wrapper. Every child is added exactly once.
+		 *
+		 * @param calls the children found since the last invocation
+		 */
+		void add(MethodWrapper[] calls);
+	}
+
+	/**
+	 * Forwards the children found by a running search to an {@link ICallCollector} in batches.
+	 */
+	private static class CallStream {
+
+		/**
+		 * Minimal time in ms between two batches, so that clients are not flooded with
+		 * single children when a search finds many callers.
+		 */
+		private static final long BATCH_DELAY= 200;
+
+		private final ICallCollector fCollector;
+		private final Map<String, MethodWrapper> fStreamed= new HashMap<>();
+		private final List<MethodWrapper> fPending= new ArrayList<>();
+		private long fLastBatch;
+
+		CallStream(ICallCollector collector) {
+			fCollector= collector;
+		}
+
+		void add(String key, MethodWrapper call, boolean flush) {
+			if (fStreamed.containsKey(key))
+				return;
+			fStreamed.put(key, call);
+			fPending.add(call);
+			if (flush && System.currentTimeMillis() - fLastBatch >= BATCH_DELAY)
+				flush();
+		}
+
+		MethodWrapper get(String key) {
+			return fStreamed.get(key);
+		}
+
+		void flush() {
+			fLastBatch= System.currentTimeMillis();
+			if (fPending.isEmpty())
+				return;
+			MethodWrapper[] batch= fPending.toArray(new MethodWrapper[fPending.size()]);
+			fPending.clear();
+			fCollector.add(batch);
+		}
+	}
+
     private Map<String, MethodCall> fElements = null;
 
     /*
      * A cache of previously found methods. This cache should be searched
      * before adding a "new" method object reference to the list of elements.
      * This way previously found methods won't be searched again.
+     * The cache is shared by all wrappers of a tree, which may be searched
+     * concurrently. A result is only added once its search has finished.
      */
     private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
@@ -52,12 +117,16 @@ public abstract class MethodWrapper extends PlatformObject {
 	 * or {@link IJavaSearchConstants#WRITE_ACCESSES}, or 0 if not set. Only used for root wrappers.
 	 */
     private int fFieldSearchMode;
+    /**
+     * The stream of the running search, or <code>null</code>. Only accessed by the searching thread.
+     */
+    private CallStream fStream;
 
     public MethodWrapper(MethodWrapper parent, MethodCall methodCall) {
         Assert.isNotNull(methodCall);
 
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
+            setMethodCache(new ConcurrentHashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
             setMethodCache(parent.getMethodCache());
@@ -81,18 +150,52 @@ public abstract class MethodWrapper extends PlatformObject {
 	}
 
     public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
+        return getCalls(progressMonitor, null);
+    }
+
+	/**
+	 * Returns the children of this wrapper. If a collector is given, the children are
+	 * additionally passed to it while the search is still running, so that clients can
+	 * show them before the search has finished. The collector receives exactly the
+	 * returned children.
+	 * <p>
+	 * Different wrappers can be searched concurrently. Concurrent invocations on the same
+	 * wrapper wait for the running search.
+	 * </p>
+	 *
+	 * @param progressMonitor the progress monitor, or <code>null</code>
+	 * @param collector the collector to stream the children to, or <code>null</code>
+	 * @return the children
+	 * @exception OperationCanceledException if the search has been canceled
+	 * @since 3.13
+	 */
+    public synchronized MethodWrapper[] getCalls(IProgressMonitor progressMonitor, ICallCollector collector) {
+        CallStream stream= collector != null ? new CallStream(collector) : null;
         if (fElements == null) {
-            doFindChildren(progressMonitor);
+            fStream= stream;
+            try {
+                doFindChildren(progressMonitor);
+            } finally {
+                fStream= null;
+            }
         }
 
         MethodWrapper[] result = new MethodWrapper[fElements.size()];
         int i = 0;
 
         for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            result[i++] = createMethodWrapper(methodCall);
+            String key= iter.next();
+            MethodWrapper call= stream != null ? stream.get(key) : null;
+            if (call == null) {
+                call= createMethodWrapper(getMethodCallFromMap(fElements, key));
+                if (stream != null)
+                    stream.add(key, call, false);
+            }
+            result[i++] = call;
         }
 
+        if (stream != null)
+            stream.flush();
         return result;
     }
 
@@ -203,11 +306,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -219,12 +317,19 @@ public abstract class MethodWrapper extends PlatformObject {
     private void doFindChildren(IProgressMonitor progressMonitor) {
         Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
 
+        if (existingResults == null || existingResults.isEmpty()) {
+            existingResults = CallGraphCache.getDefault().get(this);
+            if (existingResults != null) {
+                getMethodCache().put(getMethodCall().getKey(), existingResults);
+            }
+        }
+
         if (existingResults != null && !existingResults.isEmpty()) {
             fElements = new HashMap<>();
             fElements.putAll(existingResults);
+        } else if (existingResults != null) {
+            fElements = new HashMap<>(0);
         } else {
-            initCalls();
-
             if (progressMonitor != null) {
                 progressMonitor.beginTask(getTaskName(), 100);
             }
@@ -279,16 +384,22 @@ public abstract class MethodWrapper extends PlatformObject {
      */
     protected abstract Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor);
 
+	/**
+	 * Reports a child while {@link #findChildren(IProgressMonitor)} is still running. The child is
+	 * streamed to the collector of the running search, if any.
+	 *
+	 * @param methodCall the newly found method call
+	 * @since 3.13
+	 */
+	void callFound(MethodCall methodCall) {
+		if (fStream != null)
+			fStream.add(methodCall.getKey(), createMethodWrapper(methodCall), true);
+	}
+
     private Map<String, Map<String, MethodCall>> getMethodCache() {
         return fMethodCache;
     }
 
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
-    }
-
     /**
      * Looks up a previously created search result in the "global" cache.
      * @param methodCall the method call
@@ -299,25 +410,20 @@ public abstract class MethodWrapper extends PlatformObject {
     }
 
     private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
-
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
+        CallGraphCache callGraphCache = CallGraphCache.getDefault();
+        int generation = callGraphCache.getGeneration();
+        Map<String, MethodCall> elements = findChildren(progressMonitor);
+        checkCanceled(progressMonitor);
 
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
-        }
+        getMethodCache().put(getMethodCall().getKey(), new HashMap<>(elements));
+        callGraphCache.put(this, elements, generation);
+        fElements = elements;
     }
 
     private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -365,8 +471,9 @@ public abstract class MethodWrapper extends PlatformObject {
 	 *
 	 * @since 3.6
 	 */
-	public void removeFromCache() {
+	public synchronized void removeFromCache() {
 		fElements= null;
 		fMethodCache.remove(getMethodCall().getKey());
+		CallGraphCache.getDefault().remove(this);
 	}
 }
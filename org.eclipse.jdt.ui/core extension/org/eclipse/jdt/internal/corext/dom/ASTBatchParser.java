@@ -16,9 +16,16 @@ import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jdt.core.ICompilationUnit;
@@ -36,6 +43,54 @@ import org.eclipse.jdt.core.dom.IBinding;
  */
 public class ASTBatchParser {
 
+	/**
+	 * Progress monitor for a batch that is parsed on a worker thread. Reports
+	 * the work of the batch to the shared monitor while holding the shared
+	 * monitor's lock.
+	 */
+	private static class BatchProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor fParent;
+		private final int fParentTicks;
+		private final AtomicBoolean fAborted;
+		private double fScale;
+
+		public BatchProgressMonitor(IProgressMonitor parent, int parentTicks, AtomicBoolean aborted) {
+			fParent= parent;
+			fParentTicks= parentTicks;
+			fAborted= aborted;
+		}
+
+		@Override
+		public void beginTask(String name, int totalWork) {
+			fScale= totalWork <= 0 ? 0 : (double) fParentTicks / totalWork;
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+
+		@Override
+		public void internalWorked(double work) {
+			if (fScale > 0) {
+				synchronized (fParent) {
+					fParent.internalWorked(work * fScale);
+				}
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fAborted.get() || fParent.isCanceled();
+		}
+	}
+
+	/**
+	 * The minimal number of compilation units parsed at once by a worker thread.
+	 */
+	private static final int MIN_AT_ONCE_PER_THREAD= 10;
+
 	private static final int MAX_AT_ONCE;
 	static {
 		long maxMemory= Runtime.getRuntime().maxMemory() / (1 << 20); // in MiB
@@ -47,6 +102,9 @@ public class ASTBatchParser {
 		else                        MAX_AT_ONCE=  25;
 	}
 
+	private final AtomicInteger fUnitsInFlight= new AtomicInteger();
+	private final AtomicInteger fPeakUnitsInFlight= new AtomicInteger();
+
 	/**
 	 * Creates ASTs for each compilation unit in <code>units</code>.
 	 * <p>
@@ -100,6 +158,118 @@ public class ASTBatchParser {
 		}
 	}
 
+	/**
+	 * Creates ASTs for each compilation unit in <code>units</code> using up to
+	 * <code>parallelism</code> threads.
+	 * <p>
+	 * The compilation units are split by project into batches that are parsed on a
+	 * work-stealing pool. The batches are sized such that all threads together parse
+	 * about as many compilation units at once as {@link #createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+	 * </p>
+	 * <p>
+	 * <code>ASTRequestor.acceptAST</code> is called in no particular order and from
+	 * multiple threads, hence <code>requestor</code> must be thread safe. Progress is
+	 * reported to <code>monitor</code> while holding its lock. {@link #createParser(IJavaProject)}
+	 * is called from the worker threads.
+	 * </p>
+	 *
+	 * @param compilationUnits the compilation units to create ASTs for
+	 * @param bindingKeys the binding keys to create bindings for
+	 * @param requestor the thread safe AST requestor that collects abstract syntax trees and bindings
+	 * @param parallelism the maximal number of threads to use
+	 * @param monitor the progress monitor used to report progress and request cancelation,
+	 *   or <code>null</code> if none
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 * @since 3.13
+	 */
+	public final void createASTsInParallel(ICompilationUnit[] compilationUnits, final String[] bindingKeys, final ASTRequestor requestor, int parallelism, IProgressMonitor monitor) {
+		int batchSize= Math.max(MIN_AT_ONCE_PER_THREAD, MAX_AT_ONCE / Math.max(1, parallelism));
+		if (parallelism <= 1 || compilationUnits.length <= batchSize) {
+			createASTs(compilationUnits, bindingKeys, requestor, monitor);
+			return;
+		}
+
+		if (monitor == null)
+			monitor= new NullProgressMonitor();
+
+		final List<ICompilationUnit[]> batches= new ArrayList<>();
+		ICompilationUnit[][] splited= splitByProject(compilationUnits);
+		for (int i= 0; i < splited.length; i++) {
+			ICompilationUnit[] units= splited[i];
+			for (int cursor= 0; cursor < units.length; cursor+= batchSize) {
+				batches.add(Arrays.copyOfRange(units, cursor, Math.min(cursor + batchSize, units.length)));
+			}
+		}
+
+		monitor.beginTask("", compilationUnits.length); //$NON-NLS-1$
+		final IProgressMonitor sharedMonitor= monitor;
+		final AtomicBoolean aborted= new AtomicBoolean();
+		ExecutorService executor= Executors.newWorkStealingPool(Math.min(parallelism, batches.size()));
+		try {
+			List<Future<?>> futures= new ArrayList<>(batches.size());
+			for (Iterator<ICompilationUnit[]> iterator= batches.iterator(); iterator.hasNext();) {
+				final ICompilationUnit[] units= iterator.next();
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						BatchProgressMonitor batchMonitor= new BatchProgressMonitor(sharedMonitor, units.length, aborted);
+						if (batchMonitor.isCanceled())
+							return;
+
+						int inFlight= fUnitsInFlight.addAndGet(units.length);
+						updatePeakUnitsInFlight(inFlight);
+						try {
+							createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, batchMonitor);
+						} finally {
+							fUnitsInFlight.addAndGet(-units.length);
+						}
+					}
+				}));
+			}
+
+			for (Iterator<Future<?>> iterator= futures.iterator(); iterator.hasNext();) {
+				try {
+					iterator.next().get();
+				} catch (ExecutionException e) {
+					aborted.set(true);
+					Throwable cause= e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				} catch (InterruptedException e) {
+					aborted.set(true);
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				}
+			}
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+		}
+	}
+
+	private void updatePeakUnitsInFlight(int inFlight) {
+		int peak= fPeakUnitsInFlight.get();
+		while (inFlight > peak && !fPeakUnitsInFlight.compareAndSet(peak, inFlight)) {
+			peak= fPeakUnitsInFlight.get();
+		}
+	}
+
+	/**
+	 * Returns the maximal number of compilation units that have been parsed at
+	 * once by {@link #createASTsInParallel(ICompilationUnit[], String[], ASTRequestor, int, IProgressMonitor)}.
+	 *
+	 * @return the peak number of compilation units in flight
+	 * @since 3.13
+	 */
+	public int getPeakUnitsInFlight() {
+		return fPeakUnitsInFlight.get();
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
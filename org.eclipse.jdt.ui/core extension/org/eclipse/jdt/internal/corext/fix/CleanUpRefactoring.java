@@ -17,6 +17,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -218,44 +219,52 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 
 		@Override
-		public void internalWorked(double work) {
+		public synchronized void internalWorked(double work) {
 			fRealWork+= work;
 		}
 
-		public void flush() {
+		public synchronized void flush() {
 			super.internalWorked(fRealWork);
 			reset();
 			fFlushCount++;
 		}
 
-		public void reset() {
+		public synchronized void reset() {
 			fRealWork= 0.0;
 		}
 
 		@Override
 		public void done() {}
 
-		public int getIndex() {
+		public synchronized int getIndex() {
 			return fIndex + fFlushCount;
 		}
 
-		public String getSubTaskMessage(ICompilationUnit source) {
+		public synchronized String getSubTaskMessage(ICompilationUnit source) {
 			String typeName= BasicElementLabels.getFileName(source);
 			return Messages.format(FixMessages.CleanUpRefactoring_ProcessingCompilationUnit_message, new Object[] {new Integer(getIndex()), new Integer(fSize), typeName});
 		}
 	}
 
+	/**
+	 * Calculates the solutions for the accepted compilation units. May be called
+	 * from multiple threads at once, but for each compilation unit at most once.
+	 */
 	private static class CleanUpASTRequestor extends ASTRequestor {
 
-		private final List<ParseListElement> fUndoneElements;
+		private final List<ParseListElement> fParseList;
+		private final Hashtable<ICompilationUnit, ParseListElement> fUndoneElements;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ParseListElement> fCompilationUnitParseElementMap;
 		private final CleanUpRefactoringProgressMonitor fMonitor;
+		private final AtomicInteger fProcessedUnits;
 
-		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
+		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor, AtomicInteger processedUnits) {
+			fParseList= parseList;
 			fSolutions= solutions;
 			fMonitor= monitor;
-			fUndoneElements= new ArrayList<>();
+			fProcessedUnits= processedUnits;
+			fUndoneElements= new Hashtable<>();
 			fCompilationUnitParseElementMap= new Hashtable<>(parseList.size());
 			for (Iterator<ParseListElement> iter= parseList.iterator(); iter.hasNext();) {
 				ParseListElement element= iter.next();
@@ -266,7 +275,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		@Override
 		public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
 
-			fMonitor.subTask(fMonitor.getSubTaskMessage(source));
+			synchronized (fMonitor) {
+				fMonitor.subTask(fMonitor.getSubTaskMessage(source));
+			}
 
 			ICompilationUnit primary= (ICompilationUnit)source.getPrimaryElement();
 			ParseListElement element= fCompilationUnitParseElementMap.get(primary);
@@ -281,19 +292,29 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			ICleanUp[] rejectedCleanUps= calculateSolutions(context, element.getCleanUps());
 
 			if (rejectedCleanUps.length > 0) {
-				fUndoneElements.add(new ParseListElement(target, rejectedCleanUps));
+				fUndoneElements.put(primary, new ParseListElement(target, rejectedCleanUps));
 				fMonitor.reset();
 			} else {
 				fMonitor.flush();
 			}
+			fProcessedUnits.incrementAndGet();
 		}
 
 		public void acceptSource(ICompilationUnit source) {
 			acceptAST(source, null);
 		}
 
+		/**
+		 * @return the elements that need another pass, in the order of the parse list
+		 */
 		public List<ParseListElement> getUndoneElements() {
-			return fUndoneElements;
+			List<ParseListElement> result= new ArrayList<>(fUndoneElements.size());
+			for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
+				ParseListElement undone= fUndoneElements.get(iter.next().getTarget().getCompilationUnit());
+				if (undone != null)
+					result.add(undone);
+			}
+			return result;
 		}
 
 		private ICleanUp[] calculateSolutions(CleanUpContext context, ICleanUp[] cleanUps) {
@@ -326,6 +347,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private class CleanUpFixpointIterator {
 
+		private final CleanUpTarget[] fTargets;
+		private final int fParallelism;
+		private final AtomicInteger fProcessedUnits;
+		private int fPeakUnitsInFlight;
 		private List<ParseListElement> fParseList;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
@@ -334,6 +359,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private int fIndex;
 
 		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
+			fTargets= targets;
+			fParallelism= getParallelism(cleanUps);
+			fProcessedUnits= new AtomicInteger();
 			fSolutions= new Hashtable<>(targets.length);
 			fWorkingCopies= new Hashtable<>();
 
@@ -385,7 +413,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				}
 
 				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
-				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
+				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor, fProcessedUnits);
 				if (parseList.size() > 0) {
 					ASTBatchParser parser= new ASTBatchParser() {
 						@Override
@@ -401,9 +429,11 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 					};
 					try {
 						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
-						parser.createASTs(units, new String[0], requestor, cuMonitor);
+						parser.createASTsInParallel(units, new String[0], requestor, fParallelism, cuMonitor);
 					} catch (FixCalculationException e) {
 						throw e.getException();
+					} finally {
+						fPeakUnitsInFlight= Math.max(fPeakUnitsInFlight, parser.getPeakUnitsInFlight());
 					}
 				}
 
@@ -436,6 +466,24 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			fWorkingCopies.clear();
 		}
 
+		/**
+		 * @return the number of compilation units processed so far, counting every pass
+		 */
+		public int getProcessedUnits() {
+			return fProcessedUnits.get();
+		}
+
+		/**
+		 * @return the maximal number of compilation units parsed at once
+		 */
+		public int getPeakUnitsInFlight() {
+			return fPeakUnitsInFlight;
+		}
+
+		public int getParallelism() {
+			return fParallelism;
+		}
+
 		private boolean requiresAST(ICleanUp[] cleanUps) {
 			for (int i= 0; i < cleanUps.length; i++) {
 				if (cleanUps[i].getRequirements().requiresAST())
@@ -446,13 +494,14 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 		public Change[] getResult() {
 
-			Change[] result= new Change[fSolutions.size()];
-			int i=0;
-			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= fSolutions.entrySet().iterator(); iterator.hasNext();) {
-				Entry<ICompilationUnit, List<CleanUpChange>>  entry= iterator.next();
-
-				List<CleanUpChange> changes= entry.getValue();
-				ICompilationUnit unit= entry.getKey();
+			// the changes are ordered like the targets, independent of the order in which the solutions have been calculated
+			List<Change> result= new ArrayList<>(fSolutions.size());
+			HashSet<ICompilationUnit> added= new HashSet<>();
+			for (int i= 0; i < fTargets.length; i++) {
+				ICompilationUnit unit= fTargets[i].getCompilationUnit();
+				List<CleanUpChange> changes= fSolutions.get(unit);
+				if (changes == null || !added.add(unit))
+					continue;
 
 				int saveMode;
 				if (fLeaveFilesDirty) {
@@ -464,20 +513,18 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				if (changes.size() == 1) {
 					CleanUpChange change= changes.get(0);
 					change.setSaveMode(saveMode);
-					result[i]= change;
+					result.add(change);
 				} else {
 					MultiStateCompilationUnitChange mscuc= new MultiStateCompilationUnitChange(getChangeName(unit), unit);
 					for (int j= 0; j < changes.size(); j++) {
 						mscuc.addChange(createGroupFreeChange(changes.get(j)));
 					}
 					mscuc.setSaveMode(saveMode);
-					result[i]= mscuc;
+					result.add(mscuc);
 				}
-
-				i++;
 			}
 
-			return result;
+			return result.toArray(new Change[result.size()]);
 		}
 
 		private TextChange createGroupFreeChange(CleanUpChange change) {
@@ -513,6 +560,13 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	 */
 	private static final int SLOW_CLEAN_UP_THRESHOLD= 2000;
 
+	/**
+	 * The maximal number of threads used to parse and clean up compilation units.
+	 */
+	private static final int MAX_PARALLELISM= Runtime.getRuntime().availableProcessors();
+
+	private static final String DEBUG_PREFIX= "CleanUpRefactoring >> "; //$NON-NLS-1$
+
 	private final List<ICleanUp> fCleanUps;
 	private final Hashtable<IJavaProject, List<CleanUpTarget>> fProjects;
 	private Change fChange;
@@ -694,6 +748,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	}
 
 	private Change[] cleanUpProject(IJavaProject project, CleanUpTarget[] targets, ICleanUp[] cleanUps, IProgressMonitor monitor) throws CoreException {
+		long start= JavaPlugin.DEBUG_CLEAN_UP ? System.currentTimeMillis() : 0;
 		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps);
 
 		SubProgressMonitor subMonitor= new SubProgressMonitor(monitor, 2 * targets.length * cleanUps.length);
@@ -704,6 +759,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				iter.next(subMonitor);
 			}
 
+			if (JavaPlugin.DEBUG_CLEAN_UP) {
+				long time= Math.max(1, System.currentTimeMillis() - start);
+				System.out.println(DEBUG_PREFIX + project.getElementName() + ": " + targets.length + " compilation units, " + iter.getProcessedUnits() + " processed in " + time + " ms (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+						+ (iter.getProcessedUnits() * 1000L / time) + " CUs/s), at most " + iter.getPeakUnitsInFlight() + " ASTs in flight on " + iter.getParallelism() + " threads"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+
 			return iter.getResult();
 		} finally {
 			iter.dispose();
@@ -711,6 +772,23 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * Returns the number of threads that may calculate fixes at once. Clean ups contributed
+	 * by other bundles are not known to be thread safe, they are always executed on the
+	 * calling thread.
+	 *
+	 * @param cleanUps the clean ups to execute
+	 * @return the number of threads to use
+	 */
+	private static int getParallelism(ICleanUp[] cleanUps) {
+		ClassLoader loader= CleanUpRefactoring.class.getClassLoader();
+		for (int i= 0; i < cleanUps.length; i++) {
+			if (cleanUps[i].getClass().getClassLoader() != loader)
+				return 1;
+		}
+		return MAX_PARALLELISM;
+	}
+
 	private RefactoringStatus setOptionsFromProfile(IJavaProject javaProject, ICleanUp[] cleanUps) {
 		Map<String, String> options= CleanUpPreferenceUtil.loadOptions(new ProjectScope(javaProject.getProject()));
 		if (options == null)
@@ -10,29 +10,28 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -40,12 +39,16 @@ import org.xml.sax.helpers.DefaultHandler;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jdt.internal.corext.CorextMessages;
 
@@ -59,8 +62,20 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
  *
- * The history can be stored to/loaded from an xml file.
- * 
+ * The history is stored in a compact binary file in the state location of the plug-in.
+ * Histories that have been stored as XML by earlier versions are read from the XML file,
+ * which is replaced by the binary file on the next save. {@link #scheduleSave()} stores
+ * the history in the background.
+ * <p>
+ * Layout of the binary file (see {@link DataOutputStream}):
+ * </p>
+ * <pre>
+ * int   magic
+ * int   version
+ * int   number of entries
+ * entries, eldest first, see {@link #writeObject(Object, DataOutputStream)}
+ * </pre>
+ *
  * @param <K> key type
  * @param <V> value type
  */
@@ -70,6 +85,15 @@ public abstract class History<K, V> {
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
 
+	/** The magic number of a binary history file: "JHST" */
+	private static final int STORE_MAGIC= 0x4A485354;
+	/** The version of the binary layout */
+	private static final int STORE_VERSION= 1;
+	private static final String XML_FILE_EXTENSION= ".xml"; //$NON-NLS-1$
+	private static final String STORE_FILE_EXTENSION= ".bin"; //$NON-NLS-1$
+	/** Delay in ms before a scheduled save is written */
+	private static final long SAVE_DELAY= 2000;
+
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
 	}
@@ -80,6 +104,15 @@ public abstract class History<K, V> {
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
 
+	// Counts the changes of the history, guarded by this
+	private int fModificationCount;
+	// The modification count of the last written store, guarded by fStoreLock
+	private volatile int fSavedModificationCount;
+	private final Object fStoreLock= new Object();
+	private Job fSaveJob;
+	// Creates the elements passed to setAttributes and createFromElement, guarded by this
+	private Document fElementFactory;
+
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<K, V>(80, 0.75f, true) {
 			private static final long serialVersionUID= 1L;
@@ -162,8 +195,20 @@ public abstract class History<K, V> {
 	}
 
 	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
+		IPath stateLocation= JavaPlugin.getDefault().getStateLocation();
+		File storeFile= stateLocation.append(getStoreFileName()).toFile();
+		if (storeFile.exists()) {
+			try {
+				loadStore(storeFile);
+				fSavedModificationCount= fModificationCount;
+				return;
+			} catch (IOException e) {
+				// corrupt or written by a newer version, try the XML file
+				JavaPlugin.log(e);
+			}
+		}
+
+		File file= stateLocation.append(fFileName).toFile();
 		if (file.exists()) {
 			InputStreamReader reader= null;
 	        try {
@@ -181,33 +226,67 @@ public abstract class History<K, V> {
 					JavaPlugin.log(e);
 				}
 			}
+			// migrate to the binary file
+			fModificationCount++;
+			scheduleSave();
 		}
 	}
 
-	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
+	/**
+	 * Writes the history to its file if it has changed since the last save. A scheduled
+	 * save that has not run yet is written right away.
+	 */
+	public void save() {
+		Job saveJob;
+		synchronized (this) {
+			saveJob= fSaveJob;
+		}
+		if (saveJob != null)
+			saveJob.cancel();
 		try {
-			out= new FileOutputStream(file);
-			save(out);
-		} catch (IOException e) {
-			JavaPlugin.log(e);
+			writeStore();
 		} catch (CoreException e) {
 			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
-				}
-			} catch (IOException e) {
-				JavaPlugin.log(e);
+		}
+	}
+
+	/**
+	 * Writes the history to its file in the background, shortly after the last call
+	 * to this method.
+	 *
+	 * @since 3.13
+	 */
+	public void scheduleSave() {
+		Job saveJob;
+		synchronized (this) {
+			if (fSaveJob == null) {
+				fSaveJob= new Job(CorextMessages.History_job_save) {
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						try {
+							writeStore();
+						} catch (CoreException e) {
+							return e.getStatus();
+						}
+						return Status.OK_STATUS;
+					}
+				};
+				fSaveJob.setSystem(true);
+				fSaveJob.setPriority(Job.DECORATE);
 			}
+			saveJob= fSaveJob;
 		}
+		saveJob.schedule(SAVE_DELAY);
+	}
+
+	/**
+	 * Marks the history as changed, so that the next save writes it. Subclasses call this
+	 * when information that is stored with the entries changes.
+	 *
+	 * @since 3.13
+	 */
+	protected synchronized void markAsDirty() {
+		fModificationCount++;
 	}
 
 	protected Set<K> getKeys() {
@@ -218,6 +297,50 @@ public abstract class History<K, V> {
 		return fHistory.values();
 	}
 
+	/**
+	 * Writes an entry of the history to the binary file. The default stores the attributes
+	 * set by {@link #setAttributes(Object, Element)}. Subclasses may override together with
+	 * {@link #readObject(DataInputStream)} to write their entries without creating elements.
+	 * <p>
+	 * Called while the lock of the history is held.
+	 * </p>
+	 *
+	 * @param object the object to write
+	 * @param output the stream to write to
+	 * @throws IOException if writing fails
+	 * @since 3.13
+	 */
+	protected void writeObject(V object, DataOutputStream output) throws IOException {
+		Element element= createElement();
+		setAttributes(object, element);
+		NamedNodeMap attributes= element.getAttributes();
+		int length= attributes.getLength();
+		output.writeInt(length);
+		for (int i= 0; i < length; i++) {
+			Node attribute= attributes.item(i);
+			output.writeUTF(attribute.getNodeName());
+			output.writeUTF(attribute.getNodeValue());
+		}
+	}
+
+	/**
+	 * Reads an entry of the history that has been written by
+	 * {@link #writeObject(Object, DataOutputStream)}.
+	 *
+	 * @param input the stream to read from
+	 * @return the object, or <code>null</code> if the entry is no longer valid
+	 * @throws IOException if reading fails
+	 * @since 3.13
+	 */
+	protected V readObject(DataInputStream input) throws IOException {
+		Element element= createElement();
+		int length= input.readInt();
+		for (int i= 0; i < length; i++) {
+			element.setAttribute(input.readUTF(), input.readUTF());
+		}
+		return createFromElement(element);
+	}
+
 	/**
 	 * Store <code>Object</code> in <code>Element</code>
 	 *
@@ -242,6 +365,16 @@ public abstract class History<K, V> {
 	 */
 	protected abstract K getKey(V object);
 
+	/**
+	 * Called after the history has changed, while the lock of the history is held.
+	 * Subclasses may override to update state derived from the history.
+	 *
+	 * @since 3.13
+	 */
+	protected void historyChanged() {
+		// default: nothing to do
+	}
+
 	private void rebuildPositions() {
 		fPositions.clear();
 		Collection<V> values= fHistory.values();
@@ -251,6 +384,109 @@ public abstract class History<K, V> {
 			fPositions.put(getKey(element), new Integer(pos));
 			pos++;
 		}
+		// the positions are rebuilt after every change
+		fModificationCount++;
+		historyChanged();
+	}
+
+	private String getStoreFileName() {
+		String name= fFileName;
+		if (name.endsWith(XML_FILE_EXTENSION))
+			name= name.substring(0, name.length() - XML_FILE_EXTENSION.length());
+		return name + STORE_FILE_EXTENSION;
+	}
+
+	private Element createElement() throws IOException {
+		if (fElementFactory == null) {
+			try {
+				fElementFactory= DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException e) {
+				throw new IOException(e);
+			}
+		}
+		return fElementFactory.createElement(fInfoNodeName);
+	}
+
+	private void loadStore(File file) throws IOException {
+		DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (input.readInt() != STORE_MAGIC || input.readInt() != STORE_VERSION)
+				throw new IOException("Unknown history file format: " + file); //$NON-NLS-1$
+			int count= input.readInt();
+			if (count < 0)
+				throw new IOException("Corrupt history file: " + file); //$NON-NLS-1$
+			// read all entries before changing the history
+			List<V> objects= new ArrayList<>(Math.min(count, MAX_HISTORY_SIZE));
+			for (int i= 0; i < count; i++) {
+				V object= readObject(input);
+				if (object != null)
+					objects.add(object);
+			}
+			for (Iterator<V> iter= objects.iterator(); iter.hasNext();) {
+				V object= iter.next();
+				fHistory.put(getKey(object), object);
+			}
+			rebuildPositions();
+		} finally {
+			input.close();
+		}
+	}
+
+	/*
+	 * The entries are serialized while the lock of the history is held, the file is
+	 * written without it. The file is first written to a temporary file which then
+	 * replaces the store, so that a failed save does not destroy the previous one.
+	 */
+	private void writeStore() throws CoreException {
+		int modificationCount;
+		byte[] bytes;
+		synchronized (this) {
+			modificationCount= fModificationCount;
+			if (modificationCount == fSavedModificationCount)
+				return;
+			try {
+				ByteArrayOutputStream buffer= new ByteArrayOutputStream();
+				DataOutputStream output= new DataOutputStream(buffer);
+				output.writeInt(STORE_MAGIC);
+				output.writeInt(STORE_VERSION);
+				output.writeInt(fHistory.size());
+				for (Iterator<V> iter= getValues().iterator(); iter.hasNext();) {
+					writeObject(iter.next(), output);
+				}
+				output.flush();
+				bytes= buffer.toByteArray();
+			} catch (IOException e) {
+				throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
+			}
+		}
+
+		synchronized (fStoreLock) {
+			// a concurrent save may have written a newer state already
+			if (modificationCount - fSavedModificationCount <= 0)
+				return;
+			IPath stateLocation= JavaPlugin.getDefault().getStateLocation();
+			File file= stateLocation.append(getStoreFileName()).toFile();
+			File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+			try {
+				OutputStream out= new FileOutputStream(temporary);
+				try {
+					out.write(bytes);
+				} finally {
+					out.close();
+				}
+				if (file.exists() && !file.delete() || !temporary.renameTo(file))
+					throw new IOException("Could not replace " + file); //$NON-NLS-1$
+			} catch (IOException e) {
+				temporary.delete();
+				throw createException(e, Messages.format(CorextMessages.History_error_write, BasicElementLabels.getResourceName(file.getName())));
+			}
+			fSavedModificationCount= modificationCount;
+
+			// the XML file of earlier versions has been migrated
+			File xmlFile= stateLocation.append(fFileName).toFile();
+			if (!xmlFile.equals(file) && xmlFile.exists())
+				xmlFile.delete();
+		}
 	}
 
 	private void load(InputSource inputSource) throws CoreException {
@@ -288,36 +524,4 @@ public abstract class History<K, V> {
 		rebuildPositions();
 	}
 
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<V> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
-	}
-
 }
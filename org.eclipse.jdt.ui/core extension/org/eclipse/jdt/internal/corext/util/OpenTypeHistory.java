@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,19 @@
  *******************************************************************************/
  package org.eclipse.jdt.internal.corext.util;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.w3c.dom.Element;
 
@@ -54,26 +59,32 @@ import org.eclipse.jdt.internal.corext.CorextMessages;
 
 /**
  * History for the open type dialog. Object and keys are both {@link TypeNameMatch}s.
+ * <p>
+ * The dialog reads an immutable snapshot of the history that is replaced on every change,
+ * so reading never waits for a running consistency check. The consistency check only
+ * validates the types inside the containers reported by Java element deltas, except for
+ * the first check after loading the history, which validates all types.
+ * </p>
  */
 public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 
 	private static class TypeHistoryDeltaListener implements IElementChangedListener {
 		@Override
 		public void elementChanged(ElementChangedEvent event) {
-			if (processDelta(event.getDelta())) {
-				OpenTypeHistory.getInstance().markAsInconsistent();
+			List<IJavaElement> changedContainers= new ArrayList<>();
+			processDelta(event.getDelta(), changedContainers);
+			if (!changedContainers.isEmpty()) {
+				OpenTypeHistory.getInstance().markAsInconsistent(changedContainers);
 			}
 		}
 
 		/**
-		 * Computes whether the history needs a consistency check or not.
+		 * Collects the elements whose types need a consistency check.
 		 *
 		 * @param delta the Java element delta
-		 *
-		 * @return <code>true</code> if consistency must be checked
-		 *  <code>false</code> otherwise.
+		 * @param changedContainers the list to add the changed elements to
 		 */
-		private boolean processDelta(IJavaElementDelta delta) {
+		private void processDelta(IJavaElementDelta delta, List<IJavaElement> changedContainers) {
 			IJavaElement elem= delta.getElement();
 
 			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
@@ -83,44 +94,55 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 				case IJavaElement.JAVA_PROJECT:
 					if (isRemoved || (isChanged &&
 							(delta.getFlags() & IJavaElementDelta.F_CLOSED) != 0)) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
-					return processChildrenDelta(delta);
+					processChildrenDelta(delta, changedContainers);
+					return;
 				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
 					if (isRemoved || (isChanged && (
 							(delta.getFlags() & IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED) != 0 ||
 							(delta.getFlags() & IJavaElementDelta.F_REMOVED_FROM_CLASSPATH) != 0))) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
-					return processChildrenDelta(delta);
+					processChildrenDelta(delta, changedContainers);
+					return;
 				case IJavaElement.TYPE:
 					if (isChanged && (delta.getFlags() & IJavaElementDelta.F_MODIFIERS) != 0) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
 					if (isRemoved) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
-					return processChildrenDelta(delta);
+					processChildrenDelta(delta, changedContainers);
+					return;
 				case IJavaElement.JAVA_MODEL:
 				case IJavaElement.PACKAGE_FRAGMENT:
 				case IJavaElement.CLASS_FILE:
 					if (isRemoved) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
-					return processChildrenDelta(delta);
+					processChildrenDelta(delta, changedContainers);
+					return;
 				case IJavaElement.COMPILATION_UNIT:
 					// Not the primary compilation unit. Ignore it
 					if (!JavaModelUtil.isPrimary((ICompilationUnit) elem)) {
-						return false;
+						return;
 					}
 
 					if (isRemoved || (isChanged && isUnknownStructuralChange(delta.getFlags()))) {
-						return true;
+						changedContainers.add(elem);
+						return;
 					}
-					return processChildrenDelta(delta);
+					processChildrenDelta(delta, changedContainers);
+					return;
 				default:
 					// fields, methods, imports ect
-					return false;
+					return;
 			}
 		}
 
@@ -136,14 +158,30 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		}
 		*/
 
-		private boolean processChildrenDelta(IJavaElementDelta delta) {
+		private void processChildrenDelta(IJavaElementDelta delta, List<IJavaElement> changedContainers) {
 			IJavaElementDelta[] children= delta.getAffectedChildren();
 			for (int i= 0; i < children.length; i++) {
-				if (processDelta(children[i])) {
-					return true;
-				}
+				processDelta(children[i], changedContainers);
 			}
-			return false;
+		}
+	}
+
+	/**
+	 * Immutable copy of the history, most recently accessed type first.
+	 */
+	private static final class Snapshot {
+		public final TypeNameMatch[] fTypes;
+		public final Set<TypeNameMatch> fTypeSet;
+
+		public Snapshot(Collection<TypeNameMatch> values) {
+			int size= values.size();
+			fTypes= new TypeNameMatch[size];
+			int i= size - 1;
+			for (Iterator<TypeNameMatch> iter= values.iterator(); iter.hasNext();) {
+				fTypes[i]= iter.next();
+				i--;
+			}
+			fTypeSet= new HashSet<>(values);
 		}
 	}
 
@@ -166,8 +204,16 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 
 	// Needs to be volatile since accesses aren't synchronized.
 	private volatile boolean fNeedsConsistencyCheck;
-	// Map of cached time stamps
+	// Map of cached time stamps, guarded by this
 	private Map<TypeNameMatch, Long> fTimestampMapping;
+	// Replaced on every change of the history, read without locking
+	private volatile Snapshot fSnapshot= new Snapshot(Collections.<TypeNameMatch>emptyList());
+
+	// The pending consistency check, guarded by fPendingCheckLock
+	private final Object fPendingCheckLock= new Object();
+	private boolean fCheckAll;
+	private Set<IJavaElement> fChangedContainers;
+	private Set<TypeNameMatch> fUncheckedTypes;
 
 	private final IElementChangedListener fDeltaListener;
 	private final UpdateJob fUpdateJob;
@@ -196,6 +242,10 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 	private OpenTypeHistory() {
 		super(FILENAME, NODE_ROOT, NODE_TYPE_INFO);
 		fTimestampMapping= new HashMap<>();
+		fChangedContainers= new HashSet<>();
+		fUncheckedTypes= new HashSet<>();
+		// the history may have changed while it was not loaded
+		fCheckAll= true;
 		fNeedsConsistencyCheck= true;
 		load();
 		fDeltaListener= new TypeHistoryDeltaListener();
@@ -209,9 +259,33 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		fUpdateJob.setPriority(Job.SHORT);
 	}
 
+	/**
+	 * Marks all types of the history as possibly inconsistent.
+	 */
 	public void markAsInconsistent() {
-		fNeedsConsistencyCheck= true;
+		synchronized (fPendingCheckLock) {
+			fCheckAll= true;
+			fNeedsConsistencyCheck= true;
+		}
+		scheduleUpdate();
+	}
+
+	/**
+	 * Marks the types inside the given elements as possibly inconsistent.
+	 *
+	 * @param changedContainers the changed elements
+	 */
+	private void markAsInconsistent(Collection<IJavaElement> changedContainers) {
+		synchronized (fPendingCheckLock) {
+			fChangedContainers.addAll(changedContainers);
+			fNeedsConsistencyCheck= true;
+		}
+		scheduleUpdate();
+	}
+
+	private void scheduleUpdate() {
 		// cancel the old job. If no job is running this is a NOOP.
+		// The canceled job keeps the types it has not checked yet pending.
 		fUpdateJob.cancel();
 		fUpdateJob.schedule();
 	}
@@ -240,8 +314,13 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 	}
 
 	@Override
-	public synchronized boolean contains(TypeNameMatch type) {
-		return super.contains(type);
+	public boolean contains(TypeNameMatch type) {
+		return fSnapshot.fTypeSet.contains(type);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return fSnapshot.fTypes.length == 0;
 	}
 
 	@Override
@@ -267,29 +346,19 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		super.accessed(newMatch);
 	}
 
-	public synchronized TypeNameMatch[] getTypeInfos() {
-		Collection<TypeNameMatch> values= getValues();
-		int size= values.size();
-		TypeNameMatch[] result= new TypeNameMatch[size];
-		int i= size - 1;
-		for (Iterator<TypeNameMatch> iter= values.iterator(); iter.hasNext();) {
-			result[i]= iter.next();
-			i--;
-		}
-		return result;
+	public TypeNameMatch[] getTypeInfos() {
+		return fSnapshot.fTypes.clone();
 	}
 
-	public synchronized TypeNameMatch[] getFilteredTypeInfos(TypeInfoFilter filter) {
-		Collection<TypeNameMatch> values= getValues();
-		List<TypeNameMatch> result= new ArrayList<>();
-		for (Iterator<TypeNameMatch> iter= values.iterator(); iter.hasNext();) {
-			TypeNameMatch type= iter.next();
+	public TypeNameMatch[] getFilteredTypeInfos(TypeInfoFilter filter) {
+		TypeNameMatch[] types= fSnapshot.fTypes;
+		List<TypeNameMatch> result= new ArrayList<>(types.length);
+		for (int i= 0; i < types.length; i++) {
+			TypeNameMatch type= types[i];
 			if ((filter == null || filter.matchesHistoryElement(type)) && !TypeFilter.isFiltered(type.getFullyQualifiedName()))
 				result.add(type);
 		}
-		Collections.reverse(result);
 		return result.toArray(new TypeNameMatch[result.size()]);
-
 	}
 
 	@Override
@@ -297,41 +366,110 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		return object;
 	}
 
-	private synchronized void internalCheckConsistency(IProgressMonitor monitor) throws OperationCanceledException {
-		// Setting fNeedsConsistencyCheck is necessary here since
-		// markAsInconsistent isn't synchronized.
-		fNeedsConsistencyCheck= true;
-		List<TypeNameMatch> typesToCheck= new ArrayList<>(getKeys());
+	@Override
+	protected void historyChanged() {
+		fSnapshot= new Snapshot(getValues());
+	}
+
+	/*
+	 * Not synchronized: the types are checked without holding the lock of the history,
+	 * so that reading and updating the history does not wait for the check. Only removing
+	 * and replacing an inconsistent type locks the history.
+	 */
+	private void internalCheckConsistency(IProgressMonitor monitor) throws OperationCanceledException {
+		boolean checkAll;
+		Set<IJavaElement> changedContainers;
+		Set<TypeNameMatch> uncheckedTypes;
+		synchronized (fPendingCheckLock) {
+			checkAll= fCheckAll;
+			changedContainers= fChangedContainers;
+			uncheckedTypes= fUncheckedTypes;
+			fCheckAll= false;
+			fChangedContainers= new HashSet<>();
+			fUncheckedTypes= new HashSet<>();
+			fNeedsConsistencyCheck= false;
+		}
+
+		TypeNameMatch[] types= fSnapshot.fTypes;
+		List<TypeNameMatch> typesToCheck= new ArrayList<>();
+		List<TypeNameMatch> changedTypes= new ArrayList<>();
+		for (int i= 0; i < types.length; i++) {
+			TypeNameMatch type= types[i];
+			if (isInside(type, changedContainers)) {
+				changedTypes.add(type);
+			} else if (checkAll || uncheckedTypes.contains(type)) {
+				typesToCheck.add(type);
+			}
+		}
+		int changedCount= changedTypes.size();
+		changedTypes.addAll(typesToCheck);
+		typesToCheck= changedTypes;
+
 		monitor.beginTask(CorextMessages.TypeInfoHistory_consistency_check, typesToCheck.size());
 		monitor.setTaskName(CorextMessages.TypeInfoHistory_consistency_check);
-		for (Iterator<TypeNameMatch> iter= typesToCheck.iterator(); iter.hasNext();) {
-			TypeNameMatch type= iter.next();
-			long currentTimestamp= getContainerTimestamp(type);
-			Long lastTested= fTimestampMapping.get(type);
+		for (int i= 0; i < typesToCheck.size(); i++) {
+			if (monitor.isCanceled()) {
+				synchronized (fPendingCheckLock) {
+					// types inside changed containers are still forced to be validated
+					for (int k= i; k < changedCount; k++) {
+						fChangedContainers.add(typesToCheck.get(k).getType());
+					}
+					fUncheckedTypes.addAll(typesToCheck.subList(Math.max(i, changedCount), typesToCheck.size()));
+					fNeedsConsistencyCheck= true;
+				}
+				throw new OperationCanceledException();
+			}
+			checkType(typesToCheck.get(i), i >= changedCount);
+			monitor.worked(1);
+		}
+		monitor.done();
+	}
+
+	private void checkType(TypeNameMatch type, boolean useTimestamp) {
+		long currentTimestamp= getContainerTimestamp(type);
+		if (useTimestamp) {
+			Long lastTested;
+			synchronized (this) {
+				lastTested= fTimestampMapping.get(type);
+			}
 			if (lastTested != null && currentTimestamp != IResource.NULL_STAMP && currentTimestamp == lastTested.longValue() && !isContainerDirty(type))
-				continue;
-			try {
-				IType jType= type.getType();
-				if (jType == null || !jType.exists()) {
-					remove(type);
-				} else {
-					// copy over the modifiers since they may have changed
-					int modifiers= jType.getFlags();
+				return;
+		}
+		try {
+			IType jType= type.getType();
+			if (jType == null || !jType.exists()) {
+				remove(type);
+			} else {
+				// copy over the modifiers since they may have changed
+				int modifiers= jType.getFlags();
+				synchronized (this) {
+					// the type may have been removed while it was checked
+					if (!containsKey(type))
+						return;
 					if (modifiers != type.getModifiers()) {
 						replace(type, SearchEngine.createTypeNameMatch(jType, modifiers));
 					} else {
-						fTimestampMapping.put(type, new Long(currentTimestamp));
+						Long previous= fTimestampMapping.put(type, new Long(currentTimestamp));
+						if (previous == null || previous.longValue() != currentTimestamp)
+							markAsDirty();
 					}
 				}
-			} catch (JavaModelException e) {
-				remove(type);
 			}
-			if (monitor.isCanceled())
-				throw new OperationCanceledException();
-			monitor.worked(1);
+		} catch (JavaModelException e) {
+			remove(type);
 		}
-		monitor.done();
-		fNeedsConsistencyCheck= false;
+	}
+
+	private static boolean isInside(TypeNameMatch type, Set<IJavaElement> containers) {
+		if (containers.isEmpty())
+			return false;
+		IJavaElement element= type.getType();
+		while (element != null) {
+			if (containers.contains(element))
+				return true;
+			element= element.getParent();
+		}
+		return false;
 	}
 
 	private long getContainerTimestamp(TypeNameMatch match) {
@@ -418,6 +556,30 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		return info;
 	}
 
+	@Override
+	protected void writeObject(TypeNameMatch type, DataOutputStream output) throws IOException {
+		output.writeUTF(type.getType().getHandleIdentifier());
+		output.writeInt(type.getModifiers());
+		Long timestamp= fTimestampMapping.get(type);
+		output.writeLong(timestamp == null ? IResource.NULL_STAMP : timestamp.longValue());
+	}
+
+	@Override
+	protected TypeNameMatch readObject(DataInputStream input) throws IOException {
+		String handle= input.readUTF();
+		int modifiers= input.readInt();
+		long timestamp= input.readLong();
+
+		IJavaElement element= JavaCore.create(handle);
+		if (!(element instanceof IType))
+			return null;
+		TypeNameMatch info= SearchEngine.createTypeNameMatch((IType) element, modifiers);
+		if (timestamp != IResource.NULL_STAMP) {
+			fTimestampMapping.put(info, new Long(timestamp));
+		}
+		return info;
+	}
+
 	@Override
 	protected void setAttributes(Object object, Element typeElement) {
 		TypeNameMatch type= (TypeNameMatch) object;
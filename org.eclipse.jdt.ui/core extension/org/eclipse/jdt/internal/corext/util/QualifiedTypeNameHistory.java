@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import org.w3c.dom.Element;
 
 public class QualifiedTypeNameHistory extends History<String, String> {
@@ -43,6 +47,16 @@ public class QualifiedTypeNameHistory extends History<String, String> {
 		return element.getAttribute(NODE_NAME);
 	}
 
+	@Override
+	protected void writeObject(String object, DataOutputStream output) throws IOException {
+		output.writeUTF(object);
+	}
+
+	@Override
+	protected String readObject(DataInputStream input) throws IOException {
+		return input.readUTF();
+	}
+
 	@Override
 	protected String getKey(String object) {
 		return object;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,17 +12,19 @@
 package org.eclipse.jdt.internal.corext.refactoring.generics;
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -68,14 +70,21 @@ public class InferTypeArgumentsConstraintsSolver {
 	 * nodes in the constraint graph that remain to be (re-)processed. Entries
 	 * are <code>ConstraintVariable2</code>s.
 	 */
-	private LinkedList<ConstraintVariable2> fWorkList;
+	private ArrayDeque<ConstraintVariable2> fWorkList;
+
+	/**
+	 * The variables in {@link #fWorkList}. A variable that is already waiting
+	 * to be processed is not added again.
+	 */
+	private Set<ConstraintVariable2> fWorkListMembers;
 
 	private InferTypeArgumentsUpdate fUpdate;
 
 
 	public InferTypeArgumentsConstraintsSolver(InferTypeArgumentsTCModel typeConstraintFactory) {
 		fTCModel= typeConstraintFactory;
-		fWorkList= new LinkedList<>();
+		fWorkList= new ArrayDeque<>();
+		fWorkListMembers= Collections.newSetFromMap(new IdentityHashMap<ConstraintVariable2, Boolean>());
 	}
 
 	public InferTypeArgumentsUpdate solveConstraints(IProgressMonitor pm) {
@@ -123,7 +132,7 @@ public class InferTypeArgumentsConstraintsSolver {
 		initializeTypeEstimates(allConstraintVariables);
 		if (pm.isCanceled())
 			throw new OperationCanceledException();
-		fWorkList.addAll(Arrays.asList(allConstraintVariables));
+		addToWorkList(allConstraintVariables);
 		runSolver(new SubProgressMonitor(pm, 1));
 		chooseTypes(allConstraintVariables, new SubProgressMonitor(pm, 1));
 		findCastsToRemove(fTCModel.getCastVariables());
@@ -196,6 +205,7 @@ public class InferTypeArgumentsConstraintsSolver {
 		while (! fWorkList.isEmpty()) {
 			// Get a variable whose type estimate has changed
 			ConstraintVariable2 cv= fWorkList.removeFirst();
+			fWorkListMembers.remove(cv);
 			List<ITypeConstraint2> usedIn= fTCModel.getUsedIn(cv);
 			processConstraints(usedIn);
 			pm.worked(1);
@@ -253,7 +263,7 @@ public class InferTypeArgumentsConstraintsSolver {
 //				throw new IllegalStateException("Type estimate set is now empty for LHS in " + left + " <= " + right + "; estimates were " + leftEstimate + " <= " + rightEstimate); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 			leftSet.setTypeEstimate(xsection);
-			fWorkList.addAll(Arrays.asList(leftSet.getContributingVariables()));
+			addToWorkList(leftSet.getContributingVariables());
 		}
 		if (! lhsSuperTypes.containsAll(rightEstimate)) {
 			TypeSet xsection= rightEstimate.intersectedWith(lhsSuperTypes);
@@ -262,7 +272,14 @@ public class InferTypeArgumentsConstraintsSolver {
 //				throw new IllegalStateException("Type estimate set is now empty for RHS in " + left + " <= " + right + "; estimates were " + leftEstimate + " <= " + rightEstimate); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 			rightSet.setTypeEstimate(xsection);
-			fWorkList.addAll(Arrays.asList(rightSet.getContributingVariables()));
+			addToWorkList(rightSet.getContributingVariables());
+		}
+	}
+
+	private void addToWorkList(ConstraintVariable2[] cvs) {
+		for (int i= 0; i < cvs.length; i++) {
+			if (fWorkListMembers.add(cvs[i]))
+				fWorkList.addLast(cvs[i]);
 		}
 	}
 
@@ -299,11 +316,14 @@ public class InferTypeArgumentsConstraintsSolver {
 
 		} else {
 			EnumeratedTypeSet lowerBound= typeEstimate.lowerBound().enumerate();
+			// the order of the lower bound depends on the order in which the types were first seen
+			TType classCandidate= null;
 			ArrayList<TType> interfaceCandidates= null;
 			for (Iterator<TType> iter= lowerBound.iterator(); iter.hasNext();) {
 				TType type= iter.next();
 				if (! type.isInterface()) {
-					return type;
+					if (classCandidate == null || TTypeComparator.INSTANCE.compare(type, classCandidate) < 0)
+						classCandidate= type;
 				} else {
 					if (interfaceCandidates == null)
 						interfaceCandidates= new ArrayList<>(2);
@@ -311,7 +331,9 @@ public class InferTypeArgumentsConstraintsSolver {
 				}
 			}
 
-			if (interfaceCandidates == null || interfaceCandidates.size() == 0) {
+			if (classCandidate != null) {
+				return classCandidate;
+			} else if (interfaceCandidates == null || interfaceCandidates.size() == 0) {
 				return null;
 			} else if (interfaceCandidates.size() == 1) {
 				return interfaceCandidates.get(0);
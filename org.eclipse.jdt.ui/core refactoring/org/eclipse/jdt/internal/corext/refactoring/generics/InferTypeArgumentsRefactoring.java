@@ -19,11 +19,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
@@ -100,6 +111,18 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 
 	private static final String REWRITTEN= "InferTypeArgumentsRefactoring.rewritten"; //$NON-NLS-1$
 
+	/**
+	 * Maximal number of batches whose ASTs are created in parallel.
+	 */
+	private static final int MAX_PARALLEL_BATCHES= 4;
+	private static final int MIN_BATCH_SIZE= 20;
+	private static final int MAX_BATCH_SIZE= 500;
+	/**
+	 * Estimated heap consumption of a compilation unit while the bindings of its batch
+	 * are alive.
+	 */
+	private static final long ESTIMATED_CU_SIZE= 512 * 1024;
+
 	private TextChangeManager fChangeManager;
 	private IJavaElement[] fElements;
 	private InferTypeArgumentsTCModel fTCModel;
@@ -165,71 +188,7 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 		final RefactoringStatus result= new RefactoringStatus();
 		try {
 			fTCModel= new InferTypeArgumentsTCModel();
-			final InferTypeArgumentsConstraintCreator unitCollector= new InferTypeArgumentsConstraintCreator(fTCModel, fAssumeCloneReturnsSameType);
-
-			for (Iterator<Entry<IJavaProject, ArrayList<IJavaElement>>> iter= projectsToElements.entrySet().iterator(); iter.hasNext(); ) {
-				Entry<IJavaProject, ArrayList<IJavaElement>> entry= iter.next();
-				IJavaProject project= entry.getKey();
-				ArrayList<IJavaElement> javaElementsList= entry.getValue();
-				IJavaElement[] javaElements= javaElementsList.toArray(new IJavaElement[javaElementsList.size()]);
-				List<ICompilationUnit> cus= Arrays.asList(JavaModelUtil.getAllCompilationUnits(javaElements));
-
-				int batchSize= 150;
-				int batches= ((cus.size()-1) / batchSize) + 1;
-				SubProgressMonitor projectMonitor= new SubProgressMonitor(pm, 1);
-				projectMonitor.beginTask("", batches); //$NON-NLS-1$
-				projectMonitor.setTaskName(RefactoringCoreMessages.InferTypeArgumentsRefactoring_building);
-				for (int i= 0; i < batches; i++) {
-					List<ICompilationUnit> batch= cus.subList(i * batchSize, Math.min(cus.size(), (i + 1) * batchSize));
-					ICompilationUnit[] batchCus= batch.toArray(new ICompilationUnit[batch.size()]);
-					final SubProgressMonitor batchMonitor= new SubProgressMonitor(projectMonitor, 1);
-					batchMonitor.subTask(RefactoringCoreMessages.InferTypeArgumentsRefactoring_calculating_dependencies);
-
-					ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
-					parser.setProject(project);
-					parser.setCompilerOptions(RefactoringASTParser.getCompilerOptions(project));
-					parser.setResolveBindings(true);
-					parser.createASTs(batchCus, new String[0], new ASTRequestor() {
-						@Override
-						public void acceptAST(final ICompilationUnit source, final CompilationUnit ast) {
-							batchMonitor.subTask(BasicElementLabels.getFileName(source));
-
-							SafeRunner.run(new ISafeRunnable() {
-								@Override
-								public void run() throws Exception {
-									IProblem[] problems= ast.getProblems();
-									for (int p= 0; p < problems.length; p++) {
-										if (problems[p].isError()) {
-											String cuName= JavaElementLabels.getElementLabel(source, JavaElementLabels.CU_QUALIFIED);
-											String msg= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_error_in_cu_skipped, new Object[] {cuName});
-											result.addError(msg, JavaStatusContext.create(source, SourceRangeFactory.create(problems[p])));
-											return;
-										}
-									}
-									ast.accept(unitCollector);
-								}
-								@Override
-								public void handleException(Throwable exception) {
-									String cuName= JavaElementLabels.getElementLabel(source, JavaElementLabels.CU_QUALIFIED);
-									String msg= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_internal_error, new Object[] {cuName});
-									JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IJavaStatusConstants.INTERNAL_ERROR, msg, null));
-									String msg2= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_error_skipped, new Object[] {cuName});
-									result.addError(msg2, JavaStatusContext.create(source));
-								}
-							});
-
-							fTCModel.newCu();
-						}
-						@Override
-						public void acceptBinding(String bindingKey, IBinding binding) {
-							//do nothing
-						}
-					}, batchMonitor);
-				}
-
-				projectMonitor.done();
-				fTCModel.newCu();
-			}
+			createConstraints(projectsToElements, result, new SubProgressMonitor(pm, projectsToElements.size()));
 
 //			Display.getDefault().syncExec(new Runnable() {
 //				public void run() {
@@ -254,6 +213,279 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 		}
 	}
 
+	/**
+	 * Creates the constraints for all compilation units. The ASTs are created in batches,
+	 * and several batches are parsed in parallel. The constraints of a compilation unit are
+	 * created when its AST is accepted, but the first AST of a batch waits until all previous
+	 * batches have created their constraints. The type constraints model hence sees the
+	 * compilation units in the same order as if they were processed one after the other,
+	 * which keeps the inferred types stable, and only parsing ahead overlaps.
+	 *
+	 * @param projectsToElements the elements to process, per project
+	 * @param result the status to add problems to
+	 * @param pm the progress monitor
+	 * @throws CoreException if the compilation units cannot be determined
+	 */
+	private void createConstraints(HashMap<IJavaProject, ArrayList<IJavaElement>> projectsToElements, final RefactoringStatus result, final IProgressMonitor pm) throws CoreException {
+		List<IJavaProject> projects= new ArrayList<>();
+		List<List<ICompilationUnit>> projectCus= new ArrayList<>();
+		int totalCus= 0;
+		for (Iterator<Entry<IJavaProject, ArrayList<IJavaElement>>> iter= projectsToElements.entrySet().iterator(); iter.hasNext(); ) {
+			Entry<IJavaProject, ArrayList<IJavaElement>> entry= iter.next();
+			ArrayList<IJavaElement> javaElementsList= entry.getValue();
+			IJavaElement[] javaElements= javaElementsList.toArray(new IJavaElement[javaElementsList.size()]);
+			List<ICompilationUnit> cus= Arrays.asList(JavaModelUtil.getAllCompilationUnits(javaElements));
+			projects.add(entry.getKey());
+			projectCus.add(cus);
+			totalCus+= cus.size();
+		}
+		pm.beginTask("", totalCus); //$NON-NLS-1$
+		pm.setTaskName(RefactoringCoreMessages.InferTypeArgumentsRefactoring_building);
+		pm.subTask(RefactoringCoreMessages.InferTypeArgumentsRefactoring_calculating_dependencies);
+
+		final InferTypeArgumentsTCModel model= fTCModel;
+		final InferTypeArgumentsConstraintCreator unitCollector= new InferTypeArgumentsConstraintCreator(model, fAssumeCloneReturnsSameType);
+		final BatchSequence sequence= new BatchSequence();
+		final AtomicBoolean aborted= new AtomicBoolean();
+		// progress monitors are not thread safe, the batches only ask for cancelation
+		final IProgressMonitor batchMonitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return aborted.get() || pm.isCanceled();
+			}
+		};
+
+		int parallelism= Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLEL_BATCHES));
+		ExecutorService executor= Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "Infer Type Arguments"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		CompletionService<Integer> batches= new ExecutorCompletionService<>(executor);
+		try {
+			int project= 0;
+			int next= 0;
+			int running= 0;
+			int batchIndex= 0;
+			while (true) {
+				// keep one batch per thread in flight, sized by the heap that is left
+				while (running < parallelism && project < projects.size()) {
+					List<ICompilationUnit> cus= projectCus.get(project);
+					if (next >= cus.size()) {
+						project++;
+						next= 0;
+						continue;
+					}
+					int end= Math.min(cus.size(), next + computeBatchSize(parallelism));
+					List<ICompilationUnit> batch= cus.subList(next, end);
+					final ICompilationUnit[] batchCus= batch.toArray(new ICompilationUnit[batch.size()]);
+					final IJavaProject javaProject= projects.get(project);
+					final int index= batchIndex++;
+					batches.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() {
+							ConstraintsRequestor requestor= new ConstraintsRequestor(index, sequence, model, unitCollector, result, batchMonitor);
+							try {
+								createASTs(javaProject, batchCus, requestor, batchMonitor);
+								// a batch without ASTs must still pass on the turn
+								requestor.start();
+							} finally {
+								requestor.finish();
+							}
+							return Integer.valueOf(batchCus.length);
+						}
+					});
+					next= end;
+					running++;
+				}
+				if (running == 0)
+					break;
+
+				Future<Integer> done;
+				try {
+					done= batches.take();
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				}
+				running--;
+				try {
+					pm.worked(done.get().intValue());
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new CoreException(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IJavaStatusConstants.INTERNAL_ERROR, cause.getMessage(), cause));
+				}
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+			}
+			model.newCu();
+		} finally {
+			// let running batches stop at their next cancelation check, but do not interrupt them
+			aborted.set(true);
+			executor.shutdown();
+			boolean interrupted= false;
+			while (!executor.isTerminated()) {
+				try {
+					executor.awaitTermination(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			pm.done();
+		}
+	}
+
+	private static void createASTs(IJavaProject project, ICompilationUnit[] cus, ASTRequestor requestor, IProgressMonitor pm) {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(project);
+		parser.setCompilerOptions(RefactoringASTParser.getCompilerOptions(project));
+		parser.setResolveBindings(true);
+		parser.createASTs(cus, new String[0], requestor, pm);
+	}
+
+	/**
+	 * Creates the constraints of a batch while its ASTs are accepted. The compiler cleans up
+	 * each compilation unit after it has been accepted and resets its lookup environment at
+	 * the end of the batch, so the bindings are only used in {@link #acceptAST(ICompilationUnit, CompilationUnit)}.
+	 */
+	private static final class ConstraintsRequestor extends ASTRequestor {
+		private final int fBatch;
+		private final BatchSequence fSequence;
+		private final InferTypeArgumentsTCModel fModel;
+		private final InferTypeArgumentsConstraintCreator fUnitCollector;
+		private final RefactoringStatus fResult;
+		private final IProgressMonitor fMonitor;
+		private boolean fStarted;
+
+		public ConstraintsRequestor(int batch, BatchSequence sequence, InferTypeArgumentsTCModel model, InferTypeArgumentsConstraintCreator unitCollector, RefactoringStatus result, IProgressMonitor monitor) {
+			fBatch= batch;
+			fSequence= sequence;
+			fModel= model;
+			fUnitCollector= unitCollector;
+			fResult= result;
+			fMonitor= monitor;
+		}
+
+		/**
+		 * Waits until all previous batches have created their constraints, unless already started.
+		 *
+		 * @throws OperationCanceledException if canceled while waiting
+		 */
+		public void start() {
+			if (!fStarted) {
+				fSequence.await(fBatch, fMonitor);
+				fStarted= true;
+			}
+		}
+
+		/**
+		 * Passes the turn to the next batch, if this batch has started.
+		 */
+		public void finish() {
+			if (fStarted)
+				fSequence.done(fBatch);
+		}
+
+		@Override
+		public void acceptAST(final ICompilationUnit source, final CompilationUnit ast) {
+			start();
+			SafeRunner.run(new ISafeRunnable() {
+				@Override
+				public void run() throws Exception {
+					IProblem[] problems= ast.getProblems();
+					for (int p= 0; p < problems.length; p++) {
+						if (problems[p].isError()) {
+							String cuName= JavaElementLabels.getElementLabel(source, JavaElementLabels.CU_QUALIFIED);
+							String msg= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_error_in_cu_skipped, new Object[] {cuName});
+							fResult.addError(msg, JavaStatusContext.create(source, SourceRangeFactory.create(problems[p])));
+							return;
+						}
+					}
+					ast.accept(fUnitCollector);
+				}
+				@Override
+				public void handleException(Throwable exception) {
+					String cuName= JavaElementLabels.getElementLabel(source, JavaElementLabels.CU_QUALIFIED);
+					String msg= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_internal_error, new Object[] {cuName});
+					JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IJavaStatusConstants.INTERNAL_ERROR, msg, null));
+					String msg2= Messages.format(RefactoringCoreMessages.InferTypeArgumentsRefactoring_error_skipped, new Object[] {cuName});
+					fResult.addError(msg2, JavaStatusContext.create(source));
+				}
+			});
+
+			fModel.newCu();
+		}
+
+		@Override
+		public void acceptBinding(String bindingKey, IBinding binding) {
+			//do nothing
+		}
+	}
+
+	/**
+	 * Lets the batches create their constraints one after the other, in the order in which
+	 * they were submitted. Since a batch waits for its turn under the lock of the sequence,
+	 * it also sees the changes that the previous batches made to the type constraints model.
+	 */
+	private static final class BatchSequence {
+		private int fNext;
+
+		/**
+		 * Waits until all previous batches have created their constraints.
+		 *
+		 * @param batch the index of the batch
+		 * @param pm the monitor to check for cancelation
+		 * @throws OperationCanceledException if canceled while waiting
+		 */
+		public synchronized void await(int batch, IProgressMonitor pm) {
+			while (fNext != batch) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					wait(100);
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				}
+			}
+		}
+
+		/**
+		 * Passes the turn to the next batch.
+		 *
+		 * @param batch the index of the batch that has created its constraints
+		 */
+		public synchronized void done(int batch) {
+			fNext= batch + 1;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the number of compilation units for the next batch. The bindings of a batch are
+	 * kept alive until the whole batch is done, so the size is derived from the heap that is
+	 * still available, shared by all batches that run in parallel.
+	 *
+	 * @param parallelism the number of batches that run in parallel
+	 * @return the batch size
+	 */
+	private static int computeBatchSize(int parallelism) {
+		Runtime runtime= Runtime.getRuntime();
+		long headroom= runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		// leave half of the headroom for the type constraints model
+		long size= headroom / 2 / parallelism / ESTIMATED_CU_SIZE;
+		return (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, size));
+	}
+
 	private void clearGlobalState() {
 		TypeSet.resetCount();
 		EnumeratedTypeSet.resetCount();
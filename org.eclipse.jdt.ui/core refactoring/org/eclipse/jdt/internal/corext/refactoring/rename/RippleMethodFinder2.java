@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,7 +18,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -53,10 +52,17 @@ public class RippleMethodFinder2 {
 	private List<IMethod> fDeclarations;
 	private ITypeHierarchy fHierarchy;
 	private Map<IType, IMethod> fTypeToMethod;
-	private Set<IType> fRootTypes;
 	private MultiMap<IType, IType> fRootReps;
 	private Map<IType, ITypeHierarchy> fRootHierarchies;
 	private UnionFind fUnionFind;
+	/**
+	 * Whether a declaring type is the root of an overriding chain, by union-find index.
+	 */
+	private boolean[] fIsRoot;
+	/**
+	 * Whether the supertypes of a declaring type have been united already, by union-find index.
+	 */
+	private boolean[] fIsUnited;
 
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
@@ -78,50 +84,76 @@ public class RippleMethodFinder2 {
 			return fImplementation.get(key);
 		}
 	}
+	/**
+	 * Union-find over the declaring types. The types are mapped to indices once, so that
+	 * <code>find</code> and <code>union</code> only work on int arrays and never compare
+	 * Java elements. Uses path halving and union by rank.
+	 */
 	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<>();
+		private final Map<IType, Integer> fTypeToIndex;
+		private final IType[] fTypes;
+		private final int[] fParents;
+		private final int[] fRanks;
+
+		public UnionFind(Collection<IType> types) {
+			int size= types.size();
+			fTypeToIndex= new HashMap<>(size * 2);
+			fTypes= types.toArray(new IType[size]);
+			fParents= new int[size];
+			fRanks= new int[size];
+			for (int i= 0; i < size; i++) {
+				fTypeToIndex.put(fTypes[i], Integer.valueOf(i));
+				fParents[i]= i;
+			}
+		}
 
-		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
+		public int size() {
+			return fTypes.length;
 		}
 
-		//path compression:
-		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
-				return null;
-
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
+		public IType getType(int index) {
+			return fTypes[index];
+		}
+
+		/**
+		 * @param type a type
+		 * @return the index of the type, or -1 if the type does not declare the method
+		 */
+		public int indexOf(IType type) {
+			Integer index= fTypeToIndex.get(type);
+			return index != null ? index.intValue() : -1;
+		}
+
+		/**
+		 * @param type a type
+		 * @return the representative of the type, or <code>null</code> if the type does not declare the method
+		 */
+		public IType find(IType type) {
+			int index= indexOf(type);
+			return index != -1 ? fTypes[find(index)] : null;
+		}
+
+		public int find(int index) {
+			while (fParents[index] != index) {
+				fParents[index]= fParents[fParents[index]];
+				index= fParents[index];
 			}
-			return root;
+			return index;
 		}
 
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
-		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
+		public void union(int index1, int index2) {
+			int rep1= find(index1);
+			int rep2= find(index2);
+			if (rep1 == rep2)
+				return;
+			if (fRanks[rep1] < fRanks[rep2]) {
+				fParents[rep1]= rep2;
+			} else if (fRanks[rep1] > fRanks[rep2]) {
+				fParents[rep2]= rep1;
+			} else {
+				fParents[rep2]= rep1;
+				fRanks[rep1]++;
+			}
 		}
 	}
 
@@ -198,7 +230,8 @@ public class RippleMethodFinder2 {
 			throw new OperationCanceledException();
 
 		fHierarchy= null;
-		fRootTypes= null;
+		fIsRoot= null;
+		fIsUnited= null;
 
 		Map<IType, List<IType>> partitioning= new HashMap<>();
 		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
@@ -249,16 +282,16 @@ public class RippleMethodFinder2 {
 
 		//find all subtypes of related types:
 		HashSet<IType> relatedSubTypes= new HashSet<>();
+		Map<IType, IType[]> alienSubTypes= new HashMap<>();
 		List<IType> relatedTypesToProcess= new ArrayList<>(relatedTypes);
 		while (relatedTypesToProcess.size() > 0) {
-			//TODO: would only need subtype hierarchies of all top-of-ripple relatedTypesToProcess
 			for (Iterator<IType> iter= relatedTypesToProcess.iterator(); iter.hasNext();) {
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
 				IType relatedType= iter.next();
-				ITypeHierarchy hierarchy= getCachedHierarchy(relatedType, owner, new SubProgressMonitor(pm, 1));
-				if (hierarchy == null)
-					hierarchy= relatedType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+				if (relatedSubTypes.contains(relatedType))
+					continue; // subtypes already added with the ones of a supertype
+				ITypeHierarchy hierarchy= getHierarchy(relatedType, owner, new SubProgressMonitor(pm, 1));
 				IType[] allSubTypes= hierarchy.getAllSubtypes(relatedType);
 				for (int i= 0; i < allSubTypes.length; i++)
 					relatedSubTypes.add(allSubTypes[i]);
@@ -271,10 +304,12 @@ public class RippleMethodFinder2 {
 					throw new OperationCanceledException();
 				IType alienType= iter.next();
 				IMethod alienMethod= fTypeToMethod.get(alienType);
-				ITypeHierarchy hierarchy= getCachedHierarchy(alienType, owner, new SubProgressMonitor(pm, 1));
-				if (hierarchy == null)
-					hierarchy= alienType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
-				IType[] allSubtypes= hierarchy.getAllSubtypes(alienType);
+				IType[] allSubtypes= alienSubTypes.get(alienType);
+				if (allSubtypes == null) {
+					ITypeHierarchy hierarchy= getHierarchy(alienType, owner, new SubProgressMonitor(pm, 1));
+					allSubtypes= hierarchy.getAllSubtypes(alienType);
+					alienSubTypes.put(alienType, allSubtypes);
+				}
 				for (int i= 0; i < allSubtypes.length; i++) {
 					IType subtype= allSubtypes[i];
 					if (relatedSubTypes.contains(subtype)) {
@@ -310,7 +345,19 @@ public class RippleMethodFinder2 {
 		return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 	}
 
-	private ITypeHierarchy getCachedHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+	/**
+	 * Returns a hierarchy that contains all subtypes of the given type. The hierarchies
+	 * are shared by all types of a partition: the hierarchy of a root type is reused for
+	 * all its subtypes, and a hierarchy created for another type is remembered for the
+	 * types of its partition that are processed later.
+	 *
+	 * @param type the type
+	 * @param owner the working copy owner
+	 * @param monitor the progress monitor
+	 * @return a hierarchy that contains the type and its subtypes
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	private ITypeHierarchy getHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
 		IType rep= fUnionFind.find(type);
 		if (rep != null) {
 			Collection<IType> collection= fRootReps.get(rep);
@@ -325,7 +372,12 @@ public class RippleMethodFinder2 {
 					return hierarchy;
 			}
 		}
-		return null;
+		ITypeHierarchy hierarchy= type.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
+		if (rep != null) {
+			fRootHierarchies.put(type, hierarchy);
+			fRootReps.put(rep, type);
+		}
+		return hierarchy;
 	}
 
 	private void findAllDeclarations(IProgressMonitor monitor, WorkingCopyOwner owner) throws CoreException {
@@ -374,43 +426,47 @@ public class RippleMethodFinder2 {
 	}
 
 	private void createUnionFind() throws JavaModelException {
-		fRootTypes= new HashSet<>(fTypeToMethod.keySet());
-		fUnionFind= new UnionFind();
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			fUnionFind.init(type);
-		}
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			uniteWithSupertypes(type, type);
+		fUnionFind= new UnionFind(fTypeToMethod.keySet());
+		int size= fUnionFind.size();
+		fIsRoot= new boolean[size];
+		Arrays.fill(fIsRoot, true);
+		fIsUnited= new boolean[size];
+		for (int i= 0; i < size; i++) {
+			uniteWithSupertypes(i);
 		}
 		fRootReps= new MultiMap<>();
-		for (Iterator<IType> iter= fRootTypes.iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			IType rep= fUnionFind.find(type);
-			if (rep != null)
-				fRootReps.put(rep, type);
+		for (int i= 0; i < size; i++) {
+			if (fIsRoot[i])
+				fRootReps.put(fUnionFind.getType(fUnionFind.find(i)), fUnionFind.getType(i));
 		}
 		fRootHierarchies= new HashMap<>();
 	}
 
-	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
+	private void uniteWithSupertypes(int anchorIndex) throws JavaModelException {
+		// every declaring type is only processed once, even if it is the supertype of many types
+		if (fIsUnited[anchorIndex])
+			return;
+		fIsUnited[anchorIndex]= true;
+		IType anchor= fUnionFind.getType(anchorIndex);
+		uniteWithSupertypes(anchor, anchorIndex, anchor);
+	}
+
+	private void uniteWithSupertypes(IType anchor, int anchorIndex, IType type) throws JavaModelException {
 		IType[] supertypes= fHierarchy.getSupertypes(type);
 		for (int i= 0; i < supertypes.length; i++) {
 			IType supertype= supertypes[i];
-			IType superRep= fUnionFind.find(supertype);
-			if (superRep == null) {
+			int superIndex= fUnionFind.indexOf(supertype);
+			if (superIndex == -1) {
 				//Type doesn't declare method, but maybe supertypes?
-				uniteWithSupertypes(anchor, supertype);
+				uniteWithSupertypes(anchor, anchorIndex, supertype);
 			} else {
 				//check whether method in supertype is really overridden:
 				IMember superMethod= fTypeToMethod.get(supertype);
 				if (JavaModelUtil.isVisibleInHierarchy(superMethod, anchor.getPackageFragment())) {
-					IType rep= fUnionFind.find(anchor);
-					fUnionFind.union(rep, superRep);
+					fUnionFind.union(anchorIndex, superIndex);
 					// current type is no root anymore
-					fRootTypes.remove(anchor);
-					uniteWithSupertypes(supertype, supertype);
+					fIsRoot[anchorIndex]= false;
+					uniteWithSupertypes(superIndex);
 				} else {
 					//Not overridden -> overriding chain ends here.
 				}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,7 @@ import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibili
 import org.eclipse.jdt.internal.corext.refactoring.rename.RefactoringScanner.TextMatch;
 import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextTokenIndex;
 
 class TextMatchUpdater {
 
@@ -65,6 +66,7 @@ class TextMatchUpdater {
 
 	private final RefactoringScanner fScanner;
 	private final String fNewName;
+	private final String fCurrentName;
 	private final int fCurrentNameLength;
 
 	private TextMatchUpdater(TextChangeManager manager, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, SearchResultGroup[] references, boolean onlyQualified){
@@ -77,6 +79,7 @@ class TextMatchUpdater {
 		fOnlyQualified= onlyQualified;
 
 		fNewName= newName;
+		fCurrentName= currentName;
 		fCurrentNameLength= currentName.length();
 		fScanner= new RefactoringScanner(currentName, currentQualifier);
 	}
@@ -132,7 +135,11 @@ class TextMatchUpdater {
 					return;
 				if (! fScope.encloses(element))
 					return;
-				addCuTextMatches((ICompilationUnit) element);
+				ICompilationUnit cu= (ICompilationUnit) element;
+				// the index only knows the saved contents
+				if (! cu.hasUnsavedChanges() && ! TextTokenIndex.getDefault().mayContainInJavaCommentsOrStrings((IFile) resource, fCurrentName))
+					return;
+				addCuTextMatches(cu);
 
 			} else if (resource instanceof IContainer){
 				IResource[] members= ((IContainer) resource).members();
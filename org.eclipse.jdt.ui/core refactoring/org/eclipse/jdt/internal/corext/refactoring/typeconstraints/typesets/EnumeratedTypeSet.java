@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets;
 
+import java.util.BitSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.NoSuchElementException;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -23,6 +23,12 @@ import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.TTypes;
 /**
  * A type-safe wrapper for {@code Set<TType>} that also adds {@code TType}-specific
  * functionality, e.g. subTypes() and superTypes().
+ * <p>
+ * The members are stored as a bit set over the type indices of the
+ * {@link TypeSetEnvironment}, so that unions, intersections and subset tests
+ * work on whole words instead of hashing one type at a time. Members are
+ * iterated in the order in which the environment has first seen them.
+ * </p>
  */
 public class EnumeratedTypeSet extends TypeSet {
 	static private int sCount= 0;
@@ -36,9 +42,14 @@ public class EnumeratedTypeSet extends TypeSet {
 	}
 
 	/**
-	 * Set containing the TTypes in this EnumeratedTypeSet.
+	 * Set containing the indices of the TTypes in this EnumeratedTypeSet.
 	 */
-	Set<TType> fMembers= new LinkedHashSet<>();
+	private BitSet fMembers= new BitSet();
+
+	/**
+	 * Cached number of members, or -1 if not known.
+	 */
+	private int fSize= 0;
 
 	/**
 	 * Constructs a new EnumeratedTypeSet with the members of Set s in it.
@@ -50,8 +61,9 @@ public class EnumeratedTypeSet extends TypeSet {
 	public EnumeratedTypeSet(Iterator<TType> types, TypeSetEnvironment typeSetEnvironment) {
 		super(typeSetEnvironment);
 		while (types.hasNext()) {
-			fMembers.add(types.next());
+			fMembers.set(typeSetEnvironment.getTypeIndex(types.next()));
 		}
+		fSize= -1;
 		sCount++;
 	}
 
@@ -74,7 +86,8 @@ public class EnumeratedTypeSet extends TypeSet {
 	public EnumeratedTypeSet(TType t, TypeSetEnvironment typeSetEnvironment) {
 		super(typeSetEnvironment);
 		Assert.isNotNull(t);
-		fMembers.add(t);
+		fMembers.set(typeSetEnvironment.getTypeIndex(t));
+		fSize= 1;
 		sCount++;
 	}
 
@@ -89,22 +102,22 @@ public class EnumeratedTypeSet extends TypeSet {
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
-		if (o instanceof EnumeratedTypeSet) {
+		if (o instanceof EnumeratedTypeSet && ((EnumeratedTypeSet) o).getTypeSetEnvironment() == getTypeSetEnvironment()) {
 			EnumeratedTypeSet other= (EnumeratedTypeSet) o;
 
 			return fMembers.equals(other.fMembers);
 		} else if (o instanceof SingletonTypeSet) {
 			SingletonTypeSet other= (SingletonTypeSet) o;
 
-			return (fMembers.size() == 1) && fMembers.contains(other.anyMember());
+			return (size() == 1) && contains(other.anyMember());
 		} else if (o instanceof TypeSet) {
 			TypeSet other= (TypeSet) o;
 
 			for(Iterator<TType> otherIter= other.iterator(); otherIter.hasNext(); ) {
-				if (!fMembers.contains(otherIter.next()))
+				if (!contains(otherIter.next()))
 					return false;
 			}
-			for(Iterator<TType> myIter= fMembers.iterator(); myIter.hasNext(); ) {
+			for(Iterator<TType> myIter= iterator(); myIter.hasNext(); ) {
 				if (!other.contains(myIter.next()))
 					return false;
 			}
@@ -118,6 +131,20 @@ public class EnumeratedTypeSet extends TypeSet {
 		return 37 + fMembers.hashCode();
 	}
 
+	private BitSet getMembers(EnumeratedTypeSet other) {
+		if (other.getTypeSetEnvironment() == getTypeSetEnvironment())
+			return other.fMembers;
+		BitSet result= new BitSet();
+		for (Iterator<TType> iter= other.iterator(); iter.hasNext();) {
+			result.set(getTypeSetEnvironment().getTypeIndex(iter.next()));
+		}
+		return result;
+	}
+
+	private void membersChanged() {
+		fSize= -1;
+	}
+
 	/**
 	 * Computes and returns a <em>new</em> EnumeratedTypeSet representing the intersection of the
 	 * receiver with s2. Does not modify the receiver.
@@ -149,8 +176,8 @@ public class EnumeratedTypeSet extends TypeSet {
 			// More than an optimization: the universe never contains array types, so
 			// if s2 has array types, the following will retain them, as it should.
 			EnumeratedTypeSet ets2= (EnumeratedTypeSet) s2;
-			fMembers= new LinkedHashSet<>();
-			fMembers.addAll(ets2.fMembers);
+			fMembers= (BitSet) getMembers(ets2).clone();
+			membersChanged();
 		} else
 			retainAll(s2);
 	}
@@ -164,7 +191,7 @@ public class EnumeratedTypeSet extends TypeSet {
 		if (isUniverse())
 			return makeClone(); // subtypes(universe) = universe
 
-		if (fMembers.contains(getJavaLangObject()))
+		if (contains(getJavaLangObject()))
 			return getTypeSetEnvironment().getUniverseTypeSet();
 
 		return getTypeSetEnvironment().createSubTypesSet(this);
@@ -197,20 +224,24 @@ public class EnumeratedTypeSet extends TypeSet {
 	public TypeSet makeClone() {
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
-		result.fMembers.addAll(fMembers);
+		result.fMembers.or(fMembers);
+		result.fSize= fSize;
 		result.initComplete();
 		return result;
 	}
 
 	public int size() {
-		return fMembers.size();
+		if (fSize == -1)
+			fSize= fMembers.cardinality();
+		return fSize;
 	}
 
 	public void clear() {
 		if (isUniverse())
-			fMembers= new LinkedHashSet<>();
+			fMembers= new BitSet();
 		else
 			fMembers.clear();
+		fSize= 0;
 	}
 
 	@Override
@@ -219,44 +250,67 @@ public class EnumeratedTypeSet extends TypeSet {
 	}
 
 	public TType[] toArray() {
-		return fMembers.toArray(new TType[fMembers.size()]);
+		TType[] result= new TType[size()];
+		int i= 0;
+		for (int index= fMembers.nextSetBit(0); index >= 0; index= fMembers.nextSetBit(index + 1)) {
+			result[i++]= getTypeSetEnvironment().getType(index);
+		}
+		return result;
 	}
 
 	public boolean add(TType t) {
 		// Doesn't make sense to do here what other methods do (copy-and-modify)
 		Assert.isTrue(!isUniverse(), "Someone's trying to expand the universe!"); //$NON-NLS-1$
-		return fMembers.add(t);
+		int index= getTypeSetEnvironment().getTypeIndex(t);
+		if (fMembers.get(index))
+			return false;
+		fMembers.set(index);
+		if (fSize != -1)
+			fSize++;
+		return true;
 	}
 
 	@Override
 	public boolean contains(TType t) {
 		if (isUniverse())
 			return true;
-		return fMembers.contains(t);
+		int index= getTypeSetEnvironment().lookupTypeIndex(t);
+		return index != -1 && fMembers.get(index);
 	}
 
 	public boolean remove(TType t) {
 		if (isUniverse())
-			fMembers= cloneSet(fMembers);
-		return fMembers.remove(t);
-	}
-
-	private Set<TType> cloneSet(Set<TType> members) {
-		Set<TType> result= new LinkedHashSet<>();
-		result.addAll(members);
-		return result;
+			fMembers= (BitSet) fMembers.clone();
+		int index= getTypeSetEnvironment().lookupTypeIndex(t);
+		if (index == -1 || !fMembers.get(index))
+			return false;
+		fMembers.clear(index);
+		if (fSize != -1)
+			fSize--;
+		return true;
 	}
 
 	public boolean addAll(TypeSet s) {
-		if (s instanceof EnumeratedTypeSet) {
-			EnumeratedTypeSet ets= (EnumeratedTypeSet) s;
-
-			return fMembers.addAll(ets.fMembers);
-		} else {
-			EnumeratedTypeSet ets= s.enumerate();
+		EnumeratedTypeSet ets= s instanceof EnumeratedTypeSet ? (EnumeratedTypeSet) s : s.enumerate();
+		BitSet members= getMembers(ets);
+		if (contains(fMembers, members))
+			return false;
+		fMembers.or(members);
+		membersChanged();
+		return true;
+	}
 
-			return fMembers.addAll(ets.fMembers);
-		}
+	/**
+	 * @param set a set
+	 * @param subset another set
+	 * @return whether <code>set</code> contains all elements of <code>subset</code>
+	 */
+	private static boolean contains(BitSet set, BitSet subset) {
+		if (subset.length() > set.length())
+			return false;
+		BitSet missing= (BitSet) subset.clone();
+		missing.andNot(set);
+		return missing.isEmpty();
 	}
 
 	@Override
@@ -277,13 +331,18 @@ public class EnumeratedTypeSet extends TypeSet {
 			return false;
 		EnumeratedTypeSet ets= s.enumerate();
 
-		return fMembers.containsAll(ets.fMembers);
+		return contains(fMembers, getMembers(ets));
 	}
 
 	public boolean removeAll(EnumeratedTypeSet s) {
 		if (isUniverse())
-			fMembers= cloneSet(fMembers);
-		return fMembers.removeAll(s.fMembers);
+			fMembers= (BitSet) fMembers.clone();
+		BitSet members= getMembers(s);
+		if (!fMembers.intersects(members))
+			return false;
+		fMembers.andNot(members);
+		membersChanged();
+		return true;
 	}
 
 	public boolean retainAll(TypeSet s) {
@@ -292,45 +351,56 @@ public class EnumeratedTypeSet extends TypeSet {
 		EnumeratedTypeSet ets= (EnumeratedTypeSet) s;
 
 		if (isUniverse()) {
-			fMembers= cloneSet(ets.fMembers);
+			fMembers= (BitSet) getMembers(ets).clone();
+			membersChanged();
 			return true;
-		} else
-			return fMembers.retainAll(ets.fMembers);
+		} else {
+			BitSet members= getMembers(ets);
+			if (contains(members, fMembers))
+				return false;
+			fMembers.and(members);
+			membersChanged();
+			return true;
+		}
 	}
 
 	@Override
 	public boolean isSingleton() {
-		return fMembers.size() == 1;
+		return size() == 1;
 	}
 
 	@Override
 	public TType anyMember() {
-		return fMembers.iterator().next();
+		int index= fMembers.nextSetBit(0);
+		if (index == -1)
+			throw new NoSuchElementException();
+		return getTypeSetEnvironment().getType(index);
 	}
 
 	@Override
 	public TypeSet upperBound() {
-		if (fMembers.size() == 1)
-			return new SingletonTypeSet(fMembers.iterator().next(), getTypeSetEnvironment());
-		if (fMembers.contains(getJavaLangObject()))
+		if (size() == 1)
+			return new SingletonTypeSet(anyMember(), getTypeSetEnvironment());
+		if (contains(getJavaLangObject()))
 			return new SingletonTypeSet(getJavaLangObject(), getTypeSetEnvironment());
 
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
 		// Add to result each element of fMembers that has no proper supertype in fMembers
-		result.fMembers.addAll(fMembers);
-		for(Iterator<TType> iter= fMembers.iterator(); iter.hasNext(); ) {
+		result.fMembers.or(fMembers);
+		result.fSize= -1;
+		for(Iterator<TType> iter= iterator(); iter.hasNext(); ) {
 			TType t= iter.next();
 
 			if (t.isArrayType()) {
 				ArrayType at= (ArrayType) t;
 				int numDims= at.getDimensions();
 				for(Iterator<TType> subIter=TTypes.getAllSubTypesIterator(at.getElementType()); subIter.hasNext(); ) {
-					result.fMembers.remove(TTypes.createArrayType(subIter.next(), numDims));
+					result.remove(TTypes.createArrayType(subIter.next(), numDims));
 				}
 			} else {
 				for (Iterator<TType> iterator= TTypes.getAllSubTypesIterator(t); iterator.hasNext();) {
-					result.fMembers.remove(iterator.next());
+					result.remove(iterator.next());
 				}
 			}
 		}
@@ -340,21 +410,22 @@ public class EnumeratedTypeSet extends TypeSet {
 
 	@Override
 	public TypeSet lowerBound() {
-		if (fMembers.size() == 1)
-			return new SingletonTypeSet(fMembers.iterator().next(), getTypeSetEnvironment());
+		if (size() == 1)
+			return new SingletonTypeSet(anyMember(), getTypeSetEnvironment());
 
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
 		// Add to result each element of fMembers that has no proper subtype in fMembers
-		result.fMembers.addAll(fMembers);
+		result.fMembers.or(fMembers);
+		result.fSize= -1;
 
-		for(Iterator<TType> iter= fMembers.iterator(); iter.hasNext(); ) {
+		for(Iterator<TType> iter= iterator(); iter.hasNext(); ) {
 			TType t= iter.next();
 
 			// java.lang.Object is only in the lower bound if fMembers consists
 			// of only java.lang.Object, but that case is handled above.
 			if (t.equals(getJavaLangObject())) {
-				result.fMembers.remove(t);
+				result.remove(t);
 				continue;
 			}
 
@@ -362,11 +433,11 @@ public class EnumeratedTypeSet extends TypeSet {
 				ArrayType at= (ArrayType) t;
 				int numDims= at.getDimensions();
 				for(Iterator<TType> superIter=TTypes.getAllSuperTypesIterator(at.getElementType()); superIter.hasNext(); ) {
-					result.fMembers.remove(TTypes.createArrayType(superIter.next(), numDims));
+					result.remove(TTypes.createArrayType(superIter.next(), numDims));
 				}
 			} else {
 				for (Iterator<TType> iterator= TTypes.getAllSuperTypesIterator(t); iterator.hasNext();) {
-					result.fMembers.remove(iterator.next());
+					result.remove(iterator.next());
 				}
 			}
 		}
@@ -378,31 +449,57 @@ public class EnumeratedTypeSet extends TypeSet {
 
 	@Override
 	public boolean hasUniqueLowerBound() {
-		return fMembers.size() == 1;
+		return size() == 1;
 	}
 
 	@Override
 	public boolean hasUniqueUpperBound() {
-		return fMembers.size() == 1;
+		return size() == 1;
 	}
 
 	@Override
 	public TType uniqueLowerBound() {
-		if (fMembers.size() == 1)
-			return fMembers.iterator().next();
+		if (size() == 1)
+			return anyMember();
 		return null;
 	}
 
 	@Override
 	public TType uniqueUpperBound() {
-		if (fMembers.size() == 1)
-			return fMembers.iterator().next();
+		if (size() == 1)
+			return anyMember();
 		return null;
 	}
 
 	@Override
 	public Iterator<TType> iterator() {
-		return fMembers.iterator();
+		return new Iterator<TType>() {
+			private int fNext= fMembers.nextSetBit(0);
+			private int fLast= -1;
+
+			@Override
+			public boolean hasNext() {
+				return fNext >= 0;
+			}
+
+			@Override
+			public TType next() {
+				if (fNext < 0)
+					throw new NoSuchElementException();
+				fLast= fNext;
+				fNext= fMembers.nextSetBit(fNext + 1);
+				return getTypeSetEnvironment().getType(fLast);
+			}
+
+			@Override
+			public void remove() {
+				if (fLast < 0)
+					throw new IllegalStateException();
+				fMembers.clear(fLast);
+				membersChanged();
+				fLast= -1;
+			}
+		};
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,10 @@
 
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
@@ -30,6 +33,13 @@ public class TypeSetEnvironment {
 	private final Map<TType, SuperTypesOfSingleton> fSuperTypesOfSingletons= new LinkedHashMap<>();//@perf
 	private final Map<Object, SuperTypesSet> fSuperTypesSets= new LinkedHashMap<>();//@perf
 
+	/**
+	 * The types seen so far, interned to dense indices for the bit sets of the
+	 * {@link EnumeratedTypeSet}s.
+	 */
+	private final Map<TType, Integer> fTypeIndices= new HashMap<>();
+	private final List<TType> fTypes= new ArrayList<>();
+
 	private int fgCommonExprHits= 0;
 	private int fgCommonExprMisses= 0;
 
@@ -43,6 +53,40 @@ public class TypeSetEnvironment {
 		return fTypeEnvironment.getJavaLangObject();
 	}
 
+	/**
+	 * Returns the index of the given type, and assigns the next free index
+	 * if the type has not been seen before.
+	 *
+	 * @param type the type
+	 * @return the index of the type
+	 */
+	int getTypeIndex(TType type) {
+		Integer index= fTypeIndices.get(type);
+		if (index == null) {
+			index= Integer.valueOf(fTypes.size());
+			fTypeIndices.put(type, index);
+			fTypes.add(type);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * @param type the type
+	 * @return the index of the type, or -1 if the type has not been seen before
+	 */
+	int lookupTypeIndex(TType type) {
+		Integer index= fTypeIndices.get(type);
+		return index != null ? index.intValue() : -1;
+	}
+
+	/**
+	 * @param index an index returned by {@link #getTypeIndex(TType)}
+	 * @return the type with the given index
+	 */
+	TType getType(int index) {
+		return fTypes.get(index);
+	}
+
 	public TypeUniverseSet getUniverseTypeSet() {
 		return fUniverse;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.util;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
@@ -25,8 +27,12 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
 
 import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
 
 import org.eclipse.text.edits.ReplaceEdit;
 
@@ -141,7 +147,22 @@ public class QualifiedNameFinder {
 		TextSearchEngine engine= TextSearchEngine.create();
 		Pattern searchPattern= PatternConstructor.createPattern(pattern, true, false);
 
-		engine.search(createScope(filePatterns, root), collector, searchPattern, monitor);
+		TextSearchScope scope= createScope(filePatterns, root);
+		if (pattern.indexOf('*') == -1 && pattern.indexOf('?') == -1) {
+			try {
+				IResource[] candidates= findCandidates(scope, collector, pattern);
+				if (candidates.length == 0) {
+					monitor.beginTask("", 1); //$NON-NLS-1$
+					monitor.worked(1);
+					monitor.done();
+					return;
+				}
+				scope= TextSearchScope.newSearchScope(candidates, getFilePattern(filePatterns), false);
+			} catch (CoreException e) {
+				// search all files of the scope
+			}
+		}
+		engine.search(scope, collector, searchPattern, monitor);
 	}
 
 	private static TextSearchScope createScope(String filePatterns, IProject root) {
@@ -154,6 +175,44 @@ public class QualifiedNameFinder {
 		return TextSearchScope.newSearchScope(resArr, filePattern, false);
 	}
 
+	/**
+	 * Returns the files of the scope that may contain the given qualified name, according
+	 * to the {@link TextTokenIndex}. Files with unsaved changes are always candidates, since
+	 * the search engine searches their buffers.
+	 *
+	 * @param scope the scope
+	 * @param collector the collector deciding which files are searched
+	 * @param name the qualified name
+	 * @return the candidate files
+	 * @throws CoreException if the scope cannot be visited
+	 */
+	private static IResource[] findCandidates(final TextSearchScope scope, final ResultCollector collector, final String name) throws CoreException {
+		final List<IResource> candidates= new ArrayList<>();
+		final TextTokenIndex index= TextTokenIndex.getDefault();
+		IResourceProxyVisitor visitor= new IResourceProxyVisitor() {
+			@Override
+			public boolean visit(IResourceProxy proxy) throws CoreException {
+				if (!scope.contains(proxy))
+					return false;
+				if (proxy.getType() != IResource.FILE)
+					return true;
+				IFile file= (IFile) proxy.requestResource();
+				if (!collector.acceptFile(file))
+					return false;
+				ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+				if (buffer != null && buffer.isDirty() || index.mayContainInText(file, name))
+					candidates.add(file);
+				return false;
+			}
+		};
+		IResource[] roots= scope.getRoots();
+		for (int i= 0; i < roots.length; i++) {
+			if (roots[i].isAccessible())
+				roots[i].accept(visitor, IResource.NONE);
+		}
+		return candidates.toArray(new IResource[candidates.size()]);
+	}
+
 	private static Pattern getFilePattern(String filePatterns) {
 		StringTokenizer tokenizer= new StringTokenizer(filePatterns, ","); //$NON-NLS-1$
 		String[] filePatternArray= new String[tokenizer.countTokens()];
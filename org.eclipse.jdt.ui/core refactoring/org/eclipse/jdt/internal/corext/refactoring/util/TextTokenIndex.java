@@ -0,0 +1,401 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+
+/**
+ * Index of the identifier tokens of files, used to skip files that cannot contain a name
+ * when searching for textual occurrences.
+ * <p>
+ * A token is a maximal run of letters, digits and underscores. For Java files only
+ * the tokens in comments and string literals are indexed, for other files all tokens.
+ * The tokens of a file are kept in a small Bloom filter, so the index can answer
+ * with false positives but never with false negatives. An entry is recomputed when
+ * the modification stamp or the local time stamp of its file changes.
+ * </p>
+ * <p>
+ * The index is bounded and drops the least recently used entries. Entries of removed,
+ * changed or closed resources are dropped when the workspace reports the change.
+ * </p>
+ * <p>
+ * The index only knows the contents of the files on disk. Clients must not consult it
+ * for files with unsaved changes.
+ * </p>
+ *
+ * @since 3.13
+ */
+public final class TextTokenIndex {
+
+	/**
+	 * Number of bits of the Bloom filter per token.
+	 */
+	private static final int BITS_PER_TOKEN= 10;
+
+	/**
+	 * The maximum number of entries of each kind.
+	 */
+	private static final int MAX_ENTRIES= 5000;
+
+	/**
+	 * The flags of a file delta after which its entry is no longer needed or is wrong.
+	 * A change of the encoding does not change the stamps.
+	 */
+	private static final int FILE_FLAGS= IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING
+			| IResourceDelta.MOVED_TO | IResourceDelta.LOCAL_CHANGED;
+
+	private static final TextTokenIndex fgDefault= new TextTokenIndex();
+
+	private static final class Entry {
+		final long fModificationStamp;
+		final long fLocalTimeStamp;
+		final long[] fBits;
+
+		Entry(long modificationStamp, long localTimeStamp, long[] bits) {
+			fModificationStamp= modificationStamp;
+			fLocalTimeStamp= localTimeStamp;
+			fBits= bits;
+		}
+	}
+
+	private class ResourceListener implements IResourceChangeListener, IResourceDeltaVisitor {
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta= event.getDelta();
+			if (delta == null)
+				return;
+			try {
+				delta.accept(this);
+			} catch (CoreException e) {
+				clear();
+			}
+		}
+
+		@Override
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			IResource resource= delta.getResource();
+			switch (resource.getType()) {
+				case IResource.ROOT:
+					return true;
+				case IResource.FILE:
+					if (delta.getKind() == IResourceDelta.REMOVED || (delta.getFlags() & FILE_FLAGS) != 0)
+						remove(resource.getFullPath(), false);
+					return false;
+				default:
+					if (delta.getKind() == IResourceDelta.REMOVED || (delta.getFlags() & IResourceDelta.OPEN) != 0) {
+						remove(resource.getFullPath(), true);
+						return false;
+					}
+					return true;
+			}
+		}
+	}
+
+	/**
+	 * The entries of Java files, guarded by <code>this</code>.
+	 */
+	private final Map<IPath, Entry> fJavaEntries= createEntries();
+
+	/**
+	 * The entries of other files, guarded by <code>this</code>.
+	 */
+	private final Map<IPath, Entry> fTextEntries= createEntries();
+
+	/**
+	 * The listener, or <code>null</code> if not installed. Guarded by <code>this</code>.
+	 */
+	private ResourceListener fListener;
+
+	private TextTokenIndex() {
+	}
+
+	public static TextTokenIndex getDefault() {
+		return fgDefault;
+	}
+
+	/**
+	 * Removes the resource listener and all entries.
+	 */
+	public static void shutdown() {
+		synchronized (fgDefault) {
+			if (fgDefault.fListener != null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fgDefault.fListener);
+				fgDefault.fListener= null;
+			}
+			fgDefault.clear();
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		fJavaEntries.clear();
+		fTextEntries.clear();
+	}
+
+	/**
+	 * Tells whether the index holds an entry for the given file.
+	 *
+	 * @param file the file
+	 * @return <code>true</code> if the tokens of the file are indexed
+	 */
+	public synchronized boolean isIndexed(IFile file) {
+		IPath path= file.getFullPath();
+		return fJavaEntries.containsKey(path) || fTextEntries.containsKey(path);
+	}
+
+	private static Map<IPath, Entry> createEntries() {
+		return new LinkedHashMap<IPath, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID= 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<IPath, Entry> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+	}
+
+	/**
+	 * Returns whether the comments and string literals of the given Java file may
+	 * contain the given text as a whole word.
+	 *
+	 * @param file the Java file
+	 * @param text the text
+	 * @return <code>false</code> if the comments and string literals of the file
+	 *  certainly do not contain the text, <code>true</code> otherwise
+	 */
+	public boolean mayContainInJavaCommentsOrStrings(IFile file, String text) {
+		return mayContain(file, text, true);
+	}
+
+	/**
+	 * Returns whether the given file may contain the given text as a whole word.
+	 *
+	 * @param file the file
+	 * @param text the text
+	 * @return <code>false</code> if the file certainly does not contain the text,
+	 *  <code>true</code> otherwise
+	 */
+	public boolean mayContainInText(IFile file, String text) {
+		return mayContain(file, text, false);
+	}
+
+	private boolean mayContain(IFile file, String text, boolean isJava) {
+		String[] tokens= getTokens(text);
+		if (tokens.length == 0)
+			return true;
+		Entry entry= getEntry(file, isJava);
+		if (entry == null)
+			return true;
+		for (int i= 0; i < tokens.length; i++) {
+			if (!contains(entry.fBits, tokens[i]))
+				return false;
+		}
+		return true;
+	}
+
+	private Entry getEntry(IFile file, boolean isJava) {
+		IPath path= file.getFullPath();
+		long modificationStamp= file.getModificationStamp();
+		long localTimeStamp= file.getLocalTimeStamp();
+		synchronized (this) {
+			if (fListener == null) {
+				fListener= new ResourceListener();
+				ResourcesPlugin.getWorkspace().addResourceChangeListener(fListener, IResourceChangeEvent.POST_CHANGE);
+			}
+			Map<IPath, Entry> entries= isJava ? fJavaEntries : fTextEntries;
+			if (modificationStamp == IFile.NULL_STAMP) {
+				entries.remove(path);
+				return null;
+			}
+			Entry entry= entries.get(path);
+			if (entry != null && entry.fModificationStamp == modificationStamp && entry.fLocalTimeStamp == localTimeStamp)
+				return entry;
+		}
+
+		// read outside of the lock, the stamps taken before make a concurrent change recompute the entry
+		char[] contents;
+		try {
+			contents= getContents(file);
+		} catch (CoreException e) {
+			remove(path, false);
+			return null;
+		} catch (IOException e) {
+			remove(path, false);
+			return null;
+		}
+		Set<String> tokens= new HashSet<>();
+		if (isJava)
+			addJavaTokens(contents, tokens);
+		else
+			addTokens(contents, 0, contents.length, tokens);
+		Entry entry= new Entry(modificationStamp, localTimeStamp, createFilter(tokens));
+		synchronized (this) {
+			(isJava ? fJavaEntries : fTextEntries).put(path, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the entries of the resource with the given path.
+	 *
+	 * @param path the full path of the resource
+	 * @param isContainer <code>true</code> to remove the entries of all files below the path
+	 */
+	private synchronized void remove(IPath path, boolean isContainer) {
+		if (!isContainer) {
+			fJavaEntries.remove(path);
+			fTextEntries.remove(path);
+			return;
+		}
+		removePrefix(fJavaEntries, path);
+		removePrefix(fTextEntries, path);
+	}
+
+	private static void removePrefix(Map<IPath, Entry> entries, IPath prefix) {
+		for (Iterator<IPath> iter= entries.keySet().iterator(); iter.hasNext();) {
+			if (prefix.isPrefixOf(iter.next()))
+				iter.remove();
+		}
+	}
+
+	private static char[] getContents(IFile file) throws CoreException, IOException {
+		InputStream stream= file.getContents(true);
+		try {
+			Reader reader= new InputStreamReader(stream, file.getCharset());
+			StringBuilder builder= new StringBuilder();
+			char[] buffer= new char[8192];
+			int read;
+			while ((read= reader.read(buffer)) != -1) {
+				builder.append(buffer, 0, read);
+			}
+			char[] result= new char[builder.length()];
+			builder.getChars(0, result.length, result, 0);
+			return result;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void addJavaTokens(char[] contents, Set<String> tokens) {
+		// same scanner configuration as the RefactoringScanner
+		IScanner scanner= ToolFactory.createScanner(true, true, false, true);
+		scanner.setSource(contents);
+		try {
+			int token= scanner.getNextToken();
+			while (token != ITerminalSymbols.TokenNameEOF) {
+				switch (token) {
+					case ITerminalSymbols.TokenNameStringLiteral :
+					case ITerminalSymbols.TokenNameCOMMENT_JAVADOC :
+					case ITerminalSymbols.TokenNameCOMMENT_LINE :
+					case ITerminalSymbols.TokenNameCOMMENT_BLOCK :
+						addTokens(contents, scanner.getCurrentTokenStartPosition(), scanner.getCurrentTokenEndPosition() + 1, tokens);
+				}
+				token= scanner.getNextToken();
+			}
+		} catch (InvalidInputException e) {
+			// index the whole file, the remaining comments cannot be told apart
+			addTokens(contents, 0, contents.length, tokens);
+		}
+	}
+
+	private static void addTokens(char[] contents, int start, int end, Set<String> tokens) {
+		int tokenStart= -1;
+		for (int i= start; i < end; i++) {
+			if (isTokenPart(contents[i])) {
+				if (tokenStart == -1)
+					tokenStart= i;
+			} else if (tokenStart != -1) {
+				tokens.add(new String(contents, tokenStart, i - tokenStart));
+				tokenStart= -1;
+			}
+		}
+		if (tokenStart != -1)
+			tokens.add(new String(contents, tokenStart, end - tokenStart));
+	}
+
+	/**
+	 * Returns the tokens of the given text. A whole word occurrence of the text
+	 * contains all of them as tokens.
+	 *
+	 * @param text the text
+	 * @return the tokens
+	 */
+	private static String[] getTokens(String text) {
+		Set<String> tokens= new HashSet<>();
+		char[] chars= text.toCharArray();
+		addTokens(chars, 0, chars.length, tokens);
+		return tokens.toArray(new String[tokens.size()]);
+	}
+
+	private static boolean isTokenPart(char ch) {
+		// same as the whole word check of the RefactoringScanner
+		return Character.isLetterOrDigit(ch) || ch == '_';
+	}
+
+	private static long[] createFilter(Set<String> tokens) {
+		int bits= 64;
+		while (bits < tokens.size() * BITS_PER_TOKEN)
+			bits<<= 1;
+		long[] filter= new long[bits / 64];
+		for (String token : tokens) {
+			int hash= token.hashCode();
+			int step= mix(hash);
+			for (int i= 0; i < 3; i++) {
+				int bit= (hash + i * step) & (bits - 1);
+				filter[bit >>> 6]|= 1L << bit;
+			}
+		}
+		return filter;
+	}
+
+	private static boolean contains(long[] filter, String token) {
+		int bits= filter.length * 64;
+		int hash= token.hashCode();
+		int step= mix(hash);
+		for (int i= 0; i < 3; i++) {
+			int bit= (hash + i * step) & (bits - 1);
+			if ((filter[bit >>> 6] & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	private static int mix(int hash) {
+		int result= hash * 0x9E3779B9;
+		return (result ^ result >>> 16) | 1;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -248,7 +248,7 @@ public class TypeSelectionDialog2 extends SelectionStatusDialog {
 		boolean result;
 		try {
 			if (getReturnCode() == OK) {
-				OpenTypeHistory.getInstance().save();
+				OpenTypeHistory.getInstance().scheduleSave();
 			}
 		} finally {
 			result= super.close();
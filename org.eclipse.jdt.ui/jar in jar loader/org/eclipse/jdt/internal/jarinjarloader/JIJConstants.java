@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,4 +32,6 @@ final class JIJConstants {
 	static final String PATH_SEPARATOR                       = "/";  //$NON-NLS-1$
 	static final String CURRENT_DIR                          = "./";  //$NON-NLS-1$
 	static final String UTF8_ENCODING                        = "UTF-8";  //$NON-NLS-1$
+	static final String FILE_URL_PROTOCOL                    = "file";  //$NON-NLS-1$
+	static final String CLASS_PATH_PROPERTY                  = "java.class.path";  //$NON-NLS-1$
 }
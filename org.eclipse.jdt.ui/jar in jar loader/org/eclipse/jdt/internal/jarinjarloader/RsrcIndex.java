@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.security.CodeSource;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * Index of the entries of the runnable JAR that contains the loader. "rsrc" URLs are served
+ * from this JAR directly instead of searching the class path. Nested JARs are stored in the
+ * runnable JAR, so their content is read without inflating it. If the runnable JAR is the only
+ * entry of the class path, names that are not in the index are rejected right away.
+ *
+ * @since 3.13
+ */
+final class RsrcIndex {
+
+	private final JarFile jarFile;
+	private final boolean complete;
+
+	private RsrcIndex(JarFile jarFile, boolean complete) {
+		this.jarFile = jarFile;
+		this.complete = complete;
+	}
+
+	/**
+	 * Creates the index of the JAR that contains the loader.
+	 *
+	 * @return the index, or <code>null</code> if the loader is not loaded from a local JAR
+	 */
+	static RsrcIndex create() {
+		try {
+			CodeSource codeSource = RsrcIndex.class.getProtectionDomain().getCodeSource();
+			if (codeSource == null)
+				return null;
+			URL location = codeSource.getLocation();
+			if (location == null || !JIJConstants.FILE_URL_PROTOCOL.equals(location.getProtocol()))
+				return null;
+			File file = new File(URLDecoder.decode(location.getFile(), JIJConstants.UTF8_ENCODING));
+			if (!file.isFile())
+				return null;
+			JarFile jarFile = new JarFile(file, false);
+			return new RsrcIndex(jarFile, isOnlyClassPathEntry(file, jarFile));
+		} catch (IOException e) {
+			return null;
+		} catch (SecurityException e) {
+			return null;
+		}
+	}
+
+	private static boolean isOnlyClassPathEntry(File file, JarFile jarFile) throws IOException {
+		String classPath = System.getProperty(JIJConstants.CLASS_PATH_PROPERTY);
+		if (classPath == null || !file.getCanonicalFile().equals(new File(classPath).getCanonicalFile()))
+			return false;
+		Manifest manifest = jarFile.getManifest();
+		return manifest == null || manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) == null;
+	}
+
+	/**
+	 * @param name the name of the entry
+	 * @return the entry, or <code>null</code> if the JAR does not contain it
+	 */
+	ZipEntry getEntry(String name) {
+		return jarFile.getEntry(name);
+	}
+
+	InputStream getInputStream(ZipEntry entry) throws IOException {
+		return jarFile.getInputStream(entry);
+	}
+
+	/**
+	 * @return <code>true</code> if the class loader finds no resources outside of the indexed JAR
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.util.zip.ZipEntry;
 
 
 /**
@@ -30,10 +31,22 @@ import java.net.URLDecoder;
 public class RsrcURLConnection extends URLConnection {
 
 	private ClassLoader classLoader;
+	private RsrcIndex index;
 
 	public RsrcURLConnection(URL url, ClassLoader classLoader) {
+		this(url, classLoader, null);
+	}
+
+	/**
+	 * @param url the URL
+	 * @param classLoader the class loader to get the resource from
+	 * @param index the index of the runnable JAR, or <code>null</code>
+	 * @since 3.13
+	 */
+	RsrcURLConnection(URL url, ClassLoader classLoader, RsrcIndex index) {
 		super(url);
 		this.classLoader= classLoader;
+		this.index= index;
 	}
 
 	public void connect() throws IOException {
@@ -41,12 +54,34 @@ public class RsrcURLConnection extends URLConnection {
 
 	public InputStream getInputStream() throws IOException {
 		String file= URLDecoder.decode(url.getFile(), JIJConstants.UTF8_ENCODING);
-		InputStream result= classLoader.getResourceAsStream(file);
+		InputStream result= null;
+		if (index != null) {
+			ZipEntry entry= index.getEntry(file);
+			if (entry != null)
+				result= index.getInputStream(entry);
+			else if (index.isComplete())
+				throw new MalformedURLException("Could not open InputStream for URL '" + url + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (result == null)
+			result= classLoader.getResourceAsStream(file);
 		if (result == null) {
 			throw new MalformedURLException("Could not open InputStream for URL '" + url + "'"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		return result;
 	}
 
+	public int getContentLength() {
+		if (index == null)
+			return -1;
+		try {
+			ZipEntry entry= index.getEntry(URLDecoder.decode(url.getFile(), JIJConstants.UTF8_ENCODING));
+			if (entry == null || entry.getSize() > Integer.MAX_VALUE)
+				return -1;
+			return (int) entry.getSize();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,13 +29,24 @@ import java.net.URL;
 public class RsrcURLStreamHandler extends java.net.URLStreamHandler {
 
 	private ClassLoader classLoader;
+	private RsrcIndex index;
 	
 	public RsrcURLStreamHandler(ClassLoader classLoader) {
-    	this.classLoader = classLoader;
+		this(classLoader, null);
+	}
+
+	/**
+	 * @param classLoader the class loader to get the resources from
+	 * @param index the index of the runnable JAR, or <code>null</code>
+	 * @since 3.13
+	 */
+	RsrcURLStreamHandler(ClassLoader classLoader, RsrcIndex index) {
+		this.classLoader = classLoader;
+		this.index = index;
 	}
 
 	protected java.net.URLConnection openConnection(URL u) throws IOException {
-    	return new RsrcURLConnection(u, classLoader);
+    	return new RsrcURLConnection(u, classLoader, index);
     }
 
     protected void parseURL(URL url, String spec, int start, int limit) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,15 +25,17 @@ import java.net.URLStreamHandlerFactory;
 public class RsrcURLStreamHandlerFactory implements URLStreamHandlerFactory {
 
 	private ClassLoader classLoader;
+	private RsrcIndex index;
 	private URLStreamHandlerFactory chainFac;
 	
 	public RsrcURLStreamHandlerFactory(ClassLoader cl) {
 		this.classLoader = cl;
+		this.index = RsrcIndex.create();
 	}
 
 	public URLStreamHandler createURLStreamHandler(String protocol) {
 		if (JIJConstants.INTERNAL_URL_PROTOCOL.equals(protocol)) 
-			return new RsrcURLStreamHandler(classLoader);
+			return new RsrcURLStreamHandler(classLoader, index);
 		if (chainFac != null)
 			return chainFac.createURLStreamHandler(protocol);
 		return null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,11 @@ import java.lang.reflect.InvocationTargetException;
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.operation.IRunnableContext;
 import org.eclipse.jface.operation.IRunnableWithProgress;
@@ -62,6 +67,10 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
 
     private DeferredTreeContentManager fManager;
     private CallHierarchyViewPart fPart;
+    /**
+     * The number of running deferred searches.
+     */
+    private int fFetchCount= 0;
 
     private class MethodWrapperRunnable implements IRunnableWithProgress {
         private MethodWrapper fMethodWrapper;
@@ -84,6 +93,53 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
         }
     }
 
+    /**
+     * Searches the callers of nodes that have just been shown, so that they can be shown without
+     * delay when the nodes are expanded. The job stops when its budget is exhausted.
+     *
+     * @since 3.13
+     */
+    private class PrefetchJob extends Job {
+        private final MethodWrapper[] fWrappers;
+        private final long fBudget;
+
+        PrefetchJob(MethodWrapper[] wrappers, long budget) {
+            super(CallHierarchyMessages.CallHierarchyContentProvider_prefetchJob_name);
+            fWrappers= wrappers;
+            fBudget= budget;
+            setSystem(true);
+            setPriority(Job.DECORATE);
+        }
+
+        @Override
+		protected IStatus run(final IProgressMonitor monitor) {
+            final long deadline= System.currentTimeMillis() + fBudget;
+            IProgressMonitor budgetMonitor= new NullProgressMonitor() {
+            	@Override
+				public boolean isCanceled() {
+            		return monitor.isCanceled() || System.currentTimeMillis() > deadline;
+            	}
+            };
+            try {
+                for (int i= 0; i < fWrappers.length && !budgetMonitor.isCanceled(); i++) {
+                    MethodWrapper wrapper= fWrappers[i];
+                    if (wrapper.canHaveChildren() && !shouldStopTraversion(wrapper)) {
+                        // the results end up in the method cache shared by the tree
+                        wrapper.getCalls(budgetMonitor);
+                    }
+                }
+            } catch (OperationCanceledException e) {
+                // budget exhausted or search canceled
+            }
+            return Status.OK_STATUS;
+        }
+
+        @Override
+		public boolean belongsTo(Object family) {
+            return family == CallHierarchyContentProvider.this;
+        }
+    }
+
     public CallHierarchyContentProvider(CallHierarchyViewPart part) {
         super();
         fPart= part;
@@ -397,7 +453,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      */
     @Override
 	public void dispose() {
-        // Nothing to dispose
+        Job.getJobManager().cancel(this);
     }
 
     /**
@@ -451,6 +507,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      * @param wrappers the parents to cancel jobs for
      */
     void cancelJobs(MethodWrapper[] wrappers) {
+        Job.getJobManager().cancel(this);
         if (fManager != null && wrappers != null) {
         	for (int i= 0; i < wrappers.length; i++) {
 				MethodWrapper wrapper= wrappers[i];
@@ -465,8 +522,10 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
     /**
      *
      */
-    public void doneFetching() {
-        if (fPart != null) {
+    public synchronized void doneFetching() {
+        fFetchCount--;
+        if (fFetchCount <= 0 && fPart != null) {
+            fFetchCount= 0;
             fPart.setCancelEnabled(false);
         }
     }
@@ -474,9 +533,25 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
     /**
      *
      */
-    public void startFetching() {
+    public synchronized void startFetching() {
+        fFetchCount++;
         if (fPart != null) {
             fPart.setCancelEnabled(true);
         }
     }
+
+    /**
+     * Searches the callers of the given nodes in the background, within the
+     * {@link CallHierarchyUI#getPrefetchBudget() prefetch budget}.
+     *
+     * @param wrappers the nodes that have just been shown
+     * @since 3.13
+     */
+    void prefetch(MethodWrapper[] wrappers) {
+        int budget= CallHierarchyUI.getDefault().getPrefetchBudget();
+        if (budget == 0 || wrappers.length == 0 || !(wrappers[0] instanceof CallerMethodWrapper)) {
+            return;
+        }
+        new PrefetchJob(wrappers, budget).schedule();
+    }
 }
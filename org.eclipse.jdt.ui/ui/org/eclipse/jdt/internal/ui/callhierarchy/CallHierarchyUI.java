@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -60,6 +60,9 @@ import org.eclipse.jdt.internal.ui.util.ExceptionHandler;
 public class CallHierarchyUI {
     private static final int DEFAULT_MAX_CALL_DEPTH= 10;
     private static final String PREF_MAX_CALL_DEPTH = "PREF_MAX_CALL_DEPTH"; //$NON-NLS-1$
+    private static final int DEFAULT_PREFETCH_BUDGET= 2000;
+    private static final int MAX_PREFETCH_BUDGET= 60000;
+    private static final String PREF_PREFETCH_BUDGET = "PREF_CALL_HIERARCHY_PREFETCH_BUDGET"; //$NON-NLS-1$
 
     private static CallHierarchyUI fgInstance;
     private int fViewCount= 0;
@@ -104,6 +107,33 @@ public class CallHierarchyUI {
         settings.setValue(PREF_MAX_CALL_DEPTH, maxCallDepth);
     }
 
+	/**
+	 * Returns the time in ms that may be spent in the background to search the children of
+	 * the nodes that have just been shown, before they are expanded.
+	 *
+	 * @return the prefetch budget in ms, or 0 if prefetching is disabled
+	 * @since 3.13
+	 */
+    public int getPrefetchBudget() {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        if (!settings.contains(PREF_PREFETCH_BUDGET)) {
+            return DEFAULT_PREFETCH_BUDGET;
+        }
+        return Math.max(0, Math.min(MAX_PREFETCH_BUDGET, settings.getInt(PREF_PREFETCH_BUDGET)));
+    }
+
+	/**
+	 * Sets the prefetch budget.
+	 *
+	 * @param budget the prefetch budget in ms, or 0 to disable prefetching
+	 * @see #getPrefetchBudget()
+	 * @since 3.13
+	 */
+    public void setPrefetchBudget(int budget) {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        settings.setValue(PREF_PREFETCH_BUDGET, budget);
+    }
+
     public static void jumpToMember(IJavaElement element) {
         if (element != null) {
             try {
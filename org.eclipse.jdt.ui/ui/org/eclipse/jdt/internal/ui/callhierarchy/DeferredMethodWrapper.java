@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,17 @@ import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter implements IDeferredWorkbenchAdapter {
+    /**
+     * The maximal number of children searches that run concurrently, e.g. when
+     * several siblings are expanded at once.
+     */
+    private static final int MAX_CONCURRENT_SEARCHES= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The scheduling rule slot of the next search.
+     */
+    private static int fgNextSlot= 0;
+
     private final CallHierarchyContentProvider fProvider;
 
     /**
@@ -63,8 +74,13 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
         this.fProvider = provider;
     }
 
-    private Object getCalls(IProgressMonitor monitor) {
-        return getMethodWrapper().getCalls(monitor);
+    private MethodWrapper[] getCalls(final IElementCollector collector, final IProgressMonitor monitor) {
+        return getMethodWrapper().getCalls(monitor, new MethodWrapper.ICallCollector() {
+        	@Override
+			public void add(MethodWrapper[] calls) {
+        		collector.add(calls, monitor);
+        	}
+        });
     }
 
     @Override
@@ -72,8 +88,9 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
     	final DeferredMethodWrapper deferredMethodWrapper= (DeferredMethodWrapper)object;
     	try {
             fProvider.startFetching();
-            collector.add((Object[]) deferredMethodWrapper.getCalls(monitor), monitor);
+            MethodWrapper[] calls= deferredMethodWrapper.getCalls(collector, monitor);
             collector.done();
+            fProvider.prefetch(calls);
         } catch (OperationCanceledException e) {
         	final MethodWrapper methodWrapper= deferredMethodWrapper.getMethodWrapper();
 			if (!CallHierarchyContentProvider.isExpandWithConstructors(methodWrapper)) {
@@ -98,9 +115,18 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
         return true;
     }
 
+    /*
+     * Searches are distributed over MAX_CONCURRENT_SEARCHES rules, so that at most
+     * that many searches run at the same time.
+     */
     @Override
 	public ISchedulingRule getRule(Object o) {
-        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper"); //$NON-NLS-1$
+    	int slot;
+    	synchronized (DeferredMethodWrapper.class) {
+    		slot= fgNextSlot;
+    		fgNextSlot= (fgNextSlot + 1) % MAX_CONCURRENT_SEARCHES;
+    	}
+        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper" + slot); //$NON-NLS-1$
     }
 
     @Override
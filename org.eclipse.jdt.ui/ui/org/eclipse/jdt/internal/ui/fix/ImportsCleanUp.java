@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,8 +56,17 @@ public class ImportsCleanUp extends AbstractCleanUp {
     	if (compilationUnit == null)
     		return null;
 
-		return ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
-				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus);
+		// fixes may be calculated on several threads, RefactoringStatus is not thread safe
+		RefactoringStatus status= new RefactoringStatus();
+		ICleanUpFix fix= ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
+				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), status);
+		RefactoringStatus result= fStatus;
+		if (result != null && !status.isOK()) {
+			synchronized (result) {
+				result.merge(status);
+			}
+		}
+		return fix;
 	}
 
     @Override
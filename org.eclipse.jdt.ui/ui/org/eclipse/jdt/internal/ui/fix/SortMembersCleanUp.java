@@ -62,10 +62,13 @@ public class SortMembersCleanUp extends AbstractCleanUp {
 		boolean sortMembers= isEnabled(CleanUpConstants.SORT_MEMBERS);
 		ICleanUpFix fix= SortMembersFix.createCleanUp(compilationUnit, sortMembers, sortMembers && isEnabled(CleanUpConstants.SORT_MEMBERS_ALL));
 		if (fix != null) {
-			if (fTouchedFiles == null) {
-				fTouchedFiles= new HashSet<>();
+			// fixes may be calculated on several threads
+			synchronized (this) {
+				if (fTouchedFiles == null) {
+					fTouchedFiles= new HashSet<>();
+				}
+				fTouchedFiles.add(((ICompilationUnit)compilationUnit.getJavaElement()).getResource());
 			}
-			fTouchedFiles.add(((ICompilationUnit)compilationUnit.getJavaElement()).getResource());
 		}
 		return fix;
 	}
@@ -66,6 +66,11 @@ public final class JarPackagerUtil {
 	static final String JAR_EXTENSION= "jar"; //$NON-NLS-1$
 	static final String DESCRIPTION_EXTENSION= "jardesc"; //$NON-NLS-1$
 
+	/**
+	 * The size of the buffers used to copy the contents of JAR entries.
+	 */
+	public static final int BUFFER_SIZE= 64 * 1024;
+
 	private static final String META_INF_ENTRY= "META-INF"; //$NON-NLS-1$
 	private static final String REFACTORINGS_ENTRY= META_INF_ENTRY + "/REFACTORINGS.XML"; //$NON-NLS-1$
 
@@ -25,6 +25,8 @@ import org.eclipse.jface.dialogs.MessageDialog;
 
 import org.eclipse.jdt.internal.corext.util.Messages;
 
+import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
+
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 /**
@@ -64,7 +66,7 @@ public final class FatJarPackagerUtil {
 
 	public static byte[] readInputStream(InputStream is) throws IOException {
 		ByteArrayOutputStream result= new ByteArrayOutputStream();
-		byte[] buf= new byte[1024];
+		byte[] buf= new byte[JarPackagerUtil.BUFFER_SIZE];
 		int cnt= is.read(buf);
 		while (cnt > 0) {
 			result.write(buf, 0, cnt);
@@ -56,7 +56,7 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
 
-		if (fJarPackage.isCompressed())
+		if (fJarPackage.isCompressed() && !isIncompressible(zipEntry))
 			newEntry.setMethod(ZipEntry.DEFLATED);
 			// Entry is filled automatically.
 		else {
@@ -77,7 +77,7 @@ public class JarWriter4 extends JarWriter3 {
 		if (fJarPackage.areDirectoryEntriesIncluded())
 			addDirectories(path);
 		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
-		if (fJarPackage.isCompressed())
+		if (fJarPackage.isCompressed() && !isIncompressible(zipEntry))
 			newEntry.setMethod(ZipEntry.DEFLATED);
 		// Entry is filled automatically.
 		else {
@@ -91,6 +91,20 @@ public class JarWriter4 extends JarWriter3 {
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Tells whether the given entry is stored without compression or does not shrink when
+	 * compressed, e.g. a nested archive or an image. Such entries are written stored, since
+	 * deflating them again costs time without saving space.
+	 *
+	 * @param zipEntry the entry to test
+	 * @return <code>true</code> if the entry should be stored
+	 */
+	private static boolean isIncompressible(ZipEntry zipEntry) {
+		if (zipEntry.getSize() == -1 || zipEntry.getCrc() == -1)
+			return false;
+		return zipEntry.getMethod() == ZipEntry.STORED || zipEntry.getCompressedSize() >= zipEntry.getSize();
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -118,7 +132,7 @@ public class JarWriter4 extends JarWriter3 {
 			// Entry is filled automatically.
 		else {
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
+			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[JarPackagerUtil.BUFFER_SIZE]);
 		}
 
 		newEntry.setTime(file.lastModified());
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -170,7 +170,7 @@ public class UnpackJarBuilder extends FatJarBuilder {
 		try {
 			in= new FileInputStream(src);
 			out= new FileOutputStream(dest);
-			byte[] buf= new byte[4096];
+			byte[] buf= new byte[JarPackagerUtil.BUFFER_SIZE];
 			int cnt= in.read(buf);
 			while (cnt > 0) {
 				out.write(buf, 0, cnt);
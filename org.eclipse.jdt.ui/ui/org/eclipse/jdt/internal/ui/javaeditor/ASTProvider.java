@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.javaeditor;
 
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -19,6 +22,15 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
 import org.eclipse.ui.IPartListener2;
 import org.eclipse.ui.IWindowListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -47,6 +59,12 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * In addition, the provider keeps the ASTs of a few recently used, inactive elements together
+ * with the modification stamp of their source. These ASTs are handed out without waiting as
+ * long as the source has not been modified, e.g. when switching back to a previously active
+ * editor. They are only softly referenced and get dropped under memory pressure.
+ * </p>
  *
  * @since 3.0
  */
@@ -208,11 +226,53 @@ public final class ASTProvider implements IASTSharedValues {
 		}
 	}
 
+	/**
+	 * An AST of an inactive element together with the modification stamp of the source it was created from.
+	 *
+	 * @since 3.13
+	 */
+	private static final class InactiveAST extends SoftReference<CompilationUnit> {
+
+		final long fModificationStamp;
+
+		InactiveAST(CompilationUnit ast, long modificationStamp) {
+			super(ast);
+			fModificationStamp= modificationStamp;
+		}
+	}
+
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
+	/**
+	 * The maximum number of cached ASTs of inactive elements.
+	 * @since 3.13
+	 */
+	private static final int MAX_INACTIVE_ASTS= 5;
+
 	private volatile ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
+	/**
+	 * The modification stamp of the source from which {@link #fAST} has been created.
+	 * @since 3.13
+	 */
+	private long fASTModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * The modification stamp of the active element when its reconcile started.
+	 * @since 3.13
+	 */
+	private long fReconcileModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * Recently used ASTs of inactive elements, guarded by <code>this</code>.
+	 * @since 3.13
+	 */
+	private final Map<ITypeRoot, InactiveAST> fInactiveASTs= new LinkedHashMap<ITypeRoot, InactiveAST>(MAX_INACTIVE_ASTS, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ITypeRoot, InactiveAST> eldest) {
+			return size() > MAX_INACTIVE_ASTS;
+		}
+	};
 	private ActivationListener fActivationListener;
 	private Object fReconcileLock= new Object();
 	private Object fWaitLock= new Object();
@@ -258,9 +318,20 @@ public final class ASTProvider implements IASTSharedValues {
 			javaElement= ((JavaEditor)editor).getInputJavaElement();
 
 		synchronized (this) {
+			if (fAST != null && fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement))
+				cacheInactive(fActiveJavaElement, fAST, fASTModificationStamp);
 			fActiveEditor= editor;
 			fActiveJavaElement= javaElement;
 			cache(null, javaElement);
+			if (javaElement != null) {
+				CompilationUnit ast= getInactiveAST(javaElement);
+				if (ast != null) {
+					if (JavaPlugin.DEBUG_AST_PROVIDER)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reusing AST of previously active: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
+					fInactiveASTs.remove(javaElement);
+					cache(ast, javaElement, getModificationStamp(javaElement));
+				}
+			}
 		}
 
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
@@ -314,8 +385,10 @@ public final class ASTProvider implements IASTSharedValues {
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "about to reconcile: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
 
+		long modificationStamp= getModificationStamp(javaElement);
 		synchronized (fReconcileLock) {
 			fReconcilingJavaElement= javaElement;
+			fReconcileModificationStamp= modificationStamp;
 			fIsReconciling= true;
 		}
 		cache(null, javaElement);
@@ -333,6 +406,7 @@ public final class ASTProvider implements IASTSharedValues {
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "disposing AST: " + toString(fAST) + " for: " + toString(fActiveJavaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
 		fAST= null;
+		fASTModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 
 		cache(null, null);
 	}
@@ -374,7 +448,19 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @param ast the ast
 	 * @param javaElement the java element
 	 */
-	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement) {
+	private void cache(CompilationUnit ast, ITypeRoot javaElement) {
+		cache(ast, javaElement, IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP);
+	}
+
+	/**
+	 * Caches the given compilation unit AST for the given Java element.
+	 *
+	 * @param ast the ast
+	 * @param javaElement the java element
+	 * @param modificationStamp the modification stamp of the source the AST has been created from
+	 * @since 3.13
+	 */
+	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement, long modificationStamp) {
 
 		if (fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)) {
 			if (JavaPlugin.DEBUG_AST_PROVIDER && javaElement != null) // don't report call from disposeAST()
@@ -389,6 +475,7 @@ public final class ASTProvider implements IASTSharedValues {
 			disposeAST();
 
 		fAST= ast;
+		fASTModificationStamp= ast != null ? modificationStamp : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 
 		// Signal AST change
 		synchronized (fWaitLock) {
@@ -432,6 +519,13 @@ public final class ASTProvider implements IASTSharedValues {
 					return null;
 
 				}
+			} else {
+				CompilationUnit ast= getInactiveAST(input);
+				if (ast != null) {
+					if (JavaPlugin.DEBUG_AST_PROVIDER)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST of inactive: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+					return ast;
+				}
 			}
 		}
 
@@ -477,6 +571,7 @@ public final class ASTProvider implements IASTSharedValues {
 
 
 		CompilationUnit ast= null;
+		long modificationStamp= isActiveElement ? IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP : getModificationStamp(input);
 		try {
 			ast= createAST(input, progressMonitor);
 			if (progressMonitor != null && progressMonitor.isCanceled()) {
@@ -494,11 +589,88 @@ public final class ASTProvider implements IASTSharedValues {
 					return fAST;
 				} else
 					reconciled(ast, input, null);
+			} else if (ast != null) {
+				synchronized (this) {
+					cacheInactive(input, ast, modificationStamp);
+				}
 			}
 		}
 		return ast;
 	}
 
+	/**
+	 * Remembers the AST of an inactive element.
+	 *
+	 * @param javaElement the Java element
+	 * @param ast the AST
+	 * @param modificationStamp the modification stamp of the source the AST has been created from
+	 * @since 3.13
+	 */
+	private void cacheInactive(ITypeRoot javaElement, CompilationUnit ast, long modificationStamp) {
+		if (modificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return;
+
+		if (JavaPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "caching AST of inactive: " + toString(ast) + " for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		fInactiveASTs.put(javaElement, new InactiveAST(ast, modificationStamp));
+	}
+
+	/**
+	 * Returns the cached AST of an inactive element if its source has not been modified since the
+	 * AST was created.
+	 *
+	 * @param javaElement the Java element
+	 * @return the AST or <code>null</code> if none is available
+	 * @since 3.13
+	 */
+	private CompilationUnit getInactiveAST(ITypeRoot javaElement) {
+		InactiveAST entry= fInactiveASTs.get(javaElement);
+		if (entry == null)
+			return null;
+
+		CompilationUnit ast= entry.get();
+		if (ast == null || entry.fModificationStamp != getModificationStamp(javaElement)) {
+			fInactiveASTs.remove(javaElement);
+			return null;
+		}
+		return ast;
+	}
+
+	/**
+	 * Returns the modification stamp of the source of the given Java element.
+	 * <p>
+	 * For a primary compilation unit this is the stamp of the document of its connected file buffer,
+	 * or the stamp of the file if no buffer is connected. Class files do not change.
+	 * </p>
+	 *
+	 * @param javaElement the Java element
+	 * @return the modification stamp or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}
+	 *         if changes of the source cannot be tracked
+	 * @since 3.13
+	 */
+	private static long getModificationStamp(ITypeRoot javaElement) {
+		if (!(javaElement instanceof ICompilationUnit))
+			return 0;
+
+		ICompilationUnit cu= (ICompilationUnit)javaElement;
+		if (cu.getOwner() != null)
+			return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
+		IResource resource= cu.getResource();
+		if (resource == null)
+			return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
+		ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(resource.getFullPath(), LocationKind.IFILE);
+		if (buffer != null) {
+			IDocument document= buffer.getDocument();
+			if (document instanceof IDocumentExtension4)
+				return ((IDocumentExtension4)document).getModificationStamp();
+			return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		}
+		return resource.getModificationStamp();
+	}
+
 	/**
 	 * Tells whether the given Java element is the one
 	 * reported as currently being reconciled.
@@ -590,6 +762,9 @@ public final class ASTProvider implements IASTSharedValues {
 		fActivationListener= null;
 
 		disposeAST();
+		synchronized (this) {
+			fInactiveASTs.clear();
+		}
 
 		synchronized (fWaitLock) {
 			fWaitLock.notifyAll();
@@ -624,7 +799,7 @@ public final class ASTProvider implements IASTSharedValues {
 
 				return;
 			}
-			cache(ast, javaElement);
+			cache(ast, javaElement, fReconcileModificationStamp);
 		}
 	}
 
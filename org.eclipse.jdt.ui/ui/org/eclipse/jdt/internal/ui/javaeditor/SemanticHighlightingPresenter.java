@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -272,6 +272,25 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * Adds all current positions that start in the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param offset The range offset
+	 * @param length The range length
+	 * @since 3.13
+	 */
+	public void addAllPositions(List<Position> list, int offset, int length) {
+		synchronized (fPositionLock) {
+			int start= computeIndexAtOffset(fPositions, offset);
+			int end= computeIndexAtOffset(fPositions, offset + length);
+			list.addAll(fPositions.subList(start, end));
+		}
+	}
+
 	/**
 	 * Create a text presentation in the background.
 	 * <p>
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,22 +22,31 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.ISourceViewer;
 
 import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -108,7 +117,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fToken.update(node);
 			for (int i= 0, n= fJobSemanticHighlightings.length; i < n; i++) {
 				SemanticHighlighting semanticHighlighting= fJobSemanticHighlightings[i];
-				if (fJobHighlightings[i].isEnabled() && semanticHighlighting.consumesLiteral(fToken)) {
+				if (fJobHighlightings[i].isEnabled() && consumes(i, semanticHighlighting, true)) {
 					int offset= node.getStartPosition();
 					int length= node.getLength();
 					if (offset > -1 && length > 0)
@@ -166,7 +175,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fToken.update(node);
 			for (int i= 0, n= fJobSemanticHighlightings.length; i < n; i++) {
 				SemanticHighlighting semanticHighlighting= fJobSemanticHighlightings[i];
-				if (fJobHighlightings[i].isEnabled() && semanticHighlighting.consumes(fToken)) {
+				if (fJobHighlightings[i].isEnabled() && consumes(i, semanticHighlighting, false)) {
 					int offset= node.getStartPosition();
 					int length= node.getLength();
 					if (offset > -1 && length > 0)
@@ -178,6 +187,27 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			return false;
 		}
 
+		/**
+		 * Asks the given semantic highlighting whether it consumes the current token and
+		 * records the time spent if timing is enabled.
+		 *
+		 * @param index the index of the semantic highlighting
+		 * @param semanticHighlighting the semantic highlighting
+		 * @param literal <code>true</code> iff the token is a literal
+		 * @return <code>true</code> iff the semantic highlighting consumes the token
+		 * @since 3.13
+		 */
+		private boolean consumes(int index, SemanticHighlighting semanticHighlighting, boolean literal) {
+			if (fJobConsumeTimes == null)
+				return literal ? semanticHighlighting.consumesLiteral(fToken) : semanticHighlighting.consumes(fToken);
+
+			long start= System.nanoTime();
+			boolean consumes= literal ? semanticHighlighting.consumesLiteral(fToken) : semanticHighlighting.consumes(fToken);
+			fJobConsumeTimes[index]+= System.nanoTime() - start;
+			fJobConsumeCounts[index]++;
+			return consumes;
+		}
+
 		/**
 		 * Add a position with the given range and highlighting iff it does not exist already.
 		 * @param offset The range offset
@@ -186,8 +216,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeRemovedIndexAtOffset(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] == offset; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -211,8 +240,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			int end= offset + length;
+			for (int i= computeRemovedIndexAtOffset(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] <= end; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position != null && position.isContained(offset, length)) {
 					fRemovedPositions.set(i, null);
@@ -220,8 +249,176 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				}
 			}
 		}
+
+		/**
+		 * Returns the index of the first removed position with an offset equal or greater than the given offset.
+		 *
+		 * @param offset the offset
+		 * @return the index of the first removed position with an offset equal or greater than the given offset
+		 * @since 3.13
+		 */
+		private int computeRemovedIndexAtOffset(int offset) {
+			int i= -1;
+			int j= fRemovedPositions.size();
+			while (j - i > 1) {
+				int k= (i + j) >> 1;
+				if (fRemovedOffsets[k] >= offset)
+					j= k;
+				else
+					i= k;
+			}
+			return j;
+		}
+	}
+
+	/**
+	 * The state of a {@link DirtyRegionTracker} taken before the AST of a reconcile is created.
+	 *
+	 * @since 3.13
+	 */
+	private static final class DirtyState {
+
+		/** The modification count when the state was taken */
+		final int fModificationCount;
+		/** The changed range, <code>null</code> if the whole document must be reconciled */
+		final IRegion fDirtyRegion;
+		/** The document length when the state was taken, <code>-1</code> if there is no document */
+		final int fDocumentLength;
+
+		DirtyState(int modificationCount, IRegion dirtyRegion, int documentLength) {
+			fModificationCount= modificationCount;
+			fDirtyRegion= dirtyRegion;
+			fDocumentLength= documentLength;
+		}
+	}
+
+	/**
+	 * Tracks the document range that changed since the last completed reconcile.
+	 *
+	 * @since 3.13
+	 */
+	private static class DirtyRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/** The tracked document */
+		private IDocument fDocument;
+		/** Start offset of the changed range, <code>-1</code> if the document did not change */
+		private int fStart= -1;
+		/** End offset of the changed range, <code>-1</code> if the document did not change */
+		private int fEnd= -1;
+		/** <code>true</code> iff the changed range is unknown and the whole document must be reconciled */
+		private boolean fAllDirty= true;
+		/** Number of document changes, used to detect changes during a reconcile */
+		private int fModificationCount;
+
+		public void install(ISourceViewer sourceViewer) {
+			sourceViewer.addTextInputListener(this);
+			manageDocument(sourceViewer.getDocument());
+		}
+
+		public void uninstall(ISourceViewer sourceViewer) {
+			sourceViewer.removeTextInputListener(this);
+			manageDocument(null);
+		}
+
+		private synchronized void manageDocument(IDocument document) {
+			if (fDocument != null)
+				fDocument.removeDocumentListener(this);
+			fDocument= document;
+			if (fDocument != null)
+				fDocument.addDocumentListener(this);
+			markAllDirty();
+		}
+
+		/**
+		 * Forces the next reconcile to process the whole document.
+		 */
+		public synchronized void markAllDirty() {
+			fModificationCount++;
+			fAllDirty= true;
+		}
+
+		/**
+		 * Returns the modification count and the range that changed since the last completed
+		 * reconcile. Must be called before the AST of the reconcile is created, since changes made
+		 * after the AST was created are not contained in it.
+		 *
+		 * @return the current state
+		 */
+		public synchronized DirtyState getState() {
+			IRegion dirtyRegion= null;
+			if (!fAllDirty && fStart != -1 && fDocument != null)
+				dirtyRegion= new Region(fStart, fEnd - fStart);
+			return new DirtyState(fModificationCount, dirtyRegion, fDocument == null ? -1 : fDocument.getLength());
+		}
+
+		/**
+		 * Resets the changed range iff the document did not change since the given modification count.
+		 *
+		 * @param modificationCount the modification count before the AST of the reconcile was created
+		 */
+		public synchronized void reconciled(int modificationCount) {
+			if (modificationCount == fModificationCount) {
+				fAllDirty= false;
+				fStart= -1;
+				fEnd= -1;
+			}
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public synchronized void documentChanged(DocumentEvent event) {
+			fModificationCount++;
+			if (fAllDirty)
+				return;
+
+			int offset= event.getOffset();
+			int replacedEnd= offset + event.getLength();
+			int insertedEnd= offset + (event.getText() == null ? 0 : event.getText().length());
+			if (fStart == -1) {
+				fStart= offset;
+				fEnd= insertedEnd;
+				return;
+			}
+
+			if (fEnd >= replacedEnd)
+				fEnd+= insertedEnd - replacedEnd;
+			else if (fEnd > offset)
+				fEnd= insertedEnd;
+			fStart= Math.min(fStart, offset);
+			fEnd= Math.max(fEnd, insertedEnd);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentAboutToBeChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			manageDocument(newInput);
+		}
 	}
 
+	/**
+	 * Debug prefix for timing output.
+	 * @since 3.13
+	 */
+	private static final String DEBUG_PREFIX= "SemanticHighlightingReconciler >> "; //$NON-NLS-1$
+
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
 
@@ -242,6 +439,22 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Offsets of the removed positions when reconciling started, for binary searching <code>fRemovedPositions</code>.
+	 * @since 3.13
+	 */
+	private int[] fRemovedOffsets= new int[0];
+
+	/**
+	 * Tracks the document range changed since the last reconcile.
+	 * @since 3.13
+	 */
+	private final DirtyRegionTracker fDirtyRegionTracker= new DirtyRegionTracker();
+	/**
+	 * State of {@link #fDirtyRegionTracker} taken in {@link #aboutToBeReconciled()}, <code>null</code> if none.
+	 * @since 3.13
+	 */
+	private volatile DirtyState fReconcileState;
 
 	/** Background job */
 	private Job fJob;
@@ -272,12 +485,25 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	private Highlighting fJobDeprecatedMemberHighlighting;
 
+	/**
+	 * Nanoseconds spent in each semantic highlighting - only valid during {@link #reconciled(CompilationUnit, boolean, IProgressMonitor)}
+	 * and only if {@link JavaPlugin#DEBUG_SEMANTIC_HIGHLIGHTING} is enabled, <code>null</code> otherwise
+	 * @since 3.13
+	 */
+	private long[] fJobConsumeTimes;
+	/**
+	 * Number of tokens offered to each semantic highlighting - see {@link #fJobConsumeTimes}
+	 * @since 3.13
+	 */
+	private int[] fJobConsumeCounts;
+
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#aboutToBeReconciled()
 	 */
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		// the AST is created after this call and does not contain later changes
+		fReconcileState= fDirtyRegionTracker.getState();
 	}
 
 	/*
@@ -285,6 +511,23 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
+		DirtyState state= fReconcileState;
+		fReconcileState= null;
+		reconciled(ast, forced, state, progressMonitor);
+	}
+
+	/**
+	 * Reconciles the semantic highlighting positions with the given AST.
+	 *
+	 * @param ast the AST
+	 * @param forced <code>true</code> iff this reconciliation was forced
+	 * @param state the state of the dirty region tracker taken before the AST was created, or
+	 *            <code>null</code> if unknown, in which case the whole AST is reconciled and the
+	 *            changed range is kept
+	 * @param progressMonitor the progress monitor
+	 * @since 3.13
+	 */
+	private void reconciled(CompilationUnit ast, boolean forced, DirtyState state, IProgressMonitor progressMonitor) {
 		// ensure at most one thread can be reconciling at any time
 		synchronized (fReconcileLock) {
 			if (fIsReconciling)
@@ -305,11 +548,18 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			long start= 0;
+			if (JavaPlugin.DEBUG_SEMANTIC_HIGHLIGHTING) {
+				start= System.nanoTime();
+				fJobConsumeTimes= new long[fJobSemanticHighlightings.length];
+				fJobConsumeCounts= new int[fJobSemanticHighlightings.length];
+			}
+
+			ASTNode[] subtrees= getAffectedSubtrees(ast, forced, state);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			startReconcilingPositions(subtrees);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -330,12 +580,20 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (!fJobPresenter.isCanceled())
 				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
 
+			if (!fJobPresenter.isCanceled() && state != null)
+				fDirtyRegionTracker.reconciled(state.fModificationCount);
+
+			if (JavaPlugin.DEBUG_SEMANTIC_HIGHLIGHTING)
+				printTimings(subtrees, System.nanoTime() - start);
+
 			stopReconcilingPositions();
 		} finally {
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
 			fJobHighlightings= null;
 			fJobDeprecatedMemberHighlighting= null;
+			fJobConsumeTimes= null;
+			fJobConsumeCounts= null;
 			synchronized (fReconcileLock) {
 				fIsReconciling= false;
 			}
@@ -343,20 +601,73 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
-	 * @param node Root node
+	 * Returns the subtrees that may be affected by the document changes since the last reconcile.
+	 * <p>
+	 * Changes inside a method or initializer body cannot change the bindings of names outside
+	 * of that body, hence it suffices to reconcile the outermost body that strictly contains the
+	 * changed range. The whole AST is returned if the reconcile was forced, the changed range is
+	 * unknown or the AST has syntax errors, since recovery may have moved declarations into or
+	 * out of the body.
+	 * </p>
+	 *
+	 * @param ast the AST
+	 * @param forced <code>true</code> iff this reconciliation was forced
+	 * @param state the state of the dirty region tracker taken before the AST was created, or <code>null</code>
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, boolean forced, DirtyState state) {
+		IRegion dirtyRegion= null;
+		if (!forced && state != null && state.fDocumentLength == ast.getLength())
+			dirtyRegion= state.fDirtyRegion;
+		if (dirtyRegion == null || hasSyntaxErrors(ast))
+			return new ASTNode[] { ast };
+
+		int dirtyStart= dirtyRegion.getOffset();
+		int dirtyEnd= dirtyStart + dirtyRegion.getLength();
+		ASTNode body= null;
+		for (ASTNode node= NodeFinder.perform(ast, dirtyStart, dirtyRegion.getLength()); node != null; node= node.getParent()) {
+			if (node instanceof Block && (node.getParent() instanceof MethodDeclaration || node.getParent() instanceof Initializer)) {
+				// the braces must not have been touched
+				int start= node.getStartPosition();
+				if (start < dirtyStart && dirtyEnd < start + node.getLength() - 1)
+					body= node;
+			}
+		}
+		return new ASTNode[] { body != null ? body : ast };
+	}
+
+	/**
+	 * @param ast the AST
+	 * @return <code>true</code> iff the AST has syntax errors
+	 * @since 3.13
+	 */
+	private static boolean hasSyntaxErrors(CompilationUnit ast) {
+		IProblem[] problems= ast.getProblems();
+		for (int i= 0; i < problems.length; i++) {
+			if (problems[i].isError() && (problems[i].getID() & IProblem.Syntax) != 0)
+				return true;
+		}
+		return false;
 	}
 
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param subtrees the AST subtrees that will be reconciled
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees) {
+		for (int i= 0, n= subtrees.length; i < n; i++) {
+			if (subtrees[i] instanceof CompilationUnit)
+				fJobPresenter.addAllPositions(fRemovedPositions);
+			else
+				fJobPresenter.addAllPositions(fRemovedPositions, subtrees[i].getStartPosition(), subtrees[i].getLength());
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
+
+		if (fRemovedOffsets.length < fNOfRemovedPositions)
+			fRemovedOffsets= new int[fNOfRemovedPositions];
+		for (int i= 0; i < fNOfRemovedPositions; i++)
+			fRemovedOffsets[i]= fRemovedPositions.get(i).getOffset();
 	}
 
 	/**
@@ -365,10 +676,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
+		// positions not covered by the subtrees have not been added to fRemovedPositions
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
@@ -412,6 +720,29 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		display.asyncExec(runnable);
 	}
 
+	/**
+	 * Prints the time spent in the last reconcile and in each semantic highlighting.
+	 *
+	 * @param subtrees the reconciled subtrees
+	 * @param nanos the total time of the reconcile in nanoseconds
+	 * @since 3.13
+	 */
+	private void printTimings(ASTNode[] subtrees, long nanos) {
+		StringBuffer buf= new StringBuffer();
+		buf.append(DEBUG_PREFIX);
+		buf.append("reconciled "); //$NON-NLS-1$
+		for (int i= 0; i < subtrees.length; i++) {
+			buf.append('[').append(subtrees[i].getStartPosition()).append(", ").append(subtrees[i].getStartPosition() + subtrees[i].getLength()).append(") "); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		buf.append("in ").append(nanos / 1000000.0).append(" ms, ").append(fAddedPositions.size()).append(" added, ").append(fRemovedPositions.size()).append(" removed"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		for (int i= 0; i < fJobSemanticHighlightings.length; i++) {
+			if (fJobConsumeCounts[i] > 0) {
+				buf.append("\n\t").append(fJobSemanticHighlightings[i].getDisplayName()).append(": ").append(fJobConsumeTimes[i] / 1000000.0).append(" ms, ").append(fJobConsumeCounts[i]).append(" tokens"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			}
+		}
+		System.out.println(buf.toString());
+	}
+
 	/**
 	 * Stop reconciling positions.
 	 */
@@ -436,6 +767,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 		fEditor= editor;
 		fSourceViewer= sourceViewer;
+		fDirtyRegionTracker.install(fSourceViewer);
 
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
@@ -460,6 +792,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fEditor= null;
 		}
 
+		if (fSourceViewer != null)
+			fDirtyRegionTracker.uninstall(fSourceViewer);
 		fSourceViewer= null;
 		fSemanticHighlightings= null;
 		fHighlightings= null;
@@ -471,6 +805,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	private void scheduleJob() {
 		final ITypeRoot element= fEditor.getInputJavaElement();
+		fDirtyRegionTracker.markAllDirty();
 
 		synchronized (fJobLock) {
 			final Job oldJob= fJob;
@@ -493,8 +828,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 						}
 						if (monitor.isCanceled())
 							return Status.CANCEL_STATUS;
+						DirtyState state= fDirtyRegionTracker.getState();
 						CompilationUnit ast= SharedASTProvider.getAST(element, SharedASTProvider.WAIT_YES, monitor);
-						reconciled(ast, false, monitor);
+						reconciled(ast, false, state, monitor);
 						synchronized (fJobLock) {
 							// allow the job to be gc'ed
 							if (fJob == this)
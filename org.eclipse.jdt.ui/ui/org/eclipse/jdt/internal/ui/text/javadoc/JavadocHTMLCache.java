@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * A thread-safe cache for the Javadoc HTML of members, shared by the Javadoc hover and the
+ * Javadoc view.
+ * <p>
+ * Rendering the Javadoc of a member that inherits its documentation walks the super type
+ * hierarchy and may fetch attached Javadoc, so the rendered content is kept per member handle,
+ * including members without Javadoc. The cache is bounded. Each entry remembers the stamp of what
+ * it was rendered from and is discarded when that stamp changes:
+ * </p>
+ * <ul>
+ * <li>members of binary roots are kept until their root or a class path changes,</li>
+ * <li>members of source roots are kept until any source or binary root changes, since they may
+ * inherit documentation from any of their super types.</li>
+ * </ul>
+ * <p>
+ * Contents computed while a change happens are discarded on the next access. A member of a binary
+ * root without source and without content is not cached, since fetching its attached Javadoc may
+ * have failed.
+ * </p>
+ *
+ * @see JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)
+ * @since 3.13
+ */
+public final class JavadocHTMLCache {
+
+	private static final class Entry {
+		final String fContent;
+		final long fStamp;
+		final long fClasspathStamp;
+
+		Entry(String content, long stamp, long classpathStamp) {
+			fContent= content;
+			fStamp= stamp;
+			fClasspathStamp= classpathStamp;
+		}
+	}
+
+	private static final class ModelChangeListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			processDelta(event.getDelta());
+		}
+	}
+
+	/**
+	 * The maximum number of cached members.
+	 */
+	private static final int MAX_ENTRIES= 100;
+
+	/**
+	 * The flags of a project delta that may change the resolution of all its members.
+	 */
+	private static final int CLASSPATH_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	private static final Map<String, Entry> fgCache= new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * The stamps of the binary roots that changed since the last class path change, by handle
+	 * identifier. Guarded by {@link #fgCache}.
+	 */
+	private static final Map<String, Long> fgBinaryRootStamps= new HashMap<>();
+
+	/**
+	 * Incremented on every change of a source or binary root. Guarded by {@link #fgCache}.
+	 */
+	private static long fgSourceStamp;
+
+	/**
+	 * Incremented on every class path change. Guarded by {@link #fgCache}.
+	 */
+	private static long fgClasspathStamp;
+
+	/**
+	 * The listener, or <code>null</code> if not installed. Guarded by {@link #fgCache}.
+	 */
+	private static ModelChangeListener fgListener;
+
+	private JavadocHTMLCache() {
+	}
+
+	/**
+	 * Returns the Javadoc of the given element in HTML, like
+	 * {@link JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)} with attached Javadoc.
+	 * The content of members is cached.
+	 *
+	 * @param element the element to get the Javadoc of
+	 * @return the Javadoc comment content in HTML or <code>null</code> if the element
+	 * 			does not have a Javadoc comment or if no source is available
+	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 */
+	public static String getHTMLContent(IJavaElement element) throws CoreException {
+		if (!(element instanceof IMember))
+			return JavadocContentAccess2.getHTMLContent(element, true);
+
+		IMember member= (IMember) element;
+		String key= member.getHandleIdentifier();
+		String binaryRoot= getBinaryRoot(member);
+		long stamp;
+		long classpathStamp;
+		synchronized (fgCache) {
+			if (fgListener == null) {
+				fgListener= new ModelChangeListener();
+				JavaCore.addElementChangedListener(fgListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+			}
+			// taken before rendering, so that contents rendered during a change are discarded later
+			stamp= getStamp(binaryRoot);
+			classpathStamp= fgClasspathStamp;
+			Entry entry= fgCache.get(key);
+			if (entry != null && entry.fStamp == stamp && entry.fClasspathStamp == classpathStamp)
+				return entry.fContent;
+		}
+		String content= JavadocContentAccess2.getHTMLContent(element, true);
+		// without source, the content is fetched from the attached Javadoc, which may have failed
+		if (content != null || binaryRoot == null || member.getOpenable().getBuffer() != null) {
+			synchronized (fgCache) {
+				fgCache.put(key, new Entry(content, stamp, classpathStamp));
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Tells whether the content of the given element is cached and up to date.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the content of the element is cached
+	 */
+	public static boolean hasInCache(IJavaElement element) {
+		if (!(element instanceof IMember))
+			return false;
+		String binaryRoot= getBinaryRoot((IMember) element);
+		synchronized (fgCache) {
+			Entry entry= fgCache.get(element.getHandleIdentifier());
+			return entry != null && entry.fStamp == getStamp(binaryRoot) && entry.fClasspathStamp == fgClasspathStamp;
+		}
+	}
+
+	/**
+	 * Removes all cached contents.
+	 */
+	public static void clear() {
+		synchronized (fgCache) {
+			fgClasspathStamp++;
+			fgBinaryRootStamps.clear();
+			fgCache.clear();
+		}
+	}
+
+	/**
+	 * Removes the listener and all cached contents.
+	 */
+	public static void shutdown() {
+		synchronized (fgCache) {
+			if (fgListener != null) {
+				JavaCore.removeElementChangedListener(fgListener);
+				fgListener= null;
+			}
+			clear();
+		}
+	}
+
+	/**
+	 * Returns the handle identifier of the binary root that declares the member.
+	 *
+	 * @param member the member
+	 * @return the handle identifier of the root, or <code>null</code> if the member is declared in source
+	 */
+	private static String getBinaryRoot(IMember member) {
+		if (!member.isBinary())
+			return null;
+		IJavaElement root= member.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		return root != null ? root.getHandleIdentifier() : null;
+	}
+
+	private static long getStamp(String binaryRoot) {
+		if (binaryRoot == null)
+			return fgSourceStamp;
+		Long stamp= fgBinaryRootStamps.get(binaryRoot);
+		return stamp != null ? stamp.longValue() : 0;
+	}
+
+	private static void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				processChildren(delta);
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_FLAGS) != 0)
+					clear();
+				else
+					processChildren(delta);
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				IPackageFragmentRoot root= (IPackageFragmentRoot) element;
+				if (isBinary(root)) {
+					synchronized (fgCache) {
+						String handle= root.getHandleIdentifier();
+						fgBinaryRootStamps.put(handle, Long.valueOf(getStamp(handle) + 1));
+						// source members may inherit documentation from the root
+						fgSourceStamp++;
+					}
+				} else if (isChange(delta)) {
+					sourceChanged();
+				}
+				break;
+			default:
+				if (isChange(delta))
+					sourceChanged();
+				break;
+		}
+	}
+
+	private static void processChildren(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++)
+			processDelta(children[i]);
+	}
+
+	private static void sourceChanged() {
+		synchronized (fgCache) {
+			fgSourceStamp++;
+		}
+	}
+
+	private static boolean isBinary(IPackageFragmentRoot root) {
+		if (root.isArchive())
+			return true;
+		try {
+			return root.getKind() == IPackageFragmentRoot.K_BINARY;
+		} catch (JavaModelException e) {
+			// a removed root, treat it like a changed binary root
+			return true;
+		}
+	}
+
+	/**
+	 * Tells whether the delta reports more than the creation of an AST, which is
+	 * the only information of a reconcile that did not change the working copy.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if the delta reports a change
+	 */
+	private static boolean isChange(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED || delta.getResourceDeltas() != null)
+			return true;
+		if ((delta.getFlags() & ~(IJavaElementDelta.F_AST_AFFECTED | IJavaElementDelta.F_CHILDREN)) != 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (isChange(children[i]))
+				return true;
+		}
+		return false;
+	}
+}
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -18,17 +19,19 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -122,14 +125,24 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
-	/** The mapping from phonetic hashes to word lists */
-	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
+	/**
+	 * The mapping from phonetic hashes to word lists. Buckets of a loaded dictionary are replaced
+	 * rather than modified, so that lookups do not need to synchronize.
+	 */
+	private final Map<ByteArrayWrapper, Object> fHashBuckets= new ConcurrentHashMap<>(getInitialSize(), LOAD_FACTOR);
+
+	/**
+	 * The memory-mapped image of the word list, or <code>null</code> if the words are kept in
+	 * {@link #fHashBuckets}.
+	 * @since 3.13
+	 */
+	private volatile CompiledSpellDictionary fCompiledDictionary;
 
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
 	/** Is the dictionary already loaded? */
-	private boolean fLoaded= false;
+	private volatile boolean fLoaded= false;
 	/**
 	 * Must the dictionary be loaded?
 	 * @since 3.2
@@ -167,7 +180,27 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		Object bucket= fHashBuckets.get(hashBytes);
+
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		if (compiled == null)
+			return bucket;
+
+		byte[][] words= compiled.getCandidates(hashBytes.byteArray);
+		if (words == null)
+			return bucket;
+		if (bucket == null && words.length == 1)
+			return words[0];
+
+		ArrayList<byte[]> candidates= new ArrayList<>(Arrays.asList(words));
+		if (bucket instanceof byte[])
+			candidates.add((byte[])bucket);
+		else if (bucket != null) {
+			@SuppressWarnings("unchecked")
+			List<byte[]> bucketList= (List<byte[]>)bucket;
+			candidates.addAll(bucketList);
+		}
+		return candidates;
 	}
 
 	/**
@@ -218,7 +251,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			}
 
 			@SuppressWarnings("unchecked")
-			final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+			final List<byte[]> candidateList= (List<byte[]>)candidates;
 			int candidateSize= Math.min(500, candidateList.size()); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
 			for (int offset= 0; offset < candidateSize; offset++) {
 
@@ -286,7 +319,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		}
 
 		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		final List<byte[]> candidateList= (List<byte[]>)candidates;
 		final ArrayList<RankedWordProposal> matches= new ArrayList<>(candidateList.size());
 
 		for (int index= 0; index < candidateList.size(); index++) {
@@ -325,7 +358,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		return fHashBuckets.size() == 0 && (compiled == null || compiled.size() == 0);
 	}
 
 	/**
@@ -353,9 +387,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 			if (!fLoaded) {
 				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
+					if (!fLoaded) {
+						// Compact before publishing, readers access the buckets without locking
+						boolean loaded= load(getURL());
+						if (loaded)
+							compact();
+						fLoaded= loaded;
+					}
 				}
 			}
 
@@ -492,7 +530,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		} else if (bucket instanceof ArrayList) {
 			@SuppressWarnings("unchecked")
 			ArrayList<byte[]> bucketList= (ArrayList<byte[]>)bucket;
-			bucketList.add(wordBytes);
+			if (fLoaded) {
+				// Readers access published buckets without locking: copy on write
+				bucketList= new ArrayList<>(bucketList);
+				bucketList.add(wordBytes);
+				fHashBuckets.put(hashBytes, bucketList);
+			} else
+				bucketList.add(wordBytes);
 		} else {
 			ArrayList<Object> list= new ArrayList<>(BUCKET_CAPACITY);
 			list.add(bucket);
@@ -508,9 +552,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 			if (!fLoaded) {
 				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
+					if (!fLoaded) {
+						// Compact before publishing, readers access the buckets without locking
+						boolean loaded= load(getURL());
+						if (loaded)
+							compact();
+						fLoaded= loaded;
+					}
 				}
 			}
 
@@ -534,7 +582,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			return false;
 		}
 		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		final List<byte[]> candidateList= (List<byte[]>)candidates;
 		byte[] wordBytes;
 		byte[] lowercaseWordBytes;
 		try {
@@ -587,7 +635,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || fHashBuckets.size() > 0 || fCompiledDictionary != null;
 	}
 
 	/**
@@ -602,6 +650,104 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		 if (!fMustLoad)
 			 return fLoaded;
 
+		File image= url != null ? getCompiledDictionaryFile() : null;
+		long stamp= image != null ? getSourceStamp(url) : -1;
+		if (stamp == -1)
+			return loadWordList(url);
+
+		if (image.isFile()) {
+			try {
+				CompiledSpellDictionary compiled= CompiledSpellDictionary.open(image);
+				if (compiled.getStamp() == stamp) {
+					fCompiledDictionary= compiled;
+					fMustLoad= false;
+					return true;
+				}
+			} catch (IOException exception) {
+				// Recompile the word list below
+			}
+		}
+
+		if (!loadWordList(url))
+			return false;
+
+		CompiledSpellDictionary.Builder builder= new CompiledSpellDictionary.Builder();
+		for (Iterator<Map.Entry<ByteArrayWrapper, Object>> iterator= fHashBuckets.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<ByteArrayWrapper, Object> entry= iterator.next();
+			byte[] hash= entry.getKey().byteArray;
+			if (entry.getValue() instanceof byte[])
+				builder.add(hash, (byte[])entry.getValue());
+			else {
+				@SuppressWarnings("unchecked")
+				List<byte[]> bucketList= (List<byte[]>)entry.getValue();
+				for (int index= 0; index < bucketList.size(); index++)
+					builder.add(hash, bucketList.get(index));
+			}
+		}
+		try {
+			builder.write(image, stamp);
+			fCompiledDictionary= CompiledSpellDictionary.open(image);
+			fHashBuckets.clear();
+		} catch (IOException exception) {
+			// Keep the words in memory
+			JavaPlugin.log(exception);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the file in which the compiled image of the word list is cached.
+	 * <p>
+	 * Subclasses with large, read-only word lists should answer a file in the plug-in state location.
+	 * The image is then memory-mapped instead of parsing the word list into the heap.
+	 * </p>
+	 *
+	 * @return the image file, or <code>null</code> if the word list should not be compiled
+	 * @since 3.13
+	 */
+	protected File getCompiledDictionaryFile() {
+		return null;
+	}
+
+	/**
+	 * Returns a stamp that changes whenever the word list or its encoding changes.
+	 *
+	 * @param url the URL of the word list
+	 * @return the stamp, or <code>-1</code> if the word list cannot be stamped
+	 * @since 3.13
+	 */
+	private long getSourceStamp(final URL url) {
+		URLConnection connection= null;
+		try {
+			connection= url.openConnection();
+			long stamp= connection.getLastModified();
+			stamp= 31 * stamp + connection.getContentLengthLong();
+			stamp= 31 * stamp + url.toString().hashCode();
+			stamp= 31 * stamp + getEncoding().hashCode();
+			return stamp == -1 ? 0 : stamp;
+		} catch (IOException exception) {
+			return -1;
+		} finally {
+			if (connection != null) {
+				try {
+					// Reading the header fields connects and opens the stream
+					connection.getInputStream().close();
+				} catch (IOException x) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a dictionary word list into the hash buckets.
+	 *
+	 * @param url
+	 *                   The URL of the word list to load
+	 * @return <code>true</code> iff the word list could be loaded, <code>false</code>
+	 *               otherwise
+	 * @since 3.13
+	 */
+	private boolean loadWordList(final URL url) {
 		if (url != null) {
 			InputStream stream= null;
 			int line= 0;
@@ -647,7 +793,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 					JavaPlugin.log(ex);
 				else
 					try {
-						return load(new URL(lowercaseUrlString));
+						return loadWordList(new URL(lowercaseUrlString));
 					} catch (MalformedURLException e) {
 						JavaPlugin.log(e);
 					}
@@ -709,6 +855,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fCompiledDictionary= null;
 	}
 
 	@Override
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Read-only, memory-mapped image of a dictionary word list.
+ * <p>
+ * The image holds the phonetic hashes sorted in unsigned lexicographic order and a packed
+ * arena of the UTF-8 encoded words of each hash bucket. Opening an image only maps the file,
+ * and lookups binary search the hash index without taking locks, hence an instance can be
+ * shared by any number of threads.
+ * </p>
+ * <p>
+ * Layout of the image (all numbers are big-endian):
+ * </p>
+ * <pre>
+ * int   magic
+ * int   version
+ * long  source stamp
+ * int   hash count (h)
+ * int   word count (w)
+ * int[h + 1]  start offsets of the hashes in the hash arena
+ * int[h + 1]  index of the first word of each hash bucket
+ * int[w + 1]  start offsets of the words in the word arena
+ * byte[]      hash arena
+ * byte[]      word arena
+ * </pre>
+ *
+ * @since 3.13
+ */
+public final class CompiledSpellDictionary {
+
+	/**
+	 * Collects the words of a dictionary and writes them as a compiled image.
+	 */
+	public static final class Builder {
+
+		/** The words per phonetic hash, sorted by hash */
+		private final Map<byte[], List<byte[]>> fBuckets= new TreeMap<>(BYTES_COMPARATOR);
+
+		/** The number of added words */
+		private int fWordCount= 0;
+
+		/**
+		 * Adds a word to the image.
+		 *
+		 * @param hash the UTF-8 encoded phonetic hash of the word
+		 * @param word the UTF-8 encoded word
+		 */
+		public void add(byte[] hash, byte[] word) {
+			List<byte[]> bucket= fBuckets.get(hash);
+			if (bucket == null) {
+				bucket= new ArrayList<>(AbstractSpellDictionary.BUCKET_CAPACITY);
+				fBuckets.put(hash, bucket);
+			}
+			bucket.add(word);
+			fWordCount++;
+		}
+
+		/**
+		 * Writes the image to the given stream. The stream is not closed.
+		 *
+		 * @param stream the stream to write to
+		 * @param stamp the stamp of the word list source
+		 * @throws IOException if writing fails
+		 */
+		public void write(OutputStream stream, long stamp) throws IOException {
+			DataOutputStream output= new DataOutputStream(stream);
+			int hashCount= fBuckets.size();
+
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(stamp);
+			output.writeInt(hashCount);
+			output.writeInt(fWordCount);
+
+			int offset= 0;
+			for (Iterator<byte[]> iterator= fBuckets.keySet().iterator(); iterator.hasNext();) {
+				output.writeInt(offset);
+				offset+= iterator.next().length;
+			}
+			output.writeInt(offset);
+
+			int wordIndex= 0;
+			for (Iterator<List<byte[]>> iterator= fBuckets.values().iterator(); iterator.hasNext();) {
+				output.writeInt(wordIndex);
+				wordIndex+= iterator.next().size();
+			}
+			output.writeInt(wordIndex);
+
+			offset= 0;
+			for (Iterator<List<byte[]>> iterator= fBuckets.values().iterator(); iterator.hasNext();) {
+				List<byte[]> bucket= iterator.next();
+				for (int index= 0; index < bucket.size(); index++) {
+					output.writeInt(offset);
+					offset+= bucket.get(index).length;
+				}
+			}
+			output.writeInt(offset);
+
+			for (Iterator<byte[]> iterator= fBuckets.keySet().iterator(); iterator.hasNext();)
+				output.write(iterator.next());
+
+			for (Iterator<List<byte[]>> iterator= fBuckets.values().iterator(); iterator.hasNext();) {
+				List<byte[]> bucket= iterator.next();
+				for (int index= 0; index < bucket.size(); index++)
+					output.write(bucket.get(index));
+			}
+			output.flush();
+		}
+
+		/**
+		 * Writes the image to the given file. The image is first written to a temporary file
+		 * which then replaces the target, so that readers never see a partially written image.
+		 *
+		 * @param file the file to write
+		 * @param stamp the stamp of the word list source
+		 * @throws IOException if writing fails
+		 */
+		public void write(File file, long stamp) throws IOException {
+			File directory= file.getParentFile();
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Could not create " + directory); //$NON-NLS-1$
+
+			File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+			OutputStream stream= new BufferedOutputStream(new FileOutputStream(temporary));
+			try {
+				write(stream, stamp);
+			} finally {
+				stream.close();
+			}
+			if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+				temporary.delete();
+				throw new IOException("Could not replace " + file); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/** Compares byte arrays in unsigned lexicographic order */
+	static final Comparator<byte[]> BYTES_COMPARATOR= new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] left, byte[] right) {
+			int length= Math.min(left.length, right.length);
+			for (int index= 0; index < length; index++) {
+				int difference= (left[index] & 0xff) - (right[index] & 0xff);
+				if (difference != 0)
+					return difference;
+			}
+			return left.length - right.length;
+		}
+	};
+
+	/** The magic number of compiled images: "JSPD" */
+	private static final int MAGIC= 0x4A535044;
+
+	/** The version of the image layout */
+	private static final int VERSION= 1;
+
+	/** The size of the header in bytes */
+	private static final int HEADER_SIZE= 24;
+
+	/**
+	 * Maps the compiled image stored in the given file.
+	 *
+	 * @param file the image file
+	 * @return the compiled dictionary
+	 * @throws IOException if the file cannot be read or is not a valid image
+	 */
+	public static CompiledSpellDictionary open(File file) throws IOException {
+		RandomAccessFile randomAccessFile= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel= randomAccessFile.getChannel();
+			return new CompiledSpellDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			// the mapping stays valid after the channel has been closed
+			randomAccessFile.close();
+		}
+	}
+
+	/** The image */
+	private final ByteBuffer fImage;
+
+	/** The stamp of the word list the image has been compiled from */
+	private final long fStamp;
+
+	/** The number of phonetic hashes */
+	private final int fHashCount;
+
+	/** The number of words */
+	private final int fWordCount;
+
+	/** The position of the hash offset table */
+	private final int fHashOffsets;
+
+	/** The position of the bucket table */
+	private final int fBuckets;
+
+	/** The position of the word offset table */
+	private final int fWordOffsets;
+
+	/** The position of the hash arena */
+	private final int fHashArena;
+
+	/** The position of the word arena */
+	private final int fWordArena;
+
+	private CompiledSpellDictionary(ByteBuffer image) throws IOException {
+		if (image.capacity() < HEADER_SIZE || image.getInt(0) != MAGIC || image.getInt(4) != VERSION)
+			throw new IOException("Not a compiled dictionary image"); //$NON-NLS-1$
+
+		fImage= image;
+		fStamp= image.getLong(8);
+		fHashCount= image.getInt(16);
+		fWordCount= image.getInt(20);
+		if (fHashCount < 0 || fWordCount < 0)
+			throw new IOException("Corrupt compiled dictionary image"); //$NON-NLS-1$
+
+		fHashOffsets= HEADER_SIZE;
+		fBuckets= fHashOffsets + 4 * (fHashCount + 1);
+		fWordOffsets= fBuckets + 4 * (fHashCount + 1);
+		fHashArena= fWordOffsets + 4 * (fWordCount + 1);
+		if (fHashArena > image.capacity())
+			throw new IOException("Corrupt compiled dictionary image"); //$NON-NLS-1$
+
+		fWordArena= fHashArena + image.getInt(fBuckets - 4);
+		if (fWordArena + image.getInt(fHashArena - 4) != image.capacity())
+			throw new IOException("Corrupt compiled dictionary image"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the stamp of the word list this image has been compiled from.
+	 *
+	 * @return the source stamp
+	 */
+	public long getStamp() {
+		return fStamp;
+	}
+
+	/**
+	 * Returns the number of words in this dictionary.
+	 *
+	 * @return the number of words
+	 */
+	public int size() {
+		return fWordCount;
+	}
+
+	/**
+	 * Returns the words with the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 encoded phonetic hash
+	 * @return the UTF-8 encoded words of the hash bucket, or <code>null</code> if there are none
+	 */
+	public byte[][] getCandidates(byte[] hash) {
+		int low= 0;
+		int high= fHashCount - 1;
+		while (low <= high) {
+			int middle= (low + high) >>> 1;
+			int comparison= compareHash(middle, hash);
+			if (comparison < 0)
+				low= middle + 1;
+			else if (comparison > 0)
+				high= middle - 1;
+			else
+				return getBucket(middle);
+		}
+		return null;
+	}
+
+	private int compareHash(int index, byte[] hash) {
+		int start= fHashArena + fImage.getInt(fHashOffsets + 4 * index);
+		int end= fHashArena + fImage.getInt(fHashOffsets + 4 * (index + 1));
+		int length= Math.min(end - start, hash.length);
+		for (int offset= 0; offset < length; offset++) {
+			int difference= (fImage.get(start + offset) & 0xff) - (hash[offset] & 0xff);
+			if (difference != 0)
+				return difference;
+		}
+		return (end - start) - hash.length;
+	}
+
+	private byte[][] getBucket(int index) {
+		int first= fImage.getInt(fBuckets + 4 * index);
+		int last= fImage.getInt(fBuckets + 4 * (index + 1));
+		byte[][] words= new byte[last - first][];
+		for (int word= first; word < last; word++) {
+			int start= fWordArena + fImage.getInt(fWordOffsets + 4 * word);
+			int end= fWordArena + fImage.getInt(fWordOffsets + 4 * (word + 1));
+			byte[] bytes= new byte[end - start];
+			for (int offset= 0; offset < bytes.length; offset++)
+				bytes[offset]= fImage.get(start + offset);
+			words[word - first]= bytes;
+		}
+		return words;
+	}
+}
@@ -10,10 +10,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Locale;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 
 /**
  * Platform wide read-only locale sensitive dictionary for spell checking.
@@ -22,6 +25,12 @@ import java.util.Locale;
  */
 public class LocaleSensitiveSpellDictionary extends AbstractSpellDictionary {
 
+	/**
+	 * The folder in the plug-in state location holding the compiled word lists.
+	 * @since 3.13
+	 */
+	private static final String COMPILED_DICTIONARIES_FOLDER= "dictionaries"; //$NON-NLS-1$
+
 	/** The locale of this dictionary */
 	private final Locale fLocale;
 
@@ -59,4 +68,18 @@ public class LocaleSensitiveSpellDictionary extends AbstractSpellDictionary {
 	protected int getInitialSize() {
 		return 32 * 1024;
 	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary#getCompiledDictionaryFile()
+	 * @since 3.13
+	 */
+	@Override
+	protected File getCompiledDictionaryFile() {
+		try {
+			return JavaPlugin.getDefault().getStateLocation().append(COMPILED_DICTIONARIES_FOLDER).append(fLocale.toString() + ".bin").toFile(); //$NON-NLS-1$
+		} catch (IllegalStateException e) {
+			// no state location
+			return null;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,7 +13,11 @@ package org.eclipse.jdt.internal.ui.typehierarchy;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -29,6 +33,7 @@ import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.ui.progress.IWorkbenchSiteProgressService;
 
 import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IClassFile;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IElementChangedListener;
@@ -36,6 +41,7 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IParent;
 import org.eclipse.jdt.core.IRegion;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
@@ -53,6 +59,17 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
  */
 public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IElementChangedListener {
 
+	private static final String DEBUG_PREFIX= "TypeHierarchyLifeCycle: "; //$NON-NLS-1$
+
+	/**
+	 * The flags of a compilation unit delta that do not tell more than that the content of the
+	 * compilation unit has changed.
+	 *
+	 * @since 3.13
+	 */
+	private static final int CONTENT_CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_CHILDREN
+			| IJavaElementDelta.F_PRIMARY_RESOURCE | IJavaElementDelta.F_PRIMARY_WORKING_COPY | IJavaElementDelta.F_AST_AFFECTED;
+
 	private boolean fHierarchyRefreshNeeded;
 	private ITypeHierarchy fHierarchy;
 	private IJavaElement[] fInputElements;
@@ -81,6 +98,81 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 	 */
 	private boolean fRefreshJobCanceledExplicitly= true;
 
+	/**
+	 * Listens to the changes of the type hierarchy. JDT Core reports a change when a changed
+	 * compilation unit may affect the hierarchy, without comparing the super types of its types.
+	 * Whether the change requires a refresh is decided when the delta that caused it arrives in
+	 * {@link #elementChanged(ElementChangedEvent)}, which is notified after the hierarchy.
+	 *
+	 * @since 3.13
+	 */
+	private final ITypeHierarchyChangedListener fHierarchyChangedListener= new ITypeHierarchyChangedListener() {
+		@Override
+		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			if (JavaPlugin.DEBUG_TYPE_HIERARCHY) {
+				System.out.println(DEBUG_PREFIX + "change reported by the hierarchy"); //$NON-NLS-1$
+			}
+			if (fChangeListeners.isEmpty())
+				TypeHierarchyLifeCycle.this.typeHierarchyChanged(typeHierarchy);
+			else
+				fHierarchyChangePending= true;
+		}
+	};
+
+	/**
+	 * Indicates whether the type hierarchy reported a change that has not been processed yet.
+	 *
+	 * @since 3.13
+	 */
+	private volatile boolean fHierarchyChangePending;
+
+	/**
+	 * Indicates whether the type hierarchy has reported a change that did not affect its types
+	 * and edges. Until the hierarchy is refreshed, JDT Core reports no further changes, so they
+	 * are detected from the element deltas.
+	 *
+	 * @since 3.13
+	 */
+	private volatile boolean fIsTrackingChanges;
+
+	/**
+	 * The source types of the hierarchy by compilation unit, or <code>null</code> if not computed yet.
+	 *
+	 * @since 3.13
+	 */
+	private Map<ICompilationUnit, List<IType>> fTypesByCompilationUnit;
+
+	/**
+	 * The fully qualified names of the types of the hierarchy, or <code>null</code> if not computed yet.
+	 *
+	 * @since 3.13
+	 */
+	private Set<String> fTypeNames;
+
+	/**
+	 * The simple names of the types of the hierarchy, or <code>null</code> if not computed yet.
+	 * Super type references with other simple names are not resolved.
+	 *
+	 * @since 3.13
+	 */
+	private Set<String> fSimpleTypeNames;
+
+	/**
+	 * The fully qualified names of the focus type and its subtypes, or <code>null</code> if not
+	 * computed yet or if the hierarchy has no focus type.
+	 *
+	 * @since 3.13
+	 */
+	private Set<String> fSubtypeNames;
+
+	/**
+	 * The focus type and its super types, or all types of a region hierarchy, or <code>null</code>
+	 * if not computed yet. All super types of these types are part of the hierarchy.
+	 *
+	 * @since 3.13
+	 */
+	private Set<IType> fCompleteTypes;
+
 	/**
 	 * Creates the type hierarchy life cycle.
 	 *
@@ -116,10 +208,11 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 
 	public void freeHierarchy() {
 		if (fHierarchy != null) {
-			fHierarchy.removeTypeHierarchyChangedListener(this);
+			fHierarchy.removeTypeHierarchyChangedListener(fHierarchyChangedListener);
 			JavaCore.removeElementChangedListener(this);
 			fHierarchy= null;
 			fInputElements= null;
+			resetChangeTracking();
 		}
 		synchronized (this) {
 			if (fRefreshHierarchyJob != null) {
@@ -322,10 +415,11 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 
 	public void doHierarchyRefresh(IJavaElement[] elements, IProgressMonitor pm) throws JavaModelException {
 		boolean hierachyCreationNeeded= (fHierarchy == null || !Arrays.equals(elements, fInputElements));
+		long start= JavaPlugin.DEBUG_TYPE_HIERARCHY ? System.currentTimeMillis() : 0;
 		// to ensure the order of the two listeners always remove / add listeners on operations
 		// on type hierarchies
 		if (fHierarchy != null) {
-			fHierarchy.removeTypeHierarchyChangedListener(this);
+			fHierarchy.removeTypeHierarchyChangedListener(fHierarchyChangedListener);
 			JavaCore.removeElementChangedListener(this);
 		}
 		if (hierachyCreationNeeded) {
@@ -339,9 +433,24 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			if (pm != null && pm.isCanceled())
 				throw new OperationCanceledException();
 		}
-		fHierarchy.addTypeHierarchyChangedListener(this);
+		resetChangeTracking();
+		fHierarchy.addTypeHierarchyChangedListener(fHierarchyChangedListener);
 		JavaCore.addElementChangedListener(this);
 		fHierarchyRefreshNeeded= false;
+		if (JavaPlugin.DEBUG_TYPE_HIERARCHY) {
+			System.out.println(DEBUG_PREFIX + (hierachyCreationNeeded ? "created" : "refreshed") + " hierarchy of " + fHierarchy.getAllTypes().length //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ " types in " + (System.currentTimeMillis() - start) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private void resetChangeTracking() {
+		fHierarchyChangePending= false;
+		fIsTrackingChanges= false;
+		fTypesByCompilationUnit= null;
+		fTypeNames= null;
+		fSimpleTypeNames= null;
+		fSubtypeNames= null;
+		fCompleteTypes= null;
 	}
 
 	/*
@@ -362,6 +471,14 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			return;
 		}
 
+		// a reconcile of a working copy may cause the hierarchy to report a change, too
+		int eventType= event.getType();
+		if ((eventType == ElementChangedEvent.POST_CHANGE || eventType == ElementChangedEvent.POST_RECONCILE) && (fHierarchyChangePending || fIsTrackingChanges)) {
+			fHierarchyChangePending= false;
+			processHierarchyChange(event.getDelta());
+			return;
+		}
+
 		if (fHierarchyRefreshNeeded) {
 			return;
 		} else {
@@ -421,6 +538,263 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 	}
 
+	/**
+	 * Refreshes the hierarchy if the given delta changes the types of the hierarchy or their
+	 * super types. Otherwise only the types in the changed compilation units are reported
+	 * as changed.
+	 *
+	 * @param delta the delta of a change reported by the hierarchy, or of a later change
+	 */
+	private void processHierarchyChange(IJavaElementDelta delta) {
+		ITypeHierarchy hierarchy= fHierarchy;
+		if (hierarchy == null)
+			return;
+		long start= JavaPlugin.DEBUG_TYPE_HIERARCHY ? System.currentTimeMillis() : 0;
+		boolean isAffected;
+		try {
+			isAffected= isHierarchyAffected(hierarchy, delta);
+		} catch (JavaModelException e) {
+			isAffected= true;
+		}
+		if (JavaPlugin.DEBUG_TYPE_HIERARCHY) {
+			System.out.println(DEBUG_PREFIX + (isAffected ? "refresh needed" : "hierarchy kept") + ", checked in " + (System.currentTimeMillis() - start) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+
+		if (isAffected) {
+			fIsTrackingChanges= false;
+			fHierarchyRefreshNeeded= true;
+			fireChange(null);
+		} else {
+			fIsTrackingChanges= true;
+			ArrayList<IType> changedTypes= new ArrayList<>();
+			processDelta(delta, changedTypes);
+			if (changedTypes.size() > 0) {
+				fireChange(changedTypes.toArray(new IType[changedTypes.size()]));
+			}
+		}
+	}
+
+	/*
+	 * Falls back to a refresh for everything but content changes of compilation units,
+	 * e.g. for class path changes and for changed class files
+	 */
+	private boolean isHierarchyAffected(ITypeHierarchy hierarchy, IJavaElementDelta delta) throws JavaModelException {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0) {
+					return true;
+				}
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (isHierarchyAffected(hierarchy, children[i])) {
+						return true;
+					}
+				}
+				return false;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit cu= (ICompilationUnit) element;
+				if (!JavaModelUtil.isPrimary(cu)) {
+					return false;
+				}
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~CONTENT_CHANGE_FLAGS) != 0) {
+					return true;
+				}
+				return hasHierarchyChange(hierarchy, cu);
+			default:
+				return true;
+		}
+	}
+
+	/*
+	 * Compares the types of the compilation unit and their resolved super types with the types
+	 * and edges of the hierarchy. Local and anonymous types are not compared.
+	 */
+	private boolean hasHierarchyChange(ITypeHierarchy hierarchy, ICompilationUnit cu) throws JavaModelException {
+		if (fTypesByCompilationUnit == null) {
+			initializeTypes(hierarchy);
+		}
+		List<IType> types= new ArrayList<>();
+		if (cu.exists() && !collectTypes(cu, types)) {
+			return true;
+		}
+
+		List<IType> hierarchyTypes= fTypesByCompilationUnit.get(cu);
+		if (hierarchyTypes == null) {
+			if (fIsSuperTypesOnly) {
+				return false;
+			}
+			if (fSubtypeNames == null) {
+				// the compilation unit may be part of the region
+				return !types.isEmpty();
+			}
+			// a new type joins the hierarchy of a type only as a subtype of the focus type or of one of its subtypes
+			for (int i= 0; i < types.size(); i++) {
+				Set<String> names= resolveSupertypeNames(types.get(i), true, fSimpleTypeNames);
+				if (names == null) {
+					return true;
+				}
+				names.retainAll(fSubtypeNames);
+				if (!names.isEmpty()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		if (hierarchyTypes.size() != types.size() || !types.containsAll(hierarchyTypes)) {
+			return true;
+		}
+		int kindFlags= Flags.AccInterface | Flags.AccEnum | Flags.AccAnnotation;
+		for (int i= 0; i < types.size(); i++) {
+			IType type= types.get(i);
+			if (((hierarchy.getCachedFlags(type) ^ type.getFlags()) & kindFlags) != 0) {
+				return true;
+			}
+			Set<String> supertypeNames= new HashSet<>();
+			IType superclass= hierarchy.getSuperclass(type);
+			if (superclass != null) {
+				supertypeNames.add(superclass.getFullyQualifiedName('.'));
+			}
+			IType[] superInterfaces= hierarchy.getSuperInterfaces(type);
+			for (int j= 0; j < superInterfaces.length; j++) {
+				supertypeNames.add(superInterfaces[j].getFullyQualifiedName('.'));
+			}
+			// the hierarchy contains all super types of the focus type and of the types of a region,
+			// but not all super types of the subtypes of the focus type
+			boolean isComplete= fCompleteTypes.contains(type);
+			Set<String> declaredNames= resolveSupertypeNames(type, false, isComplete ? null : fSimpleTypeNames);
+			if (declaredNames == null) {
+				return true;
+			}
+			if (!isComplete) {
+				declaredNames.retainAll(fTypeNames);
+			}
+			if (!declaredNames.equals(supertypeNames)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void initializeTypes(ITypeHierarchy hierarchy) {
+		Map<ICompilationUnit, List<IType>> typesByCompilationUnit= new HashMap<>();
+		Set<String> typeNames= new HashSet<>();
+		Set<String> simpleTypeNames= new HashSet<>();
+		IType[] allTypes= hierarchy.getAllTypes();
+		for (int i= 0; i < allTypes.length; i++) {
+			IType type= allTypes[i];
+			typeNames.add(type.getFullyQualifiedName('.'));
+			simpleTypeNames.add(type.getElementName());
+			ICompilationUnit cu= type.getCompilationUnit();
+			if (cu != null) {
+				List<IType> types= typesByCompilationUnit.get(cu);
+				if (types == null) {
+					types= new ArrayList<>(2);
+					typesByCompilationUnit.put(cu, types);
+				}
+				types.add(type);
+			}
+		}
+		Set<String> subtypeNames= null;
+		Set<IType> completeTypes= new HashSet<>();
+		IType focus= hierarchy.getType();
+		if (focus == null) {
+			// a region hierarchy contains all super types of its types
+			completeTypes.addAll(Arrays.asList(allTypes));
+		} else {
+			completeTypes.add(focus);
+			completeTypes.addAll(Arrays.asList(hierarchy.getAllSupertypes(focus)));
+			if (!fIsSuperTypesOnly) {
+				subtypeNames= new HashSet<>();
+				subtypeNames.add(focus.getFullyQualifiedName('.'));
+				IType[] subtypes= hierarchy.getAllSubtypes(focus);
+				for (int i= 0; i < subtypes.length; i++) {
+					subtypeNames.add(subtypes[i].getFullyQualifiedName('.'));
+				}
+			}
+		}
+		fTypeNames= typeNames;
+		fSimpleTypeNames= simpleTypeNames;
+		fSubtypeNames= subtypeNames;
+		fCompleteTypes= completeTypes;
+		fTypesByCompilationUnit= typesByCompilationUnit;
+	}
+
+	/*
+	 * Returns false if a local or anonymous type is found
+	 */
+	private static boolean collectTypes(IParent parent, List<IType> types) throws JavaModelException {
+		IJavaElement[] children= parent.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElement child= children[i];
+			if (child instanceof IType) {
+				IType type= (IType) child;
+				if (type.isLocal() || type.isAnonymous()) {
+					return false;
+				}
+				types.add(type);
+			}
+			if (child instanceof IParent && !collectTypes((IParent) child, types)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the fully qualified names of the declared and implicit super types of the type, resolved
+	 * against the imports of its compilation unit. References whose simple name is not in simpleNames
+	 * are skipped, unless simpleNames is null. Returns null if a reference cannot be resolved.
+	 */
+	private static Set<String> resolveSupertypeNames(IType type, boolean includeObjectForInterfaces, Set<String> simpleNames) throws JavaModelException {
+		Set<String> names= new HashSet<>();
+		String superclassName= type.getSuperclassName();
+		if (superclassName != null) {
+			if (!addResolvedName(type, superclassName, simpleNames, names)) {
+				return null;
+			}
+		} else if (type.isEnum()) {
+			names.add("java.lang.Enum"); //$NON-NLS-1$
+		} else if (type.isClass() && !"java.lang.Object".equals(type.getFullyQualifiedName()) || includeObjectForInterfaces) { //$NON-NLS-1$
+			names.add("java.lang.Object"); //$NON-NLS-1$
+		}
+		String[] superInterfaceNames= type.getSuperInterfaceNames();
+		for (int i= 0; i < superInterfaceNames.length; i++) {
+			if (!addResolvedName(type, superInterfaceNames[i], simpleNames, names)) {
+				return null;
+			}
+		}
+		if (type.isAnnotation()) {
+			names.add("java.lang.annotation.Annotation"); //$NON-NLS-1$
+		}
+		return names;
+	}
+
+	private static boolean addResolvedName(IType type, String typeName, Set<String> simpleNames, Set<String> names) throws JavaModelException {
+		String erasure= getErasure(typeName);
+		if (simpleNames != null && !simpleNames.contains(erasure.substring(erasure.lastIndexOf('.') + 1))) {
+			return true;
+		}
+		String[][] resolved= type.resolveType(erasure);
+		if (resolved == null || resolved.length != 1) {
+			return false;
+		}
+		names.add(JavaModelUtil.concatenateName(resolved[0][0], resolved[0][1]));
+		return true;
+	}
+
+	private static String getErasure(String typeName) {
+		int typeArgumentsStart= typeName.indexOf('<');
+		if (typeArgumentsStart != -1) {
+			typeName= typeName.substring(0, typeArgumentsStart);
+		}
+		return typeName.trim();
+	}
+
 	private boolean isPossibleStructuralChange(int flags) {
 		return (flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED)) == IJavaElementDelta.F_CONTENT;
 	}
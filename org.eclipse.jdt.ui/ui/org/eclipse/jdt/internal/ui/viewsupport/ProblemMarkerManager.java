@@ -11,12 +11,15 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
@@ -70,6 +73,10 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 					// only track open Java projects
 					return false;
 				}
+				if ((delta.getFlags() & IResourceDelta.OPEN) != 0) {
+					// the markers of an opened project are restored without marker deltas
+					fChangedElements.add(project);
+				}
 			}
 			checkInvalidate(delta, res);
 			return true;
@@ -104,6 +111,55 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		}
 	}
 
+	/**
+	 * The maximum problem severities of the resources of a project, computed with one
+	 * scan of the problem markers of the project.
+	 */
+	private static class ProblemSeveritySummary {
+
+		/**
+		 * The number of problems per severity in the subtree of a resource, indexed by
+		 * {@link IMarker#SEVERITY_INFO}, {@link IMarker#SEVERITY_WARNING} and {@link IMarker#SEVERITY_ERROR}
+		 */
+		private final Map<IPath, int[]> fSeverityCounts= new HashMap<>();
+
+		public ProblemSeveritySummary(IProject project) throws CoreException {
+			IMarker[] markers= project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+			for (int i= 0; i < markers.length; i++) {
+				int severity= markers[i].getAttribute(IMarker.SEVERITY, -1);
+				if (severity < IMarker.SEVERITY_INFO || severity > IMarker.SEVERITY_ERROR)
+					continue;
+				IPath path= markers[i].getResource().getFullPath();
+				while (path.segmentCount() > 0) {
+					int[] counts= fSeverityCounts.get(path);
+					if (counts == null) {
+						counts= new int[IMarker.SEVERITY_ERROR + 1];
+						fSeverityCounts.put(path, counts);
+					}
+					counts[severity]++;
+					path= path.removeLastSegments(1);
+				}
+			}
+		}
+
+		public int getMaxSeverity(IResource resource) {
+			int[] counts= fSeverityCounts.get(resource.getFullPath());
+			if (counts != null) {
+				for (int severity= IMarker.SEVERITY_ERROR; severity >= IMarker.SEVERITY_INFO; severity--) {
+					if (counts[severity] > 0)
+						return severity;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * The delay of the notification of the listeners in milliseconds. Changes reported
+	 * within the delay are sent in one notification.
+	 */
+	private static final long NOTIFICATION_DELAY= 100;
+
 	private ListenerList<IProblemChangedListener> fListeners;
 
 	private Set<IResource> fResourcesWithMarkerChanges;
@@ -111,6 +167,16 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 
 	private UIJob fNotifierJob;
 
+	/**
+	 * The severity summaries of the projects, only maintained while listening to
+	 * resource changes. Guarded by itself.
+	 */
+	private final Map<IProject, ProblemSeveritySummary> fSeveritySummaries= new HashMap<>();
+	/**
+	 * Incremented whenever summaries are discarded. Guarded by {@link #fSeveritySummaries}.
+	 */
+	private long fSummariesStamp;
+
 	public ProblemMarkerManager() {
 		fListeners= new ListenerList<>();
 		fResourcesWithMarkerChanges= new HashSet<>();
@@ -133,6 +199,7 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		}
 
 		if (!changedElements.isEmpty()) {
+			discardSeveritySummaries(changedElements);
 			boolean hasChanges= false;
 			synchronized (this) {
 				if (fResourcesWithMarkerChanges.isEmpty()) {
@@ -171,6 +238,54 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	}
 
 
+	/**
+	 * Returns the maximum severity of the problem markers on the given resource and its
+	 * descendants, like {@link IResource#findMaxProblemSeverity(String, boolean, int)} with
+	 * {@link IMarker#PROBLEM}, <code>true</code> and {@link IResource#DEPTH_INFINITE}.
+	 * <p>
+	 * While there are listeners, the severities of all resources of a project are computed
+	 * with one scan of its markers, and kept until the problem markers of the project change.
+	 * </p>
+	 *
+	 * @param resource the resource
+	 * @return the maximum severity, or -1 if there are no problem markers
+	 * @throws CoreException if the markers cannot be accessed
+	 * @since 3.13
+	 */
+	public int findMaxProblemSeverity(IResource resource) throws CoreException {
+		IProject project= resource.getProject();
+		if (project == null || fListeners.isEmpty())
+			return resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+
+		ProblemSeveritySummary summary;
+		long stamp;
+		synchronized (fSeveritySummaries) {
+			summary= fSeveritySummaries.get(project);
+			stamp= fSummariesStamp;
+		}
+		if (summary == null) {
+			summary= new ProblemSeveritySummary(project);
+			synchronized (fSeveritySummaries) {
+				// a summary computed while markers changed may be outdated already
+				if (stamp == fSummariesStamp && !fListeners.isEmpty())
+					fSeveritySummaries.put(project, summary);
+			}
+		}
+		return summary.getMaxSeverity(resource);
+	}
+
+	private void discardSeveritySummaries(Set<IResource> changedResources) {
+		synchronized (fSeveritySummaries) {
+			fSummariesStamp++;
+			if (fSeveritySummaries.isEmpty())
+				return;
+			for (IResource resource : changedResources) {
+				if (resource.getType() == IResource.PROJECT)
+					fSeveritySummaries.remove(resource);
+			}
+		}
+	}
+
 	/**
 	 * Adds a listener for problem marker changes.
 	 * @param listener the listener to add
@@ -192,6 +307,10 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		if (fListeners.isEmpty()) {
 			JavaPlugin.getWorkspace().removeResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().removeGlobalAnnotationModelListener(this);
+			synchronized (fSeveritySummaries) {
+				fSummariesStamp++;
+				fSeveritySummaries.clear();
+			}
 		}
 	}
 
@@ -213,7 +332,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 			};
 			fNotifierJob.setSystem(true);
 		}
-		fNotifierJob.schedule();
+		// a job that is waiting already is not rescheduled, so changes within the delay are sent together
+		fNotifierJob.schedule(NOTIFICATION_DELAY);
 	}
 
 	/**
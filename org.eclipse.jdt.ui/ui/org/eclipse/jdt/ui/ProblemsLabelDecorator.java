@@ -293,7 +293,10 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 					return ERRORTICK_BUILDPATH_ERROR;
 				}
 			}
-			severity= res.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
+			if (depth == IResource.DEPTH_INFINITE)
+				severity= JavaPlugin.getDefault().getProblemMarkerManager().findMaxProblemSeverity(res);
+			else
+				severity= res.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
 		} else {
 			IMarker[] markers= res.findMarkers(IMarker.PROBLEM, true, depth);
 			if (markers != null && markers.length > 0) {
@@ -342,7 +345,7 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 		for (Object object : pack.getNonJavaResources()) {
 			if (object instanceof IResource) {
 				IResource resource= (IResource) object;
-				severity= Math.max(severity, resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+				severity= Math.max(severity, JavaPlugin.getDefault().getProblemMarkerManager().findMaxProblemSeverity(resource));
 				if (severity == IMarker.SEVERITY_ERROR)
 					return ERRORTICK_ERROR;
 			}
@@ -81,6 +81,8 @@ public class JarWriter3 {
 
 	private JarPackageData fJarPackage;
 
+	private final byte[] fBuffer= new byte[JarPackagerUtil.BUFFER_SIZE];
+
 	/**
 	 * Creates an instance which is used to create a JAR based
 	 * on the given JarPackage.
@@ -103,9 +105,9 @@ public class JarWriter3 {
 		try {
 			if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
 				Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())), manifest);
+				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile()), JarPackagerUtil.BUFFER_SIZE), manifest);
 			} else
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())));
+				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile()), JarPackagerUtil.BUFFER_SIZE));
 			String comment= jarPackage.getComment();
 			if (comment != null)
 				fJarOutputStream.setComment(comment);
@@ -223,14 +225,13 @@ public class JarWriter3 {
 	 */
 	protected void addFile(IFile resource, IPath path) throws IOException, CoreException {
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] readBuffer= new byte[4096];
 
 		if (fJarPackage.isCompressed())
 			newEntry.setMethod(ZipEntry.DEFLATED);
 			// Entry is filled automatically.
 		else {
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), readBuffer);
+			JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), fBuffer);
 		}
 
 		long lastModified= System.currentTimeMillis();
@@ -261,12 +262,11 @@ public class JarWriter3 {
 	 * @since 3.4
 	 */
 	protected void addEntry(JarEntry entry, InputStream content) throws IOException {
-		byte[] readBuffer= new byte[4096];
 		try {
 			fJarOutputStream.putNextEntry(entry);
 			int count;
-			while ((count= content.read(readBuffer, 0, readBuffer.length)) != -1)
-				fJarOutputStream.write(readBuffer, 0, count);
+			while ((count= content.read(fBuffer, 0, fBuffer.length)) != -1)
+				fJarOutputStream.write(fBuffer, 0, count);
 		} finally  {
 			if (content != null)
 				content.close();
@@ -462,20 +462,19 @@ public class JarWriter3 {
 		Assert.isNotNull(file);
 		Assert.isNotNull(path);
 		final JarEntry entry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] buffer= new byte[4096];
 		if (data.isCompressed())
 			entry.setMethod(ZipEntry.DEFLATED);
 		else {
 			entry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(entry, new BufferedInputStream(new FileInputStream(file)), buffer);
+			JarPackagerUtil.calculateCrcAndSize(entry, new BufferedInputStream(new FileInputStream(file)), fBuffer);
 		}
 		entry.setTime(System.currentTimeMillis());
 		final InputStream stream= new BufferedInputStream(new FileInputStream(file));
 		try {
 			fJarOutputStream.putNextEntry(entry);
 			int count;
-			while ((count= stream.read(buffer, 0, buffer.length)) != -1)
-				fJarOutputStream.write(buffer, 0, count);
+			while ((count= stream.read(fBuffer, 0, fBuffer.length)) != -1)
+				fJarOutputStream.write(fBuffer, 0, count);
 		} finally {
 			try {
 				stream.close();
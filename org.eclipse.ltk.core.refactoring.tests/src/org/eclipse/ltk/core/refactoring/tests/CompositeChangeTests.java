@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.text.edits.ReplaceEdit;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.resource.MoveResourceChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+
+public class CompositeChangeTests extends TestCase {
+
+	private static final String CONTENT= "section one";
+
+	private SimpleTestProject fProject;
+	private List<String> fPerformed;
+
+	/**
+	 * Text file change that replaces "one" by "two", records when it is performed
+	 * and counts the documents it holds.
+	 */
+	private static final class RecordingTextFileChange extends TextFileChange {
+		private final List<String> fPerformed;
+		private final AtomicInteger fAcquired= new AtomicInteger();
+
+		public RecordingTextFileChange(IFile file, List<String> performed) {
+			super(file.getName(), file);
+			fPerformed= performed;
+			setEdit(new ReplaceEdit(8, 3, "two"));
+		}
+
+		public int getAcquired() {
+			return fAcquired.get();
+		}
+
+		@Override
+		protected IDocument acquireDocument(IProgressMonitor pm) throws CoreException {
+			IDocument result= super.acquireDocument(pm);
+			fAcquired.incrementAndGet();
+			return result;
+		}
+
+		@Override
+		protected void releaseDocument(IDocument document, IProgressMonitor pm) throws CoreException {
+			super.releaseDocument(document, pm);
+			fAcquired.decrementAndGet();
+		}
+
+		@Override
+		public Change perform(IProgressMonitor pm) throws CoreException {
+			fPerformed.add(getName());
+			return super.perform(pm);
+		}
+	}
+
+	/**
+	 * Change of a single file that reports a fixed status and may fail when performed.
+	 */
+	private static final class FileChange extends Change {
+		private final IFile fFile;
+		private final RefactoringStatus fStatus;
+		private final boolean fFail;
+
+		public FileChange(IFile file, RefactoringStatus status, boolean fail) {
+			fFile= file;
+			fStatus= status;
+			fFail= fail;
+		}
+
+		@Override
+		public String getName() {
+			return fFile.getName();
+		}
+
+		@Override
+		public void initializeValidationData(IProgressMonitor pm) {
+		}
+
+		@Override
+		public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return fStatus;
+		}
+
+		@Override
+		public Change perform(IProgressMonitor pm) throws CoreException {
+			if (fFail)
+				throw new CoreException(new Status(IStatus.ERROR, RefactoringCoreTestPlugin.getPluginId(), "failed"));
+			return new NullChange();
+		}
+
+		@Override
+		public Object getModifiedElement() {
+			return fFile;
+		}
+
+		@Override
+		public Object[] getAffectedObjects() {
+			return new Object[] { fFile };
+		}
+	}
+
+	private static final class NullChange extends Change {
+		@Override
+		public String getName() {
+			return "null";
+		}
+
+		@Override
+		public void initializeValidationData(IProgressMonitor pm) {
+		}
+
+		@Override
+		public RefactoringStatus isValid(IProgressMonitor pm) {
+			return new RefactoringStatus();
+		}
+
+		@Override
+		public Change perform(IProgressMonitor pm) {
+			return new NullChange();
+		}
+
+		@Override
+		public Object getModifiedElement() {
+			return null;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= new SimpleTestProject();
+		fPerformed= Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fProject.delete();
+		super.tearDown();
+	}
+
+	public void testParallelIsOffByDefault() throws Exception {
+		CompositeChange change= new CompositeChange("composite");
+		assertFalse(change.isParallel());
+		change.setParallel(true);
+		assertTrue(change.isParallel());
+	}
+
+	public void testAcquireDocument() throws Exception {
+		IFolder folder= fProject.createFolder("test");
+		IFile file= fProject.createFile(folder, "a.txt", CONTENT);
+		RecordingTextFileChange change= new RecordingTextFileChange(file, fPerformed);
+
+		IDocument document= change.acquireDocument(new NullProgressMonitor());
+		assertEquals(CONTENT, document.get());
+		assertSame(document, change.acquireDocument(new NullProgressMonitor()));
+		assertEquals(2, change.getAcquired());
+
+		change.releaseDocument(document, new NullProgressMonitor());
+		change.releaseDocument(document, new NullProgressMonitor());
+		assertEquals(0, change.getAcquired());
+
+		// the buffer is connected again after it has been released
+		document= change.acquireDocument(new NullProgressMonitor());
+		assertEquals(CONTENT, document.get());
+		change.releaseDocument(document, new NullProgressMonitor());
+	}
+
+	public void testSequentialUndoOrder() throws Exception {
+		assertUndoOrder(false);
+	}
+
+	public void testParallelUndoOrder() throws Exception {
+		assertUndoOrder(true);
+	}
+
+	private void assertUndoOrder(boolean parallel) throws Exception {
+		IFolder folder= fProject.createFolder("test");
+		String[] names= { "a.txt", "b.txt", "c.txt", "d.txt", "e.txt" };
+		IFile[] files= new IFile[names.length];
+		RecordingTextFileChange[] children= new RecordingTextFileChange[names.length];
+		CompositeChange composite= new CompositeChange("composite");
+		composite.setParallel(parallel);
+		for (int i= 0; i < names.length; i++) {
+			files[i]= fProject.createFile(folder, names[i], CONTENT);
+			children[i]= new RecordingTextFileChange(files[i], fPerformed);
+			composite.add(children[i]);
+		}
+
+		composite.initializeValidationData(new NullProgressMonitor());
+		assertTrue(composite.isValid(new NullProgressMonitor()).isOK());
+		Change undo= composite.perform(new NullProgressMonitor());
+
+		assertEquals(names.length, fPerformed.size());
+		for (int i= 0; i < names.length; i++) {
+			assertEquals(names[i], fPerformed.get(i));
+			assertEquals(0, children[i].getAcquired());
+			assertEquals("section two", fProject.getContent(files[i]));
+		}
+
+		assertTrue(undo instanceof CompositeChange);
+		Change[] undos= ((CompositeChange) undo).getChildren();
+		assertEquals(names.length, undos.length);
+		for (int i= 0; i < names.length; i++) {
+			assertEquals(files[names.length - 1 - i], undos[i].getModifiedElement());
+		}
+
+		undo.initializeValidationData(new NullProgressMonitor());
+		assertTrue(undo.isValid(new NullProgressMonitor()).isOK());
+		undo.perform(new NullProgressMonitor());
+		for (int i= 0; i < names.length; i++) {
+			assertEquals(CONTENT, fProject.getContent(files[i]));
+		}
+	}
+
+	public void testParallelExceptionDuringPerform() throws Exception {
+		IFolder folder= fProject.createFolder("test");
+		IFile a= fProject.createFile(folder, "a.txt", CONTENT);
+		IFile b= fProject.createFile(folder, "b.txt", CONTENT);
+		IFile c= fProject.createFile(folder, "c.txt", CONTENT);
+		IFile d= fProject.createFile(folder, "d.txt", CONTENT);
+		RecordingTextFileChange changeA= new RecordingTextFileChange(a, fPerformed);
+		RecordingTextFileChange changeB= new RecordingTextFileChange(b, fPerformed);
+		RecordingTextFileChange changeD= new RecordingTextFileChange(d, fPerformed);
+		CompositeChange composite= new CompositeChange("composite");
+		composite.setParallel(true);
+		composite.add(changeA);
+		composite.add(changeB);
+		composite.add(new FileChange(c, new RefactoringStatus(), true));
+		composite.add(changeD);
+
+		composite.initializeValidationData(new NullProgressMonitor());
+		try {
+			composite.perform(new NullProgressMonitor());
+			fail("exception expected");
+		} catch (CoreException e) {
+			assertEquals("failed", e.getStatus().getMessage());
+		}
+
+		assertEquals(2, fPerformed.size());
+		assertEquals("a.txt", fPerformed.get(0));
+		assertEquals("b.txt", fPerformed.get(1));
+		assertEquals(0, changeA.getAcquired());
+		assertEquals(0, changeB.getAcquired());
+		assertEquals(0, changeD.getAcquired());
+		assertEquals("section two", fProject.getContent(a));
+		assertEquals("section two", fProject.getContent(b));
+		assertEquals(CONTENT, fProject.getContent(d));
+
+		Change undo= composite.getUndoUntilException();
+		assertTrue(undo instanceof CompositeChange);
+		Change[] undos= ((CompositeChange) undo).getChildren();
+		assertEquals(2, undos.length);
+		assertEquals(b, undos[0].getModifiedElement());
+		assertEquals(a, undos[1].getModifiedElement());
+
+		undo.initializeValidationData(new NullProgressMonitor());
+		undo.perform(new NullProgressMonitor());
+		assertEquals(CONTENT, fProject.getContent(a));
+		assertEquals(CONTENT, fProject.getContent(b));
+	}
+
+	public void testParallelIsValid() throws Exception {
+		IFolder folder= fProject.createFolder("test");
+		CompositeChange composite= new CompositeChange("composite");
+		composite.setParallel(true);
+		composite.add(new FileChange(folder.getFile("a.txt"), RefactoringStatus.createWarningStatus("a"), false));
+		composite.add(new FileChange(folder.getFile("b.txt"), new RefactoringStatus(), false));
+		composite.add(new FileChange(folder.getFile("c.txt"), RefactoringStatus.createErrorStatus("c"), false));
+		composite.add(new FileChange(folder.getFile("d.txt"), RefactoringStatus.createFatalErrorStatus("d"), false));
+		composite.add(new FileChange(folder.getFile("e.txt"), RefactoringStatus.createWarningStatus("e"), false));
+
+		RefactoringStatus status= composite.isValid(new NullProgressMonitor());
+		RefactoringStatusEntry[] entries= status.getEntries();
+		assertEquals(3, entries.length);
+		assertEquals("a", entries[0].getMessage());
+		assertEquals("c", entries[1].getMessage());
+		assertEquals("d", entries[2].getMessage());
+	}
+
+	public void testParallelWithResourceChange() throws Exception {
+		IFolder source= fProject.createFolder("source");
+		IFolder destination= fProject.createFolder("destination");
+		IFile a= fProject.createFile(source, "a.txt", CONTENT);
+		IFile b= fProject.createFile(source, "b.txt", CONTENT);
+		IFile movedB= destination.getFile("b.txt");
+
+		// the text change of the moved file must not acquire its document before the move
+		RecordingTextFileChange changeA= new RecordingTextFileChange(a, fPerformed);
+		RecordingTextFileChange changeB= new RecordingTextFileChange(movedB, fPerformed);
+		CompositeChange composite= new CompositeChange("composite");
+		composite.setParallel(true);
+		composite.add(changeA);
+		composite.add(new MoveResourceChange(b, destination));
+		composite.add(changeB);
+
+		composite.initializeValidationData(new NullProgressMonitor());
+		Change undo= composite.perform(new NullProgressMonitor());
+
+		assertFalse(b.exists());
+		assertEquals("section two", fProject.getContent(a));
+		assertEquals("section two", fProject.getContent(movedB));
+		assertEquals(0, changeA.getAcquired());
+		assertEquals(0, changeB.getAcquired());
+
+		undo.initializeValidationData(new NullProgressMonitor());
+		undo.perform(new NullProgressMonitor());
+		assertFalse(movedB.exists());
+		assertEquals(CONTENT, fProject.getContent(a));
+		assertEquals(CONTENT, fProject.getContent(b));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -556,6 +556,31 @@ public class RefactoringHistoryServiceTests extends TestCase {
 		assertEquals("Refactoring history has wrong size", 0, proxies.length);
 	}
 
+	public void testReadProjectHistory7() throws Exception {
+		final IProject project= fProject.getProject();
+		final RefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		final long start= STAMP_FACTOR * (TOTAL_PROJECT_NUMBER - 2);
+		final long end= STAMP_FACTOR * (TOTAL_PROJECT_NUMBER + 1);
+		RefactoringHistory history= service.getProjectHistory(project, start, end, RefactoringDescriptor.NONE, null);
+		assertEquals("Refactoring history has wrong size", 3, history.getDescriptors().length);
+		executeRefactoring(project.getName(), TOTAL_PROJECT_NUMBER, RefactoringDescriptor.NONE);
+		history= service.getProjectHistory(project, start, end, RefactoringDescriptor.NONE, null);
+		RefactoringDescriptorProxy[] proxies= history.getDescriptors();
+		assertEquals("Refactoring history has wrong size", 4, proxies.length);
+		RefactoringDescriptorProxy added= null;
+		for (int index= 0; index < proxies.length; index++) {
+			if (proxies[index].getTimeStamp() == end)
+				added= proxies[index];
+		}
+		assertNotNull("Added refactoring should be in the history", added);
+		assertEquals("Added refactoring has wrong description", "A mock description number " + TOTAL_PROJECT_NUMBER, added.getDescription());
+		service.deleteRefactoringDescriptors(new RefactoringDescriptorProxy[] { added }, null);
+		history= service.getProjectHistory(project, start, end, RefactoringDescriptor.NONE, null);
+		assertEquals("Refactoring history has wrong size", 3, history.getDescriptors().length);
+		history= service.getProjectHistory(project, end + 1, Long.MAX_VALUE, RefactoringDescriptor.NONE, null);
+		assertTrue("Refactoring history should be empty", history.isEmpty());
+	}
+
 	public void testReadRefactoringHistory0() throws Exception {
 		setUpWorkspaceRefactorings();
 		RefactoringHistory history= RefactoringHistoryService.getInstance().getWorkspaceHistory(null);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,17 +13,38 @@ package org.eclipse.ltk.core.refactoring;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jface.text.IDocument;
+
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 
@@ -41,9 +62,15 @@ import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
  */
 public class CompositeChange extends Change {
 
+	/**
+	 * Maximal number of threads used to process the children in parallel.
+	 */
+	private static final int MAX_THREADS= 4;
+
 	private String fName;
 	private List<Change> fChanges;
 	private boolean fIsSynthetic;
+	private boolean fIsParallel;
 	private Change fUndoUntilException;
 
 	/**
@@ -93,6 +120,48 @@ public class CompositeChange extends Change {
 		fIsSynthetic= true;
 	}
 
+	/**
+	 * Returns whether the children of this change are validated and
+	 * prepared in parallel.
+	 *
+	 * @return <code>true</code> if the children are processed in parallel;
+	 *  otherwise <code>false</code>
+	 *
+	 * @see #setParallel(boolean)
+	 *
+	 * @since 3.8
+	 */
+	public boolean isParallel() {
+		return fIsParallel;
+	}
+
+	/**
+	 * Sets whether the children of this change are validated and prepared
+	 * in parallel. The default is <code>false</code>.
+	 * <p>
+	 * If enabled, the children whose affected resources are disjoint from
+	 * the ones of all other children receive the <code>isValid</code> call
+	 * in parallel, and the documents of their text file changes are
+	 * acquired ahead of time while the preceding children are performed.
+	 * Children that overlap with another child are processed in order. If
+	 * a child does not report its affected objects, it may affect any
+	 * resource, and all children are processed in order. The children
+	 * themselves are always performed in order, and all of them inside a
+	 * single workspace operation.
+	 * </p>
+	 * <p>
+	 * Only enable this if <code>isValid</code> of the children neither
+	 * acquires scheduling rules nor depends on the calling thread.
+	 * </p>
+	 *
+	 * @param parallel <code>true</code> to process the children in parallel
+	 *
+	 * @since 3.8
+	 */
+	public void setParallel(boolean parallel) {
+		fIsParallel= parallel;
+	}
+
 	@Override
 	public String getName() {
 		return fName;
@@ -227,11 +296,18 @@ public class CompositeChange extends Change {
 	 * will not receive the <code>isValid</code> call.
 	 * </p>
 	 * <p>
+	 * If the change is {@link #isParallel() parallel}, independent children are
+	 * validated concurrently. The statuses are still merged in the order of the
+	 * children, and the result is the same as if they were validated in order.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
 	@Override
 	public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException {
+		if (fIsParallel && fChanges.size() > 1)
+			return parallelIsValid(pm);
 		RefactoringStatus result= new RefactoringStatus();
 		pm.beginTask("", fChanges.size()); //$NON-NLS-1$
 		for (Iterator<Change> iter= fChanges.iterator(); iter.hasNext() && !result.hasFatalError();) {
@@ -247,6 +323,57 @@ public class CompositeChange extends Change {
 		return result;
 	}
 
+	private RefactoringStatus parallelIsValid(final IProgressMonitor pm) throws CoreException {
+		Change[] children= fChanges.toArray(new Change[fChanges.size()]);
+		boolean[] independent= findIndependentChildren(children);
+		List<Future<RefactoringStatus>> validations= new ArrayList<>(children.length);
+		ExecutorService executor= createExecutor();
+		try {
+			for (int i= 0; i < children.length; i++) {
+				if (independent[i]) {
+					final Change change= children[i];
+					validations.add(executor.submit(new Callable<RefactoringStatus>() {
+						@Override
+						public RefactoringStatus call() throws CoreException {
+							if (pm.isCanceled())
+								throw new OperationCanceledException();
+							return change.isValid(new NullProgressMonitor());
+						}
+					}));
+				} else {
+					validations.add(null);
+				}
+			}
+
+			// merge in the order of the children, so that the result is the same as in isValid
+			RefactoringStatus result= new RefactoringStatus();
+			pm.beginTask("", children.length); //$NON-NLS-1$
+			for (int i= 0; i < children.length && !result.hasFatalError(); i++) {
+				Change change= children[i];
+				Future<RefactoringStatus> validation= validations.get(i);
+				if (validation != null) {
+					result.merge(getResult(validation));
+					pm.worked(1);
+				} else if (change.isEnabled()) {
+					result.merge(change.isValid(new SubProgressMonitor(pm, 1)));
+				} else {
+					pm.worked(1);
+				}
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+			}
+			pm.done();
+			return result;
+		} finally {
+			for (Iterator<Future<RefactoringStatus>> iter= validations.iterator(); iter.hasNext();) {
+				Future<RefactoringStatus> validation= iter.next();
+				if (validation != null)
+					validation.cancel(false);
+			}
+			shutdown(executor);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -257,11 +384,36 @@ public class CompositeChange extends Change {
 	 * undo objects of all executed children.
 	 * </p>
 	 * <p>
+	 * If the change is {@link #isParallel() parallel}, the children are performed
+	 * inside a single workspace operation, and the documents of independent text
+	 * file changes are acquired in parallel ahead of the child being performed.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
 	@Override
-	public Change perform(IProgressMonitor pm) throws CoreException {
+	public Change perform(final IProgressMonitor pm) throws CoreException {
+		if (!fIsParallel || fChanges.size() <= 1)
+			return internalPerform(pm, null);
+
+		final Change[] result= new Change[1];
+		IWorkspace workspace= ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				DocumentPreparer preparer= new DocumentPreparer(fChanges);
+				try {
+					result[0]= internalPerform(monitor, preparer);
+				} finally {
+					preparer.dispose();
+				}
+			}
+		}, null, IWorkspace.AVOID_UPDATE, pm);
+		return result[0];
+	}
+
+	private Change internalPerform(IProgressMonitor pm, DocumentPreparer preparer) throws CoreException {
 		fUndoUntilException= null;
 		List<Change> undos= new ArrayList<>(fChanges.size());
 		pm.beginTask("", fChanges.size()); //$NON-NLS-1$
@@ -276,6 +428,8 @@ public class CompositeChange extends Change {
 
 				if (change.isEnabled()) {
 					Change undoChange= null;
+					if (preparer != null)
+						preparer.aboutToPerform(change);
 					try {
 						undoChange= change.perform(new SubProgressMonitor(pm, 1));
 					} catch(OperationCanceledException e) {
@@ -283,6 +437,9 @@ public class CompositeChange extends Change {
 						if (!internalContinueOnCancel())
 							throw e;
 						undos= null;
+					} finally {
+						if (preparer != null)
+							preparer.performed(change);
 					}
 					if (undos != null) {
 						if (undoChange == null) {
@@ -509,4 +666,288 @@ public class CompositeChange extends Change {
 		}
 		return buff.toString();
 	}
+
+	/**
+	 * Returns which of the given children are enabled and only affect resources
+	 * that are disjoint from the resources of all other children. Two resources
+	 * are not disjoint if they are the same or if one contains the other.
+	 * <p>
+	 * An enabled child that does not report its affected resources, like a
+	 * resource change that moves, renames or deletes a resource, may affect any
+	 * resource. It conflicts with all other children, so none of them is
+	 * independent.
+	 * </p>
+	 *
+	 * @param children the children
+	 * @return the independent children, indexed like <code>children</code>
+	 */
+	private static boolean[] findIndependentChildren(Change[] children) {
+		boolean[] independent= new boolean[children.length];
+		IPath[][] paths= new IPath[children.length][];
+		Map<IPath, Integer> owners= new HashMap<>();
+		for (int i= 0; i < children.length; i++) {
+			if (!children[i].isEnabled())
+				continue;
+			paths[i]= getAffectedPaths(children[i]);
+			if (paths[i] == null)
+				return new boolean[children.length];
+			independent[i]= true;
+			Integer owner= Integer.valueOf(i);
+			for (int j= 0; j < paths[i].length; j++) {
+				Integer previous= owners.put(paths[i][j], owner);
+				if (previous != null && previous.intValue() != i) {
+					independent[previous.intValue()]= false;
+					independent[i]= false;
+				}
+			}
+		}
+		for (int i= 0; i < children.length; i++) {
+			if (paths[i] == null)
+				continue;
+			for (int j= 0; j < paths[i].length; j++) {
+				for (IPath parent= paths[i][j].removeLastSegments(1); parent.segmentCount() > 0; parent= parent.removeLastSegments(1)) {
+					Integer owner= owners.get(parent);
+					if (owner != null && owner.intValue() != i) {
+						independent[owner.intValue()]= false;
+						independent[i]= false;
+					}
+				}
+			}
+		}
+		return independent;
+	}
+
+	/**
+	 * Returns the full paths of the resources affected by the given change.
+	 *
+	 * @param change the change
+	 * @return the paths, or <code>null</code> if the affected resources are
+	 *  not known or include the workspace root
+	 */
+	private static IPath[] getAffectedPaths(Change change) {
+		Object[] objects= change.getAffectedObjects();
+		if (objects == null)
+			return null;
+		IPath[] result= new IPath[objects.length];
+		for (int i= 0; i < objects.length; i++) {
+			IResource resource= null;
+			if (objects[i] instanceof IResource)
+				resource= (IResource) objects[i];
+			else if (objects[i] instanceof IAdaptable)
+				resource= ((IAdaptable) objects[i]).getAdapter(IResource.class);
+			if (resource == null || resource.getType() == IResource.ROOT)
+				return null;
+			result[i]= resource.getFullPath();
+		}
+		return result;
+	}
+
+	private static ExecutorService createExecutor() {
+		int threads= Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "Composite Change Worker"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Shuts the given executor down and waits for the running tasks, so that no
+	 * child is still accessed when the calling method returns. Running tasks are
+	 * not interrupted, since interrupting file I/O closes the underlying channels.
+	 *
+	 * @param executor the executor
+	 */
+	private static void shutdown(ExecutorService executor) {
+		executor.shutdown();
+		boolean interrupted= false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.SECONDS))
+					break;
+			} catch (InterruptedException e) {
+				interrupted= true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private static <T> T getResult(Future<T> future) throws CoreException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.INTERNAL_ERROR, cause.getMessage(), cause));
+		}
+	}
+
+	/**
+	 * Acquires the documents of the text file changes of independent children
+	 * in parallel, a few children ahead of the one being performed. Since a child
+	 * acquires its document again when performed, it then finds the document
+	 * connected already. The additional acquisition is released right after the
+	 * child has been performed.
+	 */
+	private static final class DocumentPreparer {
+
+		/**
+		 * Number of independent children whose documents are acquired ahead of time.
+		 */
+		private static final int READ_AHEAD= 16;
+
+		private final List<Change> fChildren= new ArrayList<>();
+		private final Map<Change, Integer> fPositions= new HashMap<>();
+		private final Map<Change, List<Preparation>> fPreparations= new HashMap<>();
+		private final ExecutorService fExecutor;
+		private int fScheduled;
+
+		private static final class Preparation {
+			final TextFileChange fChange;
+			final Future<IDocument> fFuture;
+			IDocument fDocument;
+
+			Preparation(TextFileChange change, Future<IDocument> future) {
+				fChange= change;
+				fFuture= future;
+			}
+		}
+
+		DocumentPreparer(List<Change> children) {
+			Change[] changes= children.toArray(new Change[children.size()]);
+			boolean[] independent= findIndependentChildren(changes);
+			for (int i= 0; i < changes.length; i++) {
+				if (independent[i]) {
+					fPositions.put(changes[i], Integer.valueOf(fChildren.size()));
+					fChildren.add(changes[i]);
+				}
+			}
+			fExecutor= fChildren.isEmpty() ? null : createExecutor();
+		}
+
+		/**
+		 * Waits until the documents of the given child are acquired and
+		 * schedules the acquisition for the next children.
+		 *
+		 * @param change the child that is about to be performed
+		 */
+		void aboutToPerform(Change change) {
+			Integer position= fPositions.get(change);
+			if (position == null)
+				return;
+			schedule(position.intValue() + 1 + READ_AHEAD);
+			List<Preparation> preparations= fPreparations.get(change);
+			for (Iterator<Preparation> iter= preparations.iterator(); iter.hasNext();) {
+				Preparation preparation= iter.next();
+				try {
+					preparation.fDocument= getResult(preparation.fFuture);
+				} catch (CoreException e) {
+					// the child reports the problem when it acquires the document itself
+				} catch (RuntimeException e) {
+					// the child reports the problem when it acquires the document itself
+				}
+			}
+		}
+
+		/**
+		 * Releases the documents acquired for the given child.
+		 *
+		 * @param change the child that has been performed
+		 */
+		void performed(Change change) {
+			List<Preparation> preparations= fPreparations.remove(change);
+			if (preparations != null)
+				release(preparations);
+		}
+
+		/**
+		 * Stops acquiring documents and releases the documents acquired for
+		 * children that have not been performed.
+		 */
+		void dispose() {
+			if (fExecutor == null)
+				return;
+			for (Iterator<List<Preparation>> iter= fPreparations.values().iterator(); iter.hasNext();) {
+				for (Iterator<Preparation> preparations= iter.next().iterator(); preparations.hasNext();) {
+					preparations.next().fFuture.cancel(false);
+				}
+			}
+			shutdown(fExecutor);
+			for (Iterator<List<Preparation>> iter= fPreparations.values().iterator(); iter.hasNext();) {
+				List<Preparation> preparations= iter.next();
+				for (Iterator<Preparation> iterator= preparations.iterator(); iterator.hasNext();) {
+					Preparation preparation= iterator.next();
+					if (preparation.fDocument == null && preparation.fFuture.isDone() && !preparation.fFuture.isCancelled()) {
+						try {
+							preparation.fDocument= getResult(preparation.fFuture);
+						} catch (CoreException e) {
+							// not acquired
+						} catch (RuntimeException e) {
+							// not acquired
+						}
+					}
+				}
+				release(preparations);
+			}
+			fPreparations.clear();
+		}
+
+		private void schedule(int limit) {
+			int end= Math.min(limit, fChildren.size());
+			for (; fScheduled < end; fScheduled++) {
+				Change child= fChildren.get(fScheduled);
+				List<TextFileChange> changes= new ArrayList<>();
+				collectTextFileChanges(child, changes);
+				List<Preparation> preparations= new ArrayList<>(changes.size());
+				for (Iterator<TextFileChange> iter= changes.iterator(); iter.hasNext();) {
+					final TextFileChange change= iter.next();
+					preparations.add(new Preparation(change, fExecutor.submit(new Callable<IDocument>() {
+						@Override
+						public IDocument call() throws CoreException {
+							return change.acquireDocument(new NullProgressMonitor());
+						}
+					})));
+				}
+				fPreparations.put(child, preparations);
+			}
+		}
+
+		private static void collectTextFileChanges(Change change, List<TextFileChange> result) {
+			if (change instanceof TextFileChange) {
+				result.add((TextFileChange) change);
+			} else if (change instanceof CompositeChange) {
+				Change[] children= ((CompositeChange) change).getChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (children[i].isEnabled())
+						collectTextFileChanges(children[i], result);
+				}
+			}
+		}
+
+		private static void release(List<Preparation> preparations) {
+			for (Iterator<Preparation> iter= preparations.iterator(); iter.hasNext();) {
+				Preparation preparation= iter.next();
+				if (preparation.fDocument == null)
+					continue;
+				try {
+					preparation.fChange.releaseDocument(preparation.fDocument, new NullProgressMonitor());
+				} catch (CoreException e) {
+					RefactoringCorePlugin.log(e);
+				}
+				preparation.fDocument= null;
+			}
+		}
+	}
 }
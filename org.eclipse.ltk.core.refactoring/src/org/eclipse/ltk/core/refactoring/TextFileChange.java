@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -203,13 +203,16 @@ public class TextFileChange extends TextChange {
 
 	@Override
 	protected IDocument acquireDocument(IProgressMonitor pm) throws CoreException {
-		fAcquireCount++;
-		if (fAcquireCount > 1)
+		if (fAcquireCount > 0) {
+			fAcquireCount++;
 			return fBuffer.getDocument();
+		}
 
 		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
 		IPath path= fFile.getFullPath();
 		manager.connect(path, LocationKind.IFILE, pm);
+		// only count the document as acquired once the buffer is connected
+		fAcquireCount++;
 		fBuffer= manager.getTextFileBuffer(path, LocationKind.IFILE);
 		IDocument result= fBuffer.getDocument();
 		fContentStamp= ContentStamps.get(fFile, result);
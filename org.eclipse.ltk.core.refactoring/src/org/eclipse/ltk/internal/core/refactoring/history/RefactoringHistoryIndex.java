@@ -0,0 +1,666 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Index of the refactoring descriptor proxies of a refactoring history, sorted by time stamp.
+ * <p>
+ * A refactoring history consists of one folder per week (see
+ * {@link RefactoringHistoryManager#stampToPath(long)}), each with an index file listing the
+ * time stamps and descriptions of its refactorings. Instead of reading all these files whenever
+ * proxies are requested, this index combines them into one file in the state location of the
+ * plug-in. The proxies of a time range are found by binary search, and only their descriptions
+ * are decoded. Index files of the history that have changed since the index has been written
+ * are recognized by their modification time and length, and only those are read again.
+ * </p>
+ * <p>
+ * Layout of the index file (see {@link DataOutputStream}). All sections except the strings
+ * have fixed width entries, so that the entries can be searched without decoding the file:
+ * </p>
+ * <pre>
+ * int   magic
+ * int   version
+ * UTF   URI of the history
+ * int   number of sources
+ * sources:  { UTF path of the week folder, long modification time, long length }
+ * int   number of entries
+ * entries, ascending by time stamp:  { long time stamp, int source, int offset of the description }
+ * int   length of the strings
+ * strings:  { int byte count, UTF-8 bytes }
+ * </pre>
+ *
+ * @since 3.8
+ */
+final class RefactoringHistoryIndex {
+
+	/** Modification time and length of an index file of the history */
+	private static final class Source {
+
+		/** The modification time */
+		private final long fModified;
+
+		/** The length */
+		private final long fLength;
+
+		/**
+		 * Creates a new source.
+		 *
+		 * @param modified
+		 *            the modification time
+		 * @param length
+		 *            the length
+		 */
+		public Source(final long modified, final long length) {
+			fModified= modified;
+			fLength= length;
+		}
+
+		/**
+		 * Returns whether the source is described by the file info.
+		 *
+		 * @param info
+		 *            the file info of the index file
+		 * @return <code>true</code> if the file has not changed,
+		 *         <code>false</code> otherwise
+		 */
+		public boolean matches(final IFileInfo info) {
+			return info.getLastModified() == fModified && info.getLength() == fLength;
+		}
+	}
+
+	/** An entry of the index while the index is rebuilt */
+	private static final class IndexEntry {
+
+		/** The time stamp */
+		private final long fStamp;
+
+		/** The path of the source */
+		private final String fSource;
+
+		/** The description */
+		private final String fDescription;
+
+		/**
+		 * Creates a new index entry.
+		 *
+		 * @param stamp
+		 *            the time stamp
+		 * @param source
+		 *            the path of the source
+		 * @param description
+		 *            the description
+		 */
+		public IndexEntry(final long stamp, final String source, final String description) {
+			fStamp= stamp;
+			fSource= source;
+			fDescription= description;
+		}
+	}
+
+	/** The magic number of an index file: "RHIX" */
+	private static final int MAGIC= 0x52484958;
+
+	/** The version of the layout */
+	private static final int VERSION= 1;
+
+	/** The folder of the index files in the state location */
+	private static final String NAME_INDEX_FOLDER= ".refactoringIndexes"; //$NON-NLS-1$
+
+	/** The extension of index files */
+	private static final String EXTENSION_INDEX_FILE= ".stamps"; //$NON-NLS-1$
+
+	/** Maximal number of cached indexes */
+	private static final int MAX_INDEXES= 8;
+
+	/** The index cache */
+	private static final Map<IFileStore, RefactoringHistoryIndex> fgIndexes= new LinkedHashMap<IFileStore, RefactoringHistoryIndex>(MAX_INDEXES, 0.75f, true) {
+
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IFileStore, RefactoringHistoryIndex> entry) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	/**
+	 * Returns the index of the specified refactoring history.
+	 *
+	 * @param store
+	 *            the history file store
+	 * @return the index
+	 */
+	public static RefactoringHistoryIndex getIndex(final IFileStore store) {
+		Assert.isNotNull(store);
+		synchronized (fgIndexes) {
+			RefactoringHistoryIndex index= fgIndexes.get(store);
+			if (index == null) {
+				index= new RefactoringHistoryIndex(store);
+				fgIndexes.put(store, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Returns the year of the specified time stamp, as used by
+	 * {@link RefactoringHistoryManager#stampToPath(long)}.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return the year
+	 */
+	private static int stampToYear(final long stamp) {
+		final Calendar calendar= Calendar.getInstance(TimeZone.getTimeZone("GMT+00:00")); //$NON-NLS-1$
+		calendar.setTimeInMillis(stamp);
+		return calendar.get(Calendar.YEAR);
+	}
+
+	/** The history file store */
+	private final IFileStore fStore;
+
+	/** The index file */
+	private final File fFile;
+
+	/** Has the index file been read? */
+	private boolean fLoaded= false;
+
+	/** The sources, by the path of their week folder */
+	private Map<String, Source> fSources= Collections.emptyMap();
+
+	/** The paths of the sources, by their number */
+	private String[] fSourcePaths= new String[0];
+
+	/** The time stamps of the entries, ascending */
+	private long[] fStamps= new long[0];
+
+	/** The source numbers of the entries */
+	private int[] fEntrySources= new int[0];
+
+	/** The offsets of the descriptions of the entries in {@link #fStrings} */
+	private int[] fDescriptionOffsets= new int[0];
+
+	/** The encoded descriptions */
+	private byte[] fStrings= new byte[0];
+
+	/** The descriptions that have been decoded, by entry */
+	private String[] fDescriptions= new String[0];
+
+	/**
+	 * Creates a new refactoring history index.
+	 *
+	 * @param store
+	 *            the history file store
+	 */
+	private RefactoringHistoryIndex(final IFileStore store) {
+		fStore= store;
+		final String uri= store.toURI().toString();
+		final IPath folder= RefactoringCorePlugin.getDefault().getStateLocation().append(NAME_INDEX_FOLDER);
+		fFile= folder.append(Integer.toHexString(uri.hashCode()) + EXTENSION_INDEX_FILE).toFile();
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies of the specified time range.
+	 * Index files of the history in that range which have changed since the
+	 * index has been written are read first.
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history
+	 */
+	public synchronized void readRefactoringDescriptorProxies(final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			ensureLoaded();
+			refresh(start, end, monitor);
+			final int from= lowerBound(start);
+			final int to= end == Long.MAX_VALUE ? fStamps.length : lowerBound(end + 1);
+			for (int index= from; index < to; index++)
+				collection.add(new DefaultRefactoringDescriptorProxy(getDescription(index), project, fStamps[index]));
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Updates the index after the index file of the specified week folder has
+	 * been written or removed.
+	 *
+	 * @param path
+	 *            the path of the week folder, relative to the history
+	 */
+	public synchronized void sourceChanged(final IPath path) {
+		try {
+			ensureLoaded();
+			final String key= path.toString();
+			final IFileStore file= fStore.getFileStore(path).getChild(RefactoringHistoryService.NAME_INDEX_FILE);
+			final IFileInfo info= file.fetchInfo();
+			final Map<String, Source> sources= new LinkedHashMap<>(fSources);
+			final Map<String, RefactoringDescriptorProxy[]> changed= new HashMap<>(2);
+			if (info.exists() && !info.isDirectory()) {
+				sources.put(key, new Source(info.getLastModified(), info.getLength()));
+				changed.put(key, readSource(file));
+			} else {
+				if (sources.remove(key) == null)
+					return;
+				changed.put(key, new RefactoringDescriptorProxy[0]);
+			}
+			rebuild(sources, changed);
+		} catch (CoreException exception) {
+			// the next read detects the change again
+			RefactoringCorePlugin.log(exception);
+		}
+	}
+
+	/**
+	 * Reads the index files of the history in the specified time range which
+	 * have changed since the index has been written, and rebuilds the index if
+	 * necessary.
+	 *
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history
+	 */
+	private void refresh(final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		final int startYear= start <= 0 ? Integer.MIN_VALUE : stampToYear(start);
+		final int endYear= end == Long.MAX_VALUE ? Integer.MAX_VALUE : stampToYear(end);
+		final Map<String, IFileInfo> found= new HashMap<>();
+		if (fStore.fetchInfo().exists())
+			collectSources(fStore, Path.EMPTY, startYear, endYear, found, monitor);
+		monitor.worked(5);
+
+		final Map<String, Source> sources= new LinkedHashMap<>();
+		final Map<String, RefactoringDescriptorProxy[]> changed= new HashMap<>();
+		for (final Iterator<Entry<String, Source>> iterator= fSources.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, Source> entry= iterator.next();
+			final String key= entry.getKey();
+			final IFileInfo info= found.remove(key);
+			if (info == null) {
+				if (isInRange(key, startYear, endYear))
+					changed.put(key, new RefactoringDescriptorProxy[0]);
+				else
+					sources.put(key, entry.getValue());
+			} else if (entry.getValue().matches(info)) {
+				sources.put(key, entry.getValue());
+			} else {
+				sources.put(key, new Source(info.getLastModified(), info.getLength()));
+				changed.put(key, readSource(fStore.getFileStore(new Path(key)).getChild(RefactoringHistoryService.NAME_INDEX_FILE)));
+			}
+		}
+		for (final Iterator<Entry<String, IFileInfo>> iterator= found.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, IFileInfo> entry= iterator.next();
+			final String key= entry.getKey();
+			sources.put(key, new Source(entry.getValue().getLastModified(), entry.getValue().getLength()));
+			changed.put(key, readSource(fStore.getFileStore(new Path(key)).getChild(RefactoringHistoryService.NAME_INDEX_FILE)));
+		}
+		if (!changed.isEmpty())
+			rebuild(sources, changed);
+		monitor.worked(5);
+	}
+
+	/**
+	 * Collects the index files below the specified folder. Year folders outside
+	 * the specified range are skipped.
+	 *
+	 * @param folder
+	 *            the folder
+	 * @param path
+	 *            the path of the folder, relative to the history
+	 * @param startYear
+	 *            the first year to visit
+	 * @param endYear
+	 *            the last year to visit
+	 * @param found
+	 *            the map of index file infos to fill in, by the path of their
+	 *            week folder
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while visiting the folder
+	 */
+	private void collectSources(final IFileStore folder, final IPath path, final int startYear, final int endYear, final Map<String, IFileInfo> found, final IProgressMonitor monitor) throws CoreException {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+		final IFileInfo[] infos= folder.childInfos(EFS.NONE, null);
+		for (int index= 0; index < infos.length; index++) {
+			final IFileInfo info= infos[index];
+			if (info.isDirectory()) {
+				final IPath child= path.append(info.getName());
+				if (isInRange(child.toString(), startYear, endYear))
+					collectSources(folder.getChild(info.getName()), child, startYear, endYear, found, monitor);
+			} else if (info.getName().equalsIgnoreCase(RefactoringHistoryService.NAME_INDEX_FILE)) {
+				found.put(path.toString(), info);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the specified path may contain refactorings of the
+	 * specified years.
+	 *
+	 * @param path
+	 *            the path, relative to the history
+	 * @param startYear
+	 *            the first year
+	 * @param endYear
+	 *            the last year
+	 * @return <code>true</code> if the path is in range, <code>false</code>
+	 *         otherwise
+	 */
+	private static boolean isInRange(final String path, final int startYear, final int endYear) {
+		final int length= path.indexOf(IPath.SEPARATOR);
+		final String segment= length < 0 ? path : path.substring(0, length);
+		try {
+			final int year= Integer.parseInt(segment);
+			return year >= startYear && year <= endYear;
+		} catch (NumberFormatException exception) {
+			// not a year folder
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the proxies of an index file of the history.
+	 *
+	 * @param file
+	 *            the index file
+	 * @return the proxies
+	 * @throws CoreException
+	 *             if an error occurs while reading the file
+	 */
+	private static RefactoringDescriptorProxy[] readSource(final IFileStore file) throws CoreException {
+		try (InputStream stream= file.openInputStream(EFS.NONE, null)) {
+			return RefactoringHistoryManager.readRefactoringDescriptorProxies(stream, null, 0, Long.MAX_VALUE);
+		} catch (IOException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+		}
+	}
+
+	/**
+	 * Replaces the entries of the changed sources and writes the index.
+	 *
+	 * @param sources
+	 *            the sources of the new index
+	 * @param changed
+	 *            the new proxies of the changed sources
+	 */
+	private void rebuild(final Map<String, Source> sources, final Map<String, RefactoringDescriptorProxy[]> changed) {
+		final List<IndexEntry> entries= new ArrayList<>(fStamps.length + 16);
+		for (int index= 0; index < fStamps.length; index++) {
+			final String source= fSourcePaths[fEntrySources[index]];
+			if (!changed.containsKey(source) && sources.containsKey(source))
+				entries.add(new IndexEntry(fStamps[index], source, getDescription(index)));
+		}
+		for (final Iterator<Entry<String, RefactoringDescriptorProxy[]>> iterator= changed.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, RefactoringDescriptorProxy[]> entry= iterator.next();
+			final RefactoringDescriptorProxy[] proxies= entry.getValue();
+			for (int index= 0; index < proxies.length; index++)
+				entries.add(new IndexEntry(proxies[index].getTimeStamp(), entry.getKey(), proxies[index].getDescription()));
+		}
+		Collections.sort(entries, new Comparator<IndexEntry>() {
+
+			@Override
+			public int compare(final IndexEntry first, final IndexEntry second) {
+				return Long.compare(first.fStamp, second.fStamp);
+			}
+		});
+
+		final byte[] bytes;
+		try {
+			bytes= encode(sources, entries);
+		} catch (IOException exception) {
+			// cannot happen for a ByteArrayOutputStream
+			RefactoringCorePlugin.log(exception);
+			return;
+		}
+		decode(bytes);
+		try {
+			write(bytes);
+		} catch (IOException exception) {
+			RefactoringCorePlugin.log(exception);
+		}
+	}
+
+	/**
+	 * Encodes the index.
+	 *
+	 * @param sources
+	 *            the sources
+	 * @param entries
+	 *            the entries, ascending by time stamp
+	 * @return the encoded index
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private byte[] encode(final Map<String, Source> sources, final List<IndexEntry> entries) throws IOException {
+		final Map<String, Integer> numbers= new HashMap<>(sources.size());
+		final ByteArrayOutputStream buffer= new ByteArrayOutputStream(64 + entries.size() * 64);
+		final DataOutputStream output= new DataOutputStream(buffer);
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeUTF(fStore.toURI().toString());
+		output.writeInt(sources.size());
+		for (final Iterator<Entry<String, Source>> iterator= sources.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, Source> entry= iterator.next();
+			numbers.put(entry.getKey(), Integer.valueOf(numbers.size()));
+			output.writeUTF(entry.getKey());
+			output.writeLong(entry.getValue().fModified);
+			output.writeLong(entry.getValue().fLength);
+		}
+
+		final ByteArrayOutputStream stringBuffer= new ByteArrayOutputStream(entries.size() * 48);
+		final DataOutputStream strings= new DataOutputStream(stringBuffer);
+		output.writeInt(entries.size());
+		for (final Iterator<IndexEntry> iterator= entries.iterator(); iterator.hasNext();) {
+			final IndexEntry entry= iterator.next();
+			output.writeLong(entry.fStamp);
+			output.writeInt(numbers.get(entry.fSource).intValue());
+			output.writeInt(strings.size());
+			final byte[] description= entry.fDescription.getBytes(StandardCharsets.UTF_8);
+			strings.writeInt(description.length);
+			strings.write(description);
+		}
+		output.writeInt(strings.size());
+		stringBuffer.writeTo(output);
+		output.flush();
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Decodes an index. The descriptions are decoded on demand.
+	 *
+	 * @param bytes
+	 *            the encoded index
+	 * @return <code>true</code> if the index has been decoded,
+	 *         <code>false</code> if it does not belong to the history
+	 */
+	private boolean decode(final byte[] bytes) {
+		try {
+			final DataInputStream input= new DataInputStream(new ByteArrayInputStream(bytes));
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !fStore.toURI().toString().equals(input.readUTF()))
+				return false;
+			final int sourceCount= input.readInt();
+			final Map<String, Source> sources= new LinkedHashMap<>(sourceCount);
+			final String[] paths= new String[sourceCount];
+			for (int index= 0; index < sourceCount; index++) {
+				paths[index]= input.readUTF();
+				sources.put(paths[index], new Source(input.readLong(), input.readLong()));
+			}
+			final int entryCount= input.readInt();
+			final long[] stamps= new long[entryCount];
+			final int[] entrySources= new int[entryCount];
+			final int[] offsets= new int[entryCount];
+			for (int index= 0; index < entryCount; index++) {
+				stamps[index]= input.readLong();
+				entrySources[index]= input.readInt();
+				offsets[index]= input.readInt();
+				if (entrySources[index] < 0 || entrySources[index] >= sourceCount)
+					return false;
+			}
+			final byte[] strings= new byte[input.readInt()];
+			input.readFully(strings);
+			for (int index= 0; index < entryCount; index++) {
+				if (offsets[index] < 0 || offsets[index] > strings.length - 4)
+					return false;
+			}
+
+			fSources= sources;
+			fSourcePaths= paths;
+			fStamps= stamps;
+			fEntrySources= entrySources;
+			fDescriptionOffsets= offsets;
+			fStrings= strings;
+			fDescriptions= new String[entryCount];
+			return true;
+		} catch (IOException exception) {
+			// corrupt index, rebuild it
+			return false;
+		} catch (NegativeArraySizeException exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the index file if it has not been read yet.
+	 */
+	private void ensureLoaded() {
+		if (fLoaded)
+			return;
+		fLoaded= true;
+		if (fFile.isFile()) {
+			try {
+				decode(Files.readAllBytes(fFile.toPath()));
+			} catch (IOException exception) {
+				// rebuild the index
+			}
+		}
+	}
+
+	/**
+	 * Writes the encoded index to the index file. The index is first written
+	 * to a temporary file which then replaces the index file.
+	 *
+	 * @param bytes
+	 *            the encoded index
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void write(final byte[] bytes) throws IOException {
+		final File folder= fFile.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs())
+			throw new IOException("Could not create " + folder); //$NON-NLS-1$
+		final File temporary= new File(fFile.getPath() + ".tmp"); //$NON-NLS-1$
+		try (OutputStream output= new FileOutputStream(temporary)) {
+			output.write(bytes);
+		}
+		if (fFile.exists() && !fFile.delete() || !temporary.renameTo(fFile)) {
+			temporary.delete();
+			throw new IOException("Could not replace " + fFile); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the description of the specified entry.
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the description
+	 */
+	private String getDescription(final int index) {
+		String description= fDescriptions[index];
+		if (description == null) {
+			final int offset= fDescriptionOffsets[index];
+			final int length= ((fStrings[offset] & 0xFF) << 24) | ((fStrings[offset + 1] & 0xFF) << 16) | ((fStrings[offset + 2] & 0xFF) << 8) | (fStrings[offset + 3] & 0xFF);
+			description= new String(fStrings, offset + 4, length, StandardCharsets.UTF_8);
+			fDescriptions[index]= description;
+		}
+		return description;
+	}
+
+	/**
+	 * Returns the index of the first entry whose time stamp is not less than
+	 * the specified one.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return the index of the entry, or the number of entries
+	 */
+	private int lowerBound(final long stamp) {
+		int low= 0;
+		int high= fStamps.length;
+		while (low < high) {
+			final int middle= (low + high) >>> 1;
+			if (fStamps[middle] < stamp)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+}
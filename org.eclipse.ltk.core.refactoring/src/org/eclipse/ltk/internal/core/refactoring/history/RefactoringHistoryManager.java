@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -858,6 +858,7 @@ public final class RefactoringHistoryManager {
 								writeIndexEntry(index, set.toArray(new RefactoringDescriptorProxy[set.size()]), EFS.NONE, new SubProgressMonitor(monitor, 3, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 							} else
 								writeIndexEntry(index, proxies, EFS.APPEND, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+							RefactoringHistoryIndex.getIndex(fHistoryStore).sourceChanged(path);
 						}
 					} catch (ParserConfigurationException exception) {
 						throw createCoreException(exception);
@@ -879,6 +880,7 @@ public final class RefactoringHistoryManager {
 						final Document result= transformDescriptor(descriptor, false);
 						writeHistoryEntry(history, result, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 							writeIndexEntry(index, proxies, EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						RefactoringHistoryIndex.getIndex(fHistoryStore).sourceChanged(path);
 					} catch (IOException exception) {
 						throw createCoreException(exception);
 					}
@@ -949,6 +951,10 @@ public final class RefactoringHistoryManager {
 
 	/**
 	 * Reads the refactoring history from disk.
+	 * <p>
+	 * The proxies are read from the {@link RefactoringHistoryIndex}es of the
+	 * histories, which only read the index files that have changed.
+	 * </p>
 	 *
 	 * @param start
 	 *            the start time stamp, inclusive
@@ -964,10 +970,10 @@ public final class RefactoringHistoryManager {
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
 				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					RefactoringHistoryIndex.getIndex(fHistoryStore).readRefactoringDescriptorProxies(fProjectName, set, start, end, new SubProgressMonitor(monitor, 80));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					RefactoringHistoryIndex.getIndex(store).readRefactoringDescriptorProxies(null, set, start, end, new SubProgressMonitor(monitor, 80));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1005,9 +1011,10 @@ public final class RefactoringHistoryManager {
 			if (index.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
 				final Set<RefactoringDescriptorProxy> resultingProxies= new HashSet<>(64);
 				readRefactoringDescriptorProxies(index, null, resultingProxies, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 1), task);
-				if (resultingProxies.size() == proxies.length)
+				if (resultingProxies.size() == proxies.length) {
 					removeIndexTree(folder, new SubProgressMonitor(monitor, 1), task);
-				else {
+					RefactoringHistoryIndex.getIndex(fHistoryStore).sourceChanged(path);
+				} else {
 					final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
 					if (history.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
 						InputStream input= null;
@@ -1062,6 +1069,8 @@ public final class RefactoringHistoryManager {
 							writeHistoryEntry(history, document, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), task);
 						} catch (IOException exception) {
 							throw createCoreException(exception);
+						} finally {
+							RefactoringHistoryIndex.getIndex(fHistoryStore).sourceChanged(path);
 						}
 					}
 				}